@@ -0,0 +1,100 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Frames of a generated animation: a grid of static shapes with some of them spinning and fading. The time of
+ * {@link #frame()} should depend on the number of animated shapes but not on the number of static ones, unlike
+ * {@link #reparse()} (animating by parsing the document again for each frame) and {@link #renderFrame()} (drawing
+ * everything again for each frame).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationBenchmark {
+
+	@Param({ "100", "1000", "10000" })
+	public int staticShapes;
+
+	@Param({ "1", "10", "100" })
+	public int animatedShapes;
+
+	private byte[] data;
+	private SVGAnimation animation;
+	private Canvas canvas;
+	private float time;
+
+	@Setup
+	public void setUp() throws UnsupportedEncodingException {
+		final int shapes = staticShapes + animatedShapes;
+		final int columns = (int) Math.ceil(Math.sqrt(shapes));
+		final StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"")
+				.append(columns * 10).append("\" height=\"").append(columns * 10).append("\">");
+		for (int i = 0; i < shapes; i++) {
+			final int x = (i % columns) * 10;
+			final int y = (i / columns) * 10;
+			// Spread the animated shapes through the document, so that they split the static content in to layers
+			final boolean animated = (i % (shapes / animatedShapes) == 0);
+			svg.append("<path fill=\"#3a7\" stroke=\"#123\" d=\"M").append(x + 1).append(',').append(y + 1)
+					.append("h8v8h-8z\"");
+			if (animated) {
+				svg.append("><animateTransform attributeName=\"transform\" type=\"rotate\" from=\"0 ").append(x + 5)
+						.append(' ').append(y + 5).append("\" to=\"360 ").append(x + 5).append(' ').append(y + 5)
+						.append("\" dur=\"2s\" repeatCount=\"indefinite\"/>")
+						.append("<animate attributeName=\"opacity\" values=\"1;0.2;1\" dur=\"1s\"")
+						.append(" repeatCount=\"indefinite\"/></path>");
+			} else {
+				svg.append("/>");
+			}
+		}
+		data = svg.append("</svg>").toString().getBytes("UTF-8");
+		animation = new SVGBuilder().readFromBytes(data).buildAnimation();
+		canvas = new Picture().beginRecording(animation.getWidth(), animation.getHeight());
+	}
+
+	/**
+	 * The next frame (at 60 frames per second), drawn from the cached pictures of the static content.
+	 */
+	@Benchmark
+	public Canvas frame() {
+		time += 1f / 60f;
+		animation.draw(canvas, time);
+		return canvas;
+	}
+
+	/**
+	 * The next frame, with every operation drawn again.
+	 */
+	@Benchmark
+	public void renderFrame() {
+		time += 1f / 60f;
+		animation.render(new NullRenderer(), time);
+	}
+
+	/**
+	 * What a frame cost before animations were supported: parsing the whole document again.
+	 */
+	@Benchmark
+	public SVG reparse() {
+		return new SVGBuilder().readFromBytes(data).build();
+	}
+}
@@ -0,0 +1,60 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Path;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Paths made of elliptical arcs, at several lengths, to check that the cost of an arc doesn't depend on how much of the
+ * path precedes it (the time per arc should be the same for every length).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArcBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int arcs;
+
+	/** The rotation of the arcs' ellipses; rotated arcs are the expensive case */
+	@Param({ "0", "30" })
+	public int rotation;
+
+	private String path;
+
+	@Setup
+	public void setUp() {
+		final StringBuilder d = new StringBuilder("M0,0");
+		for (int i = 0; i < arcs; i++) {
+			// Alternate the flags so that every combination is converted
+			d.append(" a20,10 ").append(rotation).append(' ').append(i & 1).append(',').append((i >> 1) & 1)
+					.append(" 15,").append((i & 2) == 0 ? 5 : -5);
+		}
+		path = d.toString();
+	}
+
+	@Benchmark
+	public Path doPath() {
+		return SVGParser.doPath(path, null);
+	}
+
+	@Benchmark
+	public Path doPathMeasured() {
+		return SVGParser.doPath(path, new PathGeometry());
+	}
+}
@@ -0,0 +1,58 @@
+package com.larvalabs.svgandroid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The SVG documents benchmarked, which are bundled as resources under <code>corpus/</code>:
+ * <ul>
+ * <li><code>icons</code>: a sprite sheet of symbols, each drawn several times with <code>use</code>.</li>
+ * <li><code>map</code>: long paths sharing a few style sheet classes, plus some text.</li>
+ * <li><code>gradients</code>: shapes filled and stroked with gradients that inherit their stops by reference.</li>
+ * <li><code>nesting</code>: deeply nested groups, each with a transform and inherited styles.</li>
+ * </ul>
+ */
+final class Corpus {
+
+	static final String[] NAMES = { "icons", "map", "gradients", "nesting" };
+
+	private Corpus() {
+	}
+
+	static byte[] read(String name) throws IOException {
+		final InputStream in = Corpus.class.getClassLoader().getResourceAsStream("corpus/" + name + ".svg");
+		if (in == null) {
+			throw new IOException("No such document in the corpus: " + name);
+		}
+		try {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	static String readString(String name) throws IOException {
+		return new String(read(name), "UTF-8");
+	}
+
+	/**
+	 * @return the value of the first occurrence of the given attribute in a document.
+	 */
+	static String firstAttribute(String name, String attribute) throws IOException {
+		final String document = readString(name);
+		final String key = " " + attribute + "=\"";
+		final int start = document.indexOf(key);
+		if (start < 0) {
+			throw new IOException("No " + attribute + " attribute in " + name);
+		}
+		final int valueStart = start + key.length();
+		return document.substring(valueStart, document.indexOf('"', valueStart));
+	}
+}
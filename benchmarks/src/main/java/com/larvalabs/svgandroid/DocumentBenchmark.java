@@ -0,0 +1,70 @@
+package com.larvalabs.svgandroid;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full parses of each document of the {@link Corpus}, from bytes in memory to a recorded picture (or, for
+ * {@link #parseOnly()}, to nothing).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentBenchmark {
+
+	@Param({ "icons", "map", "gradients", "nesting" })
+	public String document;
+
+	private byte[] data;
+
+	@Setup
+	public void setUp() throws IOException {
+		data = Corpus.read(document);
+	}
+
+	@Benchmark
+	public SVG parse() {
+		return new SVGBuilder().readFromBytes(data).build();
+	}
+
+	/**
+	 * Parses without recording anything, to separate the cost of parsing from that of the Android recorder.
+	 */
+	@Benchmark
+	public SVG parseOnly() {
+		return new SVGBuilder().readFromBytes(data).setRenderer(new NullRenderer()).build();
+	}
+
+	@Benchmark
+	public SVG parseIndexed() {
+		return new SVGBuilder().readFromBytes(data).setIndexElements(true).build();
+	}
+
+	/**
+	 * Parses recording each top-level group in to its own picture.
+	 */
+	@Benchmark
+	public SVG parseLayers() {
+		return new SVGBuilder().readFromBytes(data).setRecordLayers(true).build();
+	}
+
+	@Benchmark
+	public SVG parseColorSwapped() {
+		return new SVGBuilder().readFromBytes(data).setColorSwap(0xFF000000, 0xFF33AAFF).build();
+	}
+}
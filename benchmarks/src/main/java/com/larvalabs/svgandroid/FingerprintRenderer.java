@@ -0,0 +1,255 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.DashPathEffect;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PathEffect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+/**
+ * A renderer that reduces everything drawn (geometry, transforms, clips and paints, in order) to a 64 bit hash, so
+ * that parses can be compared exactly without keeping their output.
+ */
+final class FingerprintRenderer implements SVGRenderer, PathGeometry.Sink {
+
+	private static final long PRIME = 0x100000001b3L;
+
+	private long hash = 0xcbf29ce484222325L;
+	private int operations = 0;
+	private int saveCount = 1;
+	private final float[] values = new float[9];
+	private final RectF bounds = new RectF();
+
+	long getHash() {
+		return hash;
+	}
+
+	int getOperationCount() {
+		return operations;
+	}
+
+	private void mix(long value) {
+		hash = (hash ^ value) * PRIME;
+	}
+
+	private void mix(float value) {
+		mix(Float.floatToIntBits(value));
+	}
+
+	private void op(int code) {
+		operations++;
+		mix(code);
+	}
+
+	private void mix(Matrix matrix) {
+		if (matrix == null) {
+			mix(0);
+			return;
+		}
+		matrix.getValues(values);
+		for (float v : values) {
+			mix(v);
+		}
+	}
+
+	private void mix(Paint paint) {
+		mix(paint.getStyle().ordinal());
+		mix(paint.getColor());
+		mix(paint.getAlpha());
+		mix(paint.getStrokeWidth());
+		mix(paint.getStrokeCap().ordinal());
+		mix(paint.getStrokeJoin().ordinal());
+		mix(paint.getStrokeMiter());
+		mix(paint.getTextSize());
+		mix((paint.getTypeface() == null) ? -1 : paint.getTypeface().getStyle());
+		final Shader shader = paint.getShader();
+		mix((shader instanceof Gradient) ? ((Gradient) shader).hash : 0);
+		final PathEffect effect = paint.getPathEffect();
+		if (effect instanceof DashPathEffect) {
+			for (float interval : ((DashPathEffect) effect).getIntervals()) {
+				mix(interval);
+			}
+			mix(((DashPathEffect) effect).getPhase());
+		}
+	}
+
+	public void beginDocument(int width, int height) {
+		op(1);
+		mix(width);
+		mix(height);
+	}
+
+	public void endDocument() {
+		op(2);
+	}
+
+	public int save() {
+		op(3);
+		return saveCount++;
+	}
+
+	public void restore() {
+		op(4);
+		saveCount--;
+	}
+
+	public void restoreToCount(int count) {
+		op(5);
+		mix(count);
+		saveCount = count;
+	}
+
+	public void concat(Matrix matrix) {
+		op(6);
+		mix(matrix);
+	}
+
+	public void setMatrix(Matrix matrix) {
+		op(7);
+		mix(matrix);
+	}
+
+	public void translate(float dx, float dy) {
+		op(8);
+		mix(dx);
+		mix(dy);
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+		op(9);
+		mix(left);
+		mix(top);
+		mix(right);
+		mix(bottom);
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+		op(10);
+		geometry.replay(this);
+		// The native path is built separately from the geometry, so check it too
+		path.computeBounds(bounds, true);
+		mix(bounds.left);
+		mix(bounds.top);
+		mix(bounds.right);
+		mix(bounds.bottom);
+		mix(paint);
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+		op(11);
+		mix(rect.left);
+		mix(rect.top);
+		mix(rect.right);
+		mix(rect.bottom);
+		mix(rx);
+		mix(ry);
+		mix(paint);
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		op(12);
+		mix(oval.left);
+		mix(oval.top);
+		mix(oval.right);
+		mix(oval.bottom);
+		mix(paint);
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		op(13);
+		mix(x1);
+		mix(y1);
+		mix(x2);
+		mix(y2);
+		mix(paint);
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		op(14);
+		mix(text.hashCode());
+		mix(x);
+		mix(y);
+		mix(paint);
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		final FingerprintRenderer gradient = new FingerprintRenderer();
+		gradient.mix(x1);
+		gradient.mix(y1);
+		gradient.mix(x2);
+		gradient.mix(y2);
+		return gradient.gradient(colors, positions, tileMode, localMatrix);
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		final FingerprintRenderer gradient = new FingerprintRenderer();
+		gradient.mix(x);
+		gradient.mix(y);
+		gradient.mix(radius);
+		return gradient.gradient(colors, positions, tileMode, localMatrix);
+	}
+
+	private Shader gradient(int[] colors, float[] positions, TileMode tileMode, Matrix localMatrix) {
+		for (int color : colors) {
+			mix(color);
+		}
+		if (positions != null) {
+			for (float position : positions) {
+				mix(position);
+			}
+		}
+		mix(tileMode.ordinal());
+		mix(localMatrix);
+		return new Gradient(hash);
+	}
+
+	public void moveTo(float x, float y) {
+		mix(20);
+		mix(x);
+		mix(y);
+	}
+
+	public void lineTo(float x, float y) {
+		mix(21);
+		mix(x);
+		mix(y);
+	}
+
+	public void quadTo(float x1, float y1, float x, float y) {
+		mix(22);
+		mix(x1);
+		mix(y1);
+		mix(x);
+		mix(y);
+	}
+
+	public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+		mix(23);
+		mix(x1);
+		mix(y1);
+		mix(x2);
+		mix(y2);
+		mix(x);
+		mix(y);
+	}
+
+	public void close() {
+		mix(24);
+	}
+
+	/**
+	 * A gradient, identified by the hash of its parameters.
+	 */
+	private static final class Gradient extends Shader {
+		final long hash;
+
+		Gradient(long hash) {
+			this.hash = hash;
+		}
+	}
+}
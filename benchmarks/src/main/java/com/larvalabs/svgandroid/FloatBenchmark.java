@@ -0,0 +1,91 @@
+package com.larvalabs.svgandroid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The number parser of {@link ParserHelper} against <code>Float.parseFloat</code>, on the numbers of the
+ * <code>map</code> document's paths (short, as most SVG numbers are) and on long numbers (as written by some
+ * exporters, with more digits than a float holds): parsed from a list as path data is ({@link #nextFloat(Blackhole)}),
+ * as separate attribute values ({@link #parseFloat(Blackhole)}), and by the JDK ({@link #jdkParseFloat(Blackhole)}).
+ * {@link FloatParserFuzz} checks they give the same results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FloatBenchmark {
+
+	@Param({ "map", "long" })
+	public String numbers;
+
+	private String list;
+	private String[] values;
+
+	@Setup
+	public void setUp() throws IOException {
+		final ArrayList<String> found = new ArrayList<String>();
+		if (numbers.equals("map")) {
+			final String d = Corpus.firstAttribute("map", "d");
+			int start = -1;
+			for (int i = 0; i <= d.length(); i++) {
+				final char c = (i < d.length()) ? d.charAt(i) : ' ';
+				final boolean number = (c >= '0' && c <= '9') || c == '.' || (c == '-' && start < 0);
+				if (number && start < 0) {
+					start = i;
+				} else if (!number && start >= 0) {
+					found.add(d.substring(start, i));
+					start = (c == '-') ? i : -1;
+				}
+			}
+		} else {
+			for (int i = 0; i < 1000; i++) {
+				found.add(Double.toString((i - 500) * 1.0123456789012345e-3));
+			}
+		}
+		values = found.toArray(new String[found.size()]);
+		final StringBuilder s = new StringBuilder();
+		for (String value : values) {
+			s.append(value).append(' ');
+		}
+		list = s.toString();
+	}
+
+	@Benchmark
+	public void nextFloat(Blackhole bh) {
+		final ParserHelper ph = new ParserHelper(list, 0);
+		for (int i = 0; i < values.length; i++) {
+			bh.consume(ph.nextFloat());
+		}
+	}
+
+	@Benchmark
+	public void parseFloat(Blackhole bh) {
+		for (String value : values) {
+			bh.consume(ParserHelper.parseFloat(value));
+		}
+	}
+
+	@Benchmark
+	public void jdkParseFloat(Blackhole bh) {
+		for (String value : values) {
+			bh.consume(Float.parseFloat(value));
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.larvalabs.svgandroid;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * Checks the number parser of {@link ParserHelper} against <code>Float.parseFloat</code>, which rounds correctly: on
+ * the shortest representations of random floats and doubles, on the exact halfway points between adjacent floats
+ * (the hardest to round), on random digit strings longer than the mantissa kept, and on malformed numbers, which must
+ * give NaN rather than throw. Each number is parsed both as a whole attribute and from a list, as in path data. Run it
+ * with:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.larvalabs.svgandroid.FloatParserFuzz [count] [seed]
+ * </pre>
+ *
+ * Exits with status 1 if any number differs.
+ */
+public final class FloatParserFuzz {
+
+	private static final String[] EDGE_CASES = { "0", "-0", "0.0", "1", "-1", ".5", "5.", "-.5e-3", "+2.5e+1",
+			"3.4028235e38", "3.4028236e38", "3.40282356e38", "3.40282357e38", "1e39", "1.4e-45", "7.006492e-46",
+			"7.006493e-46", "1e-46", "1.17549435e-38", "1.1754942e-38", "16777216", "16777217", "16777218",
+			"33554435", "0.1", "1e10", "1e11", "9999999999999999999", "18446744073709551615",
+			"1.000000059604644775390625", "1.000000059604644775390624999999999999",
+			"1.000000059604644775390625000000000001", "123456789012345678901234567890e-20",
+			"0.000000000000000000000000000000000000000000001", "1e100000000", "1e-100000000" };
+
+	private static final char[] MALFORMED_CHARS = "0123456789.eE+- ".toCharArray();
+
+	private FloatParserFuzz() {
+	}
+
+	public static void main(String[] args) {
+		final long count = (args.length > 0) ? Long.parseLong(args[0]) : 1000000;
+		final Random random = new Random((args.length > 1) ? Long.parseLong(args[1]) : 1);
+		int mismatches = 0;
+		for (String number : EDGE_CASES) {
+			mismatches += check(number);
+		}
+		for (long i = 0; i < count; i++) {
+			mismatches += check(number(random));
+			mismatches += checkMalformed(malformed(random));
+		}
+		System.out.println(EDGE_CASES.length + count * 2 + " numbers, " + mismatches + " mismatches.");
+		System.exit(mismatches == 0 ? 0 : 1);
+	}
+
+	private static String number(Random random) {
+		switch (random.nextInt(5)) {
+		case 0:
+			return Float.toString(randomFloat(random));
+		case 1: {
+			double d;
+			do {
+				d = Double.longBitsToDouble(random.nextLong());
+			} while (Double.isNaN(d) || Double.isInfinite(d));
+			return Double.toString(d);
+		}
+		case 2: {
+			final float f = randomFloat(random);
+			final float next = Math.nextUp(f);
+			if (Float.isInfinite(next)) {
+				return Float.toString(f);
+			}
+			// Exactly halfway between two floats
+			return new BigDecimal(f).add(new BigDecimal(next)).divide(BigDecimal.valueOf(2)).toString();
+		}
+		case 3: {
+			final StringBuilder s = new StringBuilder();
+			if (random.nextBoolean()) {
+				s.append('-');
+			}
+			digits(s, 1 + random.nextInt(30), random);
+			if (random.nextBoolean()) {
+				digits(s.append('.'), random.nextInt(30), random);
+			}
+			if (random.nextBoolean()) {
+				s.append(random.nextBoolean() ? 'e' : 'E').append(random.nextInt(100) - 65);
+			}
+			return s.toString();
+		}
+		default:
+			// Short numbers, as usually found in SVGs
+			return (random.nextInt(1 << 25) - (1 << 24)) + "e" + (random.nextInt(30) - 15);
+		}
+	}
+
+	private static float randomFloat(Random random) {
+		float f;
+		do {
+			f = Float.intBitsToFloat(random.nextInt());
+		} while (Float.isNaN(f) || Float.isInfinite(f));
+		return f;
+	}
+
+	private static void digits(StringBuilder s, int count, Random random) {
+		for (int i = 0; i < count; i++) {
+			s.append((char) ('0' + random.nextInt(10)));
+		}
+	}
+
+	private static String malformed(Random random) {
+		final char[] s = new char[random.nextInt(8)];
+		for (int i = 0; i < s.length; i++) {
+			s[i] = MALFORMED_CHARS[random.nextInt(MALFORMED_CHARS.length)];
+		}
+		return new String(s);
+	}
+
+	/**
+	 * @return 1 if the number isn't parsed as <code>Float.parseFloat</code> parses it, or 0.
+	 */
+	private static int check(String number) {
+		final float expected = Float.parseFloat(number);
+		final float attribute = ParserHelper.parseFloat(number);
+		// From a list, followed by another number
+		final ParserHelper list = new ParserHelper(number + " 7", 0);
+		final float first = list.nextFloat();
+		final float second = list.nextFloat();
+		if (Float.floatToIntBits(attribute) != Float.floatToIntBits(expected)
+				|| Float.floatToIntBits(first) != Float.floatToIntBits(expected) || second != 7f) {
+			System.out.println("Mismatch: " + number + " is " + expected + ", parsed as " + attribute + " and "
+					+ first + " (then " + second + ")");
+			return 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return 1 if the string isn't parsed as <code>Float.parseFloat</code> parses it (or NaN, where that throws), or
+	 *         0.
+	 */
+	private static int checkMalformed(String s) {
+		float expected;
+		try {
+			expected = Float.parseFloat(s);
+		} catch (NumberFormatException e) {
+			expected = Float.NaN;
+		}
+		final float parsed;
+		try {
+			parsed = ParserHelper.parseFloat(s);
+		} catch (RuntimeException e) {
+			System.out.println("Threw for \"" + s + "\": " + e);
+			return 1;
+		}
+		if (Float.floatToIntBits(parsed) != Float.floatToIntBits(expected)) {
+			System.out.println("Mismatch: \"" + s + "\" is " + expected + ", parsed as " + parsed);
+			return 1;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,83 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Picture;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Toggling a layer of a generated map (top-level groups of shapes): with the layers recorded separately
+ * ({@link #toggle()}), against parsing the document again with the layer hidden ({@link #reparse()}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayerBenchmark {
+
+	@Param({ "3", "10" })
+	public int layers;
+
+	@Param({ "1000", "10000" })
+	public int shapes;
+
+	private byte[] shown;
+	private byte[] hidden;
+	private SVG svg;
+	private boolean visible = true;
+
+	@Setup
+	public void setUp() throws UnsupportedEncodingException {
+		shown = map(false);
+		hidden = map(true);
+		svg = new SVGBuilder().readFromBytes(shown).setRecordLayers(true).build();
+	}
+
+	/**
+	 * @param hideFirst whether the first layer has <code>display="none"</code>.
+	 */
+	private byte[] map(boolean hideFirst) throws UnsupportedEncodingException {
+		final StringBuilder svg = new StringBuilder(
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1000\" height=\"1000\">");
+		for (int layer = 0; layer < layers; layer++) {
+			svg.append("<g id=\"layer").append(layer).append('"');
+			if (hideFirst && layer == 0) {
+				svg.append(" display=\"none\"");
+			}
+			svg.append(" stroke=\"#").append(layer % 10).append("48\">");
+			for (int i = layer; i < shapes; i += layers) {
+				svg.append("<path fill=\"none\" d=\"M").append(i % 1000).append(',').append(i / 10 % 1000)
+						.append("l10,3 4,12\"/>");
+			}
+			svg.append("</g>");
+		}
+		return svg.append("</svg>").toString().getBytes("UTF-8");
+	}
+
+	@Benchmark
+	public Picture toggle() {
+		visible = !visible;
+		svg.setLayerVisible(0, visible);
+		return svg.getPicture();
+	}
+
+	@Benchmark
+	public Picture reparse() {
+		visible = !visible;
+		return new SVGBuilder().readFromBytes(visible ? shown : hidden).build().getPicture();
+	}
+}
@@ -0,0 +1,72 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+/**
+ * A renderer that draws nothing, to measure the cost of parsing alone.
+ */
+final class NullRenderer implements SVGRenderer {
+
+	private int saveCount = 1;
+
+	public void beginDocument(int width, int height) {
+		saveCount = 1;
+	}
+
+	public void endDocument() {
+	}
+
+	public int save() {
+		return saveCount++;
+	}
+
+	public void restore() {
+		saveCount--;
+	}
+
+	public void restoreToCount(int count) {
+		saveCount = count;
+	}
+
+	public void concat(Matrix matrix) {
+	}
+
+	public void setMatrix(Matrix matrix) {
+	}
+
+	public void translate(float dx, float dy) {
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		return new Shader();
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		return new Shader();
+	}
+}
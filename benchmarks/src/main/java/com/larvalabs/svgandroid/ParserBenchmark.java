@@ -0,0 +1,123 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * The parsers of attribute values, each run over input typical of the {@link Corpus}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+	private static final String NUMBERS = "12.5 -3.25e2,0.001 7 -.5 1E-3 640 480 3.14159265 -0 100% 2.5e+1 .75,-.75";
+
+	private static final String POINTS = "10,20 30.5,40.25 -50,60 70e1,-80 90.125,100 110,120.5 130,140 150,160";
+
+	private static final String[] TRANSFORMS = { "translate(12.5,-3)", "rotate(30)", "scale(1.05)",
+			"translate(4 -6) rotate(-12.5)", "matrix(0.95,-0.05,0.04,0.82,-7.43,8.98)", "rotate(45 10 10) skewX(15)" };
+
+	private static final String[] COLORS = { "#3d246d", "#fff", "rgb(64, 128, 255)", "rgb(25%,50%,75%)", "steelblue",
+			"black", "#80FF0000" };
+
+	private static final String STYLE = "fill:url(#g-12);stroke:#806040;stroke-width:0.5;stroke-linecap:round;"
+			+ "fill-opacity:0.8;opacity:0.9";
+
+	private static final String[] STYLE_NAMES = { "fill", "stroke", "stroke-width", "stroke-linecap", "fill-opacity",
+			"opacity", "display" };
+
+	/** A long path of relative lines, from the map */
+	private String mapPath;
+	/** A short path of curves and arcs, from the icons */
+	private String iconPath;
+	private AttributesImpl styledAttributes;
+
+	@Setup
+	public void setUp() throws IOException {
+		mapPath = Corpus.firstAttribute("map", "d");
+		iconPath = Corpus.firstAttribute("icons", "d");
+		styledAttributes = new AttributesImpl();
+		styledAttributes.addAttribute("", "style", "style", "CDATA", STYLE);
+		styledAttributes.addAttribute("", "fill", "fill", "CDATA", "#3d246d");
+	}
+
+	@Benchmark
+	public void parseFloat(Blackhole bh) {
+		final ParserHelper ph = new ParserHelper(NUMBERS, 0);
+		for (int i = 0; i < 14; i++) {
+			bh.consume(ph.nextFloat());
+		}
+	}
+
+	@Benchmark
+	public void nextFloat(Blackhole bh) {
+		final ParserHelper ph = new ParserHelper(POINTS, 0);
+		for (int i = 0; i < 16; i++) {
+			bh.consume(ph.nextFloat());
+		}
+	}
+
+	@Benchmark
+	public SVGParser.NumberParse parseNumbers() {
+		return SVGParser.parseNumbers(POINTS);
+	}
+
+	@Benchmark
+	public void parseTransform(Blackhole bh) {
+		for (String transform : TRANSFORMS) {
+			final Matrix matrix = SVGParser.parseTransform(transform);
+			bh.consume(matrix);
+		}
+	}
+
+	@Benchmark
+	public Path doPathMap() {
+		return SVGParser.doPath(mapPath, null);
+	}
+
+	@Benchmark
+	public Path doPathIcon() {
+		return SVGParser.doPath(iconPath, null);
+	}
+
+	@Benchmark
+	public Path doPathMeasured() {
+		return SVGParser.doPath(mapPath, new PathGeometry());
+	}
+
+	@Benchmark
+	public void parseColor(Blackhole bh) {
+		final SVGParser.Properties props = new SVGParser.Properties(styledAttributes, null);
+		for (String color : COLORS) {
+			bh.consume(props.getColor(color));
+		}
+	}
+
+	@Benchmark
+	public void parseStyle(Blackhole bh) {
+		final SVGParser.Properties props = new SVGParser.Properties(styledAttributes, null);
+		for (String name : STYLE_NAMES) {
+			bh.consume(props.getAttr(name));
+		}
+	}
+}
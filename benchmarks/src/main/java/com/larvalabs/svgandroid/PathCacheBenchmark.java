@@ -0,0 +1,63 @@
+package com.larvalabs.svgandroid;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a generated chart whose shapes repeat a number of distinct paths (the markers of its series): parsing every
+ * path ({@link #parse()}) against looking them up in a path cache that is shared between parses, as for a family of
+ * icons ({@link #parseCached()}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathCacheBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	public int distinctPaths;
+
+	@Param({ "10000" })
+	public int shapes;
+
+	private byte[] data;
+	private final SVGPathCache cache = new SVGPathCache(64 * 1024 * 1024);
+
+	@Setup
+	public void setUp() throws UnsupportedEncodingException {
+		final StringBuilder svg = new StringBuilder(
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"1000\" height=\"1000\">");
+		for (int i = 0; i < shapes; i++) {
+			final int marker = i % distinctPaths;
+			svg.append("<path fill=\"#").append(marker % 10).append("48\" d=\"M").append(marker % 100).append(',')
+					.append(marker / 100).append("c2.5,-4 7.5,-4 10,0s-2.5,8 -5,10.25c-2.5,-2.25 -7.5,-6 -5,-10.25z"
+							+ "m3,1a2,2 0 1,0 4,0a2,2 0 1,0 -4,0z\"/>");
+		}
+		data = svg.append("</svg>").toString().getBytes("UTF-8");
+		new SVGBuilder().readFromBytes(data).setPathCache(cache).build();
+	}
+
+	@Benchmark
+	public SVG parse() {
+		return new SVGBuilder().readFromBytes(data).build();
+	}
+
+	@Benchmark
+	public SVG parseCached() {
+		return new SVGBuilder().readFromBytes(data).setPathCache(cache).build();
+	}
+}
@@ -0,0 +1,61 @@
+package com.larvalabs.svgandroid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the size of each document of the {@link Corpus} with {@link SVGBuilder#prescan()}, plain and gzipped,
+ * against the full parse it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrescanBenchmark {
+
+	@Param({ "icons", "map", "gradients", "nesting" })
+	public String document;
+
+	@Param({ "false", "true" })
+	public boolean gzipped;
+
+	private byte[] data;
+
+	@Setup
+	public void setUp() throws IOException {
+		data = Corpus.read(document);
+		if (gzipped) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final GZIPOutputStream gzip = new GZIPOutputStream(out);
+			gzip.write(data);
+			gzip.close();
+			data = out.toByteArray();
+		}
+	}
+
+	@Benchmark
+	public SVGHeader prescan() {
+		return new SVGBuilder().readFromBytes(data).prescan();
+	}
+
+	@Benchmark
+	public SVG parse() {
+		return new SVGBuilder().readFromBytes(data).build();
+	}
+}
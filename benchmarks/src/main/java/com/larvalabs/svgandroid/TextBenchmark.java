@@ -0,0 +1,65 @@
+package com.larvalabs.svgandroid;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A label-heavy document, like a map: many short text elements in a few styles, with repeated labels and styled
+ * <code>tspan</code>s, to measure the cost of laying out text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+	private static final String[] LABELS = { "Main St", "Harbour Rd", "Station", "Park", "North Gate", "Old Town",
+			"Market Sq", "Bridge" };
+
+	private static final String[] FONTS = { "sans-serif", "serif", "'Open Sans', sans-serif" };
+
+	@Param({ "1000", "10000" })
+	public int labels;
+
+	private byte[] data;
+
+	@Setup
+	public void setUp() throws UnsupportedEncodingException {
+		final StringBuilder svg = new StringBuilder(
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"2000\" height=\"2000\">");
+		for (int i = 0; i < labels; i++) {
+			svg.append("<text x=\"").append((i * 37) % 2000).append("\" y=\"").append((i * 53) % 2000)
+					.append("\" font-family=\"").append(FONTS[i % FONTS.length]).append("\" font-size=\"")
+					.append(10 + (i % 3) * 2).append("\" fill=\"#333\">").append(LABELS[i % LABELS.length]);
+			if (i % 4 == 0) {
+				svg.append(" <tspan font-weight=\"bold\" fill=\"#c00\">").append(i % 100).append("</tspan>");
+			}
+			svg.append("</text>");
+		}
+		data = svg.append("</svg>").toString().getBytes("UTF-8");
+	}
+
+	@Benchmark
+	public SVG parse() {
+		return new SVGBuilder().readFromBytes(data).setRenderer(new NullRenderer()).build();
+	}
+
+	@Benchmark
+	public SVG parseIndexed() {
+		return new SVGBuilder().readFromBytes(data).setRenderer(new NullRenderer()).setIndexElements(true).build();
+	}
+}
@@ -0,0 +1,139 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that parsing is reentrant: parses the {@link Corpus} once on one thread for a baseline, then many times at
+ * once on many threads, and compares the fingerprint of everything drawn (and the computed bounds) of every parse with
+ * the baseline. The number of threads and rounds can be raised for a longer run, eg.
+ * <code>mvn test -Dstress.threads=64 -Dstress.rounds=100</code>.
+ */
+public class ConcurrencyStressTest {
+
+	/**
+	 * A document and the options to parse it with.
+	 */
+	private static final class Job {
+		final String name;
+		final byte[] data;
+		final boolean indexElements;
+		long baseline;
+
+		Job(String name, byte[] data, boolean indexElements) {
+			this.name = name;
+			this.data = data;
+			this.indexElements = indexElements;
+		}
+
+		long parse() throws SVGParseException {
+			final FingerprintRenderer renderer = new FingerprintRenderer();
+			final SVG svg = new SVGBuilder().readFromBytes(data).setIndexElements(indexElements).setRenderer(renderer)
+					.build();
+			long hash = renderer.getHash();
+			hash = hash * 31 + rectHash(svg.getLimits());
+			hash = hash * 31 + rectHash(svg.getExactLimits());
+			if (indexElements) {
+				hash = hash * 31 + svg.getElements().size();
+			}
+			return hash;
+		}
+
+		@Override
+		public String toString() {
+			return indexElements ? name + " (indexed)" : name;
+		}
+	}
+
+	private static long rectHash(RectF r) {
+		if (r == null) {
+			return 0;
+		}
+		return ((Float.floatToIntBits(r.left) * 31L + Float.floatToIntBits(r.top)) * 31L
+				+ Float.floatToIntBits(r.right)) * 31L + Float.floatToIntBits(r.bottom);
+	}
+
+	/**
+	 * @return a document of paths of rotated arcs, which used to share static scratch state between parses.
+	 */
+	private static byte[] arcs() throws Exception {
+		final StringBuilder svg = new StringBuilder(
+				"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"400\" height=\"400\">");
+		for (int i = 0; i < 40; i++) {
+			svg.append("<path fill=\"none\" stroke=\"black\" d=\"M").append(i * 10).append(",0");
+			for (int j = 0; j < 20; j++) {
+				svg.append(" a20,10 ").append(i * 9 + j).append(' ').append(j & 1).append(',').append((j >> 1) & 1)
+						.append(" 15,").append((j & 2) == 0 ? 5 : -5);
+			}
+			svg.append("\"/>");
+		}
+		return svg.append("</svg>").toString().getBytes("UTF-8");
+	}
+
+	@Test
+	public void concurrentParsesMatchBaseline() throws Exception {
+		final int threads = Integer.getInteger("stress.threads", Runtime.getRuntime().availableProcessors() * 4);
+		final int rounds = Integer.getInteger("stress.rounds", 5);
+
+		final List<Job> jobs = new ArrayList<Job>();
+		for (String name : Corpus.NAMES) {
+			final byte[] data = Corpus.read(name);
+			jobs.add(new Job(name, data, false));
+			jobs.add(new Job(name, data, true));
+		}
+		jobs.add(new Job("arcs", arcs(), false));
+		for (Job job : jobs) {
+			job.baseline = job.parse();
+			assertEquals("Parsing " + job + " isn't deterministic on a single thread.", job.baseline, job.parse());
+		}
+
+		final AtomicInteger parses = new AtomicInteger();
+		final AtomicInteger mismatches = new AtomicInteger();
+		final List<String> mismatched = Collections.synchronizedList(new ArrayList<String>());
+		final CountDownLatch start = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < threads; t++) {
+			final Random random = new Random(t);
+			futures.add(executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					final List<Job> order = new ArrayList<Job>(jobs);
+					start.await();
+					for (int round = 0; round < rounds; round++) {
+						// A different order per thread and round, so that different documents overlap
+						Collections.shuffle(order, random);
+						for (Job job : order) {
+							parses.incrementAndGet();
+							if (job.parse() != job.baseline && mismatches.incrementAndGet() <= 10) {
+								mismatched.add(job + " on " + Thread.currentThread().getName());
+							}
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(mismatches.get() + " of " + parses.get() + " parses on " + threads + " threads differ from the "
+				+ "baseline, eg. " + mismatched, 0, mismatches.get());
+	}
+}
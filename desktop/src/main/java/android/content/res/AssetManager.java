@@ -0,0 +1,17 @@
+package android.content.res;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Headless <code>android.content.res.AssetManager</code>, which opens assets from the class path.
+ */
+public final class AssetManager {
+	public InputStream open(String fileName) throws IOException {
+		final InputStream in = AssetManager.class.getClassLoader().getResourceAsStream(fileName);
+		if (in == null) {
+			throw new IOException(fileName);
+		}
+		return in;
+	}
+}
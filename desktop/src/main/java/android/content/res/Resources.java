@@ -0,0 +1,12 @@
+package android.content.res;
+
+import java.io.InputStream;
+
+/**
+ * Headless <code>android.content.res.Resources</code>; raw resources aren't available outside of Android.
+ */
+public class Resources {
+	public InputStream openRawResource(int id) {
+		throw new UnsupportedOperationException("No raw resources outside of Android: " + id);
+	}
+}
@@ -0,0 +1,61 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.Bitmap</code>, which has a size but no pixels (drawing on it only counts the
+ * operations, see {@link Canvas}).
+ */
+public final class Bitmap {
+
+	public enum Config {
+		ALPHA_8, RGB_565, ARGB_4444, ARGB_8888
+	}
+
+	private final int width;
+	private final int height;
+	private final Config config;
+	private boolean recycled = false;
+
+	private Bitmap(int width, int height, Config config) {
+		this.width = width;
+		this.height = height;
+		this.config = config;
+	}
+
+	public static Bitmap createBitmap(int width, int height, Config config) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("width and height must be > 0");
+		}
+		return new Bitmap(width, height, config);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public Config getConfig() {
+		return config;
+	}
+
+	public int getRowBytes() {
+		switch (config) {
+		case ALPHA_8:
+			return width;
+		case ARGB_8888:
+			return width * 4;
+		default:
+			return width * 2;
+		}
+	}
+
+	public void recycle() {
+		recycled = true;
+	}
+
+	public boolean isRecycled() {
+		return recycled;
+	}
+}
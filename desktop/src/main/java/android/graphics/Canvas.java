@@ -0,0 +1,174 @@
+package android.graphics;
+
+import java.util.ArrayList;
+
+/**
+ * Headless <code>android.graphics.Canvas</code>, which keeps the matrix and save stack (so that transforms cost what
+ * they do on a device) and counts the drawing operations instead of rasterizing them.
+ */
+public class Canvas {
+	public static final int MATRIX_SAVE_FLAG = 0x01;
+	public static final int CLIP_SAVE_FLAG = 0x02;
+	public static final int HAS_ALPHA_LAYER_SAVE_FLAG = 0x04;
+	public static final int ALL_SAVE_FLAG = 0x1F;
+
+	public enum EdgeType {
+		BW, AA
+	}
+
+	private final ArrayList<Matrix> stack = new ArrayList<Matrix>();
+	private Matrix matrix = new Matrix();
+	private final int width;
+	private final int height;
+	int operations;
+
+	public Canvas() {
+		this(0, 0);
+	}
+
+	Canvas(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	public Canvas(Bitmap bitmap) {
+		this(bitmap.getWidth(), bitmap.getHeight());
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the number of drawing operations made on this canvas (not part of the Android API).
+	 */
+	public int getOperationCount() {
+		return operations;
+	}
+
+	public int save() {
+		stack.add(new Matrix(matrix));
+		return stack.size();
+	}
+
+	public int save(int flags) {
+		return save();
+	}
+
+	public int saveLayerAlpha(RectF bounds, int alpha, int flags) {
+		return save();
+	}
+
+	public int saveLayerAlpha(float left, float top, float right, float bottom, int alpha, int flags) {
+		return save();
+	}
+
+	public void restore() {
+		if (stack.isEmpty()) {
+			throw new IllegalStateException("Underflow in restore");
+		}
+		matrix = stack.remove(stack.size() - 1);
+	}
+
+	public int getSaveCount() {
+		return stack.size() + 1;
+	}
+
+	public void restoreToCount(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Underflow in restoreToCount");
+		}
+		while (getSaveCount() > count) {
+			restore();
+		}
+	}
+
+	public void translate(float dx, float dy) {
+		matrix.preTranslate(dx, dy);
+	}
+
+	public void scale(float sx, float sy) {
+		matrix.preScale(sx, sy);
+	}
+
+	public void concat(Matrix m) {
+		matrix.preConcat(m);
+	}
+
+	public void setMatrix(Matrix m) {
+		matrix.set(m);
+	}
+
+	public void getMatrix(Matrix m) {
+		m.set(matrix);
+	}
+
+	public boolean clipRect(float left, float top, float right, float bottom) {
+		operations++;
+		return true;
+	}
+
+	public boolean clipRect(RectF rect) {
+		return clipRect(rect.left, rect.top, rect.right, rect.bottom);
+	}
+
+	public boolean quickReject(RectF rect, EdgeType type) {
+		return false;
+	}
+
+	public void drawColor(int color) {
+		operations++;
+	}
+
+	public void drawRect(RectF rect, Paint paint) {
+		operations++;
+	}
+
+	public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+		operations++;
+	}
+
+	public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+		operations++;
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		operations++;
+	}
+
+	public void drawPath(Path path, Paint paint) {
+		operations++;
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		operations++;
+	}
+
+	public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+		operations++;
+	}
+
+	public void drawPosText(char[] text, int index, int count, float[] pos, Paint paint) {
+		operations++;
+	}
+
+	public void drawPosText(String text, float[] pos, Paint paint) {
+		operations++;
+	}
+
+	public void drawPicture(Picture picture) {
+		operations += picture.operations;
+	}
+
+	public void drawPicture(Picture picture, RectF dst) {
+		drawPicture(picture);
+	}
+
+	public void drawPicture(Picture picture, Rect dst) {
+		drawPicture(picture);
+	}
+}
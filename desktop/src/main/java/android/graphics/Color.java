@@ -0,0 +1,70 @@
+package android.graphics;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Headless implementation of <code>android.graphics.Color</code>.
+ */
+public class Color {
+	public static final int BLACK = 0xFF000000;
+	public static final int WHITE = 0xFFFFFFFF;
+	public static final int TRANSPARENT = 0;
+
+	private static final HashMap<String, Integer> NAMES = new HashMap<String, Integer>();
+
+	static {
+		NAMES.put("black", BLACK);
+		NAMES.put("darkgray", 0xFF444444);
+		NAMES.put("gray", 0xFF888888);
+		NAMES.put("lightgray", 0xFFCCCCCC);
+		NAMES.put("white", WHITE);
+		NAMES.put("red", 0xFFFF0000);
+		NAMES.put("green", 0xFF00FF00);
+		NAMES.put("blue", 0xFF0000FF);
+		NAMES.put("yellow", 0xFFFFFF00);
+		NAMES.put("cyan", 0xFF00FFFF);
+		NAMES.put("magenta", 0xFFFF00FF);
+	}
+
+	public static int alpha(int color) {
+		return color >>> 24;
+	}
+
+	public static int red(int color) {
+		return (color >> 16) & 0xFF;
+	}
+
+	public static int green(int color) {
+		return (color >> 8) & 0xFF;
+	}
+
+	public static int blue(int color) {
+		return color & 0xFF;
+	}
+
+	public static int rgb(int red, int green, int blue) {
+		return argb(0xFF, red, green, blue);
+	}
+
+	public static int argb(int alpha, int red, int green, int blue) {
+		return (alpha << 24) | (red << 16) | (green << 8) | blue;
+	}
+
+	public static int parseColor(String colorString) {
+		if (colorString.charAt(0) == '#') {
+			long color = Long.parseLong(colorString.substring(1), 16);
+			if (colorString.length() == 7) {
+				color |= 0x00000000FF000000L;
+			} else if (colorString.length() != 9) {
+				throw new IllegalArgumentException("Unknown color");
+			}
+			return (int) color;
+		}
+		final Integer color = NAMES.get(colorString.toLowerCase(Locale.US));
+		if (color == null) {
+			throw new IllegalArgumentException("Unknown color");
+		}
+		return color;
+	}
+}
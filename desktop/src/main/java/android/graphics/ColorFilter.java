@@ -0,0 +1,7 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.ColorFilter</code>.
+ */
+public class ColorFilter {
+}
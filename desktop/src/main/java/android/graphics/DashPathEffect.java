@@ -0,0 +1,31 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.DashPathEffect</code>, which keeps its intervals for desktop renderers.
+ */
+public class DashPathEffect extends PathEffect {
+	private final float[] intervals;
+	private final float phase;
+
+	public DashPathEffect(float[] intervals, float phase) {
+		if (intervals.length < 2) {
+			throw new ArrayIndexOutOfBoundsException();
+		}
+		this.intervals = intervals.clone();
+		this.phase = phase;
+	}
+
+	/**
+	 * @return the on and off lengths of the dashes (not part of the Android API).
+	 */
+	public float[] getIntervals() {
+		return intervals.clone();
+	}
+
+	/**
+	 * @return the offset in to the dash pattern (not part of the Android API).
+	 */
+	public float getPhase() {
+		return phase;
+	}
+}
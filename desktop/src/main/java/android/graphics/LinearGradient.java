@@ -0,0 +1,18 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.LinearGradient</code>.
+ */
+public class LinearGradient extends Shader {
+	public LinearGradient(float x0, float y0, float x1, float y1, int[] colors, float[] positions, TileMode tile) {
+		if (colors.length < 2) {
+			throw new IllegalArgumentException("needs >= 2 number of colors");
+		}
+		if (positions != null && colors.length != positions.length) {
+			throw new IllegalArgumentException("color and position arrays must be of equal length");
+		}
+	}
+
+	public LinearGradient(float x0, float y0, float x1, float y1, int color0, int color1, TileMode tile) {
+	}
+}
@@ -0,0 +1,228 @@
+package android.graphics;
+
+/**
+ * Headless implementation of the affine subset of <code>android.graphics.Matrix</code>, so that transform parsing and
+ * concatenation cost the same kind of work they do on a device.
+ */
+public class Matrix {
+	public static final int MSCALE_X = 0, MSKEW_X = 1, MTRANS_X = 2, MSKEW_Y = 3, MSCALE_Y = 4, MTRANS_Y = 5,
+			MPERSP_0 = 6, MPERSP_1 = 7, MPERSP_2 = 8;
+
+	public enum ScaleToFit {
+		FILL, START, CENTER, END
+	}
+
+	private final float[] v = new float[9];
+
+	public Matrix() {
+		reset();
+	}
+
+	public Matrix(Matrix src) {
+		if (src == null) {
+			reset();
+		} else {
+			set(src);
+		}
+	}
+
+	public void set(Matrix src) {
+		if (src == null) {
+			reset();
+		} else {
+			System.arraycopy(src.v, 0, v, 0, 9);
+		}
+	}
+
+	public void reset() {
+		v[0] = v[4] = v[8] = 1;
+		v[1] = v[2] = v[3] = v[5] = v[6] = v[7] = 0;
+	}
+
+	public boolean isIdentity() {
+		return v[0] == 1 && v[1] == 0 && v[2] == 0 && v[3] == 0 && v[4] == 1 && v[5] == 0 && v[6] == 0 && v[7] == 0
+				&& v[8] == 1;
+	}
+
+	public void setValues(float[] values) {
+		System.arraycopy(values, 0, v, 0, 9);
+	}
+
+	public void getValues(float[] values) {
+		System.arraycopy(v, 0, values, 0, 9);
+	}
+
+	/** this = a * b */
+	public boolean setConcat(Matrix a, Matrix b) {
+		final float[] r = multiply(a.v, b.v);
+		System.arraycopy(r, 0, v, 0, 9);
+		return true;
+	}
+
+	public boolean preConcat(Matrix other) {
+		return setConcat(this, other);
+	}
+
+	public boolean postConcat(Matrix other) {
+		return setConcat(other, this);
+	}
+
+	private static float[] multiply(float[] a, float[] b) {
+		final float[] r = new float[9];
+		for (int row = 0; row < 3; row++) {
+			for (int col = 0; col < 3; col++) {
+				r[row * 3 + col] = a[row * 3] * b[col] + a[row * 3 + 1] * b[3 + col] + a[row * 3 + 2] * b[6 + col];
+			}
+		}
+		return r;
+	}
+
+	private static Matrix of(float sx, float kx, float tx, float ky, float sy, float ty) {
+		final Matrix m = new Matrix();
+		m.v[0] = sx;
+		m.v[1] = kx;
+		m.v[2] = tx;
+		m.v[3] = ky;
+		m.v[4] = sy;
+		m.v[5] = ty;
+		return m;
+	}
+
+	private static Matrix rotation(float degrees) {
+		final double r = Math.toRadians(degrees);
+		final float c = (float) Math.cos(r), s = (float) Math.sin(r);
+		return of(c, -s, 0, s, c, 0);
+	}
+
+	public void setTranslate(float dx, float dy) {
+		set(of(1, 0, dx, 0, 1, dy));
+	}
+
+	public void setScale(float sx, float sy) {
+		set(of(sx, 0, 0, 0, sy, 0));
+	}
+
+	public void setRotate(float degrees) {
+		set(rotation(degrees));
+	}
+
+	public void setSkew(float kx, float ky) {
+		set(of(1, kx, 0, ky, 1, 0));
+	}
+
+	public boolean preTranslate(float dx, float dy) {
+		return preConcat(of(1, 0, dx, 0, 1, dy));
+	}
+
+	public boolean postTranslate(float dx, float dy) {
+		return postConcat(of(1, 0, dx, 0, 1, dy));
+	}
+
+	public boolean preScale(float sx, float sy) {
+		return preConcat(of(sx, 0, 0, 0, sy, 0));
+	}
+
+	public boolean postScale(float sx, float sy) {
+		return postConcat(of(sx, 0, 0, 0, sy, 0));
+	}
+
+	public boolean preRotate(float degrees) {
+		return preConcat(rotation(degrees));
+	}
+
+	public boolean postRotate(float degrees) {
+		return postConcat(rotation(degrees));
+	}
+
+	public boolean preRotate(float degrees, float px, float py) {
+		preTranslate(px, py);
+		preRotate(degrees);
+		return preTranslate(-px, -py);
+	}
+
+	public boolean preSkew(float kx, float ky) {
+		return preConcat(of(1, kx, 0, ky, 1, 0));
+	}
+
+	public boolean postSkew(float kx, float ky) {
+		return postConcat(of(1, kx, 0, ky, 1, 0));
+	}
+
+	public boolean invert(Matrix inverse) {
+		final float det = v[0] * v[4] - v[1] * v[3];
+		if (det == 0) {
+			return false;
+		}
+		final float sx = v[4] / det, kx = -v[1] / det, ky = -v[3] / det, sy = v[0] / det;
+		inverse.set(of(sx, kx, -(sx * v[2] + kx * v[5]), ky, sy, -(ky * v[2] + sy * v[5])));
+		return true;
+	}
+
+	public void mapPoints(float[] dst, float[] src) {
+		for (int i = 0; i + 1 < src.length; i += 2) {
+			final float x = src[i], y = src[i + 1];
+			dst[i] = v[0] * x + v[1] * y + v[2];
+			dst[i + 1] = v[3] * x + v[4] * y + v[5];
+		}
+	}
+
+	public void mapPoints(float[] pts) {
+		mapPoints(pts, pts);
+	}
+
+	public boolean mapRect(RectF dst, RectF src) {
+		final float[] p = { src.left, src.top, src.right, src.top, src.right, src.bottom, src.left, src.bottom };
+		mapPoints(p);
+		dst.set(Math.min(Math.min(p[0], p[2]), Math.min(p[4], p[6])), Math.min(Math.min(p[1], p[3]),
+				Math.min(p[5], p[7])), Math.max(Math.max(p[0], p[2]), Math.max(p[4], p[6])), Math.max(
+				Math.max(p[1], p[3]), Math.max(p[5], p[7])));
+		return v[1] == 0 && v[3] == 0;
+	}
+
+	public boolean mapRect(RectF rect) {
+		return mapRect(rect, rect);
+	}
+
+	public float mapRadius(float radius) {
+		final float x = (float) Math.hypot(v[0] * radius, v[3] * radius);
+		final float y = (float) Math.hypot(v[1] * radius, v[4] * radius);
+		return (float) Math.sqrt(x * y);
+	}
+
+	public boolean setRectToRect(RectF src, RectF dst, ScaleToFit stf) {
+		if (src.width() == 0 || src.height() == 0) {
+			reset();
+			return false;
+		}
+		float sx = dst.width() / src.width();
+		float sy = dst.height() / src.height();
+		float tx = dst.left - src.left * sx;
+		float ty = dst.top - src.top * sy;
+		if (stf != ScaleToFit.FILL) {
+			final float s = Math.min(sx, sy);
+			float dx = dst.width() - src.width() * s;
+			float dy = dst.height() - src.height() * s;
+			if (stf == ScaleToFit.CENTER) {
+				dx /= 2;
+				dy /= 2;
+			} else if (stf == ScaleToFit.START) {
+				dx = dy = 0;
+			}
+			sx = sy = s;
+			tx = dst.left - src.left * s + dx;
+			ty = dst.top - src.top * s + dy;
+		}
+		set(of(sx, 0, tx, 0, sy, ty));
+		return true;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return (o instanceof Matrix) && java.util.Arrays.equals(v, ((Matrix) o).v);
+	}
+
+	@Override
+	public int hashCode() {
+		return java.util.Arrays.hashCode(v);
+	}
+}
@@ -0,0 +1,256 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.Paint</code>, which holds its properties. Text is measured with a fixed advance of
+ * half the text size per character.
+ */
+public class Paint {
+	public static final int ANTI_ALIAS_FLAG = 0x01;
+
+	public enum Style {
+		FILL, STROKE, FILL_AND_STROKE
+	}
+
+	public enum Cap {
+		BUTT, ROUND, SQUARE
+	}
+
+	public enum Join {
+		MITER, ROUND, BEVEL
+	}
+
+	public enum Align {
+		LEFT, CENTER, RIGHT
+	}
+
+	public static class FontMetrics {
+		public float ascent, descent, top, bottom, leading;
+	}
+
+	private int flags;
+	private Style style;
+	private int color;
+	private Shader shader;
+	private ColorFilter colorFilter;
+	private float strokeWidth;
+	private Cap strokeCap;
+	private Join strokeJoin;
+	private float strokeMiter;
+	private PathEffect pathEffect;
+	private float textSize;
+	private Typeface typeface;
+	private Align textAlign;
+
+	public Paint() {
+		this(0);
+	}
+
+	public Paint(int flags) {
+		reset();
+		this.flags = flags;
+	}
+
+	public Paint(Paint paint) {
+		set(paint);
+	}
+
+	public void reset() {
+		flags = 0;
+		style = Style.FILL;
+		color = 0xFF000000;
+		shader = null;
+		colorFilter = null;
+		strokeWidth = 0;
+		strokeCap = Cap.BUTT;
+		strokeJoin = Join.MITER;
+		strokeMiter = 4;
+		pathEffect = null;
+		textSize = 12;
+		typeface = null;
+		textAlign = Align.LEFT;
+	}
+
+	public void set(Paint src) {
+		flags = src.flags;
+		style = src.style;
+		color = src.color;
+		shader = src.shader;
+		colorFilter = src.colorFilter;
+		strokeWidth = src.strokeWidth;
+		strokeCap = src.strokeCap;
+		strokeJoin = src.strokeJoin;
+		strokeMiter = src.strokeMiter;
+		pathEffect = src.pathEffect;
+		textSize = src.textSize;
+		typeface = src.typeface;
+		textAlign = src.textAlign;
+	}
+
+	public int getFlags() {
+		return flags;
+	}
+
+	public void setFlags(int flags) {
+		this.flags = flags;
+	}
+
+	public boolean isAntiAlias() {
+		return (flags & ANTI_ALIAS_FLAG) != 0;
+	}
+
+	public void setAntiAlias(boolean aa) {
+		flags = aa ? flags | ANTI_ALIAS_FLAG : flags & ~ANTI_ALIAS_FLAG;
+	}
+
+	public Style getStyle() {
+		return style;
+	}
+
+	public void setStyle(Style style) {
+		this.style = style;
+	}
+
+	public int getColor() {
+		return color;
+	}
+
+	public void setColor(int color) {
+		this.color = color;
+	}
+
+	public int getAlpha() {
+		return color >>> 24;
+	}
+
+	public void setAlpha(int a) {
+		color = (color & 0x00FFFFFF) | (a << 24);
+	}
+
+	public Shader getShader() {
+		return shader;
+	}
+
+	public Shader setShader(Shader shader) {
+		this.shader = shader;
+		return shader;
+	}
+
+	public ColorFilter getColorFilter() {
+		return colorFilter;
+	}
+
+	public ColorFilter setColorFilter(ColorFilter filter) {
+		this.colorFilter = filter;
+		return filter;
+	}
+
+	public float getStrokeWidth() {
+		return strokeWidth;
+	}
+
+	public void setStrokeWidth(float width) {
+		this.strokeWidth = width;
+	}
+
+	public Cap getStrokeCap() {
+		return strokeCap;
+	}
+
+	public void setStrokeCap(Cap cap) {
+		this.strokeCap = cap;
+	}
+
+	public Join getStrokeJoin() {
+		return strokeJoin;
+	}
+
+	public void setStrokeJoin(Join join) {
+		this.strokeJoin = join;
+	}
+
+	public float getStrokeMiter() {
+		return strokeMiter;
+	}
+
+	public void setStrokeMiter(float miter) {
+		this.strokeMiter = miter;
+	}
+
+	public PathEffect getPathEffect() {
+		return pathEffect;
+	}
+
+	public PathEffect setPathEffect(PathEffect effect) {
+		this.pathEffect = effect;
+		return effect;
+	}
+
+	public float getTextSize() {
+		return textSize;
+	}
+
+	public void setTextSize(float textSize) {
+		this.textSize = textSize;
+	}
+
+	public Typeface getTypeface() {
+		return typeface;
+	}
+
+	public Typeface setTypeface(Typeface typeface) {
+		this.typeface = typeface;
+		return typeface;
+	}
+
+	public Align getTextAlign() {
+		return textAlign;
+	}
+
+	public void setTextAlign(Align align) {
+		this.textAlign = align;
+	}
+
+	public float measureText(String text) {
+		return text.length() * textSize / 2;
+	}
+
+	public float measureText(String text, int start, int end) {
+		return (end - start) * textSize / 2;
+	}
+
+	public float measureText(char[] text, int index, int count) {
+		return count * textSize / 2;
+	}
+
+	public int getTextWidths(String text, float[] widths) {
+		return getTextWidths(text.toCharArray(), 0, text.length(), widths);
+	}
+
+	public int getTextWidths(char[] text, int index, int count, float[] widths) {
+		for (int i = 0; i < count; i++) {
+			widths[i] = textSize / 2;
+		}
+		return count;
+	}
+
+	public float ascent() {
+		return -textSize * 0.8f;
+	}
+
+	public float descent() {
+		return textSize * 0.2f;
+	}
+
+	public float getFontMetrics(FontMetrics metrics) {
+		if (metrics != null) {
+			metrics.ascent = metrics.top = ascent();
+			metrics.descent = metrics.bottom = descent();
+			metrics.leading = 0;
+		}
+		return descent() - ascent();
+	}
+
+	public void getTextBounds(String text, int start, int end, Rect bounds) {
+		bounds.set(0, (int) ascent(), (int) measureText(text, start, end), (int) descent());
+	}
+}
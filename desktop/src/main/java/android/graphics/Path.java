@@ -0,0 +1,228 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.Path</code>, which stores the points of its segments (so that building a path costs
+ * what it does on a device) and computes bounds from them.
+ */
+public class Path {
+	public enum FillType {
+		WINDING, EVEN_ODD, INVERSE_WINDING, INVERSE_EVEN_ODD
+	}
+
+	public enum Direction {
+		CW, CCW
+	}
+
+	private float[] points = new float[16];
+	private int count;
+	private float lastX, lastY;
+	private float startX, startY;
+	private FillType fillType = FillType.WINDING;
+
+	public Path() {
+	}
+
+	public Path(Path src) {
+		set(src);
+	}
+
+	public void reset() {
+		count = 0;
+		lastX = lastY = startX = startY = 0;
+		fillType = FillType.WINDING;
+	}
+
+	public void rewind() {
+		count = 0;
+		lastX = lastY = startX = startY = 0;
+	}
+
+	public void set(Path src) {
+		if (src == this) {
+			return;
+		}
+		points = src.points.clone();
+		count = src.count;
+		lastX = src.lastX;
+		lastY = src.lastY;
+		startX = src.startX;
+		startY = src.startY;
+		fillType = src.fillType;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	public void setFillType(FillType ft) {
+		fillType = ft;
+	}
+
+	public FillType getFillType() {
+		return fillType;
+	}
+
+	public void incReserve(int extraPtCount) {
+		ensure(extraPtCount * 2);
+	}
+
+	private void ensure(int extra) {
+		if (count + extra > points.length) {
+			final float[] grown = new float[Math.max(points.length * 2, count + extra)];
+			System.arraycopy(points, 0, grown, 0, count);
+			points = grown;
+		}
+	}
+
+	private void add(float x, float y) {
+		ensure(2);
+		points[count++] = x;
+		points[count++] = y;
+		lastX = x;
+		lastY = y;
+	}
+
+	public void moveTo(float x, float y) {
+		add(x, y);
+		startX = x;
+		startY = y;
+	}
+
+	public void rMoveTo(float dx, float dy) {
+		moveTo(lastX + dx, lastY + dy);
+	}
+
+	public void lineTo(float x, float y) {
+		if (count == 0) {
+			add(0, 0);
+		}
+		add(x, y);
+	}
+
+	public void rLineTo(float dx, float dy) {
+		lineTo(lastX + dx, lastY + dy);
+	}
+
+	public void quadTo(float x1, float y1, float x2, float y2) {
+		if (count == 0) {
+			add(0, 0);
+		}
+		add(x1, y1);
+		add(x2, y2);
+	}
+
+	public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+		if (count == 0) {
+			add(0, 0);
+		}
+		add(x1, y1);
+		add(x2, y2);
+		add(x3, y3);
+	}
+
+	public void close() {
+		lastX = startX;
+		lastY = startY;
+	}
+
+	public void arcTo(RectF oval, float startAngle, float sweepAngle, boolean forceMoveTo) {
+		final double start = Math.toRadians(startAngle), sweep = Math.toRadians(sweepAngle);
+		final int segments = Math.max(1, (int) Math.ceil(Math.abs(sweepAngle) / 90));
+		final float rx = oval.width() / 2, ry = oval.height() / 2, cx = oval.centerX(), cy = oval.centerY();
+		final float x0 = cx + rx * (float) Math.cos(start), y0 = cy + ry * (float) Math.sin(start);
+		if (forceMoveTo || count == 0) {
+			moveTo(x0, y0);
+		} else {
+			lineTo(x0, y0);
+		}
+		for (int i = 1; i <= segments; i++) {
+			final double a = start + sweep * i / segments;
+			// Control points are approximated by the end point; only the cost and bounds matter here
+			final float x = cx + rx * (float) Math.cos(a), y = cy + ry * (float) Math.sin(a);
+			cubicTo(x, y, x, y, x, y);
+		}
+	}
+
+	public void arcTo(RectF oval, float startAngle, float sweepAngle) {
+		arcTo(oval, startAngle, sweepAngle, false);
+	}
+
+	public void addRect(RectF rect, Direction dir) {
+		moveTo(rect.left, rect.top);
+		lineTo(rect.right, rect.top);
+		lineTo(rect.right, rect.bottom);
+		lineTo(rect.left, rect.bottom);
+		close();
+	}
+
+	public void addOval(RectF oval, Direction dir) {
+		arcTo(oval, 0, 360, true);
+		close();
+	}
+
+	public void addRoundRect(RectF rect, float rx, float ry, Direction dir) {
+		addRect(rect, dir);
+	}
+
+	public void addPath(Path src) {
+		ensure(src.count);
+		System.arraycopy(src.points, 0, points, count, src.count);
+		count += src.count;
+		lastX = src.lastX;
+		lastY = src.lastY;
+	}
+
+	public void addPath(Path src, Matrix matrix) {
+		final Path copy = new Path(src);
+		copy.transform(matrix);
+		addPath(copy);
+	}
+
+	public void offset(float dx, float dy) {
+		for (int i = 0; i < count; i += 2) {
+			points[i] += dx;
+			points[i + 1] += dy;
+		}
+		lastX += dx;
+		lastY += dy;
+		startX += dx;
+		startY += dy;
+	}
+
+	public void transform(Matrix matrix) {
+		final float[] p = new float[count];
+		System.arraycopy(points, 0, p, 0, count);
+		matrix.mapPoints(p);
+		System.arraycopy(p, 0, points, 0, count);
+		final float[] last = { lastX, lastY, startX, startY };
+		matrix.mapPoints(last);
+		lastX = last[0];
+		lastY = last[1];
+		startX = last[2];
+		startY = last[3];
+	}
+
+	public void transform(Matrix matrix, Path dst) {
+		if (dst == null) {
+			transform(matrix);
+		} else {
+			dst.set(this);
+			dst.transform(matrix);
+		}
+	}
+
+	public void computeBounds(RectF bounds, boolean exact) {
+		if (count == 0) {
+			bounds.set(0, 0, 0, 0);
+			return;
+		}
+		float l = points[0], t = points[1], r = l, b = t;
+		for (int i = 2; i < count; i += 2) {
+			l = Math.min(l, points[i]);
+			r = Math.max(r, points[i]);
+			t = Math.min(t, points[i + 1]);
+			b = Math.max(b, points[i + 1]);
+		}
+		bounds.set(l, t, r, b);
+	}
+}
@@ -0,0 +1,7 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.PathEffect</code>.
+ */
+public class PathEffect {
+}
@@ -0,0 +1,46 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.Picture</code>, which remembers its size and the number of operations recorded.
+ */
+public class Picture {
+	private int width;
+	private int height;
+	private Canvas recording;
+	int operations;
+
+	public Picture() {
+	}
+
+	public Picture(Picture src) {
+		width = src.width;
+		height = src.height;
+		operations = src.operations;
+	}
+
+	public Canvas beginRecording(int width, int height) {
+		this.width = width;
+		this.height = height;
+		recording = new Canvas(width, height);
+		return recording;
+	}
+
+	public void endRecording() {
+		if (recording != null) {
+			operations = recording.operations;
+			recording = null;
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void draw(Canvas canvas) {
+		canvas.drawPicture(this);
+	}
+}
@@ -0,0 +1,11 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.PixelFormat</code>, with the opacities returned by drawables.
+ */
+public class PixelFormat {
+	public static final int UNKNOWN = 0;
+	public static final int TRANSLUCENT = -3;
+	public static final int TRANSPARENT = -2;
+	public static final int OPAQUE = -1;
+}
@@ -0,0 +1,30 @@
+package android.graphics;
+
+/**
+ * Headless implementation of <code>android.graphics.Rect</code>.
+ */
+public final class Rect {
+	public int left, top, right, bottom;
+
+	public Rect() {
+	}
+
+	public Rect(int left, int top, int right, int bottom) {
+		set(left, top, right, bottom);
+	}
+
+	public void set(int left, int top, int right, int bottom) {
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	public int width() {
+		return right - left;
+	}
+
+	public int height() {
+		return bottom - top;
+	}
+}
@@ -0,0 +1,142 @@
+package android.graphics;
+
+/**
+ * Headless implementation of <code>android.graphics.RectF</code>.
+ */
+public class RectF {
+	public float left, top, right, bottom;
+
+	public RectF() {
+	}
+
+	public RectF(float left, float top, float right, float bottom) {
+		set(left, top, right, bottom);
+	}
+
+	public RectF(RectF r) {
+		set(r);
+	}
+
+	public RectF(Rect r) {
+		set(r.left, r.top, r.right, r.bottom);
+	}
+
+	public void set(float left, float top, float right, float bottom) {
+		this.left = left;
+		this.top = top;
+		this.right = right;
+		this.bottom = bottom;
+	}
+
+	public void set(RectF r) {
+		set(r.left, r.top, r.right, r.bottom);
+	}
+
+	public final float width() {
+		return right - left;
+	}
+
+	public final float height() {
+		return bottom - top;
+	}
+
+	public final float centerX() {
+		return (left + right) * 0.5f;
+	}
+
+	public final float centerY() {
+		return (top + bottom) * 0.5f;
+	}
+
+	public final boolean isEmpty() {
+		return left >= right || top >= bottom;
+	}
+
+	public void setEmpty() {
+		left = top = right = bottom = 0;
+	}
+
+	public void union(float l, float t, float r, float b) {
+		if (l < r && t < b) {
+			if (left < right && top < bottom) {
+				left = Math.min(left, l);
+				top = Math.min(top, t);
+				right = Math.max(right, r);
+				bottom = Math.max(bottom, b);
+			} else {
+				set(l, t, r, b);
+			}
+		}
+	}
+
+	public void union(RectF r) {
+		union(r.left, r.top, r.right, r.bottom);
+	}
+
+	public void union(float x, float y) {
+		left = Math.min(left, x);
+		top = Math.min(top, y);
+		right = Math.max(right, x);
+		bottom = Math.max(bottom, y);
+	}
+
+	public boolean intersects(float l, float t, float r, float b) {
+		return left < r && l < right && top < b && t < bottom;
+	}
+
+	public static boolean intersects(RectF a, RectF b) {
+		return a.intersects(b.left, b.top, b.right, b.bottom);
+	}
+
+	public boolean intersect(RectF r) {
+		if (!intersects(r.left, r.top, r.right, r.bottom)) {
+			return false;
+		}
+		set(Math.max(left, r.left), Math.max(top, r.top), Math.min(right, r.right), Math.min(bottom, r.bottom));
+		return true;
+	}
+
+	public boolean contains(float x, float y) {
+		return left < right && top < bottom && x >= left && x < right && y >= top && y < bottom;
+	}
+
+	public void offset(float dx, float dy) {
+		left += dx;
+		right += dx;
+		top += dy;
+		bottom += dy;
+	}
+
+	public void inset(float dx, float dy) {
+		left += dx;
+		right -= dx;
+		top += dy;
+		bottom -= dy;
+	}
+
+	public void roundOut(Rect r) {
+		r.set((int) Math.floor(left), (int) Math.floor(top), (int) Math.ceil(right), (int) Math.ceil(bottom));
+	}
+
+	public void round(Rect r) {
+		r.set(Math.round(left), Math.round(top), Math.round(right), Math.round(bottom));
+	}
+
+	public void sort() {
+		if (left > right) {
+			float t = left;
+			left = right;
+			right = t;
+		}
+		if (top > bottom) {
+			float t = top;
+			top = bottom;
+			bottom = t;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RectF(" + left + ", " + top + ", " + right + ", " + bottom + ")";
+	}
+}
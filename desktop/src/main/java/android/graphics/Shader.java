@@ -0,0 +1,25 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.Shader</code>.
+ */
+public class Shader {
+	public enum TileMode {
+		CLAMP, REPEAT, MIRROR
+	}
+
+	private Matrix localMatrix;
+
+	public void setLocalMatrix(Matrix localM) {
+		localMatrix = (localM == null || localM.isIdentity()) ? null : new Matrix(localM);
+	}
+
+	public boolean getLocalMatrix(Matrix localM) {
+		if (localMatrix == null) {
+			localM.reset();
+			return false;
+		}
+		localM.set(localMatrix);
+		return true;
+	}
+}
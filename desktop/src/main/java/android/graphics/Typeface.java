@@ -0,0 +1,43 @@
+package android.graphics;
+
+/**
+ * Headless <code>android.graphics.Typeface</code>, which only remembers its family and style.
+ */
+public class Typeface {
+	public static final int NORMAL = 0;
+	public static final int BOLD = 1;
+	public static final int ITALIC = 2;
+	public static final int BOLD_ITALIC = 3;
+
+	public static final Typeface DEFAULT = new Typeface("sans-serif", NORMAL);
+	public static final Typeface SANS_SERIF = DEFAULT;
+	public static final Typeface SERIF = new Typeface("serif", NORMAL);
+	public static final Typeface MONOSPACE = new Typeface("monospace", NORMAL);
+
+	private final String family;
+	private final int style;
+
+	private Typeface(String family, int style) {
+		this.family = family;
+		this.style = style;
+	}
+
+	public static Typeface create(String familyName, int style) {
+		return new Typeface(familyName == null ? DEFAULT.family : familyName, style);
+	}
+
+	public static Typeface create(Typeface family, int style) {
+		return new Typeface(family == null ? DEFAULT.family : family.family, style);
+	}
+
+	public int getStyle() {
+		return style;
+	}
+
+	/**
+	 * Not part of the Android API: the family the typeface was created with, so that it can be drawn with AWT.
+	 */
+	public String getFamilyName() {
+		return family;
+	}
+}
@@ -0,0 +1,57 @@
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Rect;
+
+/**
+ * Headless <code>android.graphics.drawable.Drawable</code>.
+ */
+public abstract class Drawable {
+	private final Rect bounds = new Rect();
+
+	public static abstract class ConstantState {
+		public abstract Drawable newDrawable();
+
+		public abstract int getChangingConfigurations();
+	}
+
+	public abstract void draw(Canvas canvas);
+
+	public abstract void setAlpha(int alpha);
+
+	public abstract void setColorFilter(ColorFilter cf);
+
+	public abstract int getOpacity();
+
+	public void setBounds(int left, int top, int right, int bottom) {
+		bounds.set(left, top, right, bottom);
+		onBoundsChange(bounds);
+	}
+
+	public final Rect getBounds() {
+		return bounds;
+	}
+
+	protected void onBoundsChange(Rect bounds) {
+	}
+
+	public int getIntrinsicWidth() {
+		return -1;
+	}
+
+	public int getIntrinsicHeight() {
+		return -1;
+	}
+
+	public int getChangingConfigurations() {
+		return 0;
+	}
+
+	public ConstantState getConstantState() {
+		return null;
+	}
+
+	public void invalidateSelf() {
+	}
+}
@@ -0,0 +1,55 @@
+package android.graphics.drawable;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Picture;
+import android.graphics.PixelFormat;
+
+/**
+ * Headless <code>android.graphics.drawable.PictureDrawable</code>.
+ */
+public class PictureDrawable extends Drawable {
+	private Picture picture;
+
+	public PictureDrawable(Picture picture) {
+		this.picture = picture;
+	}
+
+	public Picture getPicture() {
+		return picture;
+	}
+
+	public void setPicture(Picture picture) {
+		this.picture = picture;
+	}
+
+	@Override
+	public void draw(Canvas canvas) {
+		if (picture != null) {
+			canvas.drawPicture(picture);
+		}
+	}
+
+	@Override
+	public int getIntrinsicWidth() {
+		return picture != null ? picture.getWidth() : -1;
+	}
+
+	@Override
+	public int getIntrinsicHeight() {
+		return picture != null ? picture.getHeight() : -1;
+	}
+
+	@Override
+	public void setAlpha(int alpha) {
+	}
+
+	@Override
+	public void setColorFilter(ColorFilter cf) {
+	}
+
+	@Override
+	public int getOpacity() {
+		return PixelFormat.TRANSLUCENT;
+	}
+}
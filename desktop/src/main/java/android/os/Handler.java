@@ -0,0 +1,37 @@
+package android.os;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless <code>android.os.Handler</code>. There are no loopers: each handler runs the runnables posted to it in
+ * order, on a daemon thread of its own that is started when needed and stops when idle.
+ */
+public class Handler {
+	private final ThreadPoolExecutor thread;
+
+	public Handler() {
+		thread = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "Handler");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		thread.allowCoreThreadTimeOut(true);
+	}
+
+	public final boolean post(Runnable r) {
+		thread.execute(r);
+		return true;
+	}
+
+	public final void removeCallbacks(Runnable r) {
+		while (thread.remove(r)) {
+			// Remove every pending post of it
+		}
+	}
+}
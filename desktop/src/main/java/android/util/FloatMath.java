@@ -0,0 +1,29 @@
+package android.util;
+
+/**
+ * Headless implementation of <code>android.util.FloatMath</code>.
+ */
+public class FloatMath {
+	private FloatMath() {
+	}
+
+	public static float floor(float value) {
+		return (float) Math.floor(value);
+	}
+
+	public static float ceil(float value) {
+		return (float) Math.ceil(value);
+	}
+
+	public static float sin(float angle) {
+		return (float) Math.sin(angle);
+	}
+
+	public static float cos(float angle) {
+		return (float) Math.cos(angle);
+	}
+
+	public static float sqrt(float value) {
+		return (float) Math.sqrt(value);
+	}
+}
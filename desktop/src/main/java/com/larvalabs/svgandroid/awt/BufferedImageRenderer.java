@@ -0,0 +1,83 @@
+package com.larvalabs.svgandroid.awt;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Rasterizes an SVG in to a new image, scaled (keeping its aspect ratio) to fit within the given size. The image is
+ * created when the document begins, so its size follows the document's.
+ * 
+ * <pre>
+ * BufferedImageRenderer renderer = new BufferedImageRenderer(256, 256);
+ * new SVGBuilder().readFromInputStream(in).setRenderer(renderer).build();
+ * ImageIO.write(renderer.getImage(), &quot;png&quot;, file);
+ * </pre>
+ */
+public class BufferedImageRenderer extends Graphics2DRenderer {
+
+	private final int maxWidth;
+	private final int maxHeight;
+	private Color background = null;
+	private BufferedImage image = null;
+
+	/**
+	 * @param maxWidth the largest width of the image, in pixels.
+	 * @param maxHeight the largest height of the image, in pixels.
+	 */
+	public BufferedImageRenderer(int maxWidth, int maxHeight) {
+		if (maxWidth <= 0 || maxHeight <= 0) {
+			throw new IllegalArgumentException("Invalid image size: " + maxWidth + "x" + maxHeight);
+		}
+		this.maxWidth = maxWidth;
+		this.maxHeight = maxHeight;
+	}
+
+	/**
+	 * Fills the image with a colour before drawing.<br>
+	 * <em>(default is null, to leave the image transparent)</em>
+	 */
+	public BufferedImageRenderer setBackground(Color background) {
+		this.background = background;
+		return this;
+	}
+
+	@Override
+	public void beginDocument(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			// No intrinsic size, so draw unscaled
+			width = maxWidth;
+			height = maxHeight;
+		}
+		final float scale = scaleToFit(width, height, maxWidth, maxHeight);
+		image = new BufferedImage(Math.max(1, Math.round(width * scale)), Math.max(1, Math.round(height * scale)),
+				BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D graphics = image.createGraphics();
+		if (background != null) {
+			graphics.setColor(background);
+			graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+		}
+		graphics.scale(scale, scale);
+		setGraphics(graphics);
+	}
+
+	@Override
+	public void endDocument() {
+		super.endDocument();
+		getGraphics().dispose();
+	}
+
+	/**
+	 * @return the scale at which a document fits within the given size, keeping its aspect ratio.
+	 */
+	static float scaleToFit(int width, int height, int maxWidth, int maxHeight) {
+		return Math.min(maxWidth / (float) width, maxHeight / (float) height);
+	}
+
+	/**
+	 * @return the image, or null if no document has been drawn.
+	 */
+	public BufferedImage getImage() {
+		return image;
+	}
+}
@@ -0,0 +1,245 @@
+package com.larvalabs.svgandroid.awt;
+
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+
+import com.larvalabs.svgandroid.PathGeometry;
+import com.larvalabs.svgandroid.SVGRenderer;
+
+/**
+ * Records the drawing of a document as Java2D shapes, each with its transform, clip and bounds, so that it can be
+ * replayed any number of times, eg. once per tile and from several threads. Drawings that are clipped away entirely
+ * aren't recorded.
+ * <p/>
+ * Operations are recorded in document space (the space of {@link #setMatrix(Matrix)}), and are immutable once recorded.
+ */
+final class DisplayList implements SVGRenderer {
+
+	private static final FontRenderContext FONT_CONTEXT = new FontRenderContext(null, true, true);
+
+	private static final float SQRT_2 = (float) Math.sqrt(2);
+
+	/**
+	 * One drawing operation: a shape (or a run of text) with everything needed to draw it.
+	 */
+	static final class Op {
+		final Shape shape;
+		final String text;
+		final float x;
+		final float y;
+		final Paint paint;
+		final AffineTransform transform;
+		final Shape clip;
+		final Rectangle2D bounds;
+
+		Op(Shape shape, String text, float x, float y, Paint paint, AffineTransform transform, Shape clip,
+				Rectangle2D bounds) {
+			this.shape = shape;
+			this.text = text;
+			this.x = x;
+			this.y = y;
+			this.paint = paint;
+			this.transform = transform;
+			this.clip = clip;
+			this.bounds = bounds;
+		}
+
+		/**
+		 * Draws the operation with a renderer whose current transform is document space.
+		 */
+		void draw(Graphics2DRenderer renderer) {
+			if (clip != null) {
+				renderer.getGraphics().clip(clip);
+			}
+			renderer.getGraphics().transform(transform);
+			if (text != null) {
+				renderer.drawText(text, x, y, paint);
+			} else {
+				renderer.draw(shape, paint);
+			}
+		}
+	}
+
+	private final ArrayList<Op> ops = new ArrayList<Op>();
+	private final Graphics2DRenderer shaders = new Graphics2DRenderer();
+	private int width;
+	private int height;
+
+	// The transform and clip are replaced rather than modified, so that operations can share them
+	private AffineTransform transform = new AffineTransform();
+	private Shape clip = null;
+	private final ArrayList<AffineTransform> savedTransforms = new ArrayList<AffineTransform>();
+	private final ArrayList<Shape> savedClips = new ArrayList<Shape>();
+
+	/**
+	 * @return the operations, in drawing order.
+	 */
+	ArrayList<Op> getOps() {
+		return ops;
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	int getHeight() {
+		return height;
+	}
+
+	public void beginDocument(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	public void endDocument() {
+		restoreToCount(1);
+	}
+
+	public int save() {
+		savedTransforms.add(transform);
+		savedClips.add(clip);
+		return savedTransforms.size();
+	}
+
+	public void restore() {
+		final int last = savedTransforms.size() - 1;
+		transform = savedTransforms.remove(last);
+		clip = savedClips.remove(last);
+	}
+
+	public void restoreToCount(int saveCount) {
+		while (savedTransforms.size() >= saveCount && !savedTransforms.isEmpty()) {
+			restore();
+		}
+	}
+
+	public void concat(Matrix matrix) {
+		transform = new AffineTransform(transform);
+		transform.concatenate(Graphics2DRenderer.toAffineTransform(matrix));
+	}
+
+	public void setMatrix(Matrix matrix) {
+		transform = Graphics2DRenderer.toAffineTransform(matrix);
+	}
+
+	public void translate(float dx, float dy) {
+		transform = new AffineTransform(transform);
+		transform.translate(dx, dy);
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+		final Shape rect = transform.createTransformedShape(new Rectangle2D.Float(left, top, right - left, bottom
+				- top));
+		if (transform.getShearX() == 0 && transform.getShearY() == 0) {
+			// Still a rectangle, which Java2D clips to fastest
+			final Rectangle2D bounds = rect.getBounds2D();
+			if (clip == null) {
+				clip = bounds;
+			} else if (clip instanceof Rectangle2D) {
+				final Rectangle2D intersection = new Rectangle2D.Double();
+				Rectangle2D.intersect((Rectangle2D) clip, bounds, intersection);
+				clip = intersection;
+			} else {
+				clip = intersect(clip, bounds);
+			}
+		} else {
+			clip = (clip == null) ? rect : intersect(clip, rect);
+		}
+	}
+
+	private static Shape intersect(Shape a, Shape b) {
+		final Area area = new Area(a);
+		area.intersect(new Area(b));
+		return area;
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+		record(Graphics2DRenderer.pathShape(geometry), paint);
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+		record(Graphics2DRenderer.rectShape(rect, rx, ry), paint);
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		record(new Ellipse2D.Float(oval.left, oval.top, oval.width(), oval.height()), paint);
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		record(new Line2D.Float(x1, y1, x2, y2), paint);
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		final Font font = Graphics2DRenderer.font(paint);
+		final Rectangle2D bounds = font.getStringBounds(text, FONT_CONTEXT);
+		// Glyphs may overhang their advance (italics, accents)
+		final float overhang = paint.getTextSize() / 4;
+		bounds.setRect(x + bounds.getX() - overhang, y + bounds.getY() - overhang, bounds.getWidth() + overhang * 2,
+				bounds.getHeight() + overhang * 2);
+		add(null, text, x, y, paint, bounds);
+	}
+
+	private void record(Shape shape, Paint paint) {
+		final Rectangle2D bounds = shape.getBounds2D();
+		if (paint.getStyle() != Paint.Style.FILL) {
+			final float pad = strokeOutset(paint);
+			bounds.setRect(bounds.getX() - pad, bounds.getY() - pad, bounds.getWidth() + pad * 2, bounds.getHeight()
+					+ pad * 2);
+		}
+		add(shape, null, 0, 0, paint, bounds);
+	}
+
+	/**
+	 * @return how far a stroke can extend beyond the shape's bounds.
+	 */
+	private static float strokeOutset(Paint paint) {
+		float factor = 1;
+		if (paint.getStrokeJoin() == Paint.Join.MITER) {
+			factor = Math.max(factor, paint.getStrokeMiter());
+		}
+		if (paint.getStrokeCap() == Paint.Cap.SQUARE) {
+			factor = Math.max(factor, SQRT_2);
+		}
+		return paint.getStrokeWidth() / 2 * factor;
+	}
+
+	/**
+	 * Records an operation, unless it is clipped away.
+	 *
+	 * @param userBounds the bounds of what is drawn, in the current user space.
+	 */
+	private void add(Shape shape, String text, float x, float y, Paint paint, Rectangle2D userBounds) {
+		final Rectangle2D bounds = transform.createTransformedShape(userBounds).getBounds2D();
+		if (clip != null) {
+			Rectangle2D.intersect(bounds, clip.getBounds2D(), bounds);
+			if (bounds.getWidth() < 0 || bounds.getHeight() < 0) {
+				return;
+			}
+		}
+		ops.add(new Op(shape, text, x, y, paint, transform, clip, bounds));
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		return shaders.createLinearGradient(x1, y1, x2, y2, colors, positions, tileMode, localMatrix);
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		return shaders.createRadialGradient(x, y, radius, colors, positions, tileMode, localMatrix);
+	}
+}
@@ -0,0 +1,394 @@
+package com.larvalabs.svgandroid.awt;
+
+import android.graphics.DashPathEffect;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PathEffect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+import android.graphics.Typeface;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.MultipleGradientPaint.ColorSpaceType;
+import java.awt.MultipleGradientPaint.CycleMethod;
+import java.awt.LinearGradientPaint;
+import java.awt.RadialGradientPaint;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.util.ArrayList;
+
+import com.larvalabs.svgandroid.PathGeometry;
+import com.larvalabs.svgandroid.SVGBuilder;
+import com.larvalabs.svgandroid.SVGRenderer;
+
+/**
+ * Draws an SVG with Java2D, as it is parsed. Pass it to {@link SVGBuilder#setRenderer(SVGRenderer)}:
+ * 
+ * <pre>
+ * new SVGBuilder().readFromInputStream(in).setRenderer(new Graphics2DRenderer(graphics)).build();
+ * </pre>
+ * 
+ * The document is drawn in the graphics' current user space, one SVG user unit per unit. Colour filters are not
+ * supported. A renderer draws one document, and is not thread-safe.
+ */
+public class Graphics2DRenderer implements SVGRenderer {
+
+	private Graphics2D graphics;
+	private AffineTransform base;
+	private final ArrayList<AffineTransform> savedTransforms = new ArrayList<AffineTransform>();
+	private final ArrayList<Shape> savedClips = new ArrayList<Shape>();
+
+	/**
+	 * @param graphics the graphics to draw in to.
+	 */
+	public Graphics2DRenderer(Graphics2D graphics) {
+		setGraphics(graphics);
+	}
+
+	/**
+	 * For subclasses that only create their graphics when the document begins, by calling
+	 * {@link #setGraphics(Graphics2D)}.
+	 */
+	protected Graphics2DRenderer() {
+	}
+
+	/**
+	 * Sets the graphics to draw in to, turning on anti-aliasing.
+	 */
+	protected void setGraphics(Graphics2D graphics) {
+		this.graphics = graphics;
+		this.base = graphics.getTransform();
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+	}
+
+	protected Graphics2D getGraphics() {
+		return graphics;
+	}
+
+	public void beginDocument(int width, int height) {
+	}
+
+	public void endDocument() {
+		restoreToCount(1);
+	}
+
+	public int save() {
+		savedTransforms.add(graphics.getTransform());
+		savedClips.add(graphics.getClip());
+		return savedTransforms.size();
+	}
+
+	public void restore() {
+		final int last = savedTransforms.size() - 1;
+		graphics.setTransform(savedTransforms.remove(last));
+		graphics.setClip(savedClips.remove(last));
+	}
+
+	public void restoreToCount(int saveCount) {
+		while (savedTransforms.size() >= saveCount && !savedTransforms.isEmpty()) {
+			restore();
+		}
+	}
+
+	public void concat(Matrix matrix) {
+		graphics.transform(toAffineTransform(matrix));
+	}
+
+	public void setMatrix(Matrix matrix) {
+		final AffineTransform transform = new AffineTransform(base);
+		transform.concatenate(toAffineTransform(matrix));
+		graphics.setTransform(transform);
+	}
+
+	public void translate(float dx, float dy) {
+		graphics.translate(dx, dy);
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+		graphics.clip(new Rectangle2D.Float(left, top, right - left, bottom - top));
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+		draw(pathShape(geometry), paint);
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+		draw(rectShape(rect, rx, ry), paint);
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		draw(new Ellipse2D.Float(oval.left, oval.top, oval.width(), oval.height()), paint);
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		draw(new Line2D.Float(x1, y1, x2, y2), paint);
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		final Composite composite = applyPaint(paint);
+		graphics.setFont(font(paint));
+		graphics.drawString(text, x, y);
+		graphics.setComposite(composite);
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		if (colors.length < 2 || (x1 == x2 && y1 == y2)) {
+			return new GradientShader(color(colors[colors.length - 1]));
+		}
+		return new GradientShader(new LinearGradientPaint(new Point2D.Float(x1, y1), new Point2D.Float(x2, y2),
+				fractions(colors.length, positions), colors(colors), cycleMethod(tileMode), ColorSpaceType.SRGB,
+				toAffineTransform(localMatrix)));
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		if (colors.length < 2 || radius <= 0) {
+			return new GradientShader(color(colors[colors.length - 1]));
+		}
+		final Point2D.Float center = new Point2D.Float(x, y);
+		return new GradientShader(new RadialGradientPaint(center, radius, center, fractions(colors.length, positions),
+				colors(colors), cycleMethod(tileMode), ColorSpaceType.SRGB, toAffineTransform(localMatrix)));
+	}
+
+	/**
+	 * Fills and/or strokes a shape, in the current user space.
+	 */
+	void draw(Shape shape, Paint paint) {
+		final Composite composite = applyPaint(paint);
+		final Paint.Style style = paint.getStyle();
+		if (style != Paint.Style.STROKE) {
+			graphics.fill(shape);
+		}
+		if (style != Paint.Style.FILL) {
+			graphics.setStroke(stroke(paint));
+			graphics.draw(shape);
+		}
+		graphics.setComposite(composite);
+	}
+
+	/**
+	 * Sets the colour or gradient of the paint on the graphics.
+	 * 
+	 * @return the previous composite, to restore after drawing.
+	 */
+	private Composite applyPaint(Paint paint) {
+		final Composite composite = graphics.getComposite();
+		final Shader shader = paint.getShader();
+		if (shader instanceof GradientShader) {
+			graphics.setPaint(((GradientShader) shader).paint);
+			// As on Android, the paint's alpha modulates the shader
+			if (paint.getAlpha() < 255) {
+				graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, paint.getAlpha() / 255f));
+			}
+		} else {
+			graphics.setPaint(color(paint.getColor()));
+		}
+		return composite;
+	}
+
+	static Path2D.Float pathShape(PathGeometry geometry) {
+		final PathBuilder builder = new PathBuilder(geometry.getVerbCount());
+		geometry.replay(builder);
+		return builder.path;
+	}
+
+	static Shape rectShape(RectF rect, float rx, float ry) {
+		if (rx <= 0f && ry <= 0f) {
+			return new Rectangle2D.Float(rect.left, rect.top, rect.width(), rect.height());
+		}
+		return new RoundRectangle2D.Float(rect.left, rect.top, rect.width(), rect.height(), rx * 2, ry * 2);
+	}
+
+	static Font font(Paint paint) {
+		final Typeface typeface = paint.getTypeface();
+		if (typeface == null) {
+			return new Font(Font.SANS_SERIF, Font.PLAIN, 1).deriveFont(paint.getTextSize());
+		}
+		final String family = typeface.getFamilyName();
+		final String name;
+		if (family.equalsIgnoreCase("sans-serif")) {
+			name = Font.SANS_SERIF;
+		} else if (family.equalsIgnoreCase("serif")) {
+			name = Font.SERIF;
+		} else if (family.equalsIgnoreCase("monospace")) {
+			name = Font.MONOSPACED;
+		} else {
+			name = family;
+		}
+		// Typeface's BOLD and ITALIC are the same bits as Font's
+		return new Font(name, typeface.getStyle(), 1).deriveFont(paint.getTextSize());
+	}
+
+	static Stroke stroke(Paint paint) {
+		final int cap;
+		switch (paint.getStrokeCap()) {
+		case ROUND:
+			cap = BasicStroke.CAP_ROUND;
+			break;
+		case SQUARE:
+			cap = BasicStroke.CAP_SQUARE;
+			break;
+		default:
+			cap = BasicStroke.CAP_BUTT;
+		}
+		final int join;
+		switch (paint.getStrokeJoin()) {
+		case ROUND:
+			join = BasicStroke.JOIN_ROUND;
+			break;
+		case BEVEL:
+			join = BasicStroke.JOIN_BEVEL;
+			break;
+		default:
+			join = BasicStroke.JOIN_MITER;
+		}
+		final float miter = Math.max(1f, paint.getStrokeMiter());
+		final PathEffect effect = paint.getPathEffect();
+		if (effect instanceof DashPathEffect) {
+			final DashPathEffect dash = (DashPathEffect) effect;
+			final float[] intervals = dash.getIntervals();
+			float total = 0;
+			for (float interval : intervals) {
+				if (interval < 0) {
+					total = 0;
+					break;
+				}
+				total += interval;
+			}
+			if (total > 0) {
+				return new BasicStroke(paint.getStrokeWidth(), cap, join, miter, intervals, Math.abs(dash.getPhase()));
+			}
+		}
+		return new BasicStroke(paint.getStrokeWidth(), cap, join, miter);
+	}
+
+	private static Color color(int argb) {
+		return new Color(argb, true);
+	}
+
+	private static Color[] colors(int[] argb) {
+		final Color[] colors = new Color[argb.length];
+		for (int i = 0; i < argb.length; i++) {
+			colors[i] = color(argb[i]);
+		}
+		return colors;
+	}
+
+	/**
+	 * @return the stop positions, made strictly increasing within [0, 1] as Java2D requires.
+	 */
+	private static float[] fractions(int count, float[] positions) {
+		final float[] fractions = new float[count];
+		for (int i = 0; i < count; i++) {
+			final float f = (positions == null) ? i / (float) (count - 1) : positions[i];
+			fractions[i] = Math.max(0f, Math.min(1f, f));
+		}
+		final float epsilon = 1e-6f;
+		for (int i = 1; i < count; i++) {
+			if (fractions[i] <= fractions[i - 1]) {
+				fractions[i] = fractions[i - 1] + epsilon;
+			}
+		}
+		if (fractions[count - 1] > 1f) {
+			fractions[count - 1] = 1f;
+			for (int i = count - 2; i >= 0; i--) {
+				if (fractions[i] >= fractions[i + 1]) {
+					fractions[i] = fractions[i + 1] - epsilon;
+				}
+			}
+		}
+		return fractions;
+	}
+
+	private static CycleMethod cycleMethod(TileMode tileMode) {
+		switch (tileMode) {
+		case REPEAT:
+			return CycleMethod.REPEAT;
+		case MIRROR:
+			return CycleMethod.REFLECT;
+		default:
+			return CycleMethod.NO_CYCLE;
+		}
+	}
+
+	/**
+	 * @param matrix an Android matrix (affine), or null for identity.
+	 */
+	static AffineTransform toAffineTransform(Matrix matrix) {
+		if (matrix == null) {
+			return new AffineTransform();
+		}
+		final float[] v = new float[9];
+		matrix.getValues(v);
+		return new AffineTransform(v[Matrix.MSCALE_X], v[Matrix.MSKEW_Y], v[Matrix.MSKEW_X], v[Matrix.MSCALE_Y],
+				v[Matrix.MTRANS_X], v[Matrix.MTRANS_Y]);
+	}
+
+	/**
+	 * A gradient as a Java2D paint, in the user space of the shapes it fills.
+	 */
+	static final class GradientShader extends Shader {
+		final java.awt.Paint paint;
+
+		GradientShader(java.awt.Paint paint) {
+			this.paint = paint;
+		}
+	}
+
+	private static final class PathBuilder implements PathGeometry.Sink {
+		final Path2D.Float path;
+
+		PathBuilder(int verbs) {
+			path = new Path2D.Float(Path2D.WIND_NON_ZERO, verbs * 2);
+		}
+
+		public void moveTo(float x, float y) {
+			path.moveTo(x, y);
+		}
+
+		public void lineTo(float x, float y) {
+			if (path.getCurrentPoint() == null) {
+				path.moveTo(0, 0);
+			}
+			path.lineTo(x, y);
+		}
+
+		public void quadTo(float x1, float y1, float x, float y) {
+			if (path.getCurrentPoint() == null) {
+				path.moveTo(0, 0);
+			}
+			path.quadTo(x1, y1, x, y);
+		}
+
+		public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+			if (path.getCurrentPoint() == null) {
+				path.moveTo(0, 0);
+			}
+			path.curveTo(x1, y1, x2, y2, x, y);
+		}
+
+		public void close() {
+			if (path.getCurrentPoint() != null) {
+				path.closePath();
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.larvalabs.svgandroid.awt;
+
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+import com.larvalabs.svgandroid.PathGeometry;
+import com.larvalabs.svgandroid.SVGRenderer;
+
+/**
+ * Draws one parse of a document with several Java2D renderers, eg. at several sizes. Gradients are created by the first
+ * renderer and shared, which is possible as Java2D gradients don't depend on the graphics they are drawn in.
+ */
+final class MultiRenderer implements SVGRenderer {
+
+	private final Graphics2DRenderer[] renderers;
+
+	MultiRenderer(Graphics2DRenderer... renderers) {
+		this.renderers = renderers;
+	}
+
+	public void beginDocument(int width, int height) {
+		for (SVGRenderer r : renderers) {
+			r.beginDocument(width, height);
+		}
+	}
+
+	public void endDocument() {
+		for (SVGRenderer r : renderers) {
+			r.endDocument();
+		}
+	}
+
+	public int save() {
+		int count = 0;
+		for (SVGRenderer r : renderers) {
+			count = r.save();
+		}
+		return count;
+	}
+
+	public void restore() {
+		for (SVGRenderer r : renderers) {
+			r.restore();
+		}
+	}
+
+	public void restoreToCount(int saveCount) {
+		for (SVGRenderer r : renderers) {
+			r.restoreToCount(saveCount);
+		}
+	}
+
+	public void concat(Matrix matrix) {
+		for (SVGRenderer r : renderers) {
+			r.concat(matrix);
+		}
+	}
+
+	public void setMatrix(Matrix matrix) {
+		for (SVGRenderer r : renderers) {
+			r.setMatrix(matrix);
+		}
+	}
+
+	public void translate(float dx, float dy) {
+		for (SVGRenderer r : renderers) {
+			r.translate(dx, dy);
+		}
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+		for (SVGRenderer r : renderers) {
+			r.clipRect(left, top, right, bottom);
+		}
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+		for (SVGRenderer r : renderers) {
+			r.drawPath(path, geometry, paint);
+		}
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+		for (SVGRenderer r : renderers) {
+			r.drawRect(rect, rx, ry, paint);
+		}
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		for (SVGRenderer r : renderers) {
+			r.drawOval(oval, paint);
+		}
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		for (SVGRenderer r : renderers) {
+			r.drawLine(x1, y1, x2, y2, paint);
+		}
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		for (SVGRenderer r : renderers) {
+			r.drawText(text, x, y, paint);
+		}
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		return renderers[0].createLinearGradient(x1, y1, x2, y2, colors, positions, tileMode, localMatrix);
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		return renderers[0].createRadialGradient(x, y, radius, colors, positions, tileMode, localMatrix);
+	}
+}
@@ -0,0 +1,164 @@
+package com.larvalabs.svgandroid.awt;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes the tiles of a {@link TileRasterizer} as a PNG (8 bit RGBA), one band of rows at a time, so that only one row
+ * of tiles is held at once however large the image is. The output stream is not closed.
+ */
+public class PngTileWriter implements TileRasterizer.Sink {
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+	/**
+	 * The largest IDAT chunk written.
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private static final int FILTER_SUB = 1;
+
+	private final DataOutputStream out;
+	private final int compressionLevel;
+	private int width;
+	private Deflater deflater;
+	private IdatStream idat;
+	private DeflaterOutputStream pixels;
+	private final ArrayList<BufferedImage> band = new ArrayList<BufferedImage>();
+	private int bandWidth;
+
+	/**
+	 * @param out the stream to write the PNG to.
+	 */
+	public PngTileWriter(OutputStream out) {
+		this(out, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param out the stream to write the PNG to.
+	 * @param compressionLevel the deflate level, from 0 (fastest) to 9 (smallest).
+	 */
+	public PngTileWriter(OutputStream out, int compressionLevel) {
+		this.out = new DataOutputStream(out);
+		this.compressionLevel = compressionLevel;
+	}
+
+	public void begin(int width, int height) throws IOException {
+		this.width = width;
+		out.write(SIGNATURE);
+		final byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 8; // bit depth
+		header[9] = 6; // colour type: RGBA
+		writeChunk("IHDR", header, header.length);
+		deflater = new Deflater(compressionLevel);
+		idat = new IdatStream();
+		pixels = new DeflaterOutputStream(idat, deflater, CHUNK_SIZE);
+	}
+
+	public void tile(int x, int y, BufferedImage tile) throws IOException {
+		band.add(tile);
+		bandWidth += tile.getWidth();
+		if (bandWidth >= width) {
+			writeBand();
+		}
+	}
+
+	public void end() throws IOException {
+		pixels.finish();
+		idat.flushChunk();
+		deflater.end();
+		writeChunk("IEND", new byte[0], 0);
+		out.flush();
+	}
+
+	private void writeBand() throws IOException {
+		final int height = band.get(0).getHeight();
+		final byte[] line = new byte[1 + width * 4];
+		final int[] argb = new int[band.get(0).getWidth()];
+		for (int y = 0; y < height; y++) {
+			int i = 1;
+			for (BufferedImage tile : band) {
+				final int w = tile.getWidth();
+				tile.getRGB(0, y, w, 1, argb, 0, w);
+				for (int x = 0; x < w; x++) {
+					final int c = argb[x];
+					line[i++] = (byte) (c >> 16);
+					line[i++] = (byte) (c >> 8);
+					line[i++] = (byte) c;
+					line[i++] = (byte) (c >>> 24);
+				}
+			}
+			// Each byte minus the same channel of the previous pixel, which deflates much better
+			for (i = line.length - 1; i > 4; i--) {
+				line[i] -= line[i - 4];
+			}
+			line[0] = FILTER_SUB;
+			pixels.write(line);
+		}
+		band.clear();
+		bandWidth = 0;
+	}
+
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		final CRC32 crc = new CRC32();
+		final byte[] typeBytes = type.getBytes("US-ASCII");
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static void putInt(byte[] b, int offset, int value) {
+		b[offset] = (byte) (value >>> 24);
+		b[offset + 1] = (byte) (value >>> 16);
+		b[offset + 2] = (byte) (value >>> 8);
+		b[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Splits the compressed pixels in to IDAT chunks.
+	 */
+	private final class IdatStream extends OutputStream {
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int count;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == buffer.length) {
+				flushChunk();
+			}
+			buffer[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == buffer.length) {
+					flushChunk();
+				}
+				final int n = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		void flushChunk() throws IOException {
+			if (count > 0) {
+				writeChunk("IDAT", buffer, count);
+				count = 0;
+			}
+		}
+	}
+}
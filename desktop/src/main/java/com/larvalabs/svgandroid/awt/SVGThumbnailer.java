@@ -0,0 +1,191 @@
+package com.larvalabs.svgandroid.awt;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import com.larvalabs.svgandroid.SVGBuilder;
+import com.larvalabs.svgandroid.SVGParseException;
+
+/**
+ * Renders SVG files to PNG thumbnails at several sizes, in parallel. Each file is parsed once, with the same parser as
+ * on Android, and drawn at every size in the same pass.
+ * 
+ * <pre>
+ * SVGThumbnailer thumbnailer = new SVGThumbnailer(48, 96, 192);
+ * for (SVGThumbnailer.Result result : thumbnailer.renderAll(files, outputDirectory)) {
+ * 	if (result.getError() != null) {
+ * 		log(result.getSource(), result.getError());
+ * 	}
+ * }
+ * </pre>
+ * 
+ * Override {@link #builder(File)} to set parsing options (colour swaps, white mode...).
+ */
+public class SVGThumbnailer {
+
+	/**
+	 * The outcome of rendering one file.
+	 */
+	public static final class Result {
+		private final File source;
+		private final File[] outputs;
+		private final Exception error;
+
+		Result(File source, File[] outputs, Exception error) {
+			this.source = source;
+			this.outputs = outputs;
+			this.error = error;
+		}
+
+		public File getSource() {
+			return source;
+		}
+
+		/**
+		 * @return the PNG files written, one per size, or null if the file failed.
+		 */
+		public File[] getOutputs() {
+			return outputs;
+		}
+
+		/**
+		 * @return why the file couldn't be rendered (an IOException or SVGParseException), or null if it was.
+		 */
+		public Exception getError() {
+			return error;
+		}
+	}
+
+	private final int[] sizes;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private Color background = null;
+
+	/**
+	 * @param sizes the sizes of the thumbnails, in pixels; each thumbnail fits in a square of that size.
+	 */
+	public SVGThumbnailer(int... sizes) {
+		if (sizes.length == 0) {
+			throw new IllegalArgumentException("No thumbnail sizes given.");
+		}
+		this.sizes = sizes.clone();
+	}
+
+	/**
+	 * The number of files rendered at once by {@link #renderAll(List, File)}.<br>
+	 * <em>(default is the number of processors)</em>
+	 */
+	public SVGThumbnailer setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Invalid thread count: " + threads);
+		}
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * Fills the thumbnails with a colour before drawing.<br>
+	 * <em>(default is null, for transparent thumbnails)</em>
+	 */
+	public SVGThumbnailer setBackground(Color background) {
+		this.background = background;
+		return this;
+	}
+
+	/**
+	 * Creates the builder that reads a file. Override to set parsing options; the renderer is always replaced.
+	 */
+	protected SVGBuilder builder(File file) throws IOException {
+		return new SVGBuilder().readFromInputStream(new FileInputStream(file));
+	}
+
+	/**
+	 * Renders one document at every size.
+	 * 
+	 * @param builder a builder whose input has been set.
+	 * @return one image per size, in the order the sizes were given.
+	 * @throws SVGParseException if the document can't be parsed.
+	 */
+	public BufferedImage[] render(SVGBuilder builder) throws SVGParseException {
+		final BufferedImageRenderer[] renderers = new BufferedImageRenderer[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			renderers[i] = new BufferedImageRenderer(sizes[i], sizes[i]).setBackground(background);
+		}
+		builder.setRenderer(new MultiRenderer(renderers)).build();
+		final BufferedImage[] images = new BufferedImage[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			images[i] = renderers[i].getImage();
+		}
+		return images;
+	}
+
+	/**
+	 * Renders files to PNGs named <code>&lt;name&gt;-&lt;size&gt;.png</code> in the output directory, where the name
+	 * is the file's name without its extension. Blocks until every file is done; a file that fails doesn't stop the
+	 * others.
+	 * 
+	 * @return the results, in the order of the files.
+	 * @throws InterruptedException if interrupted while waiting, in which case the remaining files are abandoned.
+	 */
+	public List<Result> renderAll(List<File> files, final File outputDirectory) throws InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, files.size())));
+		try {
+			final List<Future<Result>> futures = new ArrayList<Future<Result>>(files.size());
+			for (final File file : files) {
+				futures.add(executor.submit(new Callable<Result>() {
+					public Result call() {
+						return renderFile(file, outputDirectory);
+					}
+				}));
+			}
+			final List<Result> results = new ArrayList<Result>(files.size());
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					// Errors (eg. OutOfMemoryError) that renderFile() doesn't catch
+					throw new RuntimeException("Failed to render " + files.get(i), e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Result renderFile(File file, File outputDirectory) {
+		try {
+			final BufferedImage[] images = render(builder(file));
+			final String name = baseName(file);
+			final File[] outputs = new File[sizes.length];
+			for (int i = 0; i < sizes.length; i++) {
+				outputs[i] = new File(outputDirectory, name + "-" + sizes[i] + ".png");
+				if (!ImageIO.write(images[i], "png", outputs[i])) {
+					throw new IOException("No PNG writer available.");
+				}
+			}
+			return new Result(file, outputs, null);
+		} catch (IOException e) {
+			return new Result(file, null, e);
+		} catch (SVGParseException e) {
+			return new Result(file, null, e);
+		}
+	}
+
+	private static String baseName(File file) {
+		final String name = file.getName();
+		final int dot = name.lastIndexOf('.');
+		return (dot > 0) ? name.substring(0, dot) : name;
+	}
+}
@@ -0,0 +1,268 @@
+package com.larvalabs.svgandroid.awt;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.larvalabs.svgandroid.SVG;
+import com.larvalabs.svgandroid.SVGBuilder;
+import com.larvalabs.svgandroid.SVGParseException;
+
+/**
+ * Rasterizes a large document in tiles, in parallel, without ever holding the whole image in memory, eg. to export a
+ * floor plan at print resolution:
+ *
+ * <pre>
+ * OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+ * new TileRasterizer(20000, 20000).render(new SVGBuilder().readFromInputStream(in), new PngTileWriter(out));
+ * out.close();
+ * </pre>
+ *
+ * The document is parsed once in to a display list of shapes with their bounds. The image is then drawn one row of
+ * tiles at a time: each tile is drawn on a {@link ForkJoinPool}, with only the shapes that overlap it, while the
+ * previous row is handed to the {@link Sink}. At most two rows of tiles are in memory at once.
+ */
+public class TileRasterizer {
+
+	/**
+	 * Receives the tiles of an image. All methods are called on the thread that called
+	 * {@link TileRasterizer#render(SVGBuilder, Sink)}.
+	 */
+	public interface Sink {
+		/**
+		 * Called before the first tile.
+		 *
+		 * @param width the width of the image, in pixels.
+		 * @param height the height of the image, in pixels.
+		 */
+		void begin(int width, int height) throws IOException;
+
+		/**
+		 * Called for each tile, a row at a time from the top, and from left to right within a row. Tiles on the right
+		 * and bottom edges are smaller than the tile size if the image isn't a multiple of it.
+		 *
+		 * @param x the left of the tile in the image.
+		 * @param y the top of the tile in the image.
+		 * @param tile the tile's pixels, which may be kept.
+		 */
+		void tile(int x, int y, BufferedImage tile) throws IOException;
+
+		/**
+		 * Called after the last tile.
+		 */
+		void end() throws IOException;
+	}
+
+	private final int maxWidth;
+	private final int maxHeight;
+	private int tileSize = 512;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private Color background = null;
+
+	/**
+	 * @param maxWidth the largest width of the image, in pixels.
+	 * @param maxHeight the largest height of the image, in pixels.
+	 */
+	public TileRasterizer(int maxWidth, int maxHeight) {
+		if (maxWidth <= 0 || maxHeight <= 0) {
+			throw new IllegalArgumentException("Invalid image size: " + maxWidth + "x" + maxHeight);
+		}
+		this.maxWidth = maxWidth;
+		this.maxHeight = maxHeight;
+	}
+
+	/**
+	 * The width and height of the tiles, in pixels.<br>
+	 * <em>(default is 512)</em>
+	 */
+	public TileRasterizer setTileSize(int tileSize) {
+		if (tileSize <= 0) {
+			throw new IllegalArgumentException("Invalid tile size: " + tileSize);
+		}
+		this.tileSize = tileSize;
+		return this;
+	}
+
+	/**
+	 * The pool to draw the tiles on.<br>
+	 * <em>(default is the common pool)</em>
+	 */
+	public TileRasterizer setPool(ForkJoinPool pool) {
+		this.pool = pool;
+		return this;
+	}
+
+	/**
+	 * Fills the tiles with a colour before drawing.<br>
+	 * <em>(default is null, to leave the image transparent)</em>
+	 */
+	public TileRasterizer setBackground(Color background) {
+		this.background = background;
+		return this;
+	}
+
+	/**
+	 * Parses and rasterizes a document.
+	 *
+	 * @param builder a builder whose input has been set; its renderer is replaced.
+	 * @param sink receives the tiles.
+	 * @return the parsed SVG (without a picture).
+	 * @throws SVGParseException if the document can't be parsed.
+	 * @throws IOException if the sink fails.
+	 */
+	public SVG render(SVGBuilder builder, Sink sink) throws SVGParseException, IOException {
+		final DisplayList list = new DisplayList();
+		final SVG svg = builder.setRenderer(list).build();
+
+		int width = list.getWidth();
+		int height = list.getHeight();
+		if (width <= 0 || height <= 0) {
+			// No intrinsic size, so draw unscaled
+			width = maxWidth;
+			height = maxHeight;
+		}
+		final float scale = BufferedImageRenderer.scaleToFit(width, height, maxWidth, maxHeight);
+		final Target image = new Target(list.getOps(), Math.max(1, Math.round(width * scale)), Math.max(1,
+				Math.round(height * scale)), scale);
+
+		sink.begin(image.width, image.height);
+		final int rows = (image.height + tileSize - 1) / tileSize;
+		ForkJoinTask<BufferedImage[]> next = pool.submit(new Row(image, 0));
+		for (int row = 0; row < rows; row++) {
+			final BufferedImage[] tiles = next.join();
+			if (row + 1 < rows) {
+				next = pool.submit(new Row(image, row + 1));
+			}
+			final int y = row * tileSize;
+			for (int column = 0; column < tiles.length; column++) {
+				sink.tile(column * tileSize, y, tiles[column]);
+			}
+		}
+		sink.end();
+		return svg;
+	}
+
+	/**
+	 * The image being rasterized.
+	 */
+	private final class Target {
+		final ArrayList<DisplayList.Op> ops;
+		final int width;
+		final int height;
+		final float scale;
+
+		Target(ArrayList<DisplayList.Op> ops, int width, int height, float scale) {
+			this.ops = ops;
+			this.width = width;
+			this.height = height;
+			this.scale = scale;
+		}
+
+		/**
+		 * @return the area of the document that affects the given pixels (including anti-aliasing).
+		 */
+		Rectangle2D documentArea(int x, int y, int width, int height) {
+			return new Rectangle2D.Float((x - 1) / scale, (y - 1) / scale, (width + 2) / scale, (height + 2) / scale);
+		}
+
+		/**
+		 * @return the operations that overlap an area, in drawing order.
+		 */
+		ArrayList<DisplayList.Op> cull(ArrayList<DisplayList.Op> ops, Rectangle2D area) {
+			final ArrayList<DisplayList.Op> culled = new ArrayList<DisplayList.Op>();
+			for (DisplayList.Op op : ops) {
+				if (op.bounds.intersects(area)) {
+					culled.add(op);
+				}
+			}
+			return culled;
+		}
+
+		BufferedImage drawTile(ArrayList<DisplayList.Op> ops, int x, int y) {
+			final int width = Math.min(tileSize, this.width - x);
+			final int height = Math.min(tileSize, this.height - y);
+			final BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			final Graphics2D graphics = tile.createGraphics();
+			if (background != null) {
+				graphics.setColor(background);
+				graphics.fillRect(0, 0, width, height);
+			}
+			graphics.translate(-x, -y);
+			graphics.scale(scale, scale);
+			final AffineTransform document = graphics.getTransform();
+			final Graphics2DRenderer renderer = new Graphics2DRenderer(graphics);
+			for (DisplayList.Op op : cull(ops, documentArea(x, y, width, height))) {
+				graphics.setTransform(document);
+				graphics.setClip(null);
+				op.draw(renderer);
+			}
+			graphics.dispose();
+			return tile;
+		}
+	}
+
+	/**
+	 * Draws a row of tiles, culling the operations to the row before splitting it in to tiles.
+	 */
+	private final class Row extends RecursiveTask<BufferedImage[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final Target image;
+		private final int y;
+
+		Row(Target image, int row) {
+			this.image = image;
+			this.y = row * tileSize;
+		}
+
+		@Override
+		protected BufferedImage[] compute() {
+			final int height = Math.min(tileSize, image.height - y);
+			final ArrayList<DisplayList.Op> ops = image.cull(image.ops, image.documentArea(0, y, image.width, height));
+			final BufferedImage[] tiles = new BufferedImage[(image.width + tileSize - 1) / tileSize];
+			new Tiles(image, ops, y, tiles, 0, tiles.length).invoke();
+			return tiles;
+		}
+	}
+
+	/**
+	 * Draws a range of the tiles of a row, splitting it in half until there is one tile per task.
+	 */
+	private final class Tiles extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Target image;
+		private final ArrayList<DisplayList.Op> ops;
+		private final int y;
+		private final BufferedImage[] tiles;
+		private final int from;
+		private final int to;
+
+		Tiles(Target image, ArrayList<DisplayList.Op> ops, int y, BufferedImage[] tiles, int from, int to) {
+			this.image = image;
+			this.ops = ops;
+			this.y = y;
+			this.tiles = tiles;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				tiles[from] = image.drawTile(ops, from * tileSize, y);
+			} else {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new Tiles(image, ops, y, tiles, from, middle), new Tiles(image, ops, y, tiles, middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.larvalabs.svgandroid;
+
+import com.larvalabs.svgandroid.awt.BufferedImageRenderer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks animated opacities, by drawing frames with Java2D and sampling the alpha of a pixel.
+ */
+public class AnimationTest {
+
+	private static SVGAnimation parse(String content) throws Exception {
+		return new SVGBuilder().readFromString("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+				+ content + "</svg>").buildAnimation();
+	}
+
+	private static int alphaAt(SVGAnimation animation, float time) {
+		final BufferedImageRenderer renderer = new BufferedImageRenderer(100, 100);
+		animation.render(renderer, time);
+		return renderer.getImage().getRGB(50, 50) >>> 24;
+	}
+
+	private static String rect(String opacity, String content) {
+		return "<rect width=\"100\" height=\"100\" fill=\"red\" opacity=\"" + opacity + "\">" + content + "</rect>";
+	}
+
+	private static String fade(String from, String to) {
+		return "<animate attributeName=\"opacity\" from=\"" + from + "\" to=\"" + to
+				+ "\" dur=\"1s\" fill=\"freeze\"/>";
+	}
+
+	@Test
+	public void fadeInFromTransparent() throws Exception {
+		final SVGAnimation animation = parse(rect("0", fade("0", "1")));
+		assertEquals(0, alphaAt(animation, 0f));
+		assertEquals(128, alphaAt(animation, 0.5f), 2);
+		assertEquals(255, alphaAt(animation, 2f));
+	}
+
+	@Test
+	public void fadeOutFromHalfOpacity() throws Exception {
+		final SVGAnimation animation = parse(rect("0.5", fade("0.5", "0")));
+		assertEquals(128, alphaAt(animation, 0f), 2);
+		assertEquals(64, alphaAt(animation, 0.5f), 2);
+		assertEquals(0, alphaAt(animation, 2f));
+	}
+
+	@Test
+	public void animatedGroupsFadeTheirContent() throws Exception {
+		final SVGAnimation animation = parse("<g opacity=\"0\">" + fade("0", "1") + rect("1", "") + "</g>");
+		assertEquals(0, alphaAt(animation, 0f));
+		assertEquals(255, alphaAt(animation, 2f));
+	}
+
+	@Test
+	public void staticOpacitiesStillApply() throws Exception {
+		// Around an animated element, and on one
+		final SVGAnimation animation = parse("<g opacity=\"0.5\">" + rect("0.5", fade("0.5", "1")) + "</g>");
+		assertEquals(64, alphaAt(animation, 0f), 2);
+		assertEquals(128, alphaAt(animation, 2f), 2);
+		assertEquals(128, alphaAt(parse(rect("0.5", "")), 0f), 2);
+	}
+}
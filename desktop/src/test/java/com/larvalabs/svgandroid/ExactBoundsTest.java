@@ -0,0 +1,78 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.RectF;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the exact bounds of transformed shapes, curves, arcs and strokes, against those worked out by hand.
+ */
+public class ExactBoundsTest {
+
+	private static final float EPSILON = 0.01f;
+
+	private static SVG parse(String content) throws Exception {
+		return new SVGBuilder().readFromString("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"200\" height=\"200\">"
+				+ content + "</svg>").setIndexElements(true).build();
+	}
+
+	private static void assertBounds(float left, float top, float right, float bottom, RectF actual) {
+		assertEquals("left of " + actual, left, actual.left, EPSILON);
+		assertEquals("top of " + actual, top, actual.top, EPSILON);
+		assertEquals("right of " + actual, right, actual.right, EPSILON);
+		assertEquals("bottom of " + actual, bottom, actual.bottom, EPSILON);
+	}
+
+	@Test
+	public void curvesAreBoundedByTheirExtrema() throws Exception {
+		final SVG svg = parse("<path d=\"M0,0 C0,100 100,100 100,0\"/>");
+		// The curve reaches 3/4 of the way to its control points
+		assertBounds(0, 0, 100, 75, svg.getExactLimits());
+		assertBounds(0, 0, 100, 100, svg.getLimits());
+	}
+
+	@Test
+	public void rotatedCirclesKeepTheirSize() throws Exception {
+		final SVG svg = parse("<circle cx=\"50\" cy=\"50\" r=\"10\" "
+				+ "transform=\"translate(50 50) rotate(45) translate(-50 -50)\"/>");
+		assertBounds(40, 40, 60, 60, svg.getExactLimits());
+	}
+
+	@Test
+	public void rotatedRectanglesAreBoundedByTheirCorners() throws Exception {
+		final SVG svg = parse("<rect x=\"-10\" y=\"-10\" width=\"20\" height=\"20\" "
+				+ "transform=\"translate(100 100) rotate(45)\"/>");
+		final float halfDiagonal = (float) (10 * Math.sqrt(2));
+		assertBounds(100 - halfDiagonal, 100 - halfDiagonal, 100 + halfDiagonal, 100 + halfDiagonal,
+				svg.getExactLimits());
+	}
+
+	@Test
+	public void arcsAreBoundedByTheirExtrema() throws Exception {
+		final SVG svg = parse("<path d=\"M0,50 A50,50 0 0 1 100,50\"/>");
+		assertBounds(0, 0, 100, 50, svg.getExactLimits());
+	}
+
+	@Test
+	public void strokesAreOutsetByHalfTheirWidth() throws Exception {
+		final SVG svg = parse("<rect x=\"10\" y=\"10\" width=\"10\" height=\"10\" stroke=\"black\" stroke-width=\"4\"/>"
+				+ "<g transform=\"scale(2)\"><line x1=\"50\" y1=\"50\" x2=\"60\" y2=\"50\" stroke=\"black\" "
+				+ "stroke-width=\"2\"/></g>");
+		// The line's stroke is scaled with it
+		assertBounds(8, 8, 122, 102, svg.getExactLimits());
+	}
+
+	@Test
+	public void indexedElementsHaveExactBounds() throws Exception {
+		final SVG svg = parse("<g transform=\"translate(10 20)\"><path id=\"p\" d=\"M0,0 C0,80 100,80 100,0\"/></g>");
+		assertBounds(10, 20, 110, 80, svg.getElement("p").getBounds());
+	}
+
+	@Test
+	public void emptyDocumentsHaveNoBounds() throws Exception {
+		assertNull(parse("").getExactLimits());
+	}
+}
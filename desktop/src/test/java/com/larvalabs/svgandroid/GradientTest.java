@@ -0,0 +1,111 @@
+package com.larvalabs.svgandroid;
+
+import java.awt.image.BufferedImage;
+
+import com.larvalabs.svgandroid.awt.BufferedImageRenderer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks how gradients are resolved (<code>xlink:href</code> inheritance, single stops, bounding boxes), by drawing
+ * them with Java2D and sampling the pixels near their ends.
+ */
+public class GradientTest {
+
+	private static final int RED = 0xffff0000, BLUE = 0xff0000ff, LIME = 0xff00ff00, BLACK = 0xff000000;
+
+	private static final String RED_TO_BLUE = "<stop offset=\"0\" stop-color=\"red\"/>"
+			+ "<stop offset=\"1\" stop-color=\"blue\"/>";
+
+	private static BufferedImage draw(String content) throws Exception {
+		final BufferedImageRenderer renderer = new BufferedImageRenderer(100, 100);
+		new SVGBuilder().readFromString("<svg xmlns=\"http://www.w3.org/2000/svg\" "
+				+ "xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"100\" height=\"100\">" + content + "</svg>")
+				.setRenderer(renderer).build();
+		return renderer.getImage();
+	}
+
+	/**
+	 * Checks a pixel, allowing for the gradient not quite reaching the colour of its end stops.
+	 */
+	private static void assertColor(int expected, BufferedImage image, int x, int y) {
+		final int actual = image.getRGB(x, y);
+		for (int shift = 0; shift < 32; shift += 8) {
+			final int difference = ((expected >>> shift) & 0xff) - ((actual >>> shift) & 0xff);
+			if (Math.abs(difference) > 16) {
+				assertEquals("Pixel at " + x + "," + y, Integer.toHexString(expected), Integer.toHexString(actual));
+			}
+		}
+	}
+
+	private static String rect(String fill) {
+		return "<rect width=\"100\" height=\"100\" fill=\"" + fill + "\"/>";
+	}
+
+	@Test
+	public void userSpaceGradientsSpanTheirCoordinates() throws Exception {
+		final BufferedImage image = draw("<defs><linearGradient id=\"g\" gradientUnits=\"userSpaceOnUse\" x2=\"100\">"
+				+ RED_TO_BLUE + "</linearGradient></defs>" + rect("url(#g)"));
+		assertColor(RED, image, 1, 50);
+		assertColor(BLUE, image, 98, 50);
+	}
+
+	@Test
+	public void stopsAreInheritedThroughHref() throws Exception {
+		final BufferedImage image = draw("<defs><linearGradient id=\"parent\">" + RED_TO_BLUE + "</linearGradient>"
+				+ "<linearGradient id=\"child\" xlink:href=\"#parent\" x1=\"0\" y1=\"0\" x2=\"0\" y2=\"1\"/>"
+				+ "</defs>" + rect("url(#child)"));
+		// Vertical, with the parent's colours
+		assertColor(RED, image, 50, 1);
+		assertColor(BLUE, image, 50, 98);
+	}
+
+	@Test
+	public void hrefsResolveWhenFirstUsed() throws Exception {
+		// The child is declared before its parent, and the gradients outside defs
+		final BufferedImage image = draw("<linearGradient id=\"child\" xlink:href=\"#parent\"/>"
+				+ "<linearGradient id=\"parent\">" + RED_TO_BLUE + "</linearGradient>" + rect("url(#child)"));
+		assertColor(RED, image, 1, 50);
+		assertColor(BLUE, image, 98, 50);
+	}
+
+	@Test
+	public void ownStopsOverrideInheritedOnes() throws Exception {
+		final BufferedImage image = draw("<defs><linearGradient id=\"parent\">" + RED_TO_BLUE + "</linearGradient>"
+				+ "<linearGradient id=\"child\" xlink:href=\"#parent\"><stop offset=\"0\" stop-color=\"lime\"/>"
+				+ "<stop offset=\"1\" stop-color=\"red\"/></linearGradient></defs>" + rect("url(#child)"));
+		assertColor(LIME, image, 1, 50);
+		assertColor(RED, image, 98, 50);
+	}
+
+	@Test
+	public void aSingleStopPaintsASolidColour() throws Exception {
+		final BufferedImage image = draw("<defs><linearGradient id=\"g\"><stop offset=\"0.5\" stop-color=\"lime\"/>"
+				+ "</linearGradient></defs>" + rect("url(#g)"));
+		assertColor(LIME, image, 1, 50);
+		assertColor(LIME, image, 98, 50);
+	}
+
+	@Test
+	public void circularHrefsFallBackToBlack() throws Exception {
+		final BufferedImage image = draw("<defs><linearGradient id=\"a\" xlink:href=\"#b\"/>"
+				+ "<linearGradient id=\"b\" xlink:href=\"#a\"/></defs>" + rect("url(#a)"));
+		assertColor(BLACK, image, 50, 50);
+	}
+
+	@Test
+	public void boundingBoxGradientsSpanEachShape() throws Exception {
+		final BufferedImage image = draw("<defs><linearGradient id=\"g\">" + RED_TO_BLUE + "</linearGradient></defs>"
+				+ "<rect width=\"50\" height=\"100\" fill=\"url(#g)\"/>"
+				+ "<rect x=\"50\" width=\"50\" height=\"50\" fill=\"url(#g)\"/>"
+				+ "<rect x=\"50\" y=\"50\" width=\"50\" height=\"50\" fill=\"url(#g)\"/>");
+		assertColor(RED, image, 1, 50);
+		assertColor(BLUE, image, 48, 50);
+		assertColor(RED, image, 51, 25);
+		assertColor(BLUE, image, 98, 25);
+		assertColor(RED, image, 51, 75);
+		assertColor(BLUE, image, 98, 75);
+	}
+}
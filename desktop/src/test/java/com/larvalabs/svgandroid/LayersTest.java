@@ -0,0 +1,119 @@
+package com.larvalabs.svgandroid;
+
+import java.util.ArrayList;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the layers of a document recorded in layers can be shown, hidden and faded without parsing it again, by
+ * counting the shapes drawn.
+ */
+public class LayersTest {
+
+	/**
+	 * Remembers the alpha of each offscreen layer.
+	 */
+	private static final class AlphaCanvas extends Canvas {
+		final ArrayList<Integer> alphas = new ArrayList<Integer>();
+
+		@Override
+		public int saveLayerAlpha(float left, float top, float right, float bottom, int alpha, int flags) {
+			alphas.add(alpha);
+			return super.saveLayerAlpha(left, top, right, bottom, alpha, flags);
+		}
+	}
+
+	private static String rects(int count) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append("<rect width=\"10\" height=\"10\"/>");
+		}
+		return sb.toString();
+	}
+
+	private static SVG parse() throws Exception {
+		return new SVGBuilder().readFromString("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+				+ "<g id=\"a\">" + rects(1) + "</g><g id=\"b\">" + rects(2) + "</g>"
+				+ "<g id=\"c\" display=\"none\">" + rects(4) + "</g></svg>").setRecordLayers(true).build();
+	}
+
+	private static int drawn(SVG svg) {
+		final Canvas canvas = new Canvas();
+		svg.draw(canvas);
+		return canvas.getOperationCount();
+	}
+
+	@Test
+	public void topLevelGroupsAreLayers() throws Exception {
+		final SVG svg = parse();
+		assertEquals(3, svg.getLayerCount());
+		assertEquals("b", svg.getLayerId(1));
+		assertEquals(2, svg.getLayerIndex("c"));
+		assertTrue(svg.isLayerVisible(0));
+		// Hidden in the document, but recorded all the same
+		assertFalse(svg.isLayerVisible(2));
+		assertEquals(3, drawn(svg));
+	}
+
+	@Test
+	public void layersCanBeShownAndHidden() throws Exception {
+		final SVG svg = parse();
+		svg.setLayerVisible("b", false);
+		assertEquals(1, drawn(svg));
+		svg.setLayerVisible("c", true);
+		assertEquals(5, drawn(svg));
+		svg.setLayerVisible(1, true);
+		assertEquals(7, drawn(svg));
+	}
+
+	@Test
+	public void layersCanBeFaded() throws Exception {
+		final SVG svg = parse();
+		svg.setLayerOpacity("b", 0.5f);
+		AlphaCanvas canvas = new AlphaCanvas();
+		svg.draw(canvas);
+		assertEquals(3, canvas.getOperationCount());
+		assertEquals("[128]", canvas.alphas.toString());
+
+		// Transparent layers aren't drawn at all, and opacities are clamped
+		svg.setLayerOpacity("a", 0f);
+		svg.setLayerOpacity("b", 2f);
+		assertEquals(1f, svg.getLayerOpacity(1), 0f);
+		canvas = new AlphaCanvas();
+		svg.draw(canvas);
+		assertEquals(2, canvas.getOperationCount());
+		assertTrue(canvas.alphas.isEmpty());
+	}
+
+	@Test
+	public void picturesFollowTheLayersShown() throws Exception {
+		final SVG svg = parse();
+		final Picture before = svg.getPicture();
+		svg.setLayerVisible("a", false);
+		final Canvas canvas = new Canvas();
+		svg.getPicture().draw(canvas);
+		assertEquals(2, canvas.getOperationCount());
+		// A picture got before the change is unaffected
+		final Canvas old = new Canvas();
+		before.draw(old);
+		assertEquals(3, old.getOperationCount());
+	}
+
+	@Test
+	public void unknownLayersAreAnError() throws Exception {
+		try {
+			parse().setLayerVisible("missing", false);
+			fail("Expected an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertEquals("No layer with id 'missing'.", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that lazy drawables are measured without parsing, and that a source that can't be parsed draws nothing
+ * rather than throwing from the drawing callbacks.
+ */
+public class LazySVGTest {
+
+	private static LazySVG lazy(String document) {
+		return new SVGBuilder().readFromString(document).buildLazily();
+	}
+
+	@Test
+	public void drawablesAreMeasuredWithoutParsing() throws Exception {
+		final LazySVG svg = lazy("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"30\" height=\"20\">"
+				+ "<rect width=\"30\" height=\"20\"/></svg>");
+		final Drawable drawable = svg.createDrawable();
+		assertEquals(30, drawable.getIntrinsicWidth());
+		assertEquals(20, drawable.getIntrinsicHeight());
+		assertFalse(svg.isParsed());
+		drawable.draw(new Canvas());
+		assertTrue(svg.isParsed());
+	}
+
+	@Test
+	public void unreadableSourcesHaveNoSizeAndDrawNothing() throws Exception {
+		final LazySVG svg = lazy("this isn't an SVG");
+		final Drawable drawable = svg.createDrawable();
+		assertEquals(-1, drawable.getIntrinsicWidth());
+		assertEquals(-1, drawable.getIntrinsicHeight());
+		drawable.draw(new Canvas());
+		assertFalse(svg.isParsed());
+	}
+
+	@Test
+	public void documentsThatFailToParseDrawNothing() throws Exception {
+		// The root element prescans, but the rest isn't well formed
+		final LazySVG svg = lazy("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"30\" height=\"20\"><rect></svg>");
+		final Drawable drawable = svg.createDrawable();
+		assertEquals(30, drawable.getIntrinsicWidth());
+		drawable.draw(new Canvas());
+		drawable.draw(new Canvas());
+		assertFalse(svg.isParsed());
+		assertEquals(0, svg.getParseCount());
+	}
+}
@@ -0,0 +1,103 @@
+package com.larvalabs.svgandroid;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.larvalabs.svgandroid.SVGLimitExceededException.Limit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that each limit stops a document that exceeds it, and only such a document.
+ */
+public class ParseLimitsTest {
+
+	private static String svg(String content) {
+		return "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"100\""
+				+ " height=\"100\">" + content + "</svg>";
+	}
+
+	private static String repeat(String s, int count) {
+		final StringBuilder sb = new StringBuilder(s.length() * count);
+		for (int i = 0; i < count; i++) {
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+
+	private static void assertExceeds(Limit limit, long maximum, SVGBuilder builder) {
+		try {
+			builder.build();
+			fail("Expected the limit of " + maximum + " " + limit + " to be exceeded");
+		} catch (SVGLimitExceededException e) {
+			assertEquals(limit, e.getLimit());
+			assertEquals(maximum, e.getMaximum());
+		}
+	}
+
+	private static byte[] gzip(String s) throws Exception {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final GZIPOutputStream out = new GZIPOutputStream(bytes);
+		out.write(s.getBytes("UTF-8"));
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void inputBytes() throws Exception {
+		final String document = svg(repeat("<rect width=\"10\" height=\"10\"/>", 100));
+		assertNotNull(new SVGBuilder().readFromString(document).setMaxInputBytes(document.length()).build());
+		assertExceeds(Limit.INPUT_BYTES, 1000, new SVGBuilder().readFromString(document).setMaxInputBytes(1000));
+	}
+
+	@Test
+	public void inputBytesCountInflatedSvgz() throws Exception {
+		// A comment that compresses very well
+		final byte[] svgz = gzip(svg("<!--" + repeat(" ", 1000000) + "-->"));
+		assertTrue(svgz.length < 10000);
+		assertExceeds(Limit.INPUT_BYTES, 100000, new SVGBuilder().readFromBytes(svgz).setMaxInputBytes(100000));
+	}
+
+	@Test
+	public void elementsCountEachUse() throws Exception {
+		// The root, defs, the group, its 10 rects and 10 uses of it: 23 elements, 123 once drawn
+		final String document = svg("<defs><g id=\"ten\">" + repeat("<rect width=\"1\" height=\"1\"/>", 10)
+				+ "</g></defs>" + repeat("<use xlink:href=\"#ten\"/>", 10));
+		assertNotNull(new SVGBuilder().readFromString(document).setMaxElements(200).build());
+		assertExceeds(Limit.ELEMENTS, 50, new SVGBuilder().readFromString(document).setMaxElements(50));
+	}
+
+	@Test
+	public void depth() throws Exception {
+		// The root and 4 groups
+		final String document = svg(repeat("<g>", 4) + "<rect width=\"1\" height=\"1\"/>" + repeat("</g>", 4));
+		assertNotNull(new SVGBuilder().readFromString(document).setMaxDepth(6).build());
+		assertExceeds(Limit.DEPTH, 5, new SVGBuilder().readFromString(document).setMaxDepth(5));
+	}
+
+	@Test
+	public void pathSegments() throws Exception {
+		final String document = svg("<path d=\"M0,0" + repeat(" L10,10 L0,10", 10) + " z\"/>"
+				+ "<polyline points=\"0,0 10,10 20,0\"/>");
+		assertNotNull(new SVGBuilder().readFromString(document).setMaxPathSegments(100).build());
+		assertExceeds(Limit.PATH_SEGMENTS, 15, new SVGBuilder().readFromString(document).setMaxPathSegments(15));
+	}
+
+	@Test
+	public void parseTime() throws Exception {
+		final String document = svg(repeat("<rect width=\"10\" height=\"10\" fill=\"red\"/>", 200000));
+		assertExceeds(Limit.PARSE_TIME, 1, new SVGBuilder().readFromString(document).setMaxParseTime(1));
+	}
+
+	@Test
+	public void noLimitsByDefault() throws Exception {
+		final String document = svg(repeat("<g>", 300) + repeat("</g>", 300)
+				+ repeat("<rect width=\"10\" height=\"10\"/>", 10000));
+		assertNotNull(new SVGBuilder().readFromString(document).build());
+	}
+}
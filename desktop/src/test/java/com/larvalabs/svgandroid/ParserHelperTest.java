@@ -0,0 +1,125 @@
+package com.larvalabs.svgandroid;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import android.graphics.Matrix;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the number parser against <code>Float.parseFloat</code>, and that malformed numbers in lists are rejected.
+ * The benchmarks' <code>FloatParserFuzz</code> runs the same comparison on many more numbers.
+ */
+public class ParserHelperTest {
+
+	private static final String[] EDGE_CASES = { "0", "-0", "0.0", "1", "-1", ".5", "5.", "-.5e-3", "+2.5e+1",
+			"3.4028235e38", "3.4028236e38", "3.40282356e38", "3.40282357e38", "1e39", "1.4e-45", "7.006492e-46",
+			"7.006493e-46", "1e-46", "1.17549435e-38", "1.1754942e-38", "16777216", "16777217", "16777218",
+			"33554435", "0.1", "1e10", "1e11", "9999999999999999999", "18446744073709551615",
+			"1.000000059604644775390625", "1.000000059604644775390624999999999999",
+			"1.000000059604644775390625000000000001", "123456789012345678901234567890e-20",
+			"0.000000000000000000000000000000000000000000001", "1e100000000", "1e-100000000" };
+
+	private static final String[] MALFORMED = { "", " ", "-", "+", ".", "e5", "1e", "1e+", "1..2", "1-2", "--1", "x",
+			"1x", "45deg", "NaN", "Infinity", "0x1p3", "1f" };
+
+	private static void assertParsed(String number) {
+		final float expected = Float.parseFloat(number);
+		assertEquals(number, Float.floatToIntBits(expected), Float.floatToIntBits(ParserHelper.parseFloat(number)));
+		// From a list, followed by another number
+		final ParserHelper list = new ParserHelper(number + " 7", 0);
+		assertEquals(number, Float.floatToIntBits(expected), Float.floatToIntBits(list.nextFloat()));
+		assertEquals(number, 7f, list.nextFloat(), 0);
+	}
+
+	@Test
+	public void edgeCasesAreCorrectlyRounded() {
+		for (String number : EDGE_CASES) {
+			assertParsed(number);
+		}
+	}
+
+	@Test
+	public void randomNumbersAreCorrectlyRounded() {
+		final Random random = new Random(1);
+		for (int i = 0; i < 20000; i++) {
+			float f;
+			do {
+				f = Float.intBitsToFloat(random.nextInt());
+			} while (Float.isNaN(f) || Float.isInfinite(f));
+			assertParsed(Float.toString(f));
+			double d;
+			do {
+				d = Double.longBitsToDouble(random.nextLong());
+			} while (Double.isNaN(d) || Double.isInfinite(d));
+			assertParsed(Double.toString(d));
+			final float next = Math.nextUp(f);
+			if (!Float.isInfinite(next)) {
+				// Exactly halfway between two floats
+				assertParsed(new BigDecimal(f).add(new BigDecimal(next)).divide(BigDecimal.valueOf(2)).toString());
+			}
+			assertParsed((random.nextInt(1 << 25) - (1 << 24)) + "e" + (random.nextInt(30) - 15));
+		}
+	}
+
+	@Test
+	public void malformedNumbersAreNaN() {
+		for (String s : MALFORMED) {
+			assertTrue(s, Float.isNaN(ParserHelper.parseFloat(s)));
+		}
+		assertEquals(12f, ParserHelper.parseFloat("12px", 0, 2), 0);
+		assertEquals(12f, ParserHelper.parseFloat(" 12 "), 0);
+	}
+
+	private static String numbers(String list) {
+		final SVGParser.NumberParse np = SVGParser.parseNumbers(list);
+		final float[] numbers = new float[np.getNumberCount()];
+		for (int i = 0; i < numbers.length; i++) {
+			numbers[i] = np.getNumber(i);
+		}
+		return Arrays.toString(numbers);
+	}
+
+	@Test
+	public void listsAreSplit() {
+		assertEquals("[1.0, 2.0, 3.0, 4.0]", numbers("1,2  3\t4 "));
+		assertEquals("[1.0, -2.0, 3.0E-4, 5.0]", numbers("1-2 3e-4,5)"));
+	}
+
+	@Test
+	public void listsWithMalformedNumbersAreRejected() {
+		assertEquals("[]", numbers("1,2 x,3"));
+		assertEquals("[]", numbers("45deg 1 2)"));
+		assertEquals("[]", numbers("1 2 3x"));
+	}
+
+	private static float[] values(Matrix matrix) {
+		final float[] values = new float[9];
+		matrix.getValues(values);
+		return values;
+	}
+
+	@Test
+	public void malformedTransformsAreSkipped() {
+		final Matrix translate = new Matrix();
+		translate.setTranslate(10, 20);
+		assertEquals(Arrays.toString(values(translate)),
+				Arrays.toString(values(SVGParser.parseTransform("rotate(45deg 1 2) translate(10 20)"))));
+		assertTrue(SVGParser.parseTransform("scale(2 x)").isIdentity());
+	}
+
+	@Test
+	public void shapesWithMalformedPointsAreSkipped() throws Exception {
+		final SVG svg = new SVGBuilder().readFromString("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"10\" "
+				+ "height=\"10\"><polygon id=\"bad\" points=\"1,2 x,3 5,5\"/><polyline id=\"good\" points=\"1,2 4,3\" "
+				+ "stroke=\"black\"/></svg>").setIndexElements(true).build();
+		assertNull(svg.getElement("bad"));
+		assertEquals("RectF(1.0, 2.0, 4.0, 3.0)", svg.getElement("good").getBounds().toString());
+	}
+}
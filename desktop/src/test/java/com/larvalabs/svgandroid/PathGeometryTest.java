@@ -0,0 +1,141 @@
+package com.larvalabs.svgandroid;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the conversion of SVG arcs to cubics: that the cubics start and end where the arc does, stay on its ellipse
+ * and go the way its flags say.
+ */
+public class PathGeometryTest {
+
+	/**
+	 * Records the segments, each as its start point followed by its other points.
+	 */
+	private static final class Recorder implements PathGeometry.Sink {
+		final ArrayList<float[]> cubics = new ArrayList<float[]>();
+		final ArrayList<float[]> lines = new ArrayList<float[]>();
+		float x, y;
+
+		Recorder(float x, float y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		public void moveTo(float x, float y) {
+			throw new AssertionError("moveTo");
+		}
+
+		public void lineTo(float x, float y) {
+			lines.add(new float[] { this.x, this.y, x, y });
+			this.x = x;
+			this.y = y;
+		}
+
+		public void quadTo(float x1, float y1, float x, float y) {
+			throw new AssertionError("quadTo");
+		}
+
+		public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+			cubics.add(new float[] { this.x, this.y, x1, y1, x2, y2, x, y });
+			this.x = x;
+			this.y = y;
+		}
+
+		public void close() {
+			throw new AssertionError("close");
+		}
+	}
+
+	private static Recorder arc(float x0, float y0, float rx, float ry, float angle, boolean largeArc, boolean sweep,
+			float x, float y) {
+		final Recorder recorder = new Recorder(x0, y0);
+		PathGeometry.arcTo(x0, y0, rx, ry, angle, largeArc, sweep, x, y, recorder);
+		assertEquals(x, recorder.x, 1e-3f);
+		assertEquals(y, recorder.y, 1e-3f);
+		return recorder;
+	}
+
+	private static float[] point(float[] c, float t) {
+		final float mt = 1 - t;
+		final float a = mt * mt * mt, b = 3 * mt * mt * t, d = 3 * mt * t * t, e = t * t * t;
+		return new float[] { a * c[0] + b * c[2] + d * c[4] + e * c[6], a * c[1] + b * c[3] + d * c[5] + e * c[7] };
+	}
+
+	/**
+	 * Checks that points along the cubics are on an ellipse, to within the error of the cubic approximation.
+	 */
+	private static void assertOnEllipse(Recorder recorder, float cx, float cy, float rx, float ry, float angle) {
+		final double phi = Math.toRadians(angle);
+		for (float[] cubic : recorder.cubics) {
+			for (float t = 0; t <= 1; t += 0.125f) {
+				final float[] p = point(cubic, t);
+				final double dx = p[0] - cx, dy = p[1] - cy;
+				// In the ellipse's own axes
+				final double u = (Math.cos(phi) * dx + Math.sin(phi) * dy) / rx;
+				final double v = (-Math.sin(phi) * dx + Math.cos(phi) * dy) / ry;
+				assertEquals("Radius at " + p[0] + "," + p[1], 1, Math.sqrt(u * u + v * v), 1e-3);
+			}
+		}
+	}
+
+	@Test
+	public void semicirclesAreTwoQuarters() {
+		final Recorder up = arc(0, 50, 50, 50, 0, false, true, 100, 50);
+		assertEquals(2, up.cubics.size());
+		assertOnEllipse(up, 50, 50, 50, 50, 0);
+		// With y pointing down, a positive sweep goes through the top
+		assertEquals(0, up.cubics.get(0)[7], 1e-3f);
+
+		final Recorder down = arc(0, 50, 50, 50, 0, false, false, 100, 50);
+		assertOnEllipse(down, 50, 50, 50, 50, 0);
+		assertEquals(100, down.cubics.get(0)[7], 1e-3f);
+	}
+
+	@Test
+	public void theLargeArcFlagPicksTheLongWayRound() {
+		final Recorder small = arc(0, 0, 50, 50, 0, false, true, 50, 50);
+		assertEquals(1, small.cubics.size());
+		assertOnEllipse(small, 0, 50, 50, 50, 0);
+
+		final Recorder large = arc(0, 0, 50, 50, 0, true, true, 50, 50);
+		assertEquals(3, large.cubics.size());
+		assertOnEllipse(large, 50, 0, 50, 50, 0);
+	}
+
+	@Test
+	public void rotatedEllipsesStayOnTheirEllipse() {
+		// Half of an ellipse centred on 100,100, its major axis at 30 degrees
+		final float cos = (float) Math.cos(Math.toRadians(30)), sin = (float) Math.sin(Math.toRadians(30));
+		final Recorder half = arc(100 - 50 * cos, 100 - 50 * sin, 50, 20, 30, false, true, 100 + 50 * cos,
+				100 + 50 * sin);
+		assertEquals(2, half.cubics.size());
+		assertOnEllipse(half, 100, 100, 50, 20, 30);
+	}
+
+	@Test
+	public void radiiTooSmallToReachAreScaledUp() {
+		final Recorder arc = arc(0, 0, 10, 10, 0, false, true, 100, 0);
+		assertEquals(2, arc.cubics.size());
+		assertOnEllipse(arc, 50, 0, 50, 50, 0);
+	}
+
+	@Test
+	public void degenerateArcs() {
+		// A zero radius gives a straight line, and an arc to the current point nothing at all
+		final Recorder line = arc(0, 0, 0, 10, 0, false, true, 30, 40);
+		assertEquals(0, line.cubics.size());
+		assertEquals(1, line.lines.size());
+		final Recorder none = arc(10, 10, 10, 10, 0, false, true, 10, 10);
+		assertTrue(none.cubics.isEmpty() && none.lines.isEmpty());
+	}
+
+	@Test
+	public void negativeRadiiAreTakenAsPositive() {
+		assertOnEllipse(arc(0, 50, -50, -50, 0, false, true, 100, 50), 50, 50, 50, 50, 0);
+	}
+}
@@ -0,0 +1,91 @@
+package com.larvalabs.svgandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that only SVGs (and path caches) given a memory budget are kept within it, least recently used first.
+ */
+public class SVGMemoryBudgetTest {
+
+	private static final String DOCUMENT = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+			+ "<path d=\"M10,10 L90,10 L50,90 Z\" fill=\"#f00\"/></svg>";
+
+	/** The size of a 100x100 bitmap */
+	private static final long BITMAP = 100 * 100 * 4;
+
+	private static SVGBuilder builder() throws Exception {
+		return new SVGBuilder().readFromBytes(DOCUMENT.getBytes("UTF-8"));
+	}
+
+	@Test
+	public void svgsWithoutABudgetAreNotTracked() throws Exception {
+		final SVG svg = builder().build();
+		svg.getBitmap(100, 100);
+		SVGMemoryBudget.getInstance().trimToSize(0);
+		assertEquals(BITMAP, svg.getCachedSize());
+	}
+
+	@Test
+	public void drawablesAreNotTracked() throws Exception {
+		final SVGMemoryBudget budget = new SVGMemoryBudget(1024 * 1024);
+		final SVG svg = builder().setMemoryBudget(budget).build();
+		final Object drawable = svg.getDrawable();
+		assertSame(drawable, svg.getDrawable());
+		assertEquals(0, svg.getCachedSize());
+		assertEquals(0, budget.getCachedSize());
+	}
+
+	@Test
+	public void leastRecentlyUsedBitmapIsReleased() throws Exception {
+		final SVGMemoryBudget budget = new SVGMemoryBudget(BITMAP + BITMAP / 2);
+		final SVG first = builder().setMemoryBudget(budget).build();
+		final SVG second = builder().setMemoryBudget(budget).build();
+		assertNotNull(first.getBitmap(100, 100));
+		assertEquals(BITMAP, budget.getCachedSize());
+		second.getBitmap(100, 100);
+		assertEquals(0, first.getCachedSize());
+		assertEquals(BITMAP, second.getCachedSize());
+		assertEquals(BITMAP, budget.getCachedSize());
+	}
+
+	@Test
+	public void lazySVGsAreParsedAgainOnceReleased() throws Exception {
+		final SVGMemoryBudget budget = new SVGMemoryBudget(1024 * 1024);
+		final LazySVG svg = builder().setMemoryBudget(budget).buildLazily();
+		svg.getSVG();
+		assertTrue(svg.isParsed());
+		budget.onLowMemory();
+		assertFalse(svg.isParsed());
+		svg.getSVG();
+		assertEquals(2, svg.getParseCount());
+
+		final LazySVG untracked = builder().buildLazily();
+		untracked.getSVG();
+		SVGMemoryBudget.getInstance().onLowMemory();
+		assertTrue(untracked.isParsed());
+	}
+
+	@Test
+	public void pathCachesAreOnlyTrackedWhenGivenABudget() throws Exception {
+		final SVGPathCache cache = new SVGPathCache(1024 * 1024);
+		builder().setPathCache(cache).build();
+		SVGMemoryBudget.getInstance().onLowMemory();
+		assertEquals(1, cache.getPathCount());
+
+		final SVGMemoryBudget budget = new SVGMemoryBudget(1024 * 1024);
+		cache.setMemoryBudget(budget);
+		builder().setPathCache(cache).build();
+		// Counted from when it next caches a path, rather than finds one
+		cache.releaseCaches();
+		builder().setPathCache(cache).build();
+		assertEquals(cache.getCachedSize(), budget.getCachedSize());
+		budget.onLowMemory();
+		assertEquals(0, cache.getPathCount());
+	}
+}
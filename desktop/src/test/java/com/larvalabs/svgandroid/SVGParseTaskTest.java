@@ -0,0 +1,118 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.RectF;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that incremental parses, which read the document with an XmlPull parser, see the same document as whole
+ * parses, which read it with SAX, and are as restricted.
+ */
+public class SVGParseTaskTest {
+
+	private static final String DOCUMENT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<!-- A comment before the root -->\n"
+			+ "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"200\" height=\"100\">\n"
+			+ "  <style><![CDATA[ .red { fill: #ff0000 } ]]></style>\n"
+			+ "  <?pi ignored?>\n"
+			+ "  <rect id=\"box\" class=\"red\" x=\"10\" y=\"10\" width=\"30\" height=\"20\"/>\n"
+			+ "  <g id=\"label\"><text x=\"50\" y=\"50\" font-size=\"10\">a &amp; b &lt; <![CDATA[c & d]]></text></g>\n"
+			+ "  <circle id=\"dot\" cx=\"150\" cy=\"50\" r=\"20\" fill=\"#00ff00\"/>\n"
+			+ "</svg>";
+
+	private static byte[] bytes(String svg) throws UnsupportedEncodingException {
+		return svg.getBytes("UTF-8");
+	}
+
+	private static SVG parseIncrementally(SVGBuilder builder) {
+		final SVGParseTask task = builder.buildIncrementally();
+		while (!task.parseElements(1)) {
+			// One element per slice, so that the document is read in as many pieces as possible
+		}
+		return task.getSVG();
+	}
+
+	private static void assertRectEquals(String message, RectF expected, RectF actual) {
+		assertEquals(message, expected.toString(), actual.toString());
+	}
+
+	@Test
+	public void incrementalParseMatchesWholeParse() throws Exception {
+		final SVG whole = new SVGBuilder().readFromBytes(bytes(DOCUMENT)).setIndexElements(true).build();
+		final SVG sliced = parseIncrementally(new SVGBuilder().readFromBytes(bytes(DOCUMENT)).setIndexElements(true));
+
+		assertRectEquals("limits", whole.getLimits(), sliced.getLimits());
+		final Map<String, SVGElement> expected = whole.getElements();
+		assertEquals(expected.keySet(), sliced.getElements().keySet());
+		for (SVGElement element : expected.values()) {
+			final SVGElement other = sliced.getElement(element.getId());
+			assertRectEquals(element.getId(), element.getBounds(), other.getBounds());
+			if (element.getFillPaint() != null) {
+				assertEquals(element.getId(), element.getFillPaint().getColor(), other.getFillPaint().getColor());
+			}
+		}
+		// The style sheet in the CDATA section applies
+		assertEquals(0xFFFF0000, sliced.getElement("box").getFillPaint().getColor());
+		// All of the text (its entities and CDATA section) is measured: 13 characters at half the font size each
+		assertEquals(65f, sliced.getElement("label").getBounds().width(), 0.01f);
+	}
+
+	@Test
+	public void doctypeIsRejected() throws Exception {
+		final String svg = "<?xml version=\"1.0\"?>\n<!DOCTYPE svg [ <!ENTITY a \"aaaaaaaaaa\"> ]>\n"
+				+ "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"10\" height=\"10\"><text>&a;</text></svg>";
+		try {
+			new SVGBuilder().readFromBytes(bytes(svg)).build();
+			fail("The whole parse accepted a doctype.");
+		} catch (SVGParseException e) {
+			// Expected
+		}
+		try {
+			parseIncrementally(new SVGBuilder().readFromBytes(bytes(svg)));
+			fail("The incremental parse accepted a doctype.");
+		} catch (SVGParseException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("DOCTYPE"));
+		}
+	}
+
+	@Test
+	public void undeclaredEntityIsRejected() throws Exception {
+		final String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\"><text>&undeclared;</text></svg>";
+		try {
+			parseIncrementally(new SVGBuilder().readFromBytes(bytes(svg)));
+			fail("The incremental parse accepted an undeclared entity.");
+		} catch (SVGParseException e) {
+			// Expected, as for SAX
+		}
+	}
+
+	@Test
+	public void inputLimitApplies() throws Exception {
+		final StringBuilder svg = new StringBuilder("<svg xmlns=\"http://www.w3.org/2000/svg\">");
+		for (int i = 0; i < 1000; i++) {
+			svg.append("<rect width=\"10\" height=\"10\"/>");
+		}
+		svg.append("</svg>");
+		try {
+			parseIncrementally(new SVGBuilder().readFromBytes(bytes(svg.toString())).setMaxInputBytes(4096));
+			fail("The incremental parse read past the input limit.");
+		} catch (SVGLimitExceededException e) {
+			assertEquals(SVGLimitExceededException.Limit.INPUT_BYTES, e.getLimit());
+		}
+	}
+
+	@Test
+	public void progressPictureIsAvailableBetweenSlices() throws Exception {
+		final SVGParseTask task = new SVGBuilder().readFromBytes(bytes(DOCUMENT)).buildIncrementally();
+		assertTrue(!task.parseElements(2));
+		assertNotNull(task.getProgressPicture());
+	}
+}
@@ -0,0 +1,63 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that documents parsed with a path cache share its paths, but that the paths handed out by the element index
+ * can't change them.
+ */
+public class SVGPathCacheTest {
+
+	private static final String DOCUMENT = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+			+ "<path id=\"a\" d=\"M10,10 L90,10 L50,90 Z\"/><path id=\"b\" d=\"M10,10 L90,10 L50,90 Z\"/></svg>";
+
+	private static SVG parse(SVGPathCache cache) throws Exception {
+		return new SVGBuilder().readFromBytes(DOCUMENT.getBytes("UTF-8")).setPathCache(cache).setIndexElements(true)
+				.build();
+	}
+
+	private static RectF bounds(Path path) {
+		final RectF bounds = new RectF();
+		path.computeBounds(bounds, false);
+		return bounds;
+	}
+
+	@Test
+	public void repeatedPathsAreParsedOnce() throws Exception {
+		final SVGPathCache cache = new SVGPathCache(1024 * 1024);
+		parse(cache);
+		parse(cache);
+		assertEquals(1, cache.getPathCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(3, cache.getHitCount());
+	}
+
+	@Test
+	public void indexedPathsAreCopies() throws Exception {
+		final SVGPathCache cache = new SVGPathCache(1024 * 1024);
+		final SVG first = parse(cache);
+		final Path path = first.getElement("a").getPath();
+		assertNotSame(path, first.getElement("a").getPath());
+		path.offset(1000, 1000);
+
+		// Neither the other element of the document nor another document see the change
+		assertEquals("RectF(10.0, 10.0, 90.0, 90.0)", bounds(first.getElement("b").getPath()).toString());
+		final SVG second = parse(cache);
+		assertEquals("RectF(10.0, 10.0, 90.0, 90.0)", bounds(second.getElement("a").getPath()).toString());
+		assertEquals("RectF(10.0, 10.0, 90.0, 90.0)", second.getLimits().toString());
+	}
+
+	@Test
+	public void uncachedPathsAreNotCopied() throws Exception {
+		final SVG svg = parse(null);
+		final SVGElement element = svg.getElement("a");
+		assertSame(element.getPath(), element.getPath());
+	}
+}
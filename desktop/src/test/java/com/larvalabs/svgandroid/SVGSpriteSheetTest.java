@@ -0,0 +1,134 @@
+package com.larvalabs.svgandroid;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that icons are extracted from sprite sheets with what they need, and in the sheet's encoding.
+ */
+public class SVGSpriteSheetTest {
+
+	private static final String SQUARE = "<g id=\"square\"><rect class=\"big\" x=\"10\" y=\"10\" width=\"20\" "
+			+ "height=\"20\" fill=\"url(#fade)\"/></g>";
+
+	private static final String SHEET = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+			+ "<style>.big { stroke-width: 4 }</style>"
+			+ "<defs><linearGradient id=\"fade\" x1=\"0\" y1=\"0\" x2=\"1\" y2=\"0\">"
+			+ "<stop offset=\"0\" stop-color=\"red\"/><stop offset=\"1\" stop-color=\"blue\"/></linearGradient>"
+			+ SQUARE + "</defs>"
+			+ "<g id=\"caf\u00e9\"><rect x=\"50\" y=\"60\" width=\"30\" height=\"10\"/></g></svg>";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File write(String document, String encoding) throws Exception {
+		final File file = folder.newFile("sheet.svg");
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(document.getBytes(encoding));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static String extract(File file, String id, String encoding) throws Exception {
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			return new String(SVGSpriteIndex.build(file).extract(in, id), encoding);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void iconsComeWithTheirDefinitions() throws Exception {
+		final File file = write(SHEET, "UTF-8");
+		assertEquals("[caf\u00e9, square]", SVGSpriteIndex.build(file).getIconIds().toString());
+
+		final String square = extract(file, "square", "UTF-8");
+		assertTrue(square.startsWith("<svg "));
+		assertTrue(square.contains("<style>.big { stroke-width: 4 }</style>"));
+		assertTrue(square.contains("<linearGradient id=\"fade\""));
+		assertFalse(square.contains("caf\u00e9"));
+
+		final String cafe = extract(file, "caf\u00e9", "UTF-8");
+		assertFalse(cafe.contains("fade"));
+		assertFalse(cafe.contains("square"));
+	}
+
+	@Test
+	public void iconsAreParsed() throws Exception {
+		final SVGSpriteSheet sheet = SVGSpriteSheet.open(write(SHEET, "UTF-8"));
+		try {
+			assertEquals("RectF(0.0, 0.0, 30.0, 10.0)", sheet.icon("caf\u00e9").build().getLimits().toString());
+			assertEquals("RectF(0.0, 0.0, 20.0, 20.0)", sheet.icon("square").build().getLimits().toString());
+		} finally {
+			sheet.close();
+		}
+	}
+
+	@Test
+	public void savedIndexesAreReused() throws Exception {
+		final File file = write(SHEET, "UTF-8");
+		SVGSpriteSheet.open(file).close();
+		final File indexFile = new File(file.getPath() + ".idx");
+		assertTrue(indexFile.exists());
+		final SVGSpriteIndex index = SVGSpriteIndex.read(indexFile);
+		assertTrue(index.isCurrent(file));
+		assertEquals(SVGSpriteIndex.build(file).getIconIds(), index.getIconIds());
+	}
+
+	@Test
+	public void latin1SheetsKeepTheirDeclaration() throws Exception {
+		final String declaration = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>";
+		final File file = write(declaration + "\n" + SHEET, "ISO-8859-1");
+		assertTrue(SVGSpriteIndex.build(file).hasIcon("caf\u00e9"));
+		assertTrue(extract(file, "caf\u00e9", "ISO-8859-1").startsWith(declaration + "<svg "));
+
+		final SVGSpriteSheet sheet = SVGSpriteSheet.open(file);
+		try {
+			assertEquals("RectF(0.0, 0.0, 30.0, 10.0)", sheet.icon("caf\u00e9").build().getLimits().toString());
+		} finally {
+			sheet.close();
+		}
+	}
+
+	@Test
+	public void utf16SheetsCanBeIndexed() throws Exception {
+		// "UTF-16" writes a big endian byte order mark
+		final File file = write(SHEET, "UTF-16");
+		assertEquals("[caf\u00e9, square]", SVGSpriteIndex.build(file).getIconIds().toString());
+		assertTrue(extract(file, "square", "UTF-16").contains("<linearGradient id=\"fade\""));
+
+		final SVGSpriteSheet sheet = SVGSpriteSheet.open(file);
+		try {
+			assertEquals("RectF(0.0, 0.0, 30.0, 10.0)", sheet.icon("caf\u00e9").build().getLimits().toString());
+		} finally {
+			sheet.close();
+		}
+	}
+
+	@Test
+	public void littleEndianSheetsAreWrittenLittleEndian() throws Exception {
+		final File file = write("\ufeff" + SHEET, "UTF-16LE");
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			final byte[] document = SVGSpriteIndex.build(file).extract(in, "square");
+			assertEquals("[-1, -2, 60, 0]", Arrays.toString(Arrays.copyOf(document, 4)));
+			assertTrue(new String(document, "UTF-16").endsWith("</defs>" + SQUARE + "</svg>"));
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Matrix;
+import android.graphics.Shader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that gradient shaders are only shared between elements that draw the same gradient, with the same local
+ * matrix, and that sharing them doesn't change the matrix of any.
+ */
+public class StyleInternerTest {
+
+	private static SVG parse(String content) throws Exception {
+		final String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+				+ " width=\"200\" height=\"200\">" + content + "</svg>";
+		return new SVGBuilder().readFromBytes(svg.getBytes("UTF-8")).setIndexElements(true).build();
+	}
+
+	private static Shader shader(SVG svg, String id) {
+		return svg.getElement(id).getFillPaint().getShader();
+	}
+
+	private static float[] localMatrix(Shader shader) {
+		final Matrix matrix = new Matrix();
+		shader.getLocalMatrix(matrix);
+		final float[] values = new float[9];
+		matrix.getValues(values);
+		return values;
+	}
+
+	private static float[] values(Matrix matrix) {
+		final float[] values = new float[9];
+		matrix.getValues(values);
+		return values;
+	}
+
+	@Test
+	public void identicalGradientsShareAShader() throws Exception {
+		final SVG svg = parse("<defs>"
+				+ "<linearGradient id=\"g1\" gradientUnits=\"userSpaceOnUse\" x2=\"100\">"
+				+ "<stop offset=\"0\" stop-color=\"#f00\"/><stop offset=\"1\" stop-color=\"#00f\"/></linearGradient>"
+				+ "<linearGradient id=\"g2\" gradientUnits=\"userSpaceOnUse\" x2=\"100\">"
+				+ "<stop offset=\"0\" stop-color=\"#f00\"/><stop offset=\"1\" stop-color=\"#00f\"/></linearGradient>"
+				+ "</defs>"
+				+ "<rect id=\"a\" width=\"100\" height=\"100\" fill=\"url(#g1)\"/>"
+				+ "<rect id=\"b\" y=\"100\" width=\"100\" height=\"100\" fill=\"url(#g2)\"/>");
+		assertSame(shader(svg, "a"), shader(svg, "b"));
+	}
+
+	@Test
+	public void gradientTransformsAreNotShared() throws Exception {
+		final SVG svg = parse("<defs>"
+				+ "<linearGradient id=\"g1\" gradientUnits=\"userSpaceOnUse\" x2=\"100\">"
+				+ "<stop offset=\"0\" stop-color=\"#f00\"/><stop offset=\"1\" stop-color=\"#00f\"/></linearGradient>"
+				+ "<linearGradient id=\"g2\" gradientUnits=\"userSpaceOnUse\" x2=\"100\""
+				+ " gradientTransform=\"rotate(90)\">"
+				+ "<stop offset=\"0\" stop-color=\"#f00\"/><stop offset=\"1\" stop-color=\"#00f\"/></linearGradient>"
+				+ "</defs>"
+				+ "<rect id=\"a\" width=\"100\" height=\"100\" fill=\"url(#g1)\"/>"
+				+ "<rect id=\"b\" y=\"100\" width=\"100\" height=\"100\" fill=\"url(#g2)\"/>");
+		final Shader a = shader(svg, "a");
+		final Shader b = shader(svg, "b");
+		assertNotSame(a, b);
+		assertArrayEquals(values(new Matrix()), localMatrix(a), 0f);
+		final Matrix rotate = new Matrix();
+		rotate.setRotate(90);
+		assertArrayEquals(values(rotate), localMatrix(b), 1e-6f);
+	}
+
+	@Test
+	public void boundingBoxGradientsKeepTheirOwnMatrix() throws Exception {
+		final SVG svg = parse("<defs><radialGradient id=\"g\" cx=\"0.5\" cy=\"0.5\" r=\"0.5\">"
+				+ "<stop offset=\"0\" stop-color=\"#f00\"/><stop offset=\"1\" stop-color=\"#00f\"/></radialGradient>"
+				+ "</defs>"
+				+ "<rect id=\"a\" x=\"10\" y=\"20\" width=\"30\" height=\"40\" fill=\"url(#g)\"/>"
+				+ "<rect id=\"b\" x=\"100\" y=\"100\" width=\"50\" height=\"60\" fill=\"url(#g)\"/>"
+				+ "<rect id=\"c\" x=\"10\" y=\"20\" width=\"30\" height=\"40\" fill=\"url(#g)\"/>");
+		final Shader a = shader(svg, "a");
+		assertNotSame(a, shader(svg, "b"));
+		// The same box shares the shader of the first, whose matrix the later elements mustn't have changed
+		assertSame(a, shader(svg, "c"));
+		final float[] expected = { 30, 0, 10, 0, 40, 20, 0, 0, 1 };
+		assertArrayEquals(expected, localMatrix(a), 1e-6f);
+		final float[] other = localMatrix(shader(svg, "b"));
+		assertEquals(50f, other[Matrix.MSCALE_X], 1e-6f);
+		assertEquals(100f, other[Matrix.MTRANS_X], 1e-6f);
+	}
+}
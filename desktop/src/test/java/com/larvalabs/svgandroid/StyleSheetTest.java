@@ -0,0 +1,100 @@
+package com.larvalabs.svgandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the cascade of embedded style sheets: which rules match an element, and which of them (or of its style and
+ * presentation attributes) wins.
+ */
+public class StyleSheetTest {
+
+	private static SVG parse(String css, String content) throws Exception {
+		return new SVGBuilder().readFromString("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+				+ "<style type=\"text/css\">" + css + "</style>" + content + "</svg>").setIndexElements(true).build();
+	}
+
+	private static String fill(SVG svg, String id) {
+		final SVGElement element = svg.getElement(id);
+		return element.getFillPaint() == null ? null : Integer.toHexString(element.getFillPaint().getColor());
+	}
+
+	private static String rect(String atts) {
+		return "<rect " + atts + " width=\"10\" height=\"10\"/>";
+	}
+
+	@Test
+	public void moreSpecificRulesWin() throws Exception {
+		final SVG svg = parse("#a { fill: red } rect.c { fill: lime } .c { fill: blue } rect { fill: yellow }",
+				rect("id=\"a\" class=\"c\"") + rect("id=\"b\" class=\"c\"") + rect("id=\"c\"")
+						+ "<circle id=\"d\" class=\"c\" cx=\"5\" cy=\"5\" r=\"5\"/>");
+		assertEquals("ffff0000", fill(svg, "a"));
+		assertEquals("ff00ff00", fill(svg, "b"));
+		assertEquals("ffffff00", fill(svg, "c"));
+		assertEquals("ff0000ff", fill(svg, "d"));
+	}
+
+	@Test
+	public void laterRulesWinTies() throws Exception {
+		final SVG svg = parse(".x { fill: red } .y { fill: blue } .x { fill: lime }",
+				rect("id=\"a\" class=\"x y\"") + rect("id=\"b\" class=\"y x\""));
+		assertEquals("ff00ff00", fill(svg, "a"));
+		assertEquals("ff00ff00", fill(svg, "b"));
+	}
+
+	@Test
+	public void rulesMergeTheirDeclarations() throws Exception {
+		final SVG svg = parse("rect { fill: red; stroke: blue; stroke-width: 3 } .thin { stroke-width: 1 }",
+				rect("id=\"a\" class=\"thin\""));
+		assertEquals("ffff0000", fill(svg, "a"));
+		assertEquals("ff0000ff", Integer.toHexString(svg.getElement("a").getStrokePaint().getColor()));
+		assertEquals(1f, svg.getElement("a").getStrokePaint().getStrokeWidth(), 0);
+	}
+
+	@Test
+	public void styleAttributesBeatRulesAndRulesBeatPresentationAttributes() throws Exception {
+		final SVG svg = parse("rect { fill: red }",
+				rect("id=\"a\" fill=\"blue\"") + rect("id=\"b\" fill=\"blue\" style=\"fill:lime\""));
+		assertEquals("ffff0000", fill(svg, "a"));
+		assertEquals("ff00ff00", fill(svg, "b"));
+	}
+
+	@Test
+	public void descendantSelectorsMatchOnlyInsideTheirAncestors() throws Exception {
+		final SVG svg = parse("#map .road { fill: red } g g rect { fill: blue }",
+				"<g id=\"map\"><g>" + rect("id=\"a\" class=\"road\"") + "</g></g>" + rect("id=\"b\" class=\"road\"")
+						+ "<g>" + rect("id=\"c\"") + "<g>" + rect("id=\"d\"") + "</g></g>");
+		assertEquals("ffff0000", fill(svg, "a"));
+		assertEquals("ff000000", fill(svg, "b"));
+		assertEquals("ff000000", fill(svg, "c"));
+		assertEquals("ff0000ff", fill(svg, "d"));
+	}
+
+	@Test
+	public void compoundSelectorsNeedEveryPart() throws Exception {
+		final SVG svg = parse("path.road.major { fill: red } *.road { fill: blue }",
+				rect("id=\"a\" class=\"road major\"")
+						+ "<path id=\"b\" class=\"major road\" d=\"M0,0 L10,10 L0,10 z\"/>");
+		assertEquals("ff0000ff", fill(svg, "a"));
+		assertEquals("ffff0000", fill(svg, "b"));
+	}
+
+	@Test
+	public void selectorListsCommentsAndAtRules() throws Exception {
+		final SVG svg = parse("/* { fill: red } */ @import url(x.css); @media print { rect { fill: red } }"
+				+ " #a, #b { fill: blue } #c:hover, #c > rect { fill: red }",
+				rect("id=\"a\"") + rect("id=\"b\"") + rect("id=\"c\""));
+		assertEquals("ff0000ff", fill(svg, "a"));
+		assertEquals("ff0000ff", fill(svg, "b"));
+		assertEquals("ff000000", fill(svg, "c"));
+	}
+
+	@Test
+	public void rulesCanTurnFillsOff() throws Exception {
+		final SVG svg = parse(".outline { fill: none; stroke: black }", rect("id=\"a\" class=\"outline\""));
+		// Drawn with a transparent paint, as for fill="none"
+		assertEquals("0", fill(svg, "a"));
+		assertEquals("ff000000", Integer.toHexString(svg.getElement("a").getStrokePaint().getColor()));
+	}
+}
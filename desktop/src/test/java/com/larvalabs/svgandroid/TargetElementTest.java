@@ -0,0 +1,71 @@
+package com.larvalabs.svgandroid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that parsing a target element crops the picture to that element, and skips everything else.
+ */
+public class TargetElementTest {
+
+	private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" "
+			+ "xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"100\" height=\"100\">";
+
+	private static SVG target(String content, String id) throws Exception {
+		return new SVGBuilder().readFromString(SVG + content).setTargetElement(id).setIndexElements(true).build();
+	}
+
+	@Test
+	public void picturesAreCroppedToTheTarget() throws Exception {
+		final SVG svg = target("<rect id=\"other\" width=\"100\" height=\"100\"/>"
+				+ "<g id=\"icon\" transform=\"translate(50 60)\"><rect id=\"body\" width=\"30\" height=\"10\"/></g>"
+				+ "</svg>", "icon");
+		assertEquals(30, svg.getPicture().getWidth());
+		assertEquals(10, svg.getPicture().getHeight());
+		assertEquals("RectF(0.0, 0.0, 30.0, 10.0)", svg.getLimits().toString());
+		// The index is moved with the picture, and holds nothing from outside of the target
+		assertEquals("RectF(0.0, 0.0, 30.0, 10.0)", svg.getElement("body").getBounds().toString());
+		assertNull(svg.getElement("other"));
+	}
+
+	@Test
+	public void symbolsAreCroppedToTheirViewBox() throws Exception {
+		final SVG svg = target("<symbol id=\"icon\" viewBox=\"0 0 20 20\"><rect x=\"5\" y=\"5\" width=\"5\" "
+				+ "height=\"5\"/></symbol></svg>", "icon");
+		assertEquals(20, svg.getPicture().getWidth());
+		assertEquals(20, svg.getPicture().getHeight());
+		assertEquals("RectF(5.0, 5.0, 10.0, 10.0)", svg.getLimits().toString());
+	}
+
+	@Test
+	public void definitionsOutsideOfTheTargetAreResolved() throws Exception {
+		final SVG svg = target("<defs><linearGradient id=\"g\"><stop offset=\"0\" stop-color=\"red\"/>"
+				+ "<stop offset=\"1\" stop-color=\"blue\"/></linearGradient>"
+				+ "<rect id=\"shape\" width=\"10\" height=\"10\"/></defs>"
+				+ "<g id=\"icon\"><rect id=\"body\" width=\"10\" height=\"10\" fill=\"url(#g)\"/>"
+				+ "<use xlink:href=\"#shape\" x=\"10\"/></g></svg>", "icon");
+		assertNotNull(svg.getElement("body").getFillPaint().getShader());
+		assertEquals("RectF(0.0, 0.0, 20.0, 10.0)", svg.getLimits().toString());
+	}
+
+	@Test
+	public void parsingStopsAtTheEndOfTheTarget() throws Exception {
+		// What follows the target is never read, so it needn't even be well formed
+		final SVG svg = target("<g id=\"icon\"><rect width=\"10\" height=\"10\"/></g><rect></g>", "icon");
+		assertEquals("RectF(0.0, 0.0, 10.0, 10.0)", svg.getLimits().toString());
+	}
+
+	@Test
+	public void missingTargetsAreAnError() throws Exception {
+		try {
+			target("<rect id=\"other\" width=\"10\" height=\"10\"/></svg>", "icon");
+			fail("Expected an SVGParseException");
+		} catch (SVGParseException e) {
+			// Expected
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.larvalabs.svgandroid;
+
+import java.awt.image.BufferedImage;
+
+import com.larvalabs.svgandroid.awt.BufferedImageRenderer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that <code>use</code> instances are drawn with their own transform, and that their bounds follow it.
+ */
+public class UseTest {
+
+	private static final int LIME = 0xff00ff00;
+
+	private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" "
+			+ "xmlns:xlink=\"http://www.w3.org/1999/xlink\" width=\"100\" height=\"100\">";
+
+	private static SVG index(String content) throws Exception {
+		return new SVGBuilder().readFromString(SVG + content + "</svg>").setIndexElements(true).build();
+	}
+
+	private static BufferedImage draw(String content) throws Exception {
+		final BufferedImageRenderer renderer = new BufferedImageRenderer(100, 100);
+		new SVGBuilder().readFromString(SVG + content + "</svg>").setRenderer(renderer).build();
+		return renderer.getImage();
+	}
+
+	@Test
+	public void instancesAreOffsetByXAndY() throws Exception {
+		final SVG svg = index("<defs><rect id=\"r\" width=\"10\" height=\"10\"/></defs>"
+				+ "<use id=\"u\" xlink:href=\"#r\" x=\"20\" y=\"30\"/>");
+		assertEquals("RectF(20.0, 30.0, 30.0, 40.0)", svg.getElement("u").getBounds().toString());
+		assertEquals("RectF(20.0, 30.0, 30.0, 40.0)", svg.getLimits().toString());
+	}
+
+	@Test
+	public void instanceTransformsComposeWithTheShapes() throws Exception {
+		// The use's transform, then its x and y, then the shape's own transform
+		final SVG svg = index("<defs><rect id=\"r\" width=\"10\" height=\"10\" transform=\"translate(5 0)\"/></defs>"
+				+ "<use id=\"u\" xlink:href=\"#r\" x=\"10\" transform=\"scale(2)\"/>");
+		assertEquals("RectF(30.0, 0.0, 50.0, 20.0)", svg.getElement("u").getBounds().toString());
+	}
+
+	@Test
+	public void drawnShapesCanBeUsed() throws Exception {
+		final String content = "<rect id=\"r\" width=\"10\" height=\"10\" fill=\"lime\"/>"
+				+ "<use xlink:href=\"#r\" transform=\"translate(50 50) scale(2)\"/>";
+		assertEquals("RectF(0.0, 0.0, 70.0, 70.0)", index(content).getLimits().toString());
+		// Without an index, the shape's geometry is only parsed when the use draws it
+		final BufferedImage image = draw(content);
+		assertEquals(LIME, image.getRGB(5, 5));
+		assertEquals(LIME, image.getRGB(65, 65));
+		assertEquals(0, image.getRGB(75, 75));
+		assertEquals(0, image.getRGB(45, 45));
+	}
+
+	@Test
+	public void symbolsAreFittedToTheUse() throws Exception {
+		final SVG svg = index("<symbol id=\"s\" viewBox=\"0 0 10 10\"><rect width=\"10\" height=\"10\"/></symbol>"
+				+ "<use xlink:href=\"#s\" x=\"10\" y=\"10\" width=\"40\" height=\"40\"/>");
+		assertEquals("RectF(10.0, 10.0, 50.0, 50.0)", svg.getLimits().toString());
+	}
+
+	@Test
+	public void unresolvedReferencesDrawNothing() throws Exception {
+		final SVG svg = index("<rect width=\"10\" height=\"10\"/><use xlink:href=\"#missing\" x=\"50\"/>");
+		assertEquals("RectF(0.0, 0.0, 10.0, 10.0)", svg.getLimits().toString());
+	}
+}
@@ -0,0 +1,372 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Color;
+import android.graphics.Matrix;
+
+import org.xml.sax.Attributes;
+
+/**
+ * One SMIL <code>animate</code> or <code>animateTransform</code> element: which property of its parent element it
+ * animates, when, and through which values. The supported subset is:
+ * <ul>
+ * <li><code>animate</code> of <code>opacity</code> and <code>fill</code> (as a colour), and <code>animateTransform</code>
+ * of every transform type;</li>
+ * <li><code>values</code> (with <code>keyTimes</code>), or <code>from</code>, <code>to</code> and <code>by</code>;</li>
+ * <li><code>calcMode</code> <code>linear</code> and <code>discrete</code> (<code>paced</code> and <code>spline</code>
+ * are interpolated linearly);</li>
+ * <li>offset <code>begin</code> times, <code>dur</code>, <code>repeatCount</code>, <code>repeatDur</code>,
+ * <code>fill="freeze"</code> and <code>additive="sum"</code>.</li>
+ * </ul>
+ * Event and sync-base begin times never begin, and <code>end</code>, <code>accumulate</code> and animations of other
+ * elements (by <code>xlink:href</code>) are not supported.
+ */
+final class Animate {
+
+	static final int OPACITY = 0;
+	static final int FILL = 1;
+	static final int TRANSLATE = 2;
+	static final int SCALE = 3;
+	static final int ROTATE = 4;
+	static final int SKEW_X = 5;
+	static final int SKEW_Y = 6;
+
+	final int type;
+	final boolean additive;
+	/** The time the animation begins, in seconds; infinite if it never does */
+	private final float begin;
+	private final float duration;
+	/** The time the animation runs for, including repeats, in seconds; infinite if it doesn't end */
+	private final float activeDuration;
+	private final boolean freeze;
+	private final boolean discrete;
+	private final float[][] values;
+	private final float[] keyTimes;
+
+	private Animate(int type, boolean additive, float begin, float duration, float activeDuration, boolean freeze,
+			boolean discrete, float[][] values, float[] keyTimes) {
+		this.type = type;
+		this.additive = additive;
+		this.begin = begin;
+		this.duration = duration;
+		this.activeDuration = activeDuration;
+		this.freeze = freeze;
+		this.discrete = discrete;
+		this.values = values;
+		this.keyTimes = keyTimes;
+	}
+
+	/**
+	 * @param localName <code>animate</code> or <code>animateTransform</code>.
+	 * @param baseOpacity the opacity of the animated element, which <code>to</code> and <code>by</code> animations
+	 *            start from.
+	 * @param baseFill the fill colour of the animated element.
+	 * @return the animation, or null if it animates something unsupported or has no duration or values.
+	 */
+	static Animate parse(String localName, Attributes atts, float baseOpacity, int baseFill) {
+		final String attributeName = SVGParser.getStringAttr("attributeName", atts);
+		final int type;
+		if (localName.equals("animateTransform")) {
+			if (attributeName != null && !attributeName.equals("transform")) {
+				return null;
+			}
+			type = transformType(SVGParser.getStringAttr("type", atts));
+		} else if ("opacity".equals(attributeName)) {
+			type = OPACITY;
+		} else if ("fill".equals(attributeName)) {
+			type = FILL;
+		} else {
+			type = -1;
+		}
+		final float duration = clockValue(SVGParser.getStringAttr("dur", atts));
+		if (type < 0 || !(duration > 0f) || Float.isInfinite(duration)) {
+			return null;
+		}
+
+		final float[] base;
+		if (type == OPACITY) {
+			base = new float[] { baseOpacity };
+		} else if (type == FILL) {
+			base = new float[] { Color.red(baseFill), Color.green(baseFill), Color.blue(baseFill) };
+		} else {
+			base = null;
+		}
+		final float[][] values = values(type, atts, base);
+		if (values == null) {
+			return null;
+		}
+
+		float[] keyTimes = null;
+		final String keyTimesAttr = SVGParser.getStringAttr("keyTimes", atts);
+		if (keyTimesAttr != null) {
+			keyTimes = numbers(keyTimesAttr.split(";"));
+			if (keyTimes == null || keyTimes.length != values.length) {
+				// Invalid key times are ignored, as are invalid values
+				keyTimes = null;
+			}
+		}
+
+		final String repeatCount = SVGParser.getStringAttr("repeatCount", atts);
+		final String repeatDur = SVGParser.getStringAttr("repeatDur", atts);
+		float activeDuration = duration;
+		if (repeatCount != null || repeatDur != null) {
+			activeDuration = Float.POSITIVE_INFINITY;
+			if (repeatCount != null && !repeatCount.trim().equals("indefinite")) {
+				final float count = ParserHelper.parseFloat(repeatCount);
+				activeDuration = Float.isNaN(count) ? duration : count * duration;
+			}
+			if (repeatDur != null) {
+				final float d = clockValue(repeatDur);
+				if (!Float.isNaN(d)) {
+					activeDuration = Math.min(activeDuration, d);
+				}
+			}
+		}
+
+		final String beginAttr = SVGParser.getStringAttr("begin", atts);
+		float begin = 0f;
+		if (beginAttr != null) {
+			final int semicolon = beginAttr.indexOf(';');
+			begin = clockValue((semicolon < 0) ? beginAttr : beginAttr.substring(0, semicolon));
+			if (Float.isNaN(begin)) {
+				// Begins on an event, which never happens here
+				begin = Float.POSITIVE_INFINITY;
+			}
+		}
+
+		return new Animate(type, "sum".equals(SVGParser.getStringAttr("additive", atts)), begin, duration,
+				activeDuration, "freeze".equals(SVGParser.getStringAttr("fill", atts)),
+				"discrete".equals(SVGParser.getStringAttr("calcMode", atts)), values, keyTimes);
+	}
+
+	private static int transformType(String type) {
+		if (type == null || type.equals("translate")) {
+			return TRANSLATE;
+		} else if (type.equals("scale")) {
+			return SCALE;
+		} else if (type.equals("rotate")) {
+			return ROTATE;
+		} else if (type.equals("skewX")) {
+			return SKEW_X;
+		} else if (type.equals("skewY")) {
+			return SKEW_Y;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the key frame values given by <code>values</code>, or else by <code>from</code>, <code>to</code> and
+	 *         <code>by</code>; or null if there are none or one is invalid.
+	 */
+	private static float[][] values(int type, Attributes atts, float[] base) {
+		final String valuesAttr = SVGParser.getStringAttr("values", atts);
+		if (valuesAttr != null) {
+			// String.split() drops a trailing empty value
+			final String[] list = valuesAttr.split(";");
+			final float[][] values = new float[list.length][];
+			for (int i = 0; i < list.length; i++) {
+				values[i] = value(type, list[i]);
+				if (values[i] == null) {
+					return null;
+				}
+			}
+			return values;
+		}
+		final String fromAttr = SVGParser.getStringAttr("from", atts);
+		final String toAttr = SVGParser.getStringAttr("to", atts);
+		final String byAttr = SVGParser.getStringAttr("by", atts);
+		float[] to = (toAttr == null) ? null : value(type, toAttr);
+		final float[] by = (byAttr == null) ? null : value(type, byAttr);
+		float[] from = (fromAttr == null) ? null : value(type, fromAttr);
+		if (to == null && by == null) {
+			return null;
+		}
+		if (from == null) {
+			from = (base != null) ? base : identity(type, (to != null) ? to : by);
+		}
+		if (to == null) {
+			to = new float[from.length];
+			for (int i = 0; i < to.length; i++) {
+				to[i] = from[i] + by[i];
+			}
+		}
+		return new float[][] { from, to };
+	}
+
+	/**
+	 * @param like a value of the transform, whose centre of rotation is kept.
+	 * @return the value of a transform type that doesn't transform.
+	 */
+	private static float[] identity(int type, float[] like) {
+		switch (type) {
+		case SCALE:
+			return new float[] { 1f, 1f };
+		case ROTATE:
+			return new float[] { 0f, like[1], like[2] };
+		default:
+			return new float[like.length];
+		}
+	}
+
+	/**
+	 * @return one key frame value, or null if it is invalid.
+	 */
+	private static float[] value(int type, String value) {
+		value = value.trim();
+		if (type == FILL) {
+			final Integer color = SVGParser.parseColor(value);
+			return (color == null) ? null : new float[] { Color.red(color), Color.green(color), Color.blue(color) };
+		}
+		final float[] numbers = (value.length() == 0) ? null : numbers(value.split("[\\s,]+"));
+		if (numbers == null) {
+			return null;
+		}
+		switch (type) {
+		case TRANSLATE:
+			return new float[] { numbers[0], (numbers.length > 1) ? numbers[1] : 0f };
+		case SCALE:
+			return new float[] { numbers[0], (numbers.length > 1) ? numbers[1] : numbers[0] };
+		case ROTATE:
+			return (numbers.length >= 3) ? new float[] { numbers[0], numbers[1], numbers[2] }
+					: new float[] { numbers[0], 0f, 0f };
+		default:
+			return new float[] { numbers[0] };
+		}
+	}
+
+	private static float[] numbers(String[] list) {
+		final float[] numbers = new float[list.length];
+		for (int i = 0; i < list.length; i++) {
+			numbers[i] = ParserHelper.parseFloat(list[i]);
+			if (Float.isNaN(numbers[i])) {
+				return null;
+			}
+		}
+		return numbers;
+	}
+
+	/**
+	 * @return a SMIL clock value (eg. <code>2s</code>, <code>150ms</code>, <code>0:01:30</code>) in seconds, infinity
+	 *         for <code>indefinite</code>, or NaN if it isn't a clock value.
+	 */
+	static float clockValue(String value) {
+		if (value == null) {
+			return Float.NaN;
+		}
+		value = value.trim();
+		if (value.equals("indefinite")) {
+			return Float.POSITIVE_INFINITY;
+		}
+		// NaN propagates from parts that aren't numbers
+		final int length = value.length();
+		if (value.indexOf(':') >= 0) {
+			float seconds = 0f;
+			for (String part : value.split(":")) {
+				seconds = seconds * 60f + ParserHelper.parseFloat(part);
+			}
+			return seconds;
+		} else if (value.endsWith("ms")) {
+			return ParserHelper.parseFloat(value, 0, length - 2) / 1000f;
+		} else if (value.endsWith("min")) {
+			return ParserHelper.parseFloat(value, 0, length - 3) * 60f;
+		} else if (value.endsWith("h")) {
+			return ParserHelper.parseFloat(value, 0, length - 1) * 3600f;
+		} else if (value.endsWith("s")) {
+			return ParserHelper.parseFloat(value, 0, length - 1);
+		}
+		return ParserHelper.parseFloat(value);
+	}
+
+	/**
+	 * @return the time the animation stops changing: infinite if it repeats indefinitely, or 0 if it never begins.
+	 */
+	float getEnd() {
+		return Float.isInfinite(begin) ? 0f : begin + activeDuration;
+	}
+
+	/**
+	 * @param value receives the animated value at the given time.
+	 * @return whether the animation has an effect at the time (false before it begins and after it ends, unless it is
+	 *         frozen).
+	 */
+	boolean sample(float time, float[] value) {
+		if (!(time >= begin)) {
+			return false;
+		}
+		final float t = time - begin;
+		float progress;
+		if (t >= activeDuration) {
+			if (!freeze) {
+				return false;
+			}
+			// Frozen at the point the last repeat had reached
+			final float repeats = activeDuration / duration;
+			progress = repeats - (float) Math.floor(repeats);
+			if (progress == 0f) {
+				progress = 1f;
+			}
+		} else {
+			progress = (t % duration) / duration;
+		}
+
+		final int n = values.length;
+		if (n == 1) {
+			System.arraycopy(values[0], 0, value, 0, values[0].length);
+		} else if (discrete) {
+			int i = n - 1;
+			while (i > 0 && keyTime(i) > progress) {
+				i--;
+			}
+			System.arraycopy(values[i], 0, value, 0, values[i].length);
+		} else {
+			int i = 0;
+			while (i < n - 2 && keyTime(i + 1) <= progress) {
+				i++;
+			}
+			final float t0 = keyTime(i);
+			final float t1 = keyTime(i + 1);
+			final float f = (t1 > t0) ? Math.max(0f, Math.min(1f, (progress - t0) / (t1 - t0))) : 1f;
+			final float[] from = values[i];
+			final float[] to = values[i + 1];
+			for (int j = 0; j < from.length; j++) {
+				value[j] = from[j] + (to[j] - from[j]) * f;
+			}
+		}
+		return true;
+	}
+
+	private float keyTime(int i) {
+		if (keyTimes != null) {
+			return keyTimes[i];
+		}
+		return discrete ? (float) i / values.length : (float) i / (values.length - 1);
+	}
+
+	/**
+	 * Sets the matrix to the transform of a sampled value of a transform animation.
+	 */
+	void getTransform(float[] value, Matrix matrix) {
+		switch (type) {
+		case TRANSLATE:
+			matrix.setTranslate(value[0], value[1]);
+			break;
+		case SCALE:
+			matrix.setScale(value[0], value[1]);
+			break;
+		case ROTATE:
+			matrix.setTranslate(value[1], value[2]);
+			matrix.preRotate(value[0]);
+			matrix.preTranslate(-value[1], -value[2]);
+			break;
+		case SKEW_X:
+			matrix.reset();
+			matrix.preSkew((float) Math.tan(Math.toRadians(value[0])), 0f);
+			break;
+		case SKEW_Y:
+			matrix.reset();
+			matrix.preSkew(0f, (float) Math.tan(Math.toRadians(value[0])));
+			break;
+		default:
+			matrix.reset();
+		}
+	}
+}
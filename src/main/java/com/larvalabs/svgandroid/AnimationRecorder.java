@@ -0,0 +1,356 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import org.xml.sax.Attributes;
+
+/**
+ * Records the drawing of an animated document as a list of operations, and which ranges of them are drawn by animated
+ * elements, so that {@link SVGAnimation} can keep the static content in pictures and redraw only the animated
+ * elements.
+ */
+final class AnimationRecorder implements SVGRenderer {
+
+	/**
+	 * One recorded renderer call.
+	 */
+	static final class Op {
+		static final int SAVE = 0;
+		static final int RESTORE = 1;
+		static final int CONCAT = 2;
+		static final int SET_MATRIX = 3;
+		static final int TRANSLATE = 4;
+		static final int CLIP_RECT = 5;
+		static final int PATH = 6;
+		static final int RECT = 7;
+		static final int OVAL = 8;
+		static final int LINE = 9;
+		static final int TEXT = 10;
+
+		final int code;
+		/** The numeric arguments; for a restore, the number of saves it pops */
+		final float[] values;
+		/** The matrix, path, rectangle or text */
+		final Object object;
+		final PathGeometry geometry;
+		final Paint paint;
+
+		Op(int code, float[] values, Object object, PathGeometry geometry, Paint paint) {
+			this.code = code;
+			this.values = values;
+			this.object = object;
+			this.geometry = geometry;
+			this.paint = paint;
+		}
+
+		/**
+		 * @return whether the operation draws (rather than changing the matrix or clip).
+		 */
+		boolean draws() {
+			return code >= PATH;
+		}
+
+		/**
+		 * @param paint the paint to draw with, in place of the recorded one.
+		 */
+		void play(SVGRenderer renderer, Paint paint) {
+			switch (code) {
+			case SAVE:
+				renderer.save();
+				break;
+			case RESTORE:
+				for (int i = (int) values[0]; i > 0; i--) {
+					renderer.restore();
+				}
+				break;
+			case CONCAT:
+				renderer.concat((Matrix) object);
+				break;
+			case SET_MATRIX:
+				renderer.setMatrix((Matrix) object);
+				break;
+			case TRANSLATE:
+				renderer.translate(values[0], values[1]);
+				break;
+			case CLIP_RECT:
+				renderer.clipRect(values[0], values[1], values[2], values[3]);
+				break;
+			case PATH:
+				renderer.drawPath((Path) object, geometry, paint);
+				break;
+			case RECT:
+				renderer.drawRect((RectF) object, values[0], values[1], paint);
+				break;
+			case OVAL:
+				renderer.drawOval((RectF) object, paint);
+				break;
+			case LINE:
+				renderer.drawLine(values[0], values[1], values[2], values[3], paint);
+				break;
+			case TEXT:
+				renderer.drawText((String) object, values[0], values[1], paint);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * An open element: where its drawing starts, what its animations start from, and the animated elements found in
+	 * its content so far.
+	 */
+	private static final class Frame {
+		final int start;
+		final String transform;
+		/** The element's own opacity, which isn't in the paints of its content */
+		final float opacity;
+		final String fill;
+		SVGAnimation.AnimatedElement element = null;
+		ArrayList<SVGAnimation.AnimatedElement> animated = null;
+
+		Frame(int start, String transform, float opacity, String fill) {
+			this.start = start;
+			this.transform = transform;
+			this.opacity = opacity;
+			this.fill = fill;
+		}
+
+		void add(ArrayList<SVGAnimation.AnimatedElement> elements) {
+			if (animated == null) {
+				animated = elements;
+			} else {
+				animated.addAll(elements);
+			}
+		}
+	}
+
+	/**
+	 * The parameters of a recorded gradient, to create it again for another renderer.
+	 */
+	static final class Gradient {
+		final boolean linear;
+		final float[] geometry;
+		final int[] colors;
+		final float[] positions;
+		final TileMode tileMode;
+		final Matrix localMatrix;
+
+		Gradient(boolean linear, float[] geometry, int[] colors, float[] positions, TileMode tileMode,
+				Matrix localMatrix) {
+			this.linear = linear;
+			this.geometry = geometry;
+			this.colors = colors;
+			this.positions = positions;
+			this.tileMode = tileMode;
+			this.localMatrix = localMatrix;
+		}
+
+		Shader create(SVGRenderer renderer) {
+			if (linear) {
+				return renderer.createLinearGradient(geometry[0], geometry[1], geometry[2], geometry[3], colors,
+						positions, tileMode, localMatrix);
+			}
+			return renderer.createRadialGradient(geometry[0], geometry[1], geometry[2], colors, positions, tileMode,
+					localMatrix);
+		}
+	}
+
+	private static final SVGAnimation.AnimatedElement[] NO_ELEMENTS = new SVGAnimation.AnimatedElement[0];
+
+	private final CanvasRenderer shaders = new CanvasRenderer(null);
+	private final IdentityHashMap<Shader, Gradient> gradients = new IdentityHashMap<Shader, Gradient>();
+	private final ArrayList<Op> ops = new ArrayList<Op>();
+	private final ArrayList<Frame> frames = new ArrayList<Frame>();
+	private ArrayList<SVGAnimation.AnimatedElement> roots = null;
+	private int saveCount = 1;
+	private int width, height;
+
+	/**
+	 * Called as each element starts, before anything it draws.
+	 *
+	 * @param transform the element's <code>transform</code> attribute, or null.
+	 * @param opacity the element's <code>opacity</code>, or null.
+	 * @param fill the element's <code>fill</code>, or null.
+	 */
+	void beginElement(String transform, String opacity, String fill) {
+		float f = 1f;
+		if (opacity != null) {
+			f = ParserHelper.parseFloat(opacity);
+			// Drawn as opaque if it isn't a number
+			f = Float.isNaN(f) ? 1f : Math.max(0f, Math.min(1f, f));
+		}
+		frames.add(new Frame(ops.size(), transform, f, fill));
+	}
+
+	/**
+	 * Called as each element ends, after everything it draws.
+	 */
+	void endElement() {
+		final Frame frame = frames.remove(frames.size() - 1);
+		ArrayList<SVGAnimation.AnimatedElement> animated = frame.animated;
+		final SVGAnimation.AnimatedElement element = frame.element;
+		if (element == null && frame.opacity < 1f) {
+			applyOpacity(frame.start, frame.opacity);
+		}
+		if (element != null && element.start < ops.size()) {
+			element.end = ops.size();
+			element.children = (animated == null) ? NO_ELEMENTS : animated
+					.toArray(new SVGAnimation.AnimatedElement[animated.size()]);
+			animated = new ArrayList<SVGAnimation.AnimatedElement>();
+			animated.add(element);
+		}
+		if (frames.isEmpty()) {
+			roots = animated;
+		} else if (animated != null) {
+			frames.get(frames.size() - 1).add(animated);
+		}
+	}
+
+	/**
+	 * Adds an <code>animate</code> or <code>animateTransform</code> element to its parent element.
+	 */
+	void animate(String localName, Attributes atts) {
+		// The animation's own frame is the last one
+		if (frames.size() < 3) {
+			Log.w(SVGParser.TAG, "Animations of the root element aren't supported.");
+			return;
+		}
+		final Frame parent = frames.get(frames.size() - 2);
+		final Integer fill = SVGParser.parseColor(parent.fill);
+		final Animate animation = Animate.parse(localName, atts, parent.opacity, (fill == null) ? Color.BLACK : fill);
+		if (animation == null) {
+			Log.w(SVGParser.TAG, "Unsupported animation: " + localName + " of "
+					+ SVGParser.getStringAttr("attributeName", atts));
+			return;
+		}
+		if (parent.element == null) {
+			final Matrix transform = (parent.transform == null) ? null : SVGParser.parseTransform(parent.transform);
+			parent.element = new SVGAnimation.AnimatedElement(parent.start, transform, parent.opacity);
+		}
+		parent.element.animations.add(animation);
+	}
+
+	/**
+	 * Multiplies the opacity of everything drawn since the given operation, for an element whose opacity isn't
+	 * animated.
+	 */
+	private void applyOpacity(int from, float opacity) {
+		// Paints are shared between operations, so each is copied once
+		final IdentityHashMap<Paint, Paint> applied = new IdentityHashMap<Paint, Paint>();
+		for (int i = from; i < ops.size(); i++) {
+			final Op op = ops.get(i);
+			if (op.paint == null) {
+				continue;
+			}
+			Paint paint = applied.get(op.paint);
+			if (paint == null) {
+				paint = new Paint(op.paint);
+				paint.setAlpha(Math.round(op.paint.getAlpha() * opacity));
+				applied.put(op.paint, paint);
+			}
+			ops.set(i, new Op(op.code, op.values, op.object, op.geometry, paint));
+		}
+	}
+
+	/**
+	 * @param svg the parsed document, which is drawn by the animation (it has no picture of its own).
+	 */
+	SVGAnimation toAnimation(SVG svg) {
+		final Op[] recorded = ops.toArray(new Op[ops.size()]);
+		final SVGAnimation.AnimatedElement[] animated = (roots == null) ? NO_ELEMENTS : roots
+				.toArray(new SVGAnimation.AnimatedElement[roots.size()]);
+		return new SVGAnimation(svg, width, height, recorded, animated, gradients);
+	}
+
+	private void add(int code, float[] values, Object object, PathGeometry geometry, Paint paint) {
+		ops.add(new Op(code, values, object, geometry, paint));
+	}
+
+	public void beginDocument(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	public void endDocument() {
+	}
+
+	public int save() {
+		add(Op.SAVE, null, null, null, null);
+		return saveCount++;
+	}
+
+	public void restore() {
+		add(Op.RESTORE, new float[] { 1 }, null, null, null);
+		saveCount--;
+	}
+
+	public void restoreToCount(int count) {
+		if (count < saveCount) {
+			add(Op.RESTORE, new float[] { saveCount - count }, null, null, null);
+			saveCount = count;
+		}
+	}
+
+	// The parser reuses its matrices and rectangles, so they are copied
+
+	public void concat(Matrix matrix) {
+		add(Op.CONCAT, null, new Matrix(matrix), null, null);
+	}
+
+	public void setMatrix(Matrix matrix) {
+		add(Op.SET_MATRIX, null, new Matrix(matrix), null, null);
+	}
+
+	public void translate(float dx, float dy) {
+		add(Op.TRANSLATE, new float[] { dx, dy }, null, null, null);
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+		add(Op.CLIP_RECT, new float[] { left, top, right, bottom }, null, null, null);
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+		add(Op.PATH, null, path, geometry, paint);
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+		add(Op.RECT, new float[] { rx, ry }, new RectF(rect), null, paint);
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		add(Op.OVAL, null, new RectF(oval), null, paint);
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		add(Op.LINE, new float[] { x1, y1, x2, y2 }, null, null, paint);
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		add(Op.TEXT, new float[] { x, y }, text, null, paint);
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		final Shader shader = shaders.createLinearGradient(x1, y1, x2, y2, colors, positions, tileMode, localMatrix);
+		gradients.put(shader, new Gradient(true, new float[] { x1, y1, x2, y2 }, colors, positions, tileMode,
+				localMatrix));
+		return shader;
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		final Shader shader = shaders.createRadialGradient(x, y, radius, colors, positions, tileMode, localMatrix);
+		gradients.put(shader, new Gradient(false, new float[] { x, y, radius }, colors, positions, tileMode,
+				localMatrix));
+		return shader;
+	}
+}
@@ -0,0 +1,103 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RadialGradient;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+/**
+ * Draws straight on to an <code>android.graphics.Canvas</code>. The document's begin and end do nothing, so the
+ * caller owns the canvas and its state (the drawing is balanced, so the canvas is left as it was found).
+ */
+public class CanvasRenderer implements SVGRenderer {
+
+	Canvas canvas;
+
+	/**
+	 * @param canvas the canvas to draw on, which may be null if it is set by a subclass when the document begins.
+	 */
+	public CanvasRenderer(Canvas canvas) {
+		this.canvas = canvas;
+	}
+
+	public void beginDocument(int width, int height) {
+	}
+
+	public void endDocument() {
+	}
+
+	public int save() {
+		return canvas.save();
+	}
+
+	public void restore() {
+		canvas.restore();
+	}
+
+	public void restoreToCount(int saveCount) {
+		canvas.restoreToCount(saveCount);
+	}
+
+	public void concat(Matrix matrix) {
+		canvas.concat(matrix);
+	}
+
+	public void setMatrix(Matrix matrix) {
+		canvas.setMatrix(matrix);
+	}
+
+	public void translate(float dx, float dy) {
+		canvas.translate(dx, dy);
+	}
+
+	public void clipRect(float left, float top, float right, float bottom) {
+		canvas.clipRect(left, top, right, bottom);
+	}
+
+	public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+		canvas.drawPath(path, paint);
+	}
+
+	public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+		if (rx <= 0f && ry <= 0f) {
+			canvas.drawRect(rect, paint);
+		} else {
+			canvas.drawRoundRect(rect, rx, ry, paint);
+		}
+	}
+
+	public void drawOval(RectF oval, Paint paint) {
+		canvas.drawOval(oval, paint);
+	}
+
+	public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		canvas.drawLine(x1, y1, x2, y2, paint);
+	}
+
+	public void drawText(String text, float x, float y, Paint paint) {
+		canvas.drawText(text, x, y, paint);
+	}
+
+	public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		final Shader shader = new LinearGradient(x1, y1, x2, y2, colors, positions, tileMode);
+		if (localMatrix != null) {
+			shader.setLocalMatrix(localMatrix);
+		}
+		return shader;
+	}
+
+	public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		final Shader shader = new RadialGradient(x, y, radius, colors, positions, tileMode);
+		if (localMatrix != null) {
+			shader.setLocalMatrix(localMatrix);
+		}
+		return shader;
+	}
+}
@@ -0,0 +1,217 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Matrix;
+import android.graphics.RectF;
+
+/**
+ * Computes tight bounds of geometry under an affine transform. Points are transformed first and curve extrema are
+ * then found analytically, so rotated or skewed curves don't inflate the result the way mapping a control-point
+ * bounding box does.
+ */
+final class ExactBounds {
+
+	// x' = sx * x + kx * y + tx, y' = ky * x + sy * y + ty
+	private float sx = 1, kx = 0, tx = 0;
+	private float ky = 0, sy = 1, ty = 0;
+	private final float[] values = new float[9];
+
+	private float left, top, right, bottom;
+
+	ExactBounds() {
+		reset(null);
+	}
+
+	/**
+	 * Clears the bounds and sets the transform applied to everything measured from now on.
+	 *
+	 * @param matrix the transform, or null for identity.
+	 */
+	void reset(Matrix matrix) {
+		if (matrix == null) {
+			sx = sy = 1;
+			kx = ky = tx = ty = 0;
+		} else {
+			matrix.getValues(values);
+			sx = values[Matrix.MSCALE_X];
+			kx = values[Matrix.MSKEW_X];
+			tx = values[Matrix.MTRANS_X];
+			ky = values[Matrix.MSKEW_Y];
+			sy = values[Matrix.MSCALE_Y];
+			ty = values[Matrix.MTRANS_Y];
+		}
+		left = top = Float.POSITIVE_INFINITY;
+		right = bottom = Float.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Grows the target to include r. Unlike {@link RectF#union(RectF)} this handles zero width or height rectangles
+	 * (such as horizontal lines), treating the target as empty while left > right.
+	 */
+	static void union(RectF target, RectF r) {
+		if (target.left > target.right) {
+			target.set(r);
+			return;
+		}
+		if (r.left < target.left) {
+			target.left = r.left;
+		}
+		if (r.top < target.top) {
+			target.top = r.top;
+		}
+		if (r.right > target.right) {
+			target.right = r.right;
+		}
+		if (r.bottom > target.bottom) {
+			target.bottom = r.bottom;
+		}
+	}
+
+	boolean isEmpty() {
+		return left > right;
+	}
+
+	/**
+	 * Gets the bounds measured so far.
+	 *
+	 * @param out receives the bounds.
+	 * @param strokeRadius half the stroke width (in untransformed units), or 0 for fills.
+	 */
+	void getBounds(RectF out, float strokeRadius) {
+		out.set(left, top, right, bottom);
+		if (strokeRadius > 0 && !isEmpty()) {
+			// Extent of a transformed circle of the stroke radius
+			float dx = strokeRadius * (float) Math.sqrt(sx * sx + kx * kx);
+			float dy = strokeRadius * (float) Math.sqrt(ky * ky + sy * sy);
+			out.set(left - dx, top - dy, right + dx, bottom + dy);
+		}
+	}
+
+	void point(float x, float y) {
+		addTransformed(sx * x + kx * y + tx, ky * x + sy * y + ty);
+	}
+
+	void rect(float l, float t, float r, float b) {
+		point(l, t);
+		point(r, t);
+		point(r, b);
+		point(l, b);
+	}
+
+	void oval(float cx, float cy, float rx, float ry) {
+		// An ellipse maps to an ellipse; its extent along each axis is the norm of the mapped radii
+		float x = sx * cx + kx * cy + tx;
+		float y = ky * cx + sy * cy + ty;
+		float hw = (float) Math.sqrt((sx * rx) * (sx * rx) + (kx * ry) * (kx * ry));
+		float hh = (float) Math.sqrt((ky * rx) * (ky * rx) + (sy * ry) * (sy * ry));
+		addTransformed(x - hw, y - hh);
+		addTransformed(x + hw, y + hh);
+	}
+
+	void roundRect(float l, float t, float r, float b, float rx, float ry) {
+		if (rx <= 0 && ry <= 0) {
+			rect(l, t, r, b);
+			return;
+		}
+		rx = Math.min(rx, (r - l) / 2);
+		ry = Math.min(ry, (b - t) / 2);
+		// The straight edges are covered by the corners' end points
+		cornerArc(r - rx, t + ry, rx, -ry);
+		cornerArc(r - rx, b - ry, rx, ry);
+		cornerArc(l + rx, b - ry, -rx, ry);
+		cornerArc(l + rx, t + ry, -rx, -ry);
+	}
+
+	private void cornerArc(float cx, float cy, float rx, float ry) {
+		final float k = 0.5522848f;
+		cubic(cx + rx, cy, cx + rx, cy + ry * k, cx + rx * k, cy + ry, cx, cy + ry);
+	}
+
+	/**
+	 * Adds a quadratic B&eacute;zier segment.
+	 */
+	void quad(float x0, float y0, float x1, float y1, float x2, float y2) {
+		final float px0 = sx * x0 + kx * y0 + tx, py0 = ky * x0 + sy * y0 + ty;
+		final float px1 = sx * x1 + kx * y1 + tx, py1 = ky * x1 + sy * y1 + ty;
+		final float px2 = sx * x2 + kx * y2 + tx, py2 = ky * x2 + sy * y2 + ty;
+		addTransformed(px0, py0);
+		addTransformed(px2, py2);
+		quadExtremum(px0, py0, px1, py1, px2, py2, px0, px1, px2);
+		quadExtremum(px0, py0, px1, py1, px2, py2, py0, py1, py2);
+	}
+
+	private void quadExtremum(float x0, float y0, float x1, float y1, float x2, float y2, float p0, float p1, float p2) {
+		final float den = p0 - 2 * p1 + p2;
+		if (den != 0) {
+			final float t = (p0 - p1) / den;
+			if (t > 0 && t < 1) {
+				final float mt = 1 - t;
+				addTransformed(mt * mt * x0 + 2 * mt * t * x1 + t * t * x2, mt * mt * y0 + 2 * mt * t * y1 + t * t * y2);
+			}
+		}
+	}
+
+	/**
+	 * Adds a cubic B&eacute;zier segment.
+	 */
+	void cubic(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+		final float px0 = sx * x0 + kx * y0 + tx, py0 = ky * x0 + sy * y0 + ty;
+		final float px1 = sx * x1 + kx * y1 + tx, py1 = ky * x1 + sy * y1 + ty;
+		final float px2 = sx * x2 + kx * y2 + tx, py2 = ky * x2 + sy * y2 + ty;
+		final float px3 = sx * x3 + kx * y3 + tx, py3 = ky * x3 + sy * y3 + ty;
+		addTransformed(px0, py0);
+		addTransformed(px3, py3);
+		if (!contains(px1, py1) || !contains(px2, py2)) {
+			cubicExtrema(px0, py0, px1, py1, px2, py2, px3, py3, px0, px1, px2, px3);
+			cubicExtrema(px0, py0, px1, py1, px2, py2, px3, py3, py0, py1, py2, py3);
+		}
+	}
+
+	private void cubicExtrema(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3,
+			float p0, float p1, float p2, float p3) {
+		// Roots of the derivative (divided by 3): a t^2 + b t + c
+		final double a = -p0 + 3 * p1 - 3 * p2 + p3;
+		final double b = 2 * (p0 - 2 * p1 + p2);
+		final double c = p1 - p0;
+		if (Math.abs(a) < 1e-12) {
+			if (b != 0) {
+				cubicPoint(-c / b, x0, y0, x1, y1, x2, y2, x3, y3);
+			}
+			return;
+		}
+		final double disc = b * b - 4 * a * c;
+		if (disc < 0) {
+			return;
+		}
+		final double sq = Math.sqrt(disc);
+		cubicPoint((-b + sq) / (2 * a), x0, y0, x1, y1, x2, y2, x3, y3);
+		cubicPoint((-b - sq) / (2 * a), x0, y0, x1, y1, x2, y2, x3, y3);
+	}
+
+	private void cubicPoint(double t, float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+		if (t <= 0 || t >= 1) {
+			return;
+		}
+		final double mt = 1 - t;
+		final double w0 = mt * mt * mt, w1 = 3 * mt * mt * t, w2 = 3 * mt * t * t, w3 = t * t * t;
+		addTransformed((float) (w0 * x0 + w1 * x1 + w2 * x2 + w3 * x3), (float) (w0 * y0 + w1 * y1 + w2 * y2 + w3 * y3));
+	}
+
+	private boolean contains(float x, float y) {
+		return x >= left && x <= right && y >= top && y <= bottom;
+	}
+
+	private void addTransformed(float x, float y) {
+		if (x < left) {
+			left = x;
+		}
+		if (x > right) {
+			right = x;
+		}
+		if (y < top) {
+			top = y;
+		}
+		if (y > bottom) {
+			bottom = y;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Picture;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An SVG that is parsed when it is first drawn or measured, rather than when it is built. Create one with
+ * {@link SVGBuilder#buildLazily()}. Until then it holds only where its input came from and the parsing options; its
+ * size can be read beforehand with a cheap prescan (see {@link #getHeader()}).
+ * <p/>
+ * The parsed document is kept until {@link #releaseCaches()} is called, or counts towards the
+ * {@link SVGBuilder#setMemoryBudget(SVGMemoryBudget) memory budget} if there is one, which may release it when memory
+ * is short or the budget is exceeded; it is then parsed again the next time it is needed.
+ * <p/>
+ * A lazy SVG may be parsed ahead of time on another thread with {@link #getSVG()}; draw it on one thread only.
+ */
+public class LazySVG implements SVGMemoryBudget.Cache {
+
+	private final SVGBuilder.Source source;
+	/** The parsing options, with no input */
+	private final SVGBuilder options;
+	/** The budget the parsed document is kept within, or null */
+	private final SVGMemoryBudget memoryBudget;
+	private SVGHeader header = null;
+	private SVG svg = null;
+	private int parses = 0;
+
+	LazySVG(SVGBuilder.Source source, SVGBuilder options, SVGMemoryBudget memoryBudget) {
+		this.source = source;
+		this.options = options;
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Gets the size of the document, from a prescan of its root element (see {@link SVGBuilder#prescan()}) which is
+	 * much cheaper than parsing it. For a {@link SVGBuilder#setTargetElement(String) target element} this is the size
+	 * of the whole document, not of the element.
+	 *
+	 * @return the header of the document.
+	 * @throws SVGParseException if the input can't be read or isn't an SVG.
+	 */
+	public synchronized SVGHeader getHeader() throws SVGParseException {
+		if (header == null) {
+			header = new SVGBuilder().readFromInputStream(open()).prescan();
+		}
+		return header;
+	}
+
+	/**
+	 * Gets the parsed document, parsing it if it hasn't been parsed or has been released.
+	 *
+	 * @return the SVG.
+	 * @throws SVGParseException if there is an error while parsing.
+	 */
+	public SVG getSVG() throws SVGParseException {
+		final SVG parsed;
+		synchronized (this) {
+			if (svg == null) {
+				svg = options.copyOptions().readFromInputStream(open()).build();
+				parses++;
+			}
+			parsed = svg;
+		}
+		if (memoryBudget != null) {
+			// Outside of the lock, as the budget may release other lazy SVGs
+			memoryBudget.used(this);
+		}
+		return parsed;
+	}
+
+	/**
+	 * @return whether the document is parsed (and hasn't been released since).
+	 */
+	public synchronized boolean isParsed() {
+		return svg != null;
+	}
+
+	/**
+	 * @return the number of times the document has been parsed, which is more than one if it was released and needed
+	 *         again.
+	 */
+	public synchronized int getParseCount() {
+		return parses;
+	}
+
+	/**
+	 * Draws the SVG, parsing it first if needed.
+	 *
+	 * @param canvas the canvas to draw on.
+	 */
+	public void draw(Canvas canvas) {
+		getSVG().draw(canvas);
+	}
+
+	/**
+	 * Gets the bounds of everything drawn, parsing the SVG first if needed (see {@link SVG#getLimits()}).
+	 *
+	 * @return the computed bounds, or null for an empty SVG.
+	 */
+	public RectF getLimits() {
+		return getSVG().getLimits();
+	}
+
+	/**
+	 * Gets the exact bounds of everything drawn, parsing the SVG first if needed (see {@link SVG#getExactLimits()}).
+	 *
+	 * @return the computed bounds, or null for an empty SVG.
+	 */
+	public RectF getExactLimits() {
+		return getSVG().getExactLimits();
+	}
+
+	/**
+	 * Creates a drawable that draws the SVG scaled to its bounds. Its intrinsic size comes from the header, which is
+	 * prescanned here (if it hasn't been already) so that measuring the drawable never reads the input; the SVG isn't
+	 * parsed until the drawable is first drawn.
+	 * <p/>
+	 * The drawable never throws: if the header can't be read it has no intrinsic size, and if the SVG can't be parsed
+	 * the error is logged and it draws nothing.
+	 *
+	 * @return a new drawable.
+	 */
+	public Drawable createDrawable() {
+		int width = -1;
+		int height = -1;
+		try {
+			final SVGHeader header = getHeader();
+			width = header.getWidth();
+			height = header.getHeight();
+		} catch (SVGParseException e) {
+			Log.w(SVGParser.TAG, "Couldn't prescan lazy SVG for its size.", e);
+		}
+		return new LazyDrawable(this, (width > 0) ? width : -1, (height > 0) ? height : -1);
+	}
+
+	/**
+	 * @return the estimated size of the parsed document (apart from what it has cached itself, which is tracked
+	 *         separately), or 0 if it isn't parsed.
+	 */
+	public synchronized long getCachedSize() {
+		return (svg == null) ? 0 : svg.getEstimatedSize() - svg.getCachedSize();
+	}
+
+	/**
+	 * Drops the parsed document, which is parsed again the next time it is needed. SVGs got from {@link #getSVG()}
+	 * before are unaffected.
+	 */
+	public synchronized void releaseCaches() {
+		svg = null;
+	}
+
+	private InputStream open() throws SVGParseException {
+		try {
+			return source.open();
+		} catch (IOException e) {
+			throw new SVGParseException(e);
+		}
+	}
+
+	/**
+	 * Draws a lazy SVG scaled to its bounds.
+	 */
+	private static final class LazyDrawable extends Drawable {
+		private final LazySVG svg;
+		private final int width, height;
+		/** Whether parsing failed, in which case nothing is drawn rather than parsing again on every frame */
+		private boolean failed = false;
+
+		LazyDrawable(LazySVG svg, int width, int height) {
+			this.svg = svg;
+			this.width = width;
+			this.height = height;
+		}
+
+		@Override
+		public void draw(Canvas canvas) {
+			if (failed) {
+				return;
+			}
+			final SVG parsed;
+			try {
+				parsed = svg.getSVG();
+			} catch (SVGParseException e) {
+				Log.e(SVGParser.TAG, "Failed to parse lazy SVG, drawing nothing.", e);
+				failed = true;
+				return;
+			}
+			final Picture picture = parsed.getRecordedPicture();
+			if (picture == null) {
+				return;
+			}
+			final Rect bounds = getBounds();
+			canvas.save();
+			canvas.translate(bounds.left, bounds.top);
+			final int width = picture.getWidth();
+			final int height = picture.getHeight();
+			if (width > 0 && height > 0) {
+				canvas.scale(bounds.width() / (float) width, bounds.height() / (float) height);
+			}
+			parsed.draw(canvas);
+			canvas.restore();
+		}
+
+		@Override
+		public int getIntrinsicWidth() {
+			return width;
+		}
+
+		@Override
+		public int getIntrinsicHeight() {
+			return height;
+		}
+
+		@Override
+		public void setAlpha(int alpha) {
+		}
+
+		@Override
+		public void setColorFilter(ColorFilter cf) {
+		}
+
+		@Override
+		public int getOpacity() {
+			return PixelFormat.TRANSLUCENT;
+		}
+	}
+}
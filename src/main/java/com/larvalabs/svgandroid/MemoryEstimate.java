@@ -0,0 +1,96 @@
+package com.larvalabs.svgandroid;
+
+/**
+ * Estimates the memory retained by a parsed SVG from what is recorded in to it: the operations of the picture, the
+ * points and verbs of its paths, its text, and its distinct paints, path effects and shaders. The sizes are rounded up
+ * from those of Skia's picture recording; they are meant for budgeting, not accounting.
+ */
+final class MemoryEstimate {
+
+	/** A picture, before anything is recorded in to it */
+	static final int PICTURE = 256;
+	/** The header and offset of a recorded operation */
+	static final int OP = 16;
+	/** A recorded matrix */
+	static final int MATRIX = 40;
+	/** The rectangle (or line) of a shape */
+	static final int RECT = 16;
+	/** A recorded path, without its points and verbs */
+	static final int PATH = 64;
+	static final int POINT = 8;
+	static final int VERB = 1;
+	/** A flattened paint */
+	static final int PAINT = 96;
+	static final int PATH_EFFECT = 64;
+	/** A gradient, with the 256 entry colour table Skia caches once it has been drawn */
+	static final int SHADER = 1280;
+	/** An indexed element, with its matrix, bounds and the Java side of its path */
+	static final int ELEMENT = 192;
+	/** The entry of a cached path, with the Java objects of its string and geometry */
+	static final int CACHED_PATH = 160;
+
+	private long bytes = PICTURE;
+
+	/**
+	 * A save, with the transform usually concatenated after it.
+	 */
+	void save() {
+		bytes += OP + MATRIX;
+	}
+
+	/**
+	 * A path held by a {@link SVGPathCache}: its native path, its geometry and the <code>d</code> string it is cached
+	 * by.
+	 */
+	static long cachedPath(String d, PathGeometry geometry) {
+		return CACHED_PATH + PATH + geometry.getCoordCount() / 2 * POINT + geometry.getVerbCount() * VERB
+				+ geometry.getCoordCount() * 4 + geometry.getVerbCount() + d.length() * 2;
+	}
+
+	/**
+	 * A restore, translation or clip.
+	 */
+	void state() {
+		bytes += OP;
+	}
+
+	void path(PathGeometry geometry) {
+		bytes += OP + PATH;
+		if (geometry != null) {
+			bytes += geometry.getCoordCount() / 2 * POINT + geometry.getVerbCount() * VERB;
+		}
+	}
+
+	/**
+	 * A rectangle, oval or line.
+	 */
+	void shape() {
+		bytes += OP + RECT;
+	}
+
+	void text(String text) {
+		bytes += OP + RECT + text.length() * 2;
+	}
+
+	/**
+	 * Adds the styles and elements retained by the whole document.
+	 */
+	void document(SVGParseStatistics stats, int elements) {
+		bytes += (long) stats.distinctPaints * PAINT + (long) stats.distinctPathEffects * PATH_EFFECT
+				+ (long) stats.distinctShaders * SHADER + (long) elements * ELEMENT;
+	}
+
+	/**
+	 * @return the bytes estimated so far.
+	 */
+	long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Another picture, when the document is recorded in to several.
+	 */
+	void picture() {
+		bytes += PICTURE;
+	}
+}
@@ -0,0 +1,145 @@
+package com.larvalabs.svgandroid;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts what a parse has done against the limits set on the builder, throwing an {@link SVGLimitExceededException}
+ * as soon as one is exceeded. The checks are a comparison or two per element or path, and reading the clock every
+ * {@link #CLOCK_INTERVAL} elements.
+ */
+final class ParseLimits {
+
+	/** How many elements are handled between reads of the clock */
+	private static final int CLOCK_INTERVAL = 32;
+
+	private final int maxElements;
+	private final int maxDepth;
+	private final long maxPathSegments;
+	private final long maxMillis;
+	private final long maxNanos;
+
+	private int elements = 0;
+	private long pathSegments = 0;
+	/** The time spent parsing before the current slice */
+	private long elapsed = 0;
+	/** When the current slice started, or -1 between slices */
+	private long resumed = -1;
+
+	/**
+	 * @param maxElements the most elements, or 0 for no limit; the same for the others.
+	 * @param maxMillis the most time to spend parsing.
+	 */
+	ParseLimits(int maxElements, int maxDepth, long maxPathSegments, long maxMillis) {
+		this.maxElements = (maxElements > 0) ? maxElements : Integer.MAX_VALUE;
+		this.maxDepth = (maxDepth > 0) ? maxDepth : Integer.MAX_VALUE;
+		this.maxPathSegments = (maxPathSegments > 0) ? maxPathSegments : Long.MAX_VALUE;
+		this.maxMillis = maxMillis;
+		this.maxNanos = (maxMillis > 0) ? maxMillis * 1000000L : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Starts (or continues, for an incremental parse) timing the parse.
+	 */
+	void resume() {
+		resumed = System.nanoTime();
+	}
+
+	/**
+	 * Stops timing the parse, eg. between the slices of an incremental parse.
+	 */
+	void pause() {
+		if (resumed >= 0) {
+			elapsed += System.nanoTime() - resumed;
+			resumed = -1;
+		}
+	}
+
+	/**
+	 * Counts an element, parsed or drawn by a <code>use</code> reference.
+	 *
+	 * @param depth the depth of the element, with the root at 1.
+	 */
+	void element(int depth) {
+		if (++elements > maxElements) {
+			throw new SVGLimitExceededException(SVGLimitExceededException.Limit.ELEMENTS, maxElements);
+		}
+		if (depth > maxDepth) {
+			throw new SVGLimitExceededException(SVGLimitExceededException.Limit.DEPTH, maxDepth);
+		}
+		if (elements % CLOCK_INTERVAL == 0 && resumed >= 0 && maxNanos != Long.MAX_VALUE
+				&& elapsed + System.nanoTime() - resumed > maxNanos) {
+			throw new SVGLimitExceededException(SVGLimitExceededException.Limit.PARSE_TIME, maxMillis);
+		}
+	}
+
+	/**
+	 * Counts the segments of a path drawn.
+	 */
+	void pathSegments(int count) {
+		pathSegments += count;
+		if (pathSegments > maxPathSegments) {
+			throw new SVGLimitExceededException(SVGLimitExceededException.Limit.PATH_SEGMENTS, maxPathSegments);
+		}
+	}
+
+	/**
+	 * Limits the bytes read from a stream; wrapping the inflated stream of an SVGZ stops a small file from inflating
+	 * without end.
+	 */
+	static final class LimitedInputStream extends FilterInputStream {
+		private final long max;
+		private long count = 0;
+		private long marked = 0;
+
+		LimitedInputStream(InputStream in, long max) {
+			super(in);
+			this.max = max;
+		}
+
+		private void count(long n) {
+			count += n;
+			if (count > max) {
+				throw new SVGLimitExceededException(SVGLimitExceededException.Limit.INPUT_BYTES, max);
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) {
+				count(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) {
+				count(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			final long skipped = super.skip(n);
+			count(skipped);
+			return skipped;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			super.mark(readlimit);
+			marked = count;
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			super.reset();
+			count = marked;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.larvalabs.svgandroid;
 
 import java.lang.reflect.Field;
+import java.math.BigInteger;
 
 /*
  * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
@@ -18,14 +19,23 @@ import java.lang.reflect.Field;
  */
 public class ParserHelper {
 
+	/**
+	 * The backing array of a string, read without copying it. Null where strings aren't backed by a char array (or it
+	 * can't be accessed), as on recent desktop JVMs, in which case the string is copied.
+	 */
 	private static final Field STRING_CHARS;
 	static {
+		Field field;
 		try {
-			STRING_CHARS = String.class.getDeclaredField("value");
-			STRING_CHARS.setAccessible(true);
+			field = String.class.getDeclaredField("value");
+			field.setAccessible(true);
+			if (field.getType() != char[].class) {
+				field = null;
+			}
 		} catch (Exception e) {
-			throw new RuntimeException(e);
+			field = null;
 		}
+		STRING_CHARS = field;
 	}
 
 	private final char[] s;
@@ -34,14 +44,32 @@ public class ParserHelper {
 	public int pos;
 
 	public ParserHelper(String str, int pos) {
-		try {
-			this.s = (char[]) STRING_CHARS.get(str);
-		} catch (Exception e) {
-			throw new RuntimeException(e);
-		}
+		this(str, pos, str.length());
+	}
+
+	/**
+	 * @param end where to stop reading, as if the string ended there.
+	 */
+	ParserHelper(String str, int pos, int end) {
+		this.s = chars(str);
 		this.pos = pos;
-		n = s.length;
-		current = s[pos];
+		n = end;
+		current = (pos < n) ? s[pos] : '\0';
+	}
+
+	private static char[] chars(String str) {
+		if (STRING_CHARS != null) {
+			try {
+				final char[] chars = (char[]) STRING_CHARS.get(str);
+				// Older strings may share a larger array, starting at an offset
+				if (chars.length == str.length()) {
+					return chars;
+				}
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return str.toCharArray();
 	}
 
 	private char read() {
@@ -86,306 +114,267 @@ public class ParserHelper {
 	}
 
 	/**
-	 * Parses the content of the buffer and converts it to a float.
+	 * Parses a number at the current position and converts it to the nearest float (ties to even), as
+	 * <code>Float.parseFloat</code> would. Reads an optional sign, digits with an optional decimal point, and an
+	 * optional exponent; an <code>e</code> that isn't followed by an exponent (eg. of <code>em</code>) is left
+	 * unread. Never throws: if there are no digits, returns NaN having read at most the sign and decimal point.
 	 */
 	public float parseFloat() {
-		int mant = 0;
-		int mantDig = 0;
-		boolean mantPos = true;
-		boolean mantRead = false;
-
-		int exp = 0;
-		int expDig = 0;
-		int expAdj = 0;
-		boolean expPos = true;
-
-		switch (current) {
-		case '-':
-			mantPos = false;
-			// fallthrough
-		case '+':
-			current = read();
+		// Scanned in locals, which is much faster than updating the fields for every character
+		final char[] s = this.s;
+		final int n = this.n;
+		final int start = pos;
+		int i = pos;
+		char c = current;
+		boolean negative = false;
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			c = (++i < n) ? s[i] : '\0';
 		}
 
-		m1: switch (current) {
-		default:
-			return Float.NaN;
-
-		case '.':
-			break;
-
-		case '0':
-			mantRead = true;
-			l: for (;;) {
-				current = read();
-				switch (current) {
-				case '1':
-				case '2':
-				case '3':
-				case '4':
-				case '5':
-				case '6':
-				case '7':
-				case '8':
-				case '9':
-					break l;
-				case '.':
-				case 'e':
-				case 'E':
-					break m1;
-				default:
-					return 0.0f;
-				case '0':
+		// The digits, without the decimal point, and the power of ten to scale them by. The significant digits are
+		// counted from their positions rather than as they are read, which keeps the loops short.
+		boolean digitRead = false;
+		while (c == '0') {
+			digitRead = true;
+			c = (++i < n) ? s[i] : '\0';
+		}
+		long mantissa = 0;
+		int first = i;
+		while (c >= '0' && c <= '9') {
+			mantissa = mantissa * 10 + (c - '0');
+			c = (++i < n) ? s[i] : '\0';
+		}
+		int digits = i - first;
+		int exponent = 0;
+		if (c == '.') {
+			c = (++i < n) ? s[i] : '\0';
+			final int fraction = i;
+			if (digits == 0) {
+				while (c == '0') {
+					c = (++i < n) ? s[i] : '\0';
 				}
 			}
-
-		case '1':
-		case '2':
-		case '3':
-		case '4':
-		case '5':
-		case '6':
-		case '7':
-		case '8':
-		case '9':
-			mantRead = true;
-			l: for (;;) {
-				if (mantDig < 9) {
-					mantDig++;
-					mant = mant * 10 + (current - '0');
-				} else {
-					expAdj++;
-				}
-				current = read();
-				switch (current) {
-				default:
-					break l;
-				case '0':
-				case '1':
-				case '2':
-				case '3':
-				case '4':
-				case '5':
-				case '6':
-				case '7':
-				case '8':
-				case '9':
-				}
+			first = i;
+			while (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				c = (++i < n) ? s[i] : '\0';
 			}
+			digits += i - first;
+			exponent = fraction - i;
+			digitRead |= i > fraction;
 		}
-
-		if (current == '.') {
-			current = read();
-			m2: switch (current) {
-			default:
-			case 'e':
-			case 'E':
-				if (!mantRead) {
-					reportUnexpectedCharacterError(current);
-					return 0.0f;
-				}
-				break;
-
-			case '0':
-				if (mantDig == 0) {
-					l: for (;;) {
-						current = read();
-						expAdj--;
-						switch (current) {
-						case '1':
-						case '2':
-						case '3':
-						case '4':
-						case '5':
-						case '6':
-						case '7':
-						case '8':
-						case '9':
-							break l;
-						default:
-							if (!mantRead) {
-								return 0.0f;
-							}
-							break m2;
-						case '0':
-						}
-					}
-				}
-			case '1':
-			case '2':
-			case '3':
-			case '4':
-			case '5':
-			case '6':
-			case '7':
-			case '8':
-			case '9':
-				l: for (;;) {
-					if (mantDig < 9) {
-						mantDig++;
-						mant = mant * 10 + (current - '0');
-						expAdj--;
-					}
-					current = read();
-					switch (current) {
-					default:
-						break l;
-					case '0':
-					case '1':
-					case '2':
-					case '3':
-					case '4':
-					case '5':
-					case '6':
-					case '7':
-					case '8':
-					case '9':
-					}
-				}
-			}
+		if (!digitRead && digits == 0) {
+			pos = i;
+			current = c;
+			return Float.NaN;
 		}
 
-		switch (current) {
-		case 'e':
-		case 'E':
-			current = read();
-			switch (current) {
-			default:
-				reportUnexpectedCharacterError(current);
-				return 0f;
-			case '-':
-				expPos = false;
-			case '+':
-				current = read();
-				switch (current) {
-				default:
-					reportUnexpectedCharacterError(current);
-					return 0f;
-				case '0':
-				case '1':
-				case '2':
-				case '3':
-				case '4':
-				case '5':
-				case '6':
-				case '7':
-				case '8':
-				case '9':
-				}
-			case '0':
-			case '1':
-			case '2':
-			case '3':
-			case '4':
-			case '5':
-			case '6':
-			case '7':
-			case '8':
-			case '9':
+		if (c == 'e' || c == 'E') {
+			final int e = i;
+			c = (++i < n) ? s[i] : '\0';
+			boolean exponentNegative = false;
+			if (c == '-' || c == '+') {
+				exponentNegative = c == '-';
+				c = (++i < n) ? s[i] : '\0';
 			}
-
-			en: switch (current) {
-			case '0':
-				l: for (;;) {
-					current = read();
-					switch (current) {
-					case '1':
-					case '2':
-					case '3':
-					case '4':
-					case '5':
-					case '6':
-					case '7':
-					case '8':
-					case '9':
-						break l;
-					default:
-						break en;
-					case '0':
-					}
-				}
-
-			case '1':
-			case '2':
-			case '3':
-			case '4':
-			case '5':
-			case '6':
-			case '7':
-			case '8':
-			case '9':
-				l: for (;;) {
-					if (expDig < 3) {
-						expDig++;
-						exp = exp * 10 + (current - '0');
-					}
-					current = read();
-					switch (current) {
-					default:
-						break l;
-					case '0':
-					case '1':
-					case '2':
-					case '3':
-					case '4':
-					case '5':
-					case '6':
-					case '7':
-					case '8':
-					case '9':
+			if (c >= '0' && c <= '9') {
+				int exp = 0;
+				while (c >= '0' && c <= '9') {
+					// Anything larger is zero or infinite anyway
+					if (exp < MAX_EXPONENT) {
+						exp = exp * 10 + (c - '0');
 					}
+					c = (++i < n) ? s[i] : '\0';
 				}
+				exponent += exponentNegative ? -exp : exp;
+			} else {
+				// Not an exponent: the number ends before the 'e'
+				i = e;
+				c = s[i];
 			}
-		default:
 		}
+		pos = i;
+		current = c;
 
-		if (!expPos) {
-			exp = -exp;
+		if (digits > MAX_DIGITS) {
+			// The mantissa has overflowed; rare enough to leave to the slower parser, which handles any length
+			return Float.parseFloat(new String(s, start, i - start));
 		}
-		exp += expAdj;
-		if (!mantPos) {
-			mant = -mant;
+		if (mantissa == 0) {
+			return negative ? -0f : 0f;
 		}
+		return toFloat(mantissa, exponent, negative);
+	}
 
-		return buildFloat(mant, exp);
+	/**
+	 * Parses a whole string (apart from surrounding whitespace) as a number, like <code>Float.parseFloat</code> but
+	 * without exceptions, and without its hexadecimal, <code>NaN</code>, <code>Infinity</code> or type suffix forms.
+	 * 
+	 * @return the number, or NaN if the string isn't a number.
+	 */
+	static float parseFloat(String str) {
+		return parseFloat(str, 0, str.length());
 	}
 
-	private void reportUnexpectedCharacterError(char c) {
-		throw new RuntimeException("Unexpected char '" + c + "'.");
+	/**
+	 * Parses part of a string as a number (see {@link #parseFloat(String)}), eg. without its units.
+	 * 
+	 * @return the number, or NaN if the part isn't a number.
+	 */
+	static float parseFloat(String str, int start, int end) {
+		final ParserHelper ph = new ParserHelper(str, start, end);
+		ph.skipWhitespace();
+		final float f = ph.parseFloat();
+		ph.skipWhitespace();
+		return (ph.pos == end) ? f : Float.NaN;
 	}
 
 	/**
-	 * Computes a float from mantissa and exponent.
+	 * Computes a float from mantissa and exponent, rounded to nearest.
 	 */
 	public static float buildFloat(int mant, int exp) {
-		if (exp < -125 || mant == 0) {
+		if (mant == 0) {
 			return 0.0f;
 		}
+		return toFloat(Math.abs((long) mant), exp, mant < 0);
+	}
 
-		if (exp >= 128) {
-			return (mant > 0) ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
-		}
+	/** The most significant digits that fit in the (unsigned) mantissa */
+	private static final int MAX_DIGITS = 19;
+	private static final int MAX_EXPONENT = 100000;
+
+	/** The smallest power of ten of a non-zero float with a 64 bit mantissa, and the largest of a finite one */
+	private static final int MIN_POWER = -65;
+	private static final int MAX_POWER = 38;
+	private static final int INFINITY_BITS = 0x7f800000;
+	private static final int MANTISSA_BITS = 23;
+
+	/**
+	 * The powers of five from 5^MIN_POWER to 5^MAX_POWER, normalized to 128 bits with the top bit set (as two
+	 * halves), truncated for positive powers and rounded up for negative ones, as for the Eisel-Lemire algorithm.
+	 */
+	private static final long[] POW5_HIGH = new long[MAX_POWER - MIN_POWER + 1];
+	private static final long[] POW5_LOW = new long[MAX_POWER - MIN_POWER + 1];
 
-		if (exp == 0) {
-			return mant;
+	static {
+		final BigInteger five = BigInteger.valueOf(5);
+		final BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+		for (int q = MIN_POWER; q <= MAX_POWER; q++) {
+			BigInteger c;
+			if (q >= 0) {
+				c = five.pow(q);
+				final int length = c.bitLength();
+				c = (length < 128) ? c.shiftLeft(128 - length) : c.shiftRight(length - 128);
+			} else {
+				final BigInteger power5 = five.pow(-q);
+				// The smallest z with 2^z >= 5^-q
+				int z = power5.bitLength();
+				if (power5.equals(BigInteger.ONE.shiftLeft(z - 1))) {
+					z--;
+				}
+				final int b = (q >= -27) ? z + 127 : 2 * z + 128;
+				c = BigInteger.ONE.shiftLeft(b).divide(power5).add(BigInteger.ONE);
+				if (c.bitLength() > 128) {
+					c = c.shiftRight(c.bitLength() - 128);
+				}
+			}
+			POW5_HIGH[q - MIN_POWER] = c.shiftRight(64).longValue();
+			POW5_LOW[q - MIN_POWER] = c.and(mask).longValue();
 		}
+	}
 
-		if (mant >= (1 << 26)) {
-			mant++; // round up trailing bits if they will be dropped.
+	/**
+	 * Converts <code>w * 10^q</code> to the nearest float, with the algorithm of Eisel and Lemire (see D. Lemire,
+	 * "Number Parsing at a Gigabyte per Second", 2021): the 64 bit mantissa is multiplied by a 128 bit approximation
+	 * of the power of five, which is always enough to round correctly.
+	 * 
+	 * @param w the decimal mantissa, non-zero and unsigned.
+	 */
+	private static float toFloat(long w, int q, boolean negative) {
+		int bits;
+		if (q < MIN_POWER) {
+			bits = 0;
+		} else if (q > MAX_POWER) {
+			bits = INFINITY_BITS;
+		} else if (w >= 0 && w < (1 << 24) && q >= -10 && q <= 10) {
+			// Both exactly representable, so a single (correctly rounded) float operation
+			final float f = (q >= 0) ? w * FLOAT_POW10[q] : w / FLOAT_POW10[-q];
+			return negative ? -f : f;
+		} else {
+			bits = eiselLemire(w, q);
 		}
+		return Float.intBitsToFloat(negative ? bits | 0x80000000 : bits);
+	}
+
+	private static final float[] FLOAT_POW10 = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
 
-		return (float) ((exp > 0) ? mant * pow10[exp] : mant / pow10[-exp]);
+	/**
+	 * @return the bits of the float nearest to <code>w * 10^q</code>.
+	 */
+	private static int eiselLemire(long w, int q) {
+		final int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+		final int index = q - MIN_POWER;
+		long high = multiplyHigh(w, POW5_HIGH[index]);
+		long low = w * POW5_HIGH[index];
+		// Only when the bits below those kept are all ones could the low half of the power carry in to them
+		final long precisionMask = 0xffffffffffffffffL >>> (MANTISSA_BITS + 3);
+		if ((high & precisionMask) == precisionMask) {
+			final long carry = multiplyHigh(w, POW5_LOW[index]);
+			low += carry;
+			if (unsignedLess(low, carry)) {
+				high++;
+			}
+		}
+		final int upperBit = (int) (high >>> 63);
+		final int shift = upperBit + 64 - MANTISSA_BITS - 3;
+		long mantissa = high >>> shift;
+		int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz + 127;
+		if (power2 <= 0) {
+			// Subnormal
+			if (-power2 + 1 >= 64) {
+				return 0;
+			}
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+			power2 = (mantissa < (1L << MANTISSA_BITS)) ? 0 : 1;
+			return (int) mantissa | (power2 << MANTISSA_BITS);
+		}
+		// Exactly halfway between two floats (only possible for these powers): round to even rather than up
+		if (!unsignedLess(1, low) && q >= -17 && q <= 10 && (mantissa & 3) == 1 && (mantissa << shift) == high) {
+			mantissa &= ~1L;
+		}
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= (2L << MANTISSA_BITS)) {
+			mantissa = 1L << MANTISSA_BITS;
+			power2++;
+		}
+		mantissa &= ~(1L << MANTISSA_BITS);
+		if (power2 >= 0xff) {
+			return INFINITY_BITS;
+		}
+		return (int) mantissa | (power2 << MANTISSA_BITS);
 	}
 
 	/**
-	 * Array of powers of ten. Using double instead of float gives a tiny bit more precision.
+	 * @return the high 64 bits of the unsigned 128 bit product.
 	 */
-	private static final double[] pow10 = new double[128];
+	private static long multiplyHigh(long a, long b) {
+		final long a0 = a & 0xffffffffL;
+		final long a1 = a >>> 32;
+		final long b0 = b & 0xffffffffL;
+		final long b1 = b >>> 32;
+		final long p01 = a0 * b1;
+		final long p10 = a1 * b0;
+		final long middle = ((a0 * b0) >>> 32) + (p01 & 0xffffffffL) + (p10 & 0xffffffffL);
+		return a1 * b1 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+	}
 
-	static {
-		for (int i = 0; i < pow10.length; i++) {
-			pow10[i] = Math.pow(10, i);
-		}
+	private static boolean unsignedLess(long a, long b) {
+		return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
 	}
 
 	public float nextFloat() {
@@ -0,0 +1,282 @@
+package com.larvalabs.svgandroid;
+
+/**
+ * A compact, platform independent record of the segments of a path: lines, quadratic and cubic B&eacute;ziers (arcs
+ * are converted to cubics). Kept alongside the <code>android.graphics.Path</code> so that the geometry can be measured
+ * exactly under any transform, which the native path cannot do, and so that renderers other than the Android canvas
+ * can draw it (see {@link #replay(Sink)}).
+ */
+public final class PathGeometry {
+
+	/**
+	 * Receives the segments of a path, in order. Coordinates are in the path's own (user) space.
+	 */
+	public interface Sink {
+		void moveTo(float x, float y);
+
+		void lineTo(float x, float y);
+
+		void quadTo(float x1, float y1, float x, float y);
+
+		void cubicTo(float x1, float y1, float x2, float y2, float x, float y);
+
+		void close();
+	}
+
+	static final byte MOVE = 0;
+	static final byte LINE = 1;
+	static final byte QUAD = 2;
+	static final byte CUBIC = 3;
+	static final byte CLOSE = 4;
+
+	private byte[] verbs = new byte[16];
+	private int verbCount = 0;
+	private float[] coords = new float[32];
+	private int coordCount = 0;
+
+	PathGeometry() {
+	}
+
+	void moveTo(float x, float y) {
+		verb(MOVE);
+		coords(2);
+		coords[coordCount++] = x;
+		coords[coordCount++] = y;
+	}
+
+	void lineTo(float x, float y) {
+		verb(LINE);
+		coords(2);
+		coords[coordCount++] = x;
+		coords[coordCount++] = y;
+	}
+
+	void quadTo(float x1, float y1, float x, float y) {
+		verb(QUAD);
+		coords(4);
+		coords[coordCount++] = x1;
+		coords[coordCount++] = y1;
+		coords[coordCount++] = x;
+		coords[coordCount++] = y;
+	}
+
+	void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+		verb(CUBIC);
+		coords(6);
+		coords[coordCount++] = x1;
+		coords[coordCount++] = y1;
+		coords[coordCount++] = x2;
+		coords[coordCount++] = y2;
+		coords[coordCount++] = x;
+		coords[coordCount++] = y;
+	}
+
+	void close() {
+		verb(CLOSE);
+	}
+
+	/**
+	 * Converts an SVG elliptical arc, as described by the endpoint parameterisation of the <code>A</code> path command,
+	 * to at most four cubics (one per quarter turn), computed directly in the path's space. See <a
+	 * href="http://www.w3.org/TR/SVG/implnote.html#ArcImplementationNotes">the SVG implementation notes</a>.
+	 * 
+	 * @param x0 the current point, where the arc starts.
+	 * @param y0 the current point, where the arc starts.
+	 * @param sink receives the cubics (or a line, if a radius is zero).
+	 */
+	static void arcTo(float x0, float y0, float rx, float ry, float angle, boolean largeArc, boolean sweep, float x,
+			float y, Sink sink) {
+		if (x0 == x && y0 == y) {
+			return;
+		}
+		if (rx == 0 || ry == 0) {
+			sink.lineTo(x, y);
+			return;
+		}
+		double rxd = Math.abs(rx);
+		double ryd = Math.abs(ry);
+		final double phi = Math.toRadians(angle % 360);
+		final double cos = Math.cos(phi);
+		final double sin = Math.sin(phi);
+
+		// Step 1: compute (x1', y1')
+		final double dx2 = (x0 - x) / 2.0;
+		final double dy2 = (y0 - y) / 2.0;
+		final double x1p = cos * dx2 + sin * dy2;
+		final double y1p = -sin * dx2 + cos * dy2;
+
+		// Correct out of range radii
+		final double x1ps = x1p * x1p;
+		final double y1ps = y1p * y1p;
+		double rxs = rxd * rxd;
+		double rys = ryd * ryd;
+		final double lambda = x1ps / rxs + y1ps / rys;
+		if (lambda > 1) {
+			final double s = Math.sqrt(lambda);
+			rxd *= s;
+			ryd *= s;
+			rxs = rxd * rxd;
+			rys = ryd * ryd;
+		}
+
+		// Step 2: compute (cx', cy')
+		final double num = rxs * rys - rxs * y1ps - rys * x1ps;
+		final double den = rxs * y1ps + rys * x1ps;
+		double coef = (num <= 0 || den == 0) ? 0 : Math.sqrt(num / den);
+		if (largeArc == sweep) {
+			coef = -coef;
+		}
+		final double cxp = coef * rxd * y1p / ryd;
+		final double cyp = -coef * ryd * x1p / rxd;
+
+		// Step 3: compute (cx, cy)
+		final double cx = cos * cxp - sin * cyp + (x0 + x) / 2.0;
+		final double cy = sin * cxp + cos * cyp + (y0 + y) / 2.0;
+
+		// Step 4: compute the start angle and the sweep
+		final double ux = (x1p - cxp) / rxd;
+		final double uy = (y1p - cyp) / ryd;
+		final double vx = (-x1p - cxp) / rxd;
+		final double vy = (-y1p - cyp) / ryd;
+		final double theta1 = Math.atan2(uy, ux);
+		double dtheta = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+		if (!sweep && dtheta > 0) {
+			dtheta -= 2 * Math.PI;
+		} else if (sweep && dtheta < 0) {
+			dtheta += 2 * Math.PI;
+		}
+
+		// Split in to segments of at most 90 degrees, each approximated by a cubic
+		final int segments = Math.max(1, (int) Math.ceil(Math.abs(dtheta) / (Math.PI / 2) - 1e-7));
+		final double delta = dtheta / segments;
+		final double t = 4.0 / 3.0 * Math.tan(delta / 4);
+		double a1 = theta1;
+		double cos1 = Math.cos(a1);
+		double sin1 = Math.sin(a1);
+		for (int i = 0; i < segments; i++) {
+			final double a2 = a1 + delta;
+			final double cos2 = Math.cos(a2);
+			final double sin2 = Math.sin(a2);
+			// Control points on the unit circle, then mapped on to the ellipse
+			final double p1x = cos1 - t * sin1;
+			final double p1y = sin1 + t * cos1;
+			final double p2x = cos2 + t * sin2;
+			final double p2y = sin2 - t * cos2;
+			final boolean last = (i == segments - 1);
+			sink.cubicTo((float) (cx + rxd * cos * p1x - ryd * sin * p1y),
+					(float) (cy + rxd * sin * p1x + ryd * cos * p1y), (float) (cx + rxd * cos * p2x - ryd * sin * p2y),
+					(float) (cy + rxd * sin * p2x + ryd * cos * p2y),
+					last ? x : (float) (cx + rxd * cos * cos2 - ryd * sin * sin2),
+					last ? y : (float) (cy + rxd * sin * cos2 + ryd * cos * sin2));
+			a1 = a2;
+			cos1 = cos2;
+			sin1 = sin2;
+		}
+	}
+
+	/**
+	 * @return the number of segments (including moves and closes) in the path.
+	 */
+	public int getVerbCount() {
+		return verbCount;
+	}
+
+	public boolean isEmpty() {
+		return verbCount == 0;
+	}
+
+	/**
+	 * @return the number of coordinates (twice the number of points) in the path.
+	 */
+	int getCoordCount() {
+		return coordCount;
+	}
+
+	/**
+	 * Measures the geometry, adding it to the given bounds.
+	 */
+	void addTo(ExactBounds bounds) {
+		final float[] c = coords;
+		int ci = 0;
+		float x = 0, y = 0;
+		float sx = 0, sy = 0;
+		for (int i = 0; i < verbCount; i++) {
+			switch (verbs[i]) {
+			case MOVE:
+				sx = x = c[ci++];
+				sy = y = c[ci++];
+				bounds.point(x, y);
+				break;
+			case LINE:
+				x = c[ci++];
+				y = c[ci++];
+				bounds.point(x, y);
+				break;
+			case QUAD:
+				bounds.quad(x, y, c[ci], c[ci + 1], c[ci + 2], c[ci + 3]);
+				x = c[ci + 2];
+				y = c[ci + 3];
+				ci += 4;
+				break;
+			case CUBIC:
+				bounds.cubic(x, y, c[ci], c[ci + 1], c[ci + 2], c[ci + 3], c[ci + 4], c[ci + 5]);
+				x = c[ci + 4];
+				y = c[ci + 5];
+				ci += 6;
+				break;
+			case CLOSE:
+				x = sx;
+				y = sy;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Passes the segments of the path to the given sink, in order.
+	 */
+	public void replay(Sink sink) {
+		final float[] c = coords;
+		int ci = 0;
+		for (int i = 0; i < verbCount; i++) {
+			switch (verbs[i]) {
+			case MOVE:
+				sink.moveTo(c[ci], c[ci + 1]);
+				ci += 2;
+				break;
+			case LINE:
+				sink.lineTo(c[ci], c[ci + 1]);
+				ci += 2;
+				break;
+			case QUAD:
+				sink.quadTo(c[ci], c[ci + 1], c[ci + 2], c[ci + 3]);
+				ci += 4;
+				break;
+			case CUBIC:
+				sink.cubicTo(c[ci], c[ci + 1], c[ci + 2], c[ci + 3], c[ci + 4], c[ci + 5]);
+				ci += 6;
+				break;
+			case CLOSE:
+				sink.close();
+				break;
+			}
+		}
+	}
+
+	private void verb(byte verb) {
+		if (verbCount == verbs.length) {
+			byte[] v = new byte[verbCount * 2];
+			System.arraycopy(verbs, 0, v, 0, verbCount);
+			verbs = v;
+		}
+		verbs[verbCount++] = verb;
+	}
+
+	private void coords(int n) {
+		if (coordCount + n > coords.length) {
+			float[] c = new float[Math.max(coords.length * 2, coordCount + n)];
+			System.arraycopy(coords, 0, c, 0, coordCount);
+			coords = c;
+		}
+	}
+}
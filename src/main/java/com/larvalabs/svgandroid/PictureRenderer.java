@@ -0,0 +1,34 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Picture;
+
+/**
+ * The default renderer, which records the drawing in to an <code>android.graphics.Picture</code>.
+ */
+public class PictureRenderer extends CanvasRenderer {
+
+	private final Picture picture;
+
+	/**
+	 * @param picture the picture to record in to; recording begins with the document.
+	 */
+	public PictureRenderer(Picture picture) {
+		super(null);
+		this.picture = picture;
+	}
+
+	public Picture getPicture() {
+		return picture;
+	}
+
+	@Override
+	public void beginDocument(int width, int height) {
+		canvas = picture.beginRecording(width, height);
+	}
+
+	@Override
+	public void endDocument() {
+		picture.endRecording();
+		canvas = null;
+	}
+}
@@ -1,10 +1,15 @@
 package com.larvalabs.svgandroid;
 
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Picture;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.PictureDrawable;
 
+import java.util.Collections;
+import java.util.Map;
+
 /*
  * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
  * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
@@ -19,12 +24,44 @@ import android.graphics.drawable.PictureDrawable;
  * 
  * @author Larva Labs, LLC
  */
-public class SVG {
+public class SVG implements SVGMemoryBudget.Cache {
+
+	/**
+	 * One of the pictures a document is recorded in to when its layers are recorded separately: a top-level group, or
+	 * the content between two of them.
+	 */
+	static final class Layer {
+		final Picture picture;
+		/** The group's id, or null if it has none */
+		final String id;
+		/** Whether this is a group (rather than the content between groups, which is always drawn) */
+		final boolean group;
+		boolean visible;
+		float opacity = 1f;
+
+		Layer(Picture picture, String id, boolean group, boolean visible) {
+			this.picture = picture;
+			this.id = id;
+			this.group = group;
+			this.visible = visible;
+		}
+	}
+
+	/**
+	 * The parsed Picture object. For a document recorded in layers, the layers composed as they are currently shown;
+	 * null until needed.
+	 */
+	private Picture picture;
+
+	/**
+	 * The pictures the document was recorded in to, in drawing order, or null if it was recorded in to one picture.
+	 */
+	private final Layer[] parts;
 
 	/**
-	 * The parsed Picture object.
+	 * The top-level groups in <code>parts</code>.
 	 */
-	private final Picture picture;
+	private final Layer[] layers;
 
 	/**
 	 * These are the bounds for the SVG specified as a hidden "bounds" layer in the SVG.
@@ -37,8 +74,37 @@ public class SVG {
 	 */
 	private RectF limits = null;
 
+	/**
+	 * Tight bounds of everything drawn, computed from the transformed geometry. Null for an empty SVG.
+	 */
+	private RectF exactLimits = null;
+
 	private PictureDrawable drawable = null;
 
+	/**
+	 * The last raster from {@link #getBitmap(int, int)}, or null.
+	 */
+	private Bitmap bitmap = null;
+
+	/**
+	 * The estimated memory retained by the recorded pictures, styles and element index.
+	 */
+	private long recordedSize = 0;
+
+	private SVGParseStatistics parseStatistics = null;
+
+	private SVGParseMetrics parseMetrics = null;
+
+	/**
+	 * The budget the caches are kept within, or null if they are kept until released.
+	 */
+	private SVGMemoryBudget memoryBudget = null;
+
+	/**
+	 * Named elements by id, if the element index was enabled when parsing.
+	 */
+	private Map<String, SVGElement> elements = null;
+
 	/**
 	 * Construct a new SVG.
 	 * 
@@ -48,6 +114,32 @@ public class SVG {
 	SVG(Picture picture, RectF bounds) {
 		this.picture = picture;
 		this.bounds = bounds;
+		this.parts = null;
+		this.layers = new Layer[0];
+	}
+
+	/**
+	 * Construct a new SVG recorded in layers.
+	 * 
+	 * @param parts the pictures of the top-level groups and of the content between them, in drawing order.
+	 * @param bounds the bounds computed from the "bounds" layer in the SVG.
+	 */
+	SVG(Layer[] parts, RectF bounds) {
+		this.parts = parts;
+		this.bounds = bounds;
+		int count = 0;
+		for (Layer part : parts) {
+			if (part.group) {
+				count++;
+			}
+		}
+		layers = new Layer[count];
+		count = 0;
+		for (Layer part : parts) {
+			if (part.group) {
+				layers[count++] = part;
+			}
+		}
 	}
 
 	/**
@@ -59,6 +151,42 @@ public class SVG {
 		this.limits = limits;
 	}
 
+	/**
+	 * Set the exact limits of the SVG, computed by the parser from the transformed geometry.
+	 */
+	void setExactLimits(RectF exactLimits) {
+		this.exactLimits = exactLimits;
+	}
+
+	void setRecordedSize(long recordedSize) {
+		this.recordedSize = recordedSize;
+	}
+
+	void setParseMetrics(SVGParseMetrics parseMetrics) {
+		this.parseMetrics = parseMetrics;
+	}
+
+	void setParseStatistics(SVGParseStatistics parseStatistics) {
+		this.parseStatistics = parseStatistics;
+	}
+
+	void setMemoryBudget(SVGMemoryBudget memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Tells the budget, if there is one, that the caches have been used.
+	 */
+	private void used() {
+		if (memoryBudget != null) {
+			memoryBudget.used(this);
+		}
+	}
+
+	void setElements(Map<String, SVGElement> elements) {
+		this.elements = (elements == null) ? null : Collections.unmodifiableMap(elements);
+	}
+
 	/**
 	 * Get a {@link Drawable} of the SVG.
 	 * 
@@ -66,7 +194,7 @@ public class SVG {
 	 */
 	public PictureDrawable getDrawable() {
 		if (drawable == null) {
-			drawable = new PictureDrawable(picture);
+			drawable = new PictureDrawable(getPicture());
 		}
 		return drawable;
 		// return new PictureDrawable(picture) {
@@ -95,14 +223,257 @@ public class SVG {
 	}
 
 	/**
-	 * Get the parsed SVG picture data.
+	 * Get the parsed SVG picture data. For a document recorded in layers (see
+	 * {@link SVGBuilder#setRecordLayers(boolean)}), this is a picture of the layers as they are currently shown, which
+	 * is recorded again (from the layers' pictures) the first time it is needed after a layer is changed; pictures and
+	 * drawables got before the change are unaffected by it. {@link #draw(Canvas)} doesn't need the picture.
 	 * 
-	 * @return the picture.
+	 * @return the picture, or null if the SVG was drawn to another renderer (see
+	 *         {@link SVGBuilder#setRenderer(SVGRenderer)}).
 	 */
 	public Picture getPicture() {
+		if (picture == null && parts != null) {
+			final Picture first = parts[0].picture;
+			picture = new Picture();
+			drawLayers(picture.beginRecording(first.getWidth(), first.getHeight()));
+			picture.endRecording();
+			// The budget may release the picture, if it's larger than the budget
+			final Picture result = picture;
+			used();
+			return result;
+		}
 		return picture;
 	}
 
+	/**
+	 * @return a picture with the size of the document: the picture, or one of the layers, or null if the SVG was drawn
+	 *         to another renderer.
+	 */
+	Picture getRecordedPicture() {
+		return (parts != null) ? parts[0].picture : picture;
+	}
+
+	/**
+	 * Gets a raster of the SVG, scaled to the given size, which is cached until another size is asked for, a layer is
+	 * changed, or the caches are released (by {@link #releaseCaches()} or the
+	 * {@link SVGBuilder#setMemoryBudget(SVGMemoryBudget) memory budget}). Drawing a bitmap is much faster than playing
+	 * back a picture, and works with hardware acceleration; the cost is its memory (4 bytes per pixel).
+	 * The cached bitmap is never recycled, as it may still be drawn.
+	 * 
+	 * @param width the width of the bitmap.
+	 * @param height the height of the bitmap.
+	 * @return the bitmap, which must not be modified.
+	 * @throws IllegalStateException if the SVG was drawn to another renderer (so has no picture).
+	 */
+	public Bitmap getBitmap(int width, int height) {
+		if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height) {
+			final Picture picture = getRecordedPicture();
+			if (picture == null) {
+				throw new IllegalStateException("The SVG was drawn to another renderer, so has no picture.");
+			}
+			// Let the old raster go before allocating the new one
+			bitmap = null;
+			final Bitmap raster = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+			final Canvas canvas = new Canvas(raster);
+			if (picture.getWidth() > 0 && picture.getHeight() > 0) {
+				canvas.scale(width / (float) picture.getWidth(), height / (float) picture.getHeight());
+			}
+			draw(canvas);
+			bitmap = raster;
+		}
+		final Bitmap result = bitmap;
+		used();
+		return result;
+	}
+
+	/**
+	 * Gets an estimate of the memory the SVG retains: its recorded pictures (operations, path points and verbs, text),
+	 * paints, path effects and shaders, element index, and whatever it has cached (see {@link #getCachedSize()}). It
+	 * is computed while parsing, from what is recorded, rather than measured.
+	 * 
+	 * @return the estimated size in bytes, or just that of the element index and caches if the SVG was drawn to
+	 *         another renderer.
+	 */
+	public long getEstimatedSize() {
+		return recordedSize + getCachedSize();
+	}
+
+	/**
+	 * Gets the estimated memory of what the SVG has cached, and could be made again without parsing: its bitmap and
+	 * (for a document recorded in layers) composed picture. The drawable isn't counted, as it shares the picture.
+	 * 
+	 * @return the estimated size in bytes.
+	 */
+	public long getCachedSize() {
+		long size = 0;
+		if (parts != null && picture != null) {
+			size += MemoryEstimate.PICTURE + parts.length * MemoryEstimate.OP;
+		}
+		if (bitmap != null) {
+			size += (long) bitmap.getRowBytes() * bitmap.getHeight();
+		}
+		return size;
+	}
+
+	/**
+	 * Drops the bitmap and composed picture (and the drawable, which would keep the picture), which are made again when
+	 * next needed. Drawables, bitmaps and pictures got before are unaffected. This is done by the
+	 * {@link SVGBuilder#setMemoryBudget(SVGMemoryBudget) memory budget}, if there is one, when memory is short.
+	 */
+	public void releaseCaches() {
+		drawable = null;
+		bitmap = null;
+		if (parts != null) {
+			picture = null;
+		}
+	}
+
+	/**
+	 * Draws the SVG, with its layers as they are currently shown.
+	 * 
+	 * @param canvas the canvas to draw on.
+	 */
+	public void draw(Canvas canvas) {
+		if (parts == null) {
+			if (picture != null) {
+				canvas.drawPicture(picture);
+			}
+		} else {
+			drawLayers(canvas);
+		}
+	}
+
+	private void drawLayers(Canvas canvas) {
+		for (Layer part : parts) {
+			if (!part.visible || part.opacity <= 0f) {
+				continue;
+			}
+			if (part.opacity >= 1f) {
+				canvas.drawPicture(part.picture);
+			} else {
+				// The whole layer fades, rather than each of its shapes
+				canvas.saveLayerAlpha(0, 0, part.picture.getWidth(), part.picture.getHeight(),
+						Math.round(255 * part.opacity), Canvas.ALL_SAVE_FLAG);
+				canvas.drawPicture(part.picture);
+				canvas.restore();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of layers (top-level groups) of a document recorded in layers.
+	 * 
+	 * @return the number of layers, or 0 if the document wasn't recorded in layers (see
+	 *         {@link SVGBuilder#setRecordLayers(boolean)}).
+	 */
+	public int getLayerCount() {
+		return layers.length;
+	}
+
+	/**
+	 * @param index the index of the layer, in drawing order.
+	 * @return the id of the layer's group, or null if it has none.
+	 */
+	public String getLayerId(int index) {
+		return layers[index].id;
+	}
+
+	/**
+	 * @param id the id of a layer's group.
+	 * @return the index of the first layer with that id, or -1 if there is none.
+	 */
+	public int getLayerIndex(String id) {
+		for (int i = 0; i < layers.length; i++) {
+			if (id.equals(layers[i].id)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param index the index of the layer, in drawing order.
+	 * @return whether the layer is drawn. Layers that are hidden in the document (with <code>display="none"</code>)
+	 *         start hidden.
+	 */
+	public boolean isLayerVisible(int index) {
+		return layers[index].visible;
+	}
+
+	/**
+	 * Shows or hides a layer, without parsing the document again.
+	 * 
+	 * @param index the index of the layer, in drawing order.
+	 */
+	public void setLayerVisible(int index, boolean visible) {
+		final Layer layer = layers[index];
+		if (layer.visible != visible) {
+			layer.visible = visible;
+			changed();
+		}
+	}
+
+	/**
+	 * Shows or hides a layer, without parsing the document again.
+	 * 
+	 * @param id the id of the layer's group.
+	 * @throws IllegalArgumentException if there is no layer with that id.
+	 */
+	public void setLayerVisible(String id, boolean visible) {
+		setLayerVisible(layerIndex(id), visible);
+	}
+
+	/**
+	 * @param index the index of the layer, in drawing order.
+	 * @return the opacity the layer is drawn with, on top of the opacities in the document.
+	 */
+	public float getLayerOpacity(int index) {
+		return layers[index].opacity;
+	}
+
+	/**
+	 * Sets the opacity a layer is drawn with, without parsing the document again. It applies to the layer as a whole
+	 * (so overlapping shapes of a faded layer don't show through each other), on top of the opacities in the
+	 * document. Drawing a partly transparent layer needs an offscreen buffer the size of the picture.
+	 * 
+	 * @param index the index of the layer, in drawing order.
+	 * @param opacity the opacity, from 0 (not drawn) to 1 (the default).
+	 */
+	public void setLayerOpacity(int index, float opacity) {
+		final Layer layer = layers[index];
+		opacity = Math.max(0f, Math.min(1f, opacity));
+		if (layer.opacity != opacity) {
+			layer.opacity = opacity;
+			changed();
+		}
+	}
+
+	/**
+	 * Sets the opacity a layer is drawn with, without parsing the document again.
+	 * 
+	 * @param id the id of the layer's group.
+	 * @throws IllegalArgumentException if there is no layer with that id.
+	 * @see #setLayerOpacity(int, float)
+	 */
+	public void setLayerOpacity(String id, float opacity) {
+		setLayerOpacity(layerIndex(id), opacity);
+	}
+
+	private int layerIndex(String id) {
+		final int index = getLayerIndex(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("No layer with id '" + id + "'.");
+		}
+		return index;
+	}
+
+	/**
+	 * Drops the composed picture (and what was made from it) after a layer has changed.
+	 */
+	private void changed() {
+		releaseCaches();
+	}
+
 	/**
 	 * Gets the bounding rectangle for the SVG, if one was specified.
 	 * 
@@ -121,4 +492,60 @@ public class SVG {
 	public RectF getLimits() {
 		return limits;
 	}
+
+	/**
+	 * Gets the tight bounding rectangle of everything drawn in the SVG. Unlike {@link #getLimits()} this is computed
+	 * from curve extrema of the transformed geometry (rather than transformed control-point boxes) and includes the
+	 * stroke width and text. Miter joins that extend past the stroke width are not accounted for.
+	 * 
+	 * @return rectangle representing the computed bounds, or null for an empty SVG.
+	 */
+	public RectF getExactLimits() {
+		return exactLimits;
+	}
+
+	/**
+	 * Gets the statistics gathered while parsing this SVG, such as how well paints and shaders were deduplicated.
+	 * 
+	 * @return the parse statistics.
+	 */
+	public SVGParseStatistics getParseStatistics() {
+		return parseStatistics;
+	}
+
+	/**
+	 * Gets the detailed timings and counts measured while parsing this SVG.
+	 * 
+	 * @return the parse metrics, or null if they weren't requested with
+	 *         {@link SVGBuilder#setMetricsListener(SVGParseMetrics.Listener)}.
+	 */
+	public SVGParseMetrics getParseMetrics() {
+		return parseMetrics;
+	}
+
+	/**
+	 * Gets a named element of the SVG, giving access to its geometry, bounds, paint and enclosing groups. Requires
+	 * {@link SVGBuilder#setIndexElements(boolean)} to have been enabled.
+	 * 
+	 * @param id the element's id attribute.
+	 * @return the element, or null if there is no drawn element with that id.
+	 * @throws IllegalStateException if the element index was not enabled.
+	 */
+	public SVGElement getElement(String id) {
+		return getElements().get(id);
+	}
+
+	/**
+	 * Gets all named elements of the SVG, by id. Requires {@link SVGBuilder#setIndexElements(boolean)} to have been
+	 * enabled.
+	 * 
+	 * @return an unmodifiable map of elements by id.
+	 * @throws IllegalStateException if the element index was not enabled.
+	 */
+	public Map<String, SVGElement> getElements() {
+		if (elements == null) {
+			throw new IllegalStateException("Element index not available. Call SVGBuilder.setIndexElements(true).");
+		}
+		return elements;
+	}
 }
@@ -0,0 +1,564 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Picture;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import com.larvalabs.svgandroid.AnimationRecorder.Op;
+
+/**
+ * An SVG with SMIL animations (the subset supported is described below), drawn at any time. The document is split in
+ * to layers: the static content between animated elements is recorded once in to pictures, and each animated element
+ * (with its content) is only recorded again when its animated values change, so the cost of a frame depends on the
+ * number of animated elements rather than on the size of the document.
+ *
+ * <pre>
+ * SVGAnimation animation = new SVGBuilder().readFromResource(getResources(), R.raw.spinner).buildAnimation();
+ * ...
+ * protected void onDraw(Canvas canvas) {
+ * 	animation.draw(canvas, (SystemClock.uptimeMillis() - startTime) / 1000f);
+ * 	invalidate();
+ * }
+ * </pre>
+ *
+ * The animations supported are <code>animate</code> of <code>opacity</code> and <code>fill</code> and
+ * <code>animateTransform</code>, of the element containing them; with <code>values</code> (and <code>keyTimes</code>)
+ * or <code>from</code>/<code>to</code>/<code>by</code>, linear or discrete interpolation, offset <code>begin</code>
+ * times, <code>dur</code>, <code>repeatCount</code>, <code>repeatDur</code>, <code>fill="freeze"</code> and
+ * <code>additive="sum"</code>. An animated fill replaces the fill of everything inside the element. Animations of the
+ * root element, or inside <code>defs</code> and <code>symbol</code>, are ignored.
+ * <p/>
+ * An animation isn't thread safe: draw it from one thread at a time.
+ */
+public class SVGAnimation {
+
+	/**
+	 * An element with animations, and the range of recorded operations it draws.
+	 */
+	static final class AnimatedElement {
+		final int start;
+		int end;
+		/** The element's own transform, which an animated transform replaces; null for none */
+		private final Matrix base;
+		private final float baseOpacity;
+		final ArrayList<Animate> animations = new ArrayList<Animate>();
+		/** The animated elements inside this one, in order */
+		AnimatedElement[] children;
+
+		// The values at the time last evaluated
+		private float alpha = 1f;
+		private boolean filled = false;
+		private int fill;
+		private boolean transformed = false;
+		/** Maps the parent's user space to the animated element's, before its own transform */
+		private final Matrix transform = new Matrix();
+
+		private final Matrix animated = new Matrix();
+		private final Matrix step = new Matrix();
+		private final Matrix inverse;
+		private final float[] value = new float[3];
+
+		AnimatedElement(int start, Matrix base, float baseOpacity) {
+			this.start = start;
+			this.base = base;
+			this.baseOpacity = baseOpacity;
+			if (base != null) {
+				inverse = new Matrix();
+				if (!base.invert(inverse)) {
+					// A singular transform draws nothing, whatever it is animated to
+					inverse.setScale(0f, 0f);
+				}
+			} else {
+				inverse = null;
+			}
+		}
+
+		/**
+		 * Samples the animations of the element and of those inside it.
+		 *
+		 * @return whether any value changed since the last evaluation.
+		 */
+		boolean evaluate(float time) {
+			float opacity = baseOpacity;
+			boolean newFilled = false;
+			int newFill = 0;
+			boolean newTransformed = false;
+			for (Animate animation : animations) {
+				if (!animation.sample(time, value)) {
+					continue;
+				}
+				switch (animation.type) {
+				case Animate.OPACITY:
+					opacity = animation.additive ? opacity + value[0] : value[0];
+					break;
+				case Animate.FILL:
+					newFilled = true;
+					newFill = Color.rgb(channel(value[0]), channel(value[1]), channel(value[2]));
+					break;
+				default:
+					if (!newTransformed) {
+						newTransformed = true;
+						if (base == null) {
+							animated.reset();
+						} else {
+							animated.set(base);
+						}
+					}
+					animation.getTransform(value, step);
+					if (animation.additive) {
+						animated.preConcat(step);
+					} else {
+						animated.set(step);
+					}
+				}
+			}
+			// The element's content is recorded without its own opacity
+			final float newAlpha = Math.max(0f, Math.min(1f, opacity));
+			if (newTransformed && inverse != null) {
+				animated.preConcat(inverse);
+			}
+
+			boolean changed = newAlpha != alpha || newFilled != filled || (newFilled && newFill != fill)
+					|| newTransformed != transformed || (newTransformed && !animated.equals(transform));
+			alpha = newAlpha;
+			filled = newFilled;
+			fill = newFill;
+			transformed = newTransformed;
+			if (newTransformed) {
+				transform.set(animated);
+			}
+			for (AnimatedElement child : children) {
+				changed |= child.evaluate(time);
+			}
+			return changed;
+		}
+
+		private static int channel(float value) {
+			return Math.max(0, Math.min(255, Math.round(value)));
+		}
+
+		/**
+		 * Draws the element with its values at the time last evaluated.
+		 *
+		 * @param alpha the opacity multiplier of the enclosing animated elements.
+		 * @param filled whether an enclosing animated element overrides the fill colour.
+		 */
+		void play(Op[] ops, SVGRenderer renderer, float alpha, boolean filled, int fill) {
+			alpha *= this.alpha;
+			if (this.filled) {
+				filled = true;
+				fill = this.fill;
+			}
+			if (transformed) {
+				final int count = renderer.save();
+				renderer.concat(transform);
+				SVGAnimation.play(ops, start, end, children, renderer, alpha, filled, fill);
+				renderer.restoreToCount(count);
+			} else {
+				SVGAnimation.play(ops, start, end, children, renderer, alpha, filled, fill);
+			}
+		}
+
+		int count() {
+			int count = 1;
+			for (AnimatedElement child : children) {
+				count += child.count();
+			}
+			return count;
+		}
+
+		float getEnd() {
+			float end = 0f;
+			for (Animate animation : animations) {
+				end = Math.max(end, animation.getEnd());
+			}
+			for (AnimatedElement child : children) {
+				end = Math.max(end, child.getEnd());
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * A run of operations, drawn after re-establishing the matrix and clip in effect where it starts.
+	 */
+	private abstract class Layer {
+		/** The saves, transforms and clips open where the layer starts */
+		final Op[] state;
+
+		Layer(Op[] state) {
+			this.state = state;
+		}
+
+		abstract void draw(Canvas canvas, float time);
+
+		/**
+		 * Draws the layer with the values last evaluated.
+		 */
+		abstract void play(SVGRenderer renderer);
+
+		/**
+		 * Records the layer in to a new picture.
+		 */
+		Picture record() {
+			final Picture picture = new Picture();
+			final PictureRenderer renderer = new PictureRenderer(picture);
+			renderer.beginDocument(width, height);
+			play(renderer);
+			renderer.endDocument();
+			return picture;
+		}
+	}
+
+	private final class StaticLayer extends Layer {
+		private final int from, to;
+		private final Picture picture;
+
+		StaticLayer(Op[] state, int from, int to) {
+			super(state);
+			this.from = from;
+			this.to = to;
+			picture = record();
+		}
+
+		@Override
+		void draw(Canvas canvas, float time) {
+			canvas.drawPicture(picture);
+		}
+
+		@Override
+		void play(SVGRenderer renderer) {
+			final int count = renderer.save();
+			SVGAnimation.play(state, 0, state.length, null, renderer, 1f, false, 0);
+			SVGAnimation.play(ops, from, to, null, renderer, 1f, false, 0);
+			renderer.restoreToCount(count);
+		}
+	}
+
+	private final class AnimatedLayer extends Layer {
+		private final AnimatedElement element;
+		/** The element recorded at the time last drawn, or null if it must be recorded again */
+		private Picture picture = null;
+
+		AnimatedLayer(Op[] state, AnimatedElement element) {
+			super(state);
+			this.element = element;
+		}
+
+		@Override
+		void draw(Canvas canvas, float time) {
+			if (element.evaluate(time) || picture == null) {
+				// A new picture, as the last one may still be referenced by the last frame drawn
+				picture = record();
+			}
+			canvas.drawPicture(picture);
+		}
+
+		@Override
+		void play(SVGRenderer renderer) {
+			final int count = renderer.save();
+			SVGAnimation.play(state, 0, state.length, null, renderer, 1f, false, 0);
+			element.play(ops, renderer, 1f, false, 0);
+			renderer.restoreToCount(count);
+		}
+	}
+
+	/**
+	 * Draws with another renderer, substituting that renderer's shaders for the recorded gradients.
+	 */
+	private static final class GradientRenderer implements SVGRenderer {
+		private final SVGRenderer renderer;
+		private final IdentityHashMap<Shader, AnimationRecorder.Gradient> gradients;
+		private final IdentityHashMap<Shader, Shader> shaders = new IdentityHashMap<Shader, Shader>();
+		private final IdentityHashMap<Paint, Paint> paints = new IdentityHashMap<Paint, Paint>();
+
+		GradientRenderer(SVGRenderer renderer, IdentityHashMap<Shader, AnimationRecorder.Gradient> gradients) {
+			this.renderer = renderer;
+			this.gradients = gradients;
+		}
+
+		private Paint paint(Paint paint) {
+			final AnimationRecorder.Gradient gradient = gradients.get(paint.getShader());
+			if (gradient == null) {
+				return paint;
+			}
+			Paint translated = paints.get(paint);
+			if (translated == null) {
+				Shader shader = shaders.get(paint.getShader());
+				if (shader == null) {
+					shader = gradient.create(renderer);
+					shaders.put(paint.getShader(), shader);
+				}
+				translated = new Paint(paint);
+				translated.setShader(shader);
+				paints.put(paint, translated);
+			}
+			return translated;
+		}
+
+		public void beginDocument(int width, int height) {
+			renderer.beginDocument(width, height);
+		}
+
+		public void endDocument() {
+			renderer.endDocument();
+		}
+
+		public int save() {
+			return renderer.save();
+		}
+
+		public void restore() {
+			renderer.restore();
+		}
+
+		public void restoreToCount(int saveCount) {
+			renderer.restoreToCount(saveCount);
+		}
+
+		public void concat(Matrix matrix) {
+			renderer.concat(matrix);
+		}
+
+		public void setMatrix(Matrix matrix) {
+			renderer.setMatrix(matrix);
+		}
+
+		public void translate(float dx, float dy) {
+			renderer.translate(dx, dy);
+		}
+
+		public void clipRect(float left, float top, float right, float bottom) {
+			renderer.clipRect(left, top, right, bottom);
+		}
+
+		public void drawPath(Path path, PathGeometry geometry, Paint paint) {
+			renderer.drawPath(path, geometry, paint(paint));
+		}
+
+		public void drawRect(RectF rect, float rx, float ry, Paint paint) {
+			renderer.drawRect(rect, rx, ry, paint(paint));
+		}
+
+		public void drawOval(RectF oval, Paint paint) {
+			renderer.drawOval(oval, paint(paint));
+		}
+
+		public void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+			renderer.drawLine(x1, y1, x2, y2, paint(paint));
+		}
+
+		public void drawText(String text, float x, float y, Paint paint) {
+			renderer.drawText(text, x, y, paint(paint));
+		}
+
+		public Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+				TileMode tileMode, Matrix localMatrix) {
+			return renderer.createLinearGradient(x1, y1, x2, y2, colors, positions, tileMode, localMatrix);
+		}
+
+		public Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions,
+				TileMode tileMode, Matrix localMatrix) {
+			return renderer.createRadialGradient(x, y, radius, colors, positions, tileMode, localMatrix);
+		}
+	}
+
+	private final SVG svg;
+	private final int width, height;
+	private final Op[] ops;
+	private final IdentityHashMap<Shader, AnimationRecorder.Gradient> gradients;
+	private final ArrayList<Layer> layers = new ArrayList<Layer>();
+	private final int animatedElementCount;
+	private final float duration;
+
+	/**
+	 * @param animated the outermost animated elements, in document order.
+	 */
+	SVGAnimation(SVG svg, int width, int height, Op[] ops, AnimatedElement[] animated,
+			IdentityHashMap<Shader, AnimationRecorder.Gradient> gradients) {
+		this.svg = svg;
+		this.width = width;
+		this.height = height;
+		this.ops = ops;
+		this.gradients = gradients;
+
+		// Follow the saves, transforms and clips in effect from layer to layer
+		final ArrayList<Op> state = new ArrayList<Op>();
+		final ArrayList<Integer> saves = new ArrayList<Integer>();
+		int position = 0;
+		int count = 0;
+		float end = 0f;
+		for (AnimatedElement element : animated) {
+			addStaticLayer(state, position, element.start);
+			advance(state, saves, position, element.start);
+			// An element's operations are balanced, so the state after it is the state before it
+			layers.add(new AnimatedLayer(state.toArray(new Op[state.size()]), element));
+			position = element.end;
+			count += element.count();
+			end = Math.max(end, element.getEnd());
+		}
+		addStaticLayer(state, position, ops.length);
+		animatedElementCount = count;
+		duration = end;
+	}
+
+	private void addStaticLayer(ArrayList<Op> state, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (ops[i].draws()) {
+				layers.add(new StaticLayer(state.toArray(new Op[state.size()]), from, to));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Updates the state (the matrix and clip operations in effect) over a range of operations.
+	 *
+	 * @param saves the size of the state at each open save.
+	 */
+	private void advance(ArrayList<Op> state, ArrayList<Integer> saves, int from, int to) {
+		for (int i = from; i < to; i++) {
+			final Op op = ops[i];
+			if (op.code == Op.SAVE) {
+				saves.add(state.size());
+				state.add(op);
+			} else if (op.code == Op.RESTORE) {
+				int size = state.size();
+				for (int n = (int) op.values[0]; n > 0; n--) {
+					size = saves.remove(saves.size() - 1);
+				}
+				while (state.size() > size) {
+					state.remove(state.size() - 1);
+				}
+			} else if (!op.draws()) {
+				state.add(op);
+			}
+		}
+	}
+
+	/**
+	 * Plays a range of operations, and the animated elements starting in it.
+	 *
+	 * @param children the animated elements in the range, in order, or null if there are none.
+	 */
+	static void play(Op[] ops, int from, int to, AnimatedElement[] children, SVGRenderer renderer, float alpha,
+			boolean filled, int fill) {
+		int next = 0;
+		for (int i = from; i < to; i++) {
+			if (children != null && next < children.length && children[next].start == i) {
+				final AnimatedElement child = children[next++];
+				child.play(ops, renderer, alpha, filled, fill);
+				i = child.end - 1;
+			} else {
+				final Op op = ops[i];
+				op.play(renderer, (op.paint == null) ? null : paint(op.paint, alpha, filled, fill));
+			}
+		}
+	}
+
+	/**
+	 * @return the paint with the opacity multiplied and, for a fill, the colour replaced.
+	 */
+	private static Paint paint(Paint paint, float alpha, boolean filled, int fill) {
+		filled &= paint.getStyle() == Paint.Style.FILL;
+		if (alpha == 1f && !filled) {
+			return paint;
+		}
+		final Paint animated = new Paint(paint);
+		if (filled) {
+			animated.setShader(null);
+			animated.setColor((paint.getAlpha() << 24) | (fill & 0xFFFFFF));
+		}
+		if (alpha != 1f) {
+			animated.setAlpha(Math.max(0, Math.min(255, Math.round(paint.getAlpha() * alpha))));
+		}
+		return animated;
+	}
+
+	/**
+	 * Draws the animation at the given time. Only the animated elements whose values have changed since the last frame
+	 * are recorded again; everything else is drawn from pictures.
+	 *
+	 * @param time the time since the animation began, in seconds.
+	 */
+	public void draw(Canvas canvas, float time) {
+		final int count = canvas.save();
+		for (Layer layer : layers) {
+			layer.draw(canvas, time);
+		}
+		canvas.restoreToCount(count);
+	}
+
+	/**
+	 * Draws the animation at the given time with another renderer (eg. to draw frames with another graphics library).
+	 * Everything is drawn again, so this is slower than {@link #draw(Canvas, float)}.
+	 *
+	 * @param time the time since the animation began, in seconds.
+	 */
+	public void render(SVGRenderer renderer, float time) {
+		if (!gradients.isEmpty()) {
+			// The recorded gradients are shaders of the Android canvas
+			renderer = new GradientRenderer(renderer, gradients);
+		}
+		renderer.beginDocument(width, height);
+		for (Layer layer : layers) {
+			if (layer instanceof AnimatedLayer) {
+				final AnimatedLayer animated = (AnimatedLayer) layer;
+				animated.element.evaluate(time);
+				// The picture no longer matches the values evaluated
+				animated.picture = null;
+			}
+			layer.play(renderer);
+		}
+		renderer.endDocument();
+	}
+
+	/**
+	 * Gets the parsed document, for its bounds, limits, statistics and element index. It has no picture: frames are
+	 * drawn by the animation.
+	 */
+	public SVG getSVG() {
+		return svg;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Gets the time after which nothing changes, eg. to stop drawing frames.
+	 *
+	 * @return the time in seconds, or infinity if an animation repeats indefinitely (or 0 if nothing is animated).
+	 */
+	public float getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @return the number of animated elements, which is what the cost of drawing a frame depends on.
+	 */
+	public int getAnimatedElementCount() {
+		return animatedElementCount;
+	}
+
+	/**
+	 * @return the number of layers drawn per frame: the pictures of static content and the animated elements between
+	 *         them.
+	 */
+	public int getLayerCount() {
+		return layers.size();
+	}
+}
@@ -18,17 +18,42 @@ import com.larvalabs.svgandroid.SVGParser.SVGHandler;
 /**
  * Builder for reading SVGs. Specify input, specify any parsing options (optional), then call {@link #build()} to parse
  * and return a {@link SVG}.
+ * <p/>
+ * A builder is not thread-safe, and its input can only be parsed once. Use a builder per parse; parses with different
+ * builders can run concurrently (see {@link SVGParser}).
  * 
  * @since 24/12/2012
  */
 public class SVGBuilder {
+
+	/**
+	 * Opens the input again, so that a {@link LazySVG} can parse it after the builder is done with.
+	 */
+	interface Source {
+		InputStream open() throws IOException;
+	}
+
 	private InputStream data;
+	/** Where the input came from, or null if it can't be read again (a stream) */
+	private Source source = null;
 	private Integer searchColor = null;
 	private Integer replaceColor = null;
 	private ColorFilter strokeColorFilter = null, fillColorFilter = null;
 	private boolean whiteMode = false;
 	private boolean overideOpacity = false;
 	private boolean closeInputStream = true;
+	private boolean indexElements = false;
+	private boolean recordLayers = false;
+	private String targetId = null;
+	private SVGParseMetrics.Listener metricsListener = null;
+	private long maxInputBytes = 0;
+	private int maxElements = 0;
+	private int maxDepth = 0;
+	private long maxPathSegments = 0;
+	private long maxParseMillis = 0;
+	private SVGPathCache pathCache = null;
+	private SVGMemoryBudget memoryBudget = null;
+	private SVGRenderer renderer = null;
 
 	/**
 	 * Parse SVG data from an input stream.
@@ -38,6 +63,7 @@ public class SVGBuilder {
 	 */
 	public SVGBuilder readFromInputStream(InputStream svgData) {
 		this.data = svgData;
+		this.source = null;
 		return this;
 	}
 
@@ -47,7 +73,21 @@ public class SVGBuilder {
 	 * @param svgData the string containing SVG XML data.
 	 */
 	public SVGBuilder readFromString(String svgData) {
-		this.data = new ByteArrayInputStream(svgData.getBytes());
+		return readFromBytes(svgData.getBytes());
+	}
+
+	/**
+	 * Parse SVG data from a byte array.
+	 * 
+	 * @param svgData the SVG XML data in UTF-8 character encoding (or SVGZ data).
+	 */
+	public SVGBuilder readFromBytes(final byte[] svgData) {
+		this.data = new ByteArrayInputStream(svgData);
+		this.source = new Source() {
+			public InputStream open() {
+				return new ByteArrayInputStream(svgData);
+			}
+		};
 		return this;
 	}
 
@@ -57,8 +97,13 @@ public class SVGBuilder {
 	 * @param resources the Android context resources.
 	 * @param resId the ID of the raw resource SVG.
 	 */
-	public SVGBuilder readFromResource(Resources resources, int resId) {
+	public SVGBuilder readFromResource(final Resources resources, final int resId) {
 		this.data = resources.openRawResource(resId);
+		this.source = new Source() {
+			public InputStream open() {
+				return resources.openRawResource(resId);
+			}
+		};
 		return this;
 	}
 
@@ -69,8 +114,13 @@ public class SVGBuilder {
 	 * @param svgPath the path to the SVG file in the application's assets.
 	 * @throws IOException if there was a problem reading the file.
 	 */
-	public SVGBuilder readFromAsset(AssetManager assetMngr, String svgPath) throws IOException {
+	public SVGBuilder readFromAsset(final AssetManager assetMngr, final String svgPath) throws IOException {
 		this.data = assetMngr.open(svgPath);
+		this.source = new Source() {
+			public InputStream open() throws IOException {
+				return assetMngr.open(svgPath);
+			}
+		};
 		return this;
 	}
 
@@ -135,6 +185,144 @@ public class SVGBuilder {
 		return this;
 	}
 
+	/**
+	 * Whether or not to retain the named (ie. with an id) elements of the SVG, so that their geometry, bounds and
+	 * paint can be looked up after parsing via {@link SVG#getElement(String)}.<br>
+	 * <em>(default is false)</em>
+	 */
+	public SVGBuilder setIndexElements(boolean indexElements) {
+		this.indexElements = indexElements;
+		return this;
+	}
+
+	/**
+	 * Whether or not to record each top-level group (eg. the layers of a map: roads, labels, rooms) in to its own
+	 * picture, so that layers can be shown, hidden and faded when drawing with
+	 * {@link SVG#setLayerVisible(int, boolean)} and {@link SVG#setLayerOpacity(int, float)} rather than by parsing the
+	 * document again. Layers hidden in the
+	 * document (with <code>display="none"</code>) are recorded too, hidden. The pictures hold the same drawing as a
+	 * single picture would, plus the clip and transform at the start of each. Can't be used with a
+	 * {@link #setRenderer(SVGRenderer) renderer} or {@link #setTargetElement(String) target element}.<br>
+	 * <em>(default is false)</em>
+	 */
+	public SVGBuilder setRecordLayers(boolean recordLayers) {
+		this.recordLayers = recordLayers;
+		return this;
+	}
+
+	/**
+	 * Only draws the element with the given id (and its content), eg. one icon of a sprite sheet. Everything outside of
+	 * that element is skipped without being parsed, apart from the style sheets, gradients and <code>defs</code> it may
+	 * refer to, and parsing stops as soon as the element ends. The picture is cropped to the element's bounds or, for a
+	 * <code>symbol</code>, to its view box.<br>
+	 * <em>(default is null, to draw the whole document)</em>
+	 */
+	public SVGBuilder setTargetElement(String id) {
+		this.targetId = id;
+		return this;
+	}
+
+	/**
+	 * Collects detailed metrics of the parse (time spent tokenizing the XML, parsing paths, resolving styles and
+	 * recording the picture, element and path segment counts, bytes read...) and passes them to the given listener
+	 * when the parse is complete. They are also available from {@link SVG#getParseMetrics()}. Nothing is measured
+	 * when no listener is set.<br>
+	 * <em>(default is null)</em>
+	 */
+	public SVGBuilder setMetricsListener(SVGParseMetrics.Listener listener) {
+		this.metricsListener = listener;
+		return this;
+	}
+
+	/**
+	 * Looks up the <code>d</code> attributes of paths in the given cache, so that paths repeated within the document,
+	 * or in other documents parsed with the same cache, are parsed once and share one <code>Path</code> (see
+	 * {@link SVGPathCache}). Worth it for documents that repeat their paths, eg. families of icons; for documents
+	 * whose paths are all different it only adds the cost of the lookups.<br>
+	 * <em>(default is null, to parse every path)</em>
+	 */
+	public SVGBuilder setPathCache(SVGPathCache pathCache) {
+		this.pathCache = pathCache;
+		return this;
+	}
+
+	/**
+	 * Keeps what the SVGs built cache (bitmaps from {@link SVG#getBitmap(int, int)} and composed layer pictures), and
+	 * the parsed documents of {@link #buildLazily() lazy SVGs}, within the given budget, which releases them when it
+	 * is exceeded or memory is short (see {@link SVGMemoryBudget}).<br>
+	 * <em>(default is null, for no budget: caches are kept until {@link SVG#releaseCaches()} is called)</em>
+	 */
+	public SVGBuilder setMemoryBudget(SVGMemoryBudget memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		return this;
+	}
+
+	/**
+	 * Stops the parse with an {@link SVGLimitExceededException} once more than the given number of bytes have been
+	 * read. The bytes of an SVGZ are counted after inflating it, so that a small file can't inflate in to gigabytes.
+	 * <br>
+	 * <em>(default is 0, for no limit)</em>
+	 */
+	public SVGBuilder setMaxInputBytes(long maxBytes) {
+		this.maxInputBytes = maxBytes;
+		return this;
+	}
+
+	/**
+	 * Stops the parse with an {@link SVGLimitExceededException} once it has seen more than the given number of
+	 * elements. Elements drawn by <code>use</code> references count each time they are drawn, so that a small
+	 * document can't draw a shape millions of times.<br>
+	 * <em>(default is 0, for no limit)</em>
+	 */
+	public SVGBuilder setMaxElements(int maxElements) {
+		this.maxElements = maxElements;
+		return this;
+	}
+
+	/**
+	 * Stops the parse with an {@link SVGLimitExceededException} if elements are nested more deeply than the given
+	 * number of levels (the root element is at level 1).<br>
+	 * <em>(default is 0, for no limit)</em>
+	 */
+	public SVGBuilder setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Stops the parse with an {@link SVGLimitExceededException} once the paths, polygons and polylines drawn have
+	 * more than the given number of segments in all. Like elements, paths drawn by <code>use</code> references count
+	 * each time they are drawn.<br>
+	 * <em>(default is 0, for no limit)</em>
+	 */
+	public SVGBuilder setMaxPathSegments(long maxSegments) {
+		this.maxPathSegments = maxSegments;
+		return this;
+	}
+
+	/**
+	 * Stops the parse with an {@link SVGLimitExceededException} once it has taken longer than the given time. The
+	 * clock is read every few elements, so the parse may run over by the time those take. For
+	 * {@link #buildIncrementally() incremental parsing} only the time spent in slices counts.<br>
+	 * <em>(default is 0, for no limit)</em>
+	 */
+	public SVGBuilder setMaxParseTime(long millis) {
+		this.maxParseMillis = millis;
+		return this;
+	}
+
+	/**
+	 * Draws the SVG with the given renderer instead of recording it in to a picture, eg. to draw it with another
+	 * graphics library. The {@link SVG} returned by {@link #build()} then has no picture, but still has the limits,
+	 * statistics, metrics and element index. A {@link #setTargetElement(String) target element} is drawn in document
+	 * coordinates, without cropping.<br>
+	 * <em>(default is null, to record a picture)</em>
+	 */
+	public SVGBuilder setRenderer(SVGRenderer renderer) {
+		this.renderer = renderer;
+		return this;
+	}
+
 	/**
 	 * Whether or not to close the input stream after reading (ie. after calling {@link #build()}.<br>
 	 * <em>(default is true)</em>
@@ -149,43 +337,85 @@ public class SVGBuilder {
 	 * 
 	 * @return the parsed SVG.
 	 * @throws SVGParseException if there is an error while parsing.
+	 * @throws IllegalStateException if {@link #setRecordLayers(boolean) layers} are recorded with a renderer or
+	 *             target element.
 	 */
 	public SVG build() throws SVGParseException {
-		if (data == null) {
-			throw new IllegalStateException("SVG input not specified. Call one of the readFrom...() methods first.");
+		checkInput();
+		if (recordLayers && (renderer != null || targetId != null)) {
+			throw new IllegalStateException("Layers are recorded in to pictures of the whole document, so can't be "
+					+ "used with a renderer or target element.");
 		}
-
 		try {
-			final SVGHandler handler = new SVGHandler();
-			handler.setColorSwap(searchColor, replaceColor, overideOpacity);
-			handler.setWhiteMode(whiteMode);
-			if (strokeColorFilter != null) {
-				handler.strokePaint.setColorFilter(strokeColorFilter);
-			}
-			if (fillColorFilter != null) {
-				handler.fillPaint.setColorFilter(fillColorFilter);
+			final SVGHandler handler = createHandler();
+			openInput(handler.metrics);
+			final SVG svg = SVGParser.parse(new InputSource(data), handler);
+			return svg;
+
+		} finally {
+			if (closeInputStream) {
+				try {
+					data.close();
+				} catch (IOException e) {
+					Log.e(SVGParser.TAG, "Error closing SVG input stream.", e);
+				}
 			}
+		}
+	}
+
+	/**
+	 * Reads the size of the SVG (or SVGZ) from its root element, without parsing the rest of the document, eg. to lay
+	 * out thumbnails before deciding which to load. Of the options, only
+	 * {@link #setCloseInputStreamWhenDone(boolean)} and {@link #setMaxInputBytes(long)} apply.
+	 * 
+	 * @return the size and view box of the SVG.
+	 * @throws SVGParseException if there is an error while parsing, or the document isn't an SVG.
+	 */
+	public SVGHeader prescan() throws SVGParseException {
+		checkInput();
+		try {
+			openInput(null);
+			return SVGParser.prescan(new InputSource(data));
 
-			// SVGZ support (based on https://github.com/josefpavlik/svg-android/commit/fc0522b2e1):
-			if(!data.markSupported())
-				data = new BufferedInputStream(data); // decorate stream so we can use mark/reset
-			try {
-				data.mark(4);
-				byte[] magic = new byte[2];
-				int r = data.read(magic, 0, 2);
-				int magicInt = (magic[0] + ((magic[1]) << 8)) & 0xffff;
-				data.reset();
-				if (r == 2 && magicInt == GZIPInputStream.GZIP_MAGIC) {
-					// Log.d(SVGParser.TAG, "SVG is gzipped");
-					GZIPInputStream gin = new GZIPInputStream(data);
-					data = gin;
+		} finally {
+			if (closeInputStream) {
+				try {
+					data.close();
+				} catch (IOException e) {
+					Log.e(SVGParser.TAG, "Error closing SVG input stream.", e);
 				}
-			} catch (IOException ioe) {
-				throw new SVGParseException(ioe);
 			}
+		}
+	}
 
-			final SVG svg = SVGParser.parse(new InputSource(data), handler);
-			return svg;
+	/**
+	 * Loads, reads and parses an animated SVG (or SVGZ), which can then be drawn at any time. See {@link SVGAnimation}
+	 * for the animations supported.
+	 * 
+	 * @return the animation.
+	 * @throws SVGParseException if there is an error while parsing.
+	 * @throws IllegalStateException if a {@link #setRenderer(SVGRenderer) renderer} or
+	 *             {@link #setTargetElement(String) target element} has been set, or
+	 *             {@link #setRecordLayers(boolean) layers} are recorded.
+	 */
+	public SVGAnimation buildAnimation() throws SVGParseException {
+		checkInput();
+		if (recordLayers) {
+			throw new IllegalStateException("Animations record their own layers.");
+		}
+		if (renderer != null) {
+			throw new IllegalStateException("Animations draw their own frames, so can't be used with a renderer.");
+		}
+		if (targetId != null) {
+			throw new IllegalStateException("Animations are of whole documents, so can't have a target element.");
+		}
+		try {
+			final SVGHandler handler = createHandler();
+			final AnimationRecorder recorder = new AnimationRecorder();
+			handler.setRenderer(recorder);
+			handler.animations = recorder;
+			openInput(handler.metrics);
+			return recorder.toAnimation(SVGParser.parse(new InputSource(data), handler));
 
 		} finally {
 			if (closeInputStream) {
@@ -197,4 +427,155 @@ public class SVGBuilder {
 			}
 		}
 	}
+
+	/**
+	 * Creates an SVG that isn't parsed until it is first drawn or measured, eg. for the items of a long list, most of
+	 * which may never be shown. It keeps the source of the input (so can't read from an input stream) and the parsing
+	 * options, and parses the input again if the {@link #setMemoryBudget(SVGMemoryBudget) memory budget} releases the
+	 * parsed document. Nothing is read until it is needed; an input that was opened by a <code>readFrom...()</code>
+	 * method is closed.
+	 * 
+	 * @return the lazy SVG.
+	 * @throws IllegalStateException if the input was given as a stream (see {@link #readFromInputStream(InputStream)})
+	 *             or a {@link #setRenderer(SVGRenderer) renderer} has been set.
+	 */
+	public LazySVG buildLazily() {
+		checkInput();
+		if (source == null) {
+			throw new IllegalStateException("Lazy SVGs read their input again, so can't read from a stream.");
+		}
+		if (renderer != null) {
+			throw new IllegalStateException("Lazy SVGs draw their own pictures, so can't be used with a renderer.");
+		}
+		try {
+			data.close();
+		} catch (IOException e) {
+			Log.e(SVGParser.TAG, "Error closing SVG input stream.", e);
+		}
+		return new LazySVG(source, copyOptions(), memoryBudget);
+	}
+
+	/**
+	 * @return a builder with the same parsing options, and no input.
+	 */
+	SVGBuilder copyOptions() {
+		final SVGBuilder copy = new SVGBuilder();
+		copy.searchColor = searchColor;
+		copy.replaceColor = replaceColor;
+		copy.overideOpacity = overideOpacity;
+		copy.strokeColorFilter = strokeColorFilter;
+		copy.fillColorFilter = fillColorFilter;
+		copy.whiteMode = whiteMode;
+		copy.indexElements = indexElements;
+		copy.recordLayers = recordLayers;
+		copy.targetId = targetId;
+		copy.metricsListener = metricsListener;
+		copy.maxInputBytes = maxInputBytes;
+		copy.maxElements = maxElements;
+		copy.maxDepth = maxDepth;
+		copy.maxPathSegments = maxPathSegments;
+		copy.maxParseMillis = maxParseMillis;
+		copy.pathCache = pathCache;
+		copy.memoryBudget = memoryBudget;
+		copy.renderer = renderer;
+		return copy;
+	}
+
+	/**
+	 * Prepares to parse the SVG (or SVGZ) a slice at a time, so that a large document can be loaded on the UI thread
+	 * without blocking it for more than a frame. Nothing is read until the returned task is run; the input stream is
+	 * closed (if {@link #setCloseInputStreamWhenDone(boolean) enabled}) when the task completes, fails or is
+	 * cancelled.
+	 * 
+	 * @return the parse task.
+	 * @throws SVGParseException if the input can't be opened.
+	 * @throws IllegalStateException if a {@link #setRenderer(SVGRenderer) renderer} has been set, or
+	 *             {@link #setRecordLayers(boolean) layers} are recorded.
+	 */
+	public SVGParseTask buildIncrementally() throws SVGParseException {
+		checkInput();
+		if (renderer != null) {
+			throw new IllegalStateException("Incremental parsing records pictures, so can't be used with a renderer.");
+		}
+		if (recordLayers) {
+			throw new IllegalStateException("Incremental parsing records slices rather than layers.");
+		}
+		final SVGHandler handler = createHandler();
+		try {
+			openInput(handler.metrics);
+		} catch (SVGParseException e) {
+			if (closeInputStream) {
+				try {
+					data.close();
+				} catch (IOException ioe) {
+					Log.e(SVGParser.TAG, "Error closing SVG input stream.", ioe);
+				}
+			}
+			throw e;
+		}
+		return new SVGParseTask(data, handler, closeInputStream);
+	}
+
+	private void checkInput() {
+		if (data == null) {
+			throw new IllegalStateException("SVG input not specified. Call one of the readFrom...() methods first.");
+		}
+	}
+
+	private SVGHandler createHandler() {
+		final SVGHandler handler = new SVGHandler();
+		handler.setColorSwap(searchColor, replaceColor, overideOpacity);
+		handler.setWhiteMode(whiteMode);
+		handler.setIndexElements(indexElements);
+		handler.setRecordLayers(recordLayers);
+		handler.setTargetId(targetId);
+		handler.setMetricsListener(metricsListener);
+		handler.setRenderer(renderer);
+		handler.pathCache = pathCache;
+		handler.memoryBudget = memoryBudget;
+		if (maxElements > 0 || maxDepth > 0 || maxPathSegments > 0 || maxParseMillis > 0) {
+			handler.parseLimits = new ParseLimits(maxElements, maxDepth, maxPathSegments, maxParseMillis);
+		}
+		if (strokeColorFilter != null) {
+			handler.strokePaint.setColorFilter(strokeColorFilter);
+		}
+		if (fillColorFilter != null) {
+			handler.fillPaint.setColorFilter(fillColorFilter);
+		}
+		return handler;
+	}
+
+	/**
+	 * Wraps the input so that gzipped data is inflated transparently, and the bytes read are limited.
+	 * 
+	 * @param metrics the metrics to count the bytes read in to, or null.
+	 */
+	private void openInput(SVGParseMetrics metrics) throws SVGParseException {
+		if (metrics != null) {
+			data = metrics.compressedInput = new SVGParseMetrics.CountingInputStream(data);
+		}
+		// SVGZ support (based on https://github.com/josefpavlik/svg-android/commit/fc0522b2e1):
+		if(!data.markSupported())
+			data = new BufferedInputStream(data); // decorate stream so we can use mark/reset
+		try {
+			data.mark(4);
+			byte[] magic = new byte[2];
+			int r = data.read(magic, 0, 2);
+			int magicInt = (magic[0] + ((magic[1]) << 8)) & 0xffff;
+			data.reset();
+			if (r == 2 && magicInt == GZIPInputStream.GZIP_MAGIC) {
+				// Log.d(SVGParser.TAG, "SVG is gzipped");
+				GZIPInputStream gin = new GZIPInputStream(data);
+				data = gin;
+			}
+		} catch (IOException ioe) {
+			throw new SVGParseException(ioe);
+		}
+		if (maxInputBytes > 0) {
+			data = new ParseLimits.LimitedInputStream(data, maxInputBytes);
+		}
+		if (metrics != null) {
+			data = metrics.uncompressedInput = new SVGParseMetrics.CountingInputStream(data);
+		}
+	}
 }
@@ -0,0 +1,129 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * A named (ie. having an <code>id</code>) element of a parsed SVG, retained so that individual parts of the drawing
+ * can be animated, highlighted or measured. Only available when {@link SVGBuilder#setIndexElements(boolean)} is
+ * enabled; look elements up with {@link SVG#getElement(String)}.
+ * <p/>
+ * The path, matrix and paints are shared with the parser and must not be modified, except for paths shared through a
+ * {@link SVGPathCache}, which are returned as copies.
+ */
+public class SVGElement {
+
+	private final String id;
+	private final String type;
+	private final SVGElement parent;
+	private final Path path;
+	/** Whether the path is shared through a path cache, with other elements and documents */
+	private final boolean sharedPath;
+	private final Matrix matrix;
+	private final RectF bounds;
+	private final Paint fillPaint;
+	private final Paint strokePaint;
+
+	SVGElement(String id, String type, SVGElement parent, Path path, boolean sharedPath, Matrix matrix, RectF bounds,
+			Paint fillPaint, Paint strokePaint) {
+		this.id = id;
+		this.type = type;
+		this.parent = parent;
+		this.path = path;
+		this.sharedPath = sharedPath;
+		this.matrix = matrix;
+		this.bounds = bounds;
+		this.fillPaint = fillPaint;
+		this.strokePaint = strokePaint;
+	}
+
+	/**
+	 * Grows the bounds of a group to include a descendant's bounds.
+	 */
+	void include(RectF descendantBounds) {
+		ExactBounds.union(bounds, descendantBounds);
+	}
+
+	/**
+	 * @return the element's id.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the element name, eg. <code>path</code>, <code>rect</code>, <code>g</code> or <code>use</code>.
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 * @return the nearest enclosing named group (<code>g</code> or <code>use</code>), or null if there is none.
+	 */
+	public SVGElement getParent() {
+		return parent;
+	}
+
+	/**
+	 * @param ancestorId the id of a group.
+	 * @return whether this element is nested (at any depth) inside the named group.
+	 */
+	public boolean isDescendantOf(String ancestorId) {
+		for (SVGElement e = parent; e != null; e = e.parent) {
+			if (e.id.equals(ancestorId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the element's geometry in its own coordinate system. Use {@link #getMatrix()} to map it in to picture
+	 * coordinates. A path from a {@link SVGBuilder#setPathCache(SVGPathCache) path cache} is copied each time, as the
+	 * cached path is drawn by every element (of any document) with the same <code>d</code> attribute.
+	 *
+	 * @return the geometry, or null for groups.
+	 */
+	public Path getPath() {
+		return sharedPath ? new Path(path) : path;
+	}
+
+	/**
+	 * @return the matrix that maps the element's coordinates to the coordinates of the picture.
+	 */
+	public Matrix getMatrix() {
+		return matrix;
+	}
+
+	/**
+	 * Gets the bounds of the element (including half the stroke width) in picture coordinates. For groups this is the
+	 * union of the bounds of everything drawn inside it.
+	 *
+	 * @return the bounds, which are empty (left > right) for groups in which nothing was drawn.
+	 */
+	public RectF getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * @return the paint the element was filled with, or null if it wasn't filled or is a group.
+	 */
+	public Paint getFillPaint() {
+		return fillPaint;
+	}
+
+	/**
+	 * @return the paint the element was stroked with, or null if it wasn't stroked or is a group.
+	 */
+	public Paint getStrokePaint() {
+		return strokePaint;
+	}
+
+	@Override
+	public String toString() {
+		return "SVGElement[" + type + "#" + id + " " + bounds + "]";
+	}
+}
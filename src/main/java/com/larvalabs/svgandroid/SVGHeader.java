@@ -0,0 +1,60 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.RectF;
+
+/**
+ * The size of an SVG, read from its root element without parsing the rest of the document. Get one with
+ * {@link SVGBuilder#prescan()}.
+ */
+public class SVGHeader {
+
+	private final int width;
+	private final int height;
+	private final RectF viewBox;
+	private final RectF bounds;
+
+	SVGHeader(int width, int height, RectF viewBox, RectF bounds) {
+		this.width = width;
+		this.height = height;
+		this.viewBox = viewBox;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * @return the width of the picture {@link SVGBuilder#build()} would record: that of the view box if there is one,
+	 *         otherwise the <code>width</code> attribute (rounded up), or 0 if neither is given.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the picture {@link SVGBuilder#build()} would record: that of the view box if there is
+	 *         one, otherwise the <code>height</code> attribute (rounded up), or 0 if neither is given.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the root element's <code>viewBox</code>, or null if it has none.
+	 */
+	public RectF getViewBox() {
+		return viewBox;
+	}
+
+	/**
+	 * Gets the bounds given by a "bounds" layer (see {@link SVG#getBounds()}). It is only looked for in the first
+	 * element of the document, so that the prescan doesn't read further.
+	 *
+	 * @return the bounds, or null if the first element isn't a "bounds" layer.
+	 */
+	public RectF getBounds() {
+		return bounds;
+	}
+
+	@Override
+	public String toString() {
+		return "SVGHeader[" + width + "x" + height + " viewBox=" + viewBox + " bounds=" + bounds + "]";
+	}
+}
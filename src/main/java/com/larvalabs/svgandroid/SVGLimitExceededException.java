@@ -0,0 +1,57 @@
+package com.larvalabs.svgandroid;
+
+/**
+ * Thrown when an SVG exceeds one of the limits set on the {@link SVGBuilder} (eg.
+ * {@link SVGBuilder#setMaxElements(int)}), to stop the parse of a document that is too large or too slow to draw, or
+ * that was made to be (eg. an SVGZ that inflates to gigabytes, or <code>use</code> references that draw a shape
+ * millions of times).
+ */
+public class SVGLimitExceededException extends SVGParseException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The limits that can be set on a parse.
+	 */
+	public enum Limit {
+		/** The bytes of the document, after inflating an SVGZ */
+		INPUT_BYTES("bytes"),
+		/** The elements of the document, counting those drawn by <code>use</code> references each time */
+		ELEMENTS("elements"),
+		/** How deeply elements are nested */
+		DEPTH("levels of nesting"),
+		/** The segments of the paths drawn */
+		PATH_SEGMENTS("path segments"),
+		/** The time spent parsing */
+		PARSE_TIME("ms of parsing");
+
+		private final String unit;
+
+		private Limit(String unit) {
+			this.unit = unit;
+		}
+	}
+
+	private final Limit limit;
+	private final long maximum;
+
+	public SVGLimitExceededException(Limit limit, long maximum) {
+		super("SVG exceeds the limit of " + maximum + " " + limit.unit + ".");
+		this.limit = limit;
+		this.maximum = maximum;
+	}
+
+	/**
+	 * @return the limit that was exceeded.
+	 */
+	public Limit getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return the value of the limit that was exceeded (in the units of the limit's setter).
+	 */
+	public long getMaximum() {
+		return maximum;
+	}
+}
@@ -0,0 +1,200 @@
+package com.larvalabs.svgandroid;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the memory cached by SVGs (their bitmaps and composed layer pictures, see {@link SVG#getCachedSize()}, and the
+ * parsed documents of {@link LazySVG}s) within a budget, releasing the caches of the least recently used SVGs first.
+ * Only SVGs built with the budget (see {@link SVGBuilder#setMemoryBudget(SVGMemoryBudget)}) and path caches given it
+ * (see {@link SVGPathCache#setMemoryBudget(SVGMemoryBudget)}) count towards it; they are tracked from when they first
+ * cache something, and are only weakly referenced. The recorded pictures of SVGs can't be released without parsing
+ * again, so don't count towards the budget; {@link SVG#getEstimatedSize()} includes them.
+ * <p/>
+ * Pass the application's memory callbacks on to {@link #onLowMemory()} and {@link #onTrimMemory(int)}. Caches are
+ * released on the calling thread, so the callbacks and drawing should be on the same (UI) thread.
+ */
+public class SVGMemoryBudget {
+
+	// The levels of ComponentCallbacks2, which is newer than the Android versions supported
+	private static final int TRIM_MEMORY_RUNNING_MODERATE = 5;
+	private static final int TRIM_MEMORY_RUNNING_LOW = 10;
+	private static final int TRIM_MEMORY_RUNNING_CRITICAL = 15;
+	private static final int TRIM_MEMORY_UI_HIDDEN = 20;
+
+	private static SVGMemoryBudget instance = null;
+
+	/**
+	 * Something that caches memory it can make again.
+	 */
+	interface Cache {
+		/**
+		 * @return the estimated size of the cache, in bytes.
+		 */
+		long getCachedSize();
+
+		void releaseCaches();
+	}
+
+	/**
+	 * A cache being tracked, and its size when last used.
+	 */
+	private static final class Entry {
+		final WeakReference<Cache> cache;
+		long size = 0;
+
+		Entry(Cache cache) {
+			this.cache = new WeakReference<Cache>(cache);
+		}
+	}
+
+	/** The tracked caches, least recently used first */
+	private final LinkedHashMap<Entry, Entry> entries = new LinkedHashMap<Entry, Entry>(16, 0.75f, true);
+	private final WeakHashMap<Cache, Entry> index = new WeakHashMap<Cache, Entry>();
+	/** The sum of the entries' sizes */
+	private long cached = 0;
+	private long budget;
+
+	/**
+	 * @param budget the most memory, in bytes, that the SVGs built with this budget may keep cached.
+	 */
+	public SVGMemoryBudget(long budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Gets a budget that can be shared by all of an application's SVGs. It starts at an eighth of the maximum heap
+	 * size. Like any other budget, it only applies to the SVGs built with it.
+	 */
+	public static synchronized SVGMemoryBudget getInstance() {
+		if (instance == null) {
+			instance = new SVGMemoryBudget(Runtime.getRuntime().maxMemory() / 8);
+		}
+		return instance;
+	}
+
+	/**
+	 * @return the most memory, in bytes, that SVGs may keep cached.
+	 */
+	public synchronized long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Sets the most memory SVGs may keep cached, releasing caches if they are over it.
+	 *
+	 * @param budget the budget in bytes.
+	 */
+	public synchronized void setBudget(long budget) {
+		this.budget = budget;
+		trim(budget, null);
+	}
+
+	/**
+	 * @return the estimated memory, in bytes, cached by all SVGs.
+	 */
+	public synchronized long getCachedSize() {
+		refresh();
+		return cached;
+	}
+
+	/**
+	 * Measures the caches again, as they may have changed since they were last used, and forgets collected ones.
+	 */
+	private void refresh() {
+		cached = 0;
+		final Iterator<Entry> it = entries.keySet().iterator();
+		while (it.hasNext()) {
+			final Entry entry = it.next();
+			final Cache cache = entry.cache.get();
+			if (cache == null) {
+				it.remove();
+			} else {
+				entry.size = cache.getCachedSize();
+				cached += entry.size;
+			}
+		}
+	}
+
+	/**
+	 * Releases the caches of the least recently used SVGs until at most the given size is cached.
+	 *
+	 * @param size the size to trim to, in bytes.
+	 */
+	public synchronized void trimToSize(long size) {
+		trim(size, null);
+	}
+
+	/**
+	 * Releases all caches. Call this from <code>onLowMemory()</code>.
+	 */
+	public void onLowMemory() {
+		trimToSize(0);
+	}
+
+	/**
+	 * Releases caches according to how short memory is. Call this from <code>onTrimMemory(int)</code>.
+	 *
+	 * @param level the trim level passed to <code>onTrimMemory(int)</code>.
+	 */
+	public void onTrimMemory(int level) {
+		if (level >= TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+			// Nothing is drawn while hidden, and the caches are cheaper to make again than being killed
+			trimToSize(0);
+		} else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+			trimToSize(getBudget() / 4);
+		} else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+			trimToSize(getBudget() / 2);
+		}
+	}
+
+	/**
+	 * Called when something has cached or used its cache: makes it the most recently used and keeps the caches within
+	 * the budget, releasing the others first. This is called on every draw of a lazy SVG, so it only measures the one
+	 * cache unless the budget is exceeded.
+	 */
+	synchronized void used(Cache cache) {
+		Entry entry = index.get(cache);
+		if (entry == null) {
+			entry = new Entry(cache);
+			index.put(cache, entry);
+		}
+		// Tracked again if it has been released
+		entries.put(entry, entry);
+		final long size = cache.getCachedSize();
+		cached += size - entry.size;
+		entry.size = size;
+		if (cached > budget) {
+			trim(budget, cache);
+		}
+	}
+
+	/**
+	 * @param keep a cache that is only released if all others have been, or null.
+	 */
+	private void trim(long size, Cache keep) {
+		refresh();
+		final Iterator<Entry> it = entries.keySet().iterator();
+		while (it.hasNext() && cached > size) {
+			final Entry entry = it.next();
+			final Cache cache = entry.cache.get();
+			if (cache != null && cache != keep) {
+				release(entry, cache);
+				it.remove();
+			}
+		}
+		if (cached > size && keep != null) {
+			final Entry entry = index.get(keep);
+			release(entry, keep);
+			entries.remove(entry);
+		}
+	}
+
+	private void release(Entry entry, Cache cache) {
+		cache.releaseCaches();
+		cached -= entry.size;
+		entry.size = 0;
+	}
+}
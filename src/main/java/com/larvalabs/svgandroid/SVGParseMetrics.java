@@ -0,0 +1,274 @@
+package com.larvalabs.svgandroid;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Detailed measurements of where parsing time goes, collected only when requested with
+ * {@link SVGBuilder#setMetricsListener(Listener)}. Times are wall-clock times on the parsing thread.
+ * <p/>
+ * Metrics of many parses can be summed for reporting, by {@link #add(SVGParseMetrics) adding} each parse's metrics to
+ * an aggregate created with the public constructor. Adding is synchronized, so one aggregate may be shared by several
+ * parsing threads.
+ */
+public class SVGParseMetrics {
+
+	/**
+	 * Receives the metrics of each completed parse, on the parsing thread.
+	 */
+	public interface Listener {
+		void onParsed(SVGParseMetrics metrics);
+	}
+
+	int parses;
+	long totalNanos;
+	long handlerNanos;
+	long pathNanos;
+	long styleNanos;
+	long recordNanos;
+	int pathSegments;
+	long bytesRead;
+	long bytesUncompressed;
+	int saves;
+	int restores;
+	final HashMap<String, int[]> elementCounts = new HashMap<String, int[]>();
+	final HashMap<String, int[]> unrecognizedElements = new HashMap<String, int[]>();
+
+	// Set while parsing, to count the bytes read below and above the inflater
+	CountingInputStream compressedInput;
+	CountingInputStream uncompressedInput;
+
+	/**
+	 * Creates empty metrics, to aggregate the metrics of several parses in to.
+	 */
+	public SVGParseMetrics() {
+	}
+
+	void element(String localName) {
+		increment(elementCounts, localName, 1);
+	}
+
+	void unrecognized(String localName) {
+		increment(unrecognizedElements, localName, 1);
+	}
+
+	/**
+	 * Called when the parse is complete.
+	 */
+	void complete() {
+		parses = 1;
+		if (compressedInput != null) {
+			bytesRead = compressedInput.count;
+			compressedInput = null;
+		}
+		if (uncompressedInput != null) {
+			bytesUncompressed = uncompressedInput.count;
+			uncompressedInput = null;
+		}
+	}
+
+	private static void increment(HashMap<String, int[]> counts, String key, int n) {
+		final int[] count = counts.get(key);
+		if (count == null) {
+			counts.put(key, new int[] { n });
+		} else {
+			count[0] += n;
+		}
+	}
+
+	/**
+	 * Adds the metrics of another parse (or aggregate) to this one.
+	 */
+	public synchronized void add(SVGParseMetrics other) {
+		parses += other.parses;
+		totalNanos += other.totalNanos;
+		handlerNanos += other.handlerNanos;
+		pathNanos += other.pathNanos;
+		styleNanos += other.styleNanos;
+		recordNanos += other.recordNanos;
+		pathSegments += other.pathSegments;
+		bytesRead += other.bytesRead;
+		bytesUncompressed += other.bytesUncompressed;
+		saves += other.saves;
+		restores += other.restores;
+		for (Map.Entry<String, int[]> e : other.elementCounts.entrySet()) {
+			increment(elementCounts, e.getKey(), e.getValue()[0]);
+		}
+		for (Map.Entry<String, int[]> e : other.unrecognizedElements.entrySet()) {
+			increment(unrecognizedElements, e.getKey(), e.getValue()[0]);
+		}
+	}
+
+	/**
+	 * @return the number of parses measured: 1, or the number of parses added to an aggregate.
+	 */
+	public synchronized int getParseCount() {
+		return parses;
+	}
+
+	/**
+	 * @return the total time spent parsing, in nanoseconds.
+	 */
+	public synchronized long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/**
+	 * @return the time spent reading and tokenizing the XML (ie. outside of the SVG handler), in nanoseconds.
+	 */
+	public synchronized long getXmlNanos() {
+		return totalNanos - handlerNanos;
+	}
+
+	/**
+	 * @return the time spent parsing path data and shape geometry, in nanoseconds.
+	 */
+	public synchronized long getPathNanos() {
+		return pathNanos;
+	}
+
+	/**
+	 * @return the time spent resolving styles and setting up paints and gradients, in nanoseconds.
+	 */
+	public synchronized long getStyleNanos() {
+		return styleNanos;
+	}
+
+	/**
+	 * @return the time spent recording drawing operations in to the picture, in nanoseconds.
+	 */
+	public synchronized long getRecordNanos() {
+		return recordNanos;
+	}
+
+	/**
+	 * @return the remaining time spent in the SVG handler (transforms, bounds, book keeping), in nanoseconds.
+	 */
+	public synchronized long getOtherNanos() {
+		return handlerNanos - pathNanos - styleNanos - recordNanos;
+	}
+
+	/**
+	 * @return the number of segments (moves, lines, curves and closes) in the paths, polygons and polylines drawn.
+	 */
+	public synchronized int getPathSegments() {
+		return pathSegments;
+	}
+
+	/**
+	 * @return the number of bytes read from the input (compressed, for an SVGZ).
+	 */
+	public synchronized long getBytesRead() {
+		return bytesRead;
+	}
+
+	/**
+	 * @return the number of bytes of XML parsed (which differs from {@link #getBytesRead()} for an SVGZ).
+	 */
+	public synchronized long getBytesUncompressed() {
+		return bytesUncompressed;
+	}
+
+	/**
+	 * @return the number of canvas save operations recorded.
+	 */
+	public synchronized int getSaveCount() {
+		return saves;
+	}
+
+	/**
+	 * @return the number of canvas restore operations recorded.
+	 */
+	public synchronized int getRestoreCount() {
+		return restores;
+	}
+
+	/**
+	 * @return the number of elements of each type (element name).
+	 */
+	public synchronized Map<String, Integer> getElementCounts() {
+		return toMap(elementCounts);
+	}
+
+	/**
+	 * @return the number of elements of each type that the parser doesn't support and ignored.
+	 */
+	public synchronized Map<String, Integer> getUnrecognizedElements() {
+		return toMap(unrecognizedElements);
+	}
+
+	private static Map<String, Integer> toMap(HashMap<String, int[]> counts) {
+		final TreeMap<String, Integer> map = new TreeMap<String, Integer>();
+		for (Map.Entry<String, int[]> e : counts.entrySet()) {
+			map.put(e.getKey(), e.getValue()[0]);
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SVGParseMetrics[parses=" + parses + ", totalMs=" + millis(totalNanos) + ", xmlMs="
+				+ millis(getXmlNanos()) + ", pathMs=" + millis(pathNanos) + ", styleMs=" + millis(styleNanos)
+				+ ", recordMs=" + millis(recordNanos) + ", otherMs=" + millis(getOtherNanos()) + ", pathSegments="
+				+ pathSegments + ", bytes=" + bytesRead + "/" + bytesUncompressed + ", saves=" + saves + ", restores="
+				+ restores + ", elements=" + getElementCounts() + ", unrecognized=" + getUnrecognizedElements() + "]";
+	}
+
+	private static float millis(long nanos) {
+		return nanos / 1000000f;
+	}
+
+	/**
+	 * Counts the bytes read through it.
+	 */
+	static final class CountingInputStream extends FilterInputStream {
+		long count;
+		private long marked;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if (b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			final long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			super.mark(readlimit);
+			marked = count;
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			super.reset();
+			count = marked;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.larvalabs.svgandroid;
+
+/**
+ * Statistics gathered while parsing a single SVG. Obtain them from {@link SVG#getParseStatistics()}.
+ */
+public class SVGParseStatistics {
+
+	int paintRequests;
+	int distinctPaints;
+	int pathEffectRequests;
+	int distinctPathEffects;
+	int shaderRequests;
+	int distinctShaders;
+
+	SVGParseStatistics() {
+	}
+
+	/**
+	 * @return the number of times a paint was used to draw an element.
+	 */
+	public int getPaintRequests() {
+		return paintRequests;
+	}
+
+	/**
+	 * @return the number of distinct paint configurations recorded in to the picture.
+	 */
+	public int getDistinctPaints() {
+		return distinctPaints;
+	}
+
+	/**
+	 * @return the number of dash path effects requested by <code>stroke-dasharray</code> attributes.
+	 */
+	public int getPathEffectRequests() {
+		return pathEffectRequests;
+	}
+
+	/**
+	 * @return the number of distinct dash path effects created.
+	 */
+	public int getDistinctPathEffects() {
+		return distinctPathEffects;
+	}
+
+	/**
+	 * @return the number of gradient shaders requested.
+	 */
+	public int getShaderRequests() {
+		return shaderRequests;
+	}
+
+	/**
+	 * @return the number of distinct gradient shaders created.
+	 */
+	public int getDistinctShaders() {
+		return distinctShaders;
+	}
+
+	/**
+	 * The ratio of style objects requested to style objects actually held (paints, path effects and shaders combined).
+	 * A value of 1 means nothing was shared, a value of 4 means that on average each style object was used 4 times.
+	 *
+	 * @return the dedupe ratio, or 1 if no styles were used.
+	 */
+	public float getStyleDedupeRatio() {
+		int distinct = distinctPaints + distinctPathEffects + distinctShaders;
+		if (distinct == 0) {
+			return 1f;
+		}
+		return (paintRequests + pathEffectRequests + shaderRequests) / (float) distinct;
+	}
+
+	@Override
+	public String toString() {
+		return "SVGParseStatistics[paints=" + distinctPaints + "/" + paintRequests + ", pathEffects="
+				+ distinctPathEffects + "/" + pathEffectRequests + ", shaders=" + distinctShaders + "/"
+				+ shaderRequests + ", dedupeRatio=" + getStyleDedupeRatio() + "]";
+	}
+}
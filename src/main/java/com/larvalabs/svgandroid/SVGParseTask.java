@@ -0,0 +1,345 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.os.Handler;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xml.sax.helpers.AttributesImpl;
+
+import com.larvalabs.svgandroid.SVGParser.SVGHandler;
+
+/**
+ * A resumable parse of an SVG, which does a bounded amount of work each time it is run so that large documents can be
+ * loaded on the UI thread across several frames. Create one with {@link SVGBuilder#buildIncrementally()}, then either
+ * drive it yourself with {@link #parseFor(long)} / {@link #parseElements(int)}, or let it schedule itself on a
+ * {@link Handler} with {@link #start(Handler, long, Listener)}.
+ * <p/>
+ * After each slice, {@link #getProgressPicture()} shows everything drawn so far. Each slice is recorded in to its own
+ * picture (with the clip and transforms that were open re-applied), and the final picture draws them in order.
+ * <p/>
+ * The document is read with an XmlPull parser rather than SAX, under the same restrictions: doctypes are refused, and
+ * the limits set on the builder apply.
+ * <p/>
+ * A task is not thread-safe; use it from one thread only.
+ */
+public class SVGParseTask {
+
+	/**
+	 * Receives the progress of a task started with {@link SVGParseTask#start(Handler, long, Listener)}. All methods
+	 * are called on the handler's thread.
+	 */
+	public interface Listener {
+		/**
+		 * Called after each slice but the last.
+		 *
+		 * @param progress everything drawn so far.
+		 */
+		void onProgress(Picture progress);
+
+		void onComplete(SVG svg);
+
+		void onError(SVGParseException e);
+	}
+
+	private final InputStream data;
+	private final SVGHandler handler;
+	private final boolean closeInputStream;
+
+	private XmlPullParser parser = null;
+	private final AttributesImpl attributes = new AttributesImpl();
+	private final int[] textRange = new int[2];
+
+	private final ArrayList<Picture> segments = new ArrayList<Picture>();
+	private Picture current = null;
+	private boolean suspended = false;
+	private Picture progress = null;
+	private int progressSegments = 0;
+
+	private SVG result = null;
+	private boolean closed = false;
+
+	private Runnable scheduled = null;
+	private Handler scheduler = null;
+
+	SVGParseTask(InputStream data, SVGHandler handler, boolean closeInputStream) {
+		this.data = data;
+		this.handler = handler;
+		this.closeInputStream = closeInputStream;
+	}
+
+	/**
+	 * Parses for (about) the given time. A slice can only end between elements (or text runs), so it may overrun by
+	 * the cost of one element.
+	 *
+	 * @param millis the time budget of this slice.
+	 * @return whether the document has been completely parsed.
+	 * @throws SVGParseException if there is an error while parsing.
+	 */
+	public boolean parseFor(long millis) throws SVGParseException {
+		return parse(Integer.MAX_VALUE, System.nanoTime() + millis * 1000000L);
+	}
+
+	/**
+	 * Parses (at least) the given number of elements.
+	 *
+	 * @param count the number of start tags to process in this slice.
+	 * @return whether the document has been completely parsed.
+	 * @throws SVGParseException if there is an error while parsing.
+	 */
+	public boolean parseElements(int count) throws SVGParseException {
+		return parse(count, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return whether the document has been completely parsed.
+	 */
+	public boolean isDone() {
+		return result != null;
+	}
+
+	/**
+	 * Gets a picture of what has been drawn so far. The picture is only rebuilt when another slice has been parsed.
+	 *
+	 * @return the partial drawing, or null if nothing has been recorded yet.
+	 */
+	public Picture getProgressPicture() {
+		if (result != null) {
+			return result.getPicture();
+		}
+		if (segments.isEmpty()) {
+			return null;
+		}
+		if (progressSegments != segments.size()) {
+			progress = compose(segments);
+			progressSegments = segments.size();
+		}
+		return progress;
+	}
+
+	/**
+	 * @return the parsed SVG.
+	 * @throws IllegalStateException if the document hasn't been completely parsed yet.
+	 */
+	public SVG getSVG() {
+		if (result == null) {
+			throw new IllegalStateException("The SVG has not been completely parsed yet.");
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the document one slice per message on the given handler, letting the handler's looper process other
+	 * messages (such as drawing frames) in between.
+	 *
+	 * @param scheduler the handler of the thread to parse on, usually the UI thread.
+	 * @param sliceMillis the time budget of each slice.
+	 * @param listener receives progress pictures, then the result or error.
+	 */
+	public void start(final Handler scheduler, final long sliceMillis, final Listener listener) {
+		if (scheduled != null) {
+			throw new IllegalStateException("The task has already been started.");
+		}
+		this.scheduler = scheduler;
+		scheduled = new Runnable() {
+			public void run() {
+				final boolean done;
+				try {
+					done = parseFor(sliceMillis);
+				} catch (SVGParseException e) {
+					listener.onError(e);
+					return;
+				}
+				if (done) {
+					listener.onComplete(result);
+				} else {
+					listener.onProgress(getProgressPicture());
+					if (!closed) {
+						scheduler.post(this);
+					}
+				}
+			}
+		};
+		scheduler.post(scheduled);
+	}
+
+	/**
+	 * Stops a task started with {@link #start(Handler, long, Listener)} (the listener won't be called again) and
+	 * releases the input.
+	 */
+	public void cancel() {
+		if (scheduled != null) {
+			scheduler.removeCallbacks(scheduled);
+		}
+		close();
+	}
+
+	private boolean parse(int maxElements, long deadline) throws SVGParseException {
+		if (result != null) {
+			return true;
+		}
+		if (closed) {
+			throw new IllegalStateException("The task has been cancelled or has failed.");
+		}
+		final long start = System.nanoTime();
+		if (handler.parseLimits != null) {
+			handler.parseLimits.resume();
+		}
+		try {
+			if (parser == null) {
+				open();
+			} else if (suspended) {
+				current = new Picture();
+				handler.resumeRecording(current);
+				suspended = false;
+			}
+			int elements = 0;
+			while (true) {
+				if (handler.canSuspendRecording() && (elements >= maxElements || System.nanoTime() >= deadline)) {
+					handler.suspendRecording();
+					segments.add(current);
+					suspended = true;
+					measure(start);
+					return false;
+				}
+				// Tokens rather than events, so that a doctype is seen rather than skipped
+				switch (parser.nextToken()) {
+				case XmlPullParser.DOCDECL:
+					// As for the SAX parser, which refuses doctypes so that entities can't expand without bound or
+					// read external files
+					throw new SVGParseException("DOCTYPE is not allowed in SVG documents.");
+				case XmlPullParser.START_TAG:
+					startElement();
+					elements++;
+					break;
+				case XmlPullParser.END_TAG:
+					final String name = parser.getName();
+					handler.endElement(parser.getNamespace(), name, qName(parser.getPrefix(), name));
+					break;
+				case XmlPullParser.TEXT:
+				case XmlPullParser.CDSECT:
+					final char[] ch = parser.getTextCharacters(textRange);
+					handler.characters(ch, textRange[0], textRange[1]);
+					break;
+				case XmlPullParser.ENTITY_REF:
+					// The characters of an entity reference are its name; its text is the replacement
+					final String text = parser.getText();
+					if (text == null) {
+						throw new SVGParseException("Undeclared entity: " + parser.getName());
+					}
+					handler.characters(text.toCharArray(), 0, text.length());
+					break;
+				case XmlPullParser.END_DOCUMENT:
+					handler.endDocument();
+					measure(start);
+					finish();
+					return true;
+				}
+			}
+		} catch (SVGHandler.TargetCompleteException e) {
+			// The rest of the document doesn't affect the target element
+			measure(start);
+			finish();
+			return true;
+		} catch (Exception e) {
+			close();
+			final SVGLimitExceededException limit = SVGParser.limitExceeded(e);
+			if (limit != null) {
+				throw limit;
+			}
+			Log.e(SVGParser.TAG, "Failed to parse SVG.", e);
+			throw (e instanceof SVGParseException) ? (SVGParseException) e : new SVGParseException(e);
+		}
+	}
+
+	private void open() throws Exception {
+		final XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+		parser = factory.newPullParser();
+		// Off by default, and some parsers (eg. kxml) can't even set it, but the doctype mustn't be processed
+		if (parser.getFeature(XmlPullParser.FEATURE_PROCESS_DOCDECL)) {
+			parser.setFeature(XmlPullParser.FEATURE_PROCESS_DOCDECL, false);
+		}
+		parser.setInput(data, null);
+		current = new Picture();
+		handler.setPicture(current);
+		handler.startDocument();
+	}
+
+	private void startElement() throws Exception {
+		attributes.clear();
+		for (int i = 0, n = parser.getAttributeCount(); i < n; i++) {
+			final String name = parser.getAttributeName(i);
+			attributes.addAttribute(parser.getAttributeNamespace(i), name, qName(parser.getAttributePrefix(i), name),
+					"CDATA", parser.getAttributeValue(i));
+		}
+		handler.startElement(parser.getNamespace(), parser.getName(), qName(parser.getPrefix(), parser.getName()),
+				attributes);
+	}
+
+	private void measure(long sliceStart) {
+		if (handler.parseLimits != null) {
+			// The time between slices doesn't count towards the limit
+			handler.parseLimits.pause();
+		}
+		if (handler.metrics != null) {
+			handler.metrics.totalNanos += System.nanoTime() - sliceStart;
+		}
+	}
+
+	private static String qName(String prefix, String name) {
+		return (prefix == null) ? name : prefix + ":" + name;
+	}
+
+	private void finish() {
+		final Picture picture;
+		if (segments.isEmpty()) {
+			picture = current;
+		} else {
+			segments.add(current);
+			picture = compose(segments);
+		}
+		result = SVGParser.result(picture, handler);
+		segments.clear();
+		progress = null;
+		close();
+	}
+
+	/**
+	 * Records a picture that draws the given pictures in order.
+	 */
+	private static Picture compose(ArrayList<Picture> pictures) {
+		if (pictures.size() == 1) {
+			return pictures.get(0);
+		}
+		final Picture first = pictures.get(0);
+		final Picture composite = new Picture();
+		final Canvas canvas = composite.beginRecording(first.getWidth(), first.getHeight());
+		for (Picture p : pictures) {
+			canvas.drawPicture(p);
+		}
+		composite.endRecording();
+		return composite;
+	}
+
+	private void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		parser = null;
+		if (closeInputStream) {
+			try {
+				data.close();
+			} catch (IOException e) {
+				Log.e(SVGParser.TAG, "Error closing SVG input stream.", e);
+			}
+		}
+	}
+}
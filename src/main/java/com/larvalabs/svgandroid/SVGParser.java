@@ -2,21 +2,20 @@ package com.larvalabs.svgandroid;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
-import android.graphics.LinearGradient;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Picture;
-import android.graphics.RadialGradient;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.Shader.TileMode;
+import android.graphics.Typeface;
 import android.util.FloatMath;
 import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.StringTokenizer;
 import java.util.regex.Pattern;
@@ -29,6 +28,7 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 /*
@@ -42,13 +42,28 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 
 /**
+ * Parses SVGs; use {@link SVGBuilder} to set up a parse.
+ * <p/>
+ * Parsing is reentrant: all of the state of a parse is held by the handler created for it (and by its renderer), and
+ * the parser's static state is immutable, so any number of documents can be parsed at once on different threads. The
+ * objects a parse is given (builders, input streams, renderers, metrics listeners) must not be shared by concurrent
+ * parses, except for colour filters and aggregate {@link SVGParseMetrics}, which may be.
+ * 
  * @author Larva Labs, LLC
  */
 public class SVGParser {
 
 	static final String TAG = "SVGAndroid";
 
-	private static boolean DISALLOW_DOCTYPE_DECL = true;
+	/**
+	 * The font size of text that doesn't set one: CSS's <code>medium</code>.
+	 */
+	private static final float DEFAULT_FONT_SIZE = 16f;
+
+	/**
+	 * Limit on nested <code>use</code> references, which guards against circular references.
+	 */
+	private static final int MAX_USE_DEPTH = 32;
 
 	/**
 	 * Parses a single SVG path and returns it as a <code>android.graphics.Path</code> object. An example path is
@@ -57,41 +72,209 @@ public class SVGParser {
 	 * @param pathString the SVG path, see the specification <a href="http://www.w3.org/TR/SVG/paths.html">here</a>.
 	 */
 	public static Path parsePath(String pathString) {
-		return doPath(pathString);
+		return doPath(pathString, null);
 	}
 
 	static SVG parse(InputSource data, SVGHandler handler) throws SVGParseException {
 		try {
-			final Picture picture = new Picture();
-			handler.setPicture(picture);
-
-			SAXParserFactory spf = SAXParserFactory.newInstance();
-			SAXParser sp = spf.newSAXParser();
-			XMLReader xr = sp.getXMLReader();
-			xr.setContentHandler(handler);
-			xr.setFeature("http://xml.org/sax/features/validation", false);
-			if (DISALLOW_DOCTYPE_DECL) {
-				try {
-					xr.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-				} catch (SAXNotRecognizedException e) {
-					DISALLOW_DOCTYPE_DECL = false;
-				}
+			// Record in to a picture, unless the drawing goes to another renderer
+			final Picture picture = (handler.renderer == null) ? new Picture() : null;
+			if (picture != null) {
+				handler.setPicture(picture);
 			}
-			xr.parse(data);
 
-			SVG result = new SVG(picture, handler.bounds);
-			// Skip bounds if it was an empty pic
-			if (!Float.isInfinite(handler.limits.top)) {
-				result.setLimits(handler.limits);
+			final XMLReader xr = createReader(handler);
+			final long start = System.nanoTime();
+			if (handler.parseLimits != null) {
+				handler.parseLimits.resume();
+			}
+			try {
+				xr.parse(data);
+			} catch (SVGHandler.TargetCompleteException e) {
+				// The rest of the document doesn't affect the target element
+			}
+			if (handler.metrics != null) {
+				handler.metrics.totalNanos += System.nanoTime() - start;
 			}
-			return result;
+			return result(picture, handler);
+		} catch (SVGParseException e) {
+			throw e;
 		} catch (Exception e) {
+			final SVGLimitExceededException limit = limitExceeded(e);
+			if (limit != null) {
+				throw limit;
+			}
 			Log.e(TAG, "Failed to parse SVG.", e);
 			throw new SVGParseException(e);
 		}
 	}
 
-	private static NumberParse parseNumbers(String s) {
+	/**
+	 * Finds the limit exceeded that caused a parse to fail, as the XML parser may wrap exceptions thrown while reading
+	 * the input or by the handler.
+	 *
+	 * @return the exception, or null if the parse failed for another reason.
+	 */
+	static SVGLimitExceededException limitExceeded(Throwable e) {
+		for (int i = 0; e != null && i < 8; i++) {
+			if (e instanceof SVGLimitExceededException) {
+				return (SVGLimitExceededException) e;
+			}
+			final Throwable cause = (e instanceof SAXException) ? ((SAXException) e).getException() : null;
+			e = (cause != null) ? cause : e.getCause();
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the size of a document from its root element, stopping the parse there (or at the end of its first child,
+	 * if that is a "bounds" layer).
+	 */
+	static SVGHeader prescan(InputSource data) throws SVGParseException {
+		final HeaderHandler handler = new HeaderHandler();
+		XMLReader reader = null;
+		try {
+			reader = PRESCAN_READER.get();
+			if (reader == null) {
+				reader = createReader(handler);
+				PRESCAN_READER.set(reader);
+			} else {
+				reader.setContentHandler(handler);
+			}
+			reader.parse(data);
+		} catch (HeaderHandler.HeaderCompleteException e) {
+			// The rest of the document isn't needed
+		} catch (SVGParseException e) {
+			throw e;
+		} catch (Exception e) {
+			final SVGLimitExceededException limit = limitExceeded(e);
+			if (limit != null) {
+				throw limit;
+			}
+			Log.e(TAG, "Failed to prescan SVG.", e);
+			throw new SVGParseException(e);
+		} finally {
+			if (reader != null) {
+				// So that the reader kept by this thread doesn't keep the handler (and what it read) too
+				reader.setContentHandler(NO_HANDLER);
+			}
+		}
+		if (!handler.rootFound) {
+			throw new SVGParseException("No root svg element.");
+		}
+		return new SVGHeader(handler.width, handler.height, handler.viewBox, handler.bounds);
+	}
+
+	/**
+	 * A reader per thread for prescans, which read so little that creating the reader would cost most of the time.
+	 */
+	private static final ThreadLocal<XMLReader> PRESCAN_READER = new ThreadLocal<XMLReader>();
+
+	/**
+	 * Handles the events of no document, for readers between prescans.
+	 */
+	private static final DefaultHandler NO_HANDLER = new DefaultHandler();
+
+	private static XMLReader createReader(DefaultHandler handler) throws Exception {
+		final SAXParserFactory spf = SAXParserFactory.newInstance();
+		// The handler matches elements by local name, which is only reported by namespace aware parsers (as
+		// Android's always is)
+		spf.setNamespaceAware(true);
+		final SAXParser sp = spf.newSAXParser();
+		final XMLReader xr = sp.getXMLReader();
+		xr.setContentHandler(handler);
+		xr.setFeature("http://xml.org/sax/features/validation", false);
+		try {
+			xr.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		} catch (SAXNotRecognizedException e) {
+			// Not a Xerces based parser
+		}
+		return xr;
+	}
+
+	/**
+	 * Creates the SVG from a handler that has seen the whole document.
+	 * 
+	 * @param picture the recorded picture, or null if the drawing went to another renderer.
+	 */
+	static SVG result(Picture picture, SVGHandler handler) {
+		final SVG result = (handler.targetId != null) ? targetResult(picture, handler) : documentResult(picture, handler);
+		result.setMemoryBudget(handler.memoryBudget);
+		if (handler.metrics != null) {
+			handler.metrics.complete();
+			result.setParseMetrics(handler.metrics);
+			if (handler.metricsListener != null) {
+				handler.metricsListener.onParsed(handler.metrics);
+			}
+		}
+		return result;
+	}
+
+	private static SVG documentResult(Picture picture, SVGHandler handler) {
+		SVG result = (handler.layers != null) ? new SVG(handler.finishLayers(), handler.bounds) : new SVG(picture,
+				handler.bounds);
+		result.setParseStatistics(handler.stats);
+		result.setElements(handler.elements);
+		if (picture != null || handler.layers != null) {
+			result.setRecordedSize(handler.estimateRecordedSize());
+		}
+		// Skip bounds if it was an empty pic
+		if (!Float.isInfinite(handler.limits.top)) {
+			result.setLimits(handler.limits);
+		}
+		if (!Float.isInfinite(handler.exactLimits.top)) {
+			result.setExactLimits(handler.exactLimits);
+		}
+		return result;
+	}
+
+	/**
+	 * Creates the SVG of a single target element, cropped to the element's bounds (or to its view box, for a symbol).
+	 */
+	private static SVG targetResult(Picture picture, SVGHandler handler) {
+		if (!handler.targetFound) {
+			throw new SVGParseException("No element with id '" + handler.targetId + "' in the SVG.");
+		}
+		if (picture == null) {
+			// Another renderer has the drawing, in document coordinates, so nothing is cropped
+			return documentResult(null, handler);
+		}
+		final RectF crop = handler.targetCrop;
+		final Picture cropped = new Picture();
+		final Canvas canvas = cropped.beginRecording((int) FloatMath.ceil(crop.width()),
+				(int) FloatMath.ceil(crop.height()));
+		canvas.translate(-crop.left, -crop.top);
+		canvas.drawPicture(picture);
+		cropped.endRecording();
+
+		final SVG result = new SVG(cropped, null);
+		result.setParseStatistics(handler.stats);
+		result.setRecordedSize(handler.estimateRecordedSize() + MemoryEstimate.PICTURE + MemoryEstimate.OP);
+		if (handler.elements != null) {
+			for (SVGElement element : handler.elements.values()) {
+				element.getMatrix().postTranslate(-crop.left, -crop.top);
+				element.getBounds().offset(-crop.left, -crop.top);
+			}
+		}
+		result.setElements(handler.elements);
+		if (!Float.isInfinite(handler.limits.top)) {
+			handler.limits.offset(-crop.left, -crop.top);
+			result.setLimits(handler.limits);
+		}
+		if (!Float.isInfinite(handler.exactLimits.top)) {
+			handler.exactLimits.offset(-crop.left, -crop.top);
+			result.setExactLimits(handler.exactLimits);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a list of numbers, up to the next path command or closing parenthesis.
+	 *
+	 * @return the numbers, or none if any of them isn't a number, so that a malformed transform or list of points is
+	 *         ignored as a whole rather than drawn with NaNs.
+	 */
+	static NumberParse parseNumbers(String s) {
 		// Util.debug("Parsing numbers from: '" + s + "'");
 		int n = s.length();
 		int p = 0;
@@ -130,8 +313,9 @@ public class SVGParser {
 				String str = s.substring(p, i);
 				if (str.trim().length() > 0) {
 					// Util.debug("  Last: " + str);
-					Float f = Float.parseFloat(str);
-					numbers.add(f);
+					if (!addNumber(numbers, str)) {
+						return new NumberParse(new ArrayList<Float>(), s.length());
+					}
 				}
 				p = i;
 				return new NumberParse(numbers, p);
@@ -151,8 +335,9 @@ public class SVGParser {
 				// Just keep moving if multiple whitespace
 				if (str.trim().length() > 0) {
 					// Util.debug("  Next: " + str);
-					Float f = Float.parseFloat(str);
-					numbers.add(f);
+					if (!addNumber(numbers, str)) {
+						return new NumberParse(new ArrayList<Float>(), s.length());
+					}
 					if (c == '-') {
 						p = i;
 					} else {
@@ -174,16 +359,26 @@ public class SVGParser {
 		}
 
 		String last = s.substring(p);
-		if (last.length() > 0) {
+		// Ignoring trailing white-space
+		if (last.trim().length() > 0) {
 			// Util.debug("  Last: " + last);
-			try {
-				numbers.add(Float.parseFloat(last));
-			} catch (NumberFormatException nfe) {
-				// Just white-space, forget it
+			if (!addNumber(numbers, last)) {
+				return new NumberParse(new ArrayList<Float>(), s.length());
 			}
-			p = s.length();
 		}
-		return new NumberParse(numbers, p);
+		return new NumberParse(numbers, s.length());
+	}
+
+	/**
+	 * @return whether the token is a number, in which case it has been added to the list.
+	 */
+	private static boolean addNumber(ArrayList<Float> numbers, String token) {
+		final float f = ParserHelper.parseFloat(token);
+		if (Float.isNaN(f)) {
+			return false;
+		}
+		numbers.add(f);
+		return true;
 	}
 
 	private static final Pattern TRANSFORM_SEP = Pattern.compile("[\\s,]*");
@@ -191,7 +386,7 @@ public class SVGParser {
 	/**
 	 * Parse a list of transforms such as: foo(n,n,n...) bar(n,n,n..._ ...) Delimiters are whitespaces or commas
 	 */
-	private static Matrix parseTransform(String s) {
+	static Matrix parseTransform(String s) {
 		Matrix matrix = new Matrix();
 		while (true) {
 			parseTransformItem(s, matrix);
@@ -294,8 +489,9 @@ public class SVGParser {
 	 * sign)
 	 * 
 	 * @param s the path string from the XML
+	 * @param geometry if not null, receives a copy of the segments (used for measuring).
 	 */
-	private static Path doPath(String s) {
+	static Path doPath(String s, PathGeometry geometry) {
 		int n = s.length();
 		ParserHelper ph = new ParserHelper(s, 0);
 		ph.skipWhitespace();
@@ -307,6 +503,7 @@ public class SVGParser {
 		float subPathStartX = 0;
 		float subPathStartY = 0;
 		char prevCmd = 0;
+		ArcSink arcSink = null;
 		while (ph.pos < n) {
 			char cmd = s.charAt(ph.pos);
 			switch (cmd) {
@@ -354,12 +551,19 @@ public class SVGParser {
 					lastX = x;
 					lastY = y;
 				}
+				if (geometry != null) {
+					geometry.moveTo(lastX, lastY);
+				}
 				break;
 			}
 			case 'Z':
 			case 'z': {
 				p.close();
 				p.moveTo(subPathStartX, subPathStartY);
+				if (geometry != null) {
+					geometry.close();
+					geometry.moveTo(subPathStartX, subPathStartY);
+				}
 				lastX = subPathStartX;
 				lastY = subPathStartY;
 				lastX1 = subPathStartX;
@@ -383,6 +587,9 @@ public class SVGParser {
 					lastX = x;
 					lastY = y;
 				}
+				if (geometry != null) {
+					geometry.lineTo(lastX, lastY);
+				}
 				break;
 			}
 			case 'H':
@@ -395,6 +602,9 @@ public class SVGParser {
 					p.lineTo(x, lastY);
 					lastX = x;
 				}
+				if (geometry != null) {
+					geometry.lineTo(lastX, lastY);
+				}
 				break;
 			}
 			case 'V':
@@ -407,6 +617,9 @@ public class SVGParser {
 					p.lineTo(lastX, y);
 					lastY = y;
 				}
+				if (geometry != null) {
+					geometry.lineTo(lastX, lastY);
+				}
 				break;
 			}
 			case 'C':
@@ -427,6 +640,9 @@ public class SVGParser {
 					y += lastY;
 				}
 				p.cubicTo(x1, y1, x2, y2, x, y);
+				if (geometry != null) {
+					geometry.cubicTo(x1, y1, x2, y2, x, y);
+				}
 				lastX1 = x2;
 				lastY1 = y2;
 				lastX = x;
@@ -452,6 +668,9 @@ public class SVGParser {
 				float x1 = 2 * lastX - lastX1;
 				float y1 = 2 * lastY - lastY1;
 				p.cubicTo(x1, y1, x2, y2, x, y);
+				if (geometry != null) {
+					geometry.cubicTo(x1, y1, x2, y2, x, y);
+				}
 				lastX1 = x2;
 				lastY1 = y2;
 				lastX = x;
@@ -471,7 +690,10 @@ public class SVGParser {
 					x += lastX;
 					y += lastY;
 				}
-				drawArc(p, lastX, lastY, x, y, rx, ry, theta, largeArc, sweepArc);
+				if (arcSink == null) {
+					arcSink = new ArcSink(p, geometry);
+				}
+				PathGeometry.arcTo(lastX, lastY, rx, ry, theta, largeArc != 0, sweepArc != 0, x, y, arcSink);
 				lastX = x;
 				lastY = y;
 				break;
@@ -489,93 +711,202 @@ public class SVGParser {
 		return p;
 	}
 
-	private static float angle(float x1, float y1, float x2, float y2) {
-
-		return (float) Math.toDegrees(Math.atan2(x1, y1) - Math.atan2(x2, y2)) % 360;
-	}
-
-	private static final RectF arcRectf = new RectF();
-	private static final Matrix arcMatrix = new Matrix();
-	private static final Matrix arcMatrix2 = new Matrix();
-
-	private static void drawArc(Path p, float lastX, float lastY, float x, float y, float rx, float ry, float theta,
-			int largeArc, int sweepArc) {
-		// Log.d("drawArc", "from (" + lastX + "," + lastY + ") to (" + x + ","+ y + ") r=(" + rx + "," + ry +
-		// ") theta=" + theta + " flags="+ largeArc + "," + sweepArc);
-
-		// http://www.w3.org/TR/SVG/implnote.html#ArcImplementationNotes
+	/**
+	 * Draws the cubics that an arc is converted to in to both the path and (if measured) its geometry.
+	 */
+	private static final class ArcSink implements PathGeometry.Sink {
+		private final Path path;
+		private final PathGeometry geometry;
 
-		if (rx == 0 || ry == 0) {
-			p.lineTo(x, y);
-			return;
+		ArcSink(Path path, PathGeometry geometry) {
+			this.path = path;
+			this.geometry = geometry;
 		}
 
-		if (x == lastX && y == lastY) {
-			return; // nothing to draw
+		public void moveTo(float x, float y) {
+			path.moveTo(x, y);
+			if (geometry != null) {
+				geometry.moveTo(x, y);
+			}
 		}
 
-		rx = Math.abs(rx);
-		ry = Math.abs(ry);
+		public void lineTo(float x, float y) {
+			path.lineTo(x, y);
+			if (geometry != null) {
+				geometry.lineTo(x, y);
+			}
+		}
 
-		final float thrad = theta * (float) Math.PI / 180;
-		final float st = FloatMath.sin(thrad);
-		final float ct = FloatMath.cos(thrad);
+		public void quadTo(float x1, float y1, float x, float y) {
+			path.quadTo(x1, y1, x, y);
+			if (geometry != null) {
+				geometry.quadTo(x1, y1, x, y);
+			}
+		}
 
-		final float xc = (lastX - x) / 2;
-		final float yc = (lastY - y) / 2;
-		final float x1t = ct * xc + st * yc;
-		final float y1t = -st * xc + ct * yc;
+		public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+			path.cubicTo(x1, y1, x2, y2, x, y);
+			if (geometry != null) {
+				geometry.cubicTo(x1, y1, x2, y2, x, y);
+			}
+		}
 
-		final float x1ts = x1t * x1t;
-		final float y1ts = y1t * y1t;
-		float rxs = rx * rx;
-		float rys = ry * ry;
+		public void close() {
+			path.close();
+			if (geometry != null) {
+				geometry.close();
+			}
+		}
+	}
 
-		float lambda = (x1ts / rxs + y1ts / rys) * 1.001f; // add 0.1% to be sure that no out of range occurs due to
-															// limited precision
-		if (lambda > 1) {
-			float lambdasr = FloatMath.sqrt(lambda);
-			rx *= lambdasr;
-			ry *= lambdasr;
-			rxs = rx * rx;
-			rys = ry * ry;
+	/**
+	 * Builds the geometry of a basic shape element (<code>path</code>, <code>rect</code>, <code>circle</code>,
+	 * <code>ellipse</code>, <code>line</code>, <code>polygon</code> or <code>polyline</code>).
+	 * 
+	 * @param geometry receives a copy of the segments (used for measuring).
+	 * @return the path, or null if the element is not a shape or is missing required attributes.
+	 */
+	private static Path shapePath(String localName, Attributes atts, PathGeometry geometry) {
+		if (localName.equals("path")) {
+			final String d = getStringAttr("d", atts);
+			return (d == null) ? null : doPath(d, geometry);
+		} else if (localName.equals("rect")) {
+			final Float width = getFloatAttr("width", atts);
+			final Float height = getFloatAttr("height", atts);
+			if (width == null || height == null) {
+				return null;
+			}
+			final float x = getFloatAttr("x", atts, 0f);
+			final float y = getFloatAttr("y", atts, 0f);
+			final float rx = getFloatAttr("rx", atts, 0f);
+			final float ry = getFloatAttr("ry", atts, 0f);
+			final RectF r = new RectF(x, y, x + width, y + height);
+			final Path p = new Path();
+			if (rx <= 0f && ry <= 0f) {
+				p.addRect(r, Path.Direction.CW);
+				geometry.moveTo(r.left, r.top);
+				geometry.lineTo(r.right, r.top);
+				geometry.lineTo(r.right, r.bottom);
+				geometry.lineTo(r.left, r.bottom);
+				geometry.close();
+			} else {
+				p.addRoundRect(r, rx, ry, Path.Direction.CW);
+				addRoundRect(geometry, r, Math.max(rx, 0f), Math.max(ry, 0f));
+			}
+			return p;
+		} else if (localName.equals("circle") || localName.equals("ellipse")) {
+			final Float cx = getFloatAttr("cx", atts);
+			final Float cy = getFloatAttr("cy", atts);
+			final Float rx, ry;
+			if (localName.equals("ellipse")) {
+				rx = getFloatAttr("rx", atts);
+				ry = getFloatAttr("ry", atts);
+			} else {
+				rx = ry = getFloatAttr("r", atts);
+			}
+			if (cx == null || cy == null || rx == null || ry == null) {
+				return null;
+			}
+			final Path p = new Path();
+			p.addOval(new RectF(cx - rx, cy - ry, cx + rx, cy + ry), Path.Direction.CW);
+			addOval(geometry, cx, cy, rx, ry);
+			return p;
+		} else if (localName.equals("line")) {
+			final float x1 = getFloatAttr("x1", atts, 0f);
+			final float y1 = getFloatAttr("y1", atts, 0f);
+			final float x2 = getFloatAttr("x2", atts, 0f);
+			final float y2 = getFloatAttr("y2", atts, 0f);
+			final Path p = new Path();
+			p.moveTo(x1, y1);
+			p.lineTo(x2, y2);
+			geometry.moveTo(x1, y1);
+			geometry.lineTo(x2, y2);
+			return p;
+		} else if (localName.equals("polygon") || localName.equals("polyline")) {
+			final NumberParse numbers = getNumberParseAttr("points", atts);
+			if (numbers == null || numbers.numbers.size() < 2) {
+				return null;
+			}
+			final ArrayList<Float> points = numbers.numbers;
+			final Path p = new Path();
+			p.moveTo(points.get(0), points.get(1));
+			geometry.moveTo(points.get(0), points.get(1));
+			for (int i = 2; i + 1 < points.size(); i += 2) {
+				p.lineTo(points.get(i), points.get(i + 1));
+				geometry.lineTo(points.get(i), points.get(i + 1));
+			}
+			if (localName.equals("polygon")) {
+				p.close();
+				geometry.close();
+			}
+			return p;
 		}
+		return null;
+	}
 
-		final float R =
-				FloatMath.sqrt((rxs * rys - rxs * y1ts - rys * x1ts) / (rxs * y1ts + rys * x1ts))
-						* ((largeArc == sweepArc) ? -1 : 1);
-		final float cxt = R * rx * y1t / ry;
-		final float cyt = -R * ry * x1t / rx;
-		final float cx = ct * cxt - st * cyt + (lastX + x) / 2;
-		final float cy = st * cxt + ct * cyt + (lastY + y) / 2;
+	/**
+	 * Magic number for approximating a quarter ellipse with a cubic B&eacute;zier.
+	 */
+	private static final float KAPPA = 0.5522848f;
+
+	private static void addOval(PathGeometry geometry, float cx, float cy, float rx, float ry) {
+		final float kx = rx * KAPPA, ky = ry * KAPPA;
+		geometry.moveTo(cx + rx, cy);
+		geometry.cubicTo(cx + rx, cy + ky, cx + kx, cy + ry, cx, cy + ry);
+		geometry.cubicTo(cx - kx, cy + ry, cx - rx, cy + ky, cx - rx, cy);
+		geometry.cubicTo(cx - rx, cy - ky, cx - kx, cy - ry, cx, cy - ry);
+		geometry.cubicTo(cx + kx, cy - ry, cx + rx, cy - ky, cx + rx, cy);
+		geometry.close();
+	}
 
-		final float th1 = angle(1, 0, (x1t - cxt) / rx, (y1t - cyt) / ry);
-		float dth = angle((x1t - cxt) / rx, (y1t - cyt) / ry, (-x1t - cxt) / rx, (-y1t - cyt) / ry);
+	private static void addRoundRect(PathGeometry geometry, RectF r, float rx, float ry) {
+		rx = Math.min(rx, r.width() / 2);
+		ry = Math.min(ry, r.height() / 2);
+		final float kx = rx * KAPPA, ky = ry * KAPPA;
+		geometry.moveTo(r.left + rx, r.top);
+		geometry.lineTo(r.right - rx, r.top);
+		geometry.cubicTo(r.right - rx + kx, r.top, r.right, r.top + ry - ky, r.right, r.top + ry);
+		geometry.lineTo(r.right, r.bottom - ry);
+		geometry.cubicTo(r.right, r.bottom - ry + ky, r.right - rx + kx, r.bottom, r.right - rx, r.bottom);
+		geometry.lineTo(r.left + rx, r.bottom);
+		geometry.cubicTo(r.left + rx - kx, r.bottom, r.left, r.bottom - ry + ky, r.left, r.bottom - ry);
+		geometry.lineTo(r.left, r.top + ry);
+		geometry.cubicTo(r.left, r.top + ry - ky, r.left + rx - kx, r.top, r.left + rx, r.top);
+		geometry.close();
+	}
 
-		if (sweepArc == 0 && dth > 0) {
-			dth -= 360;
-		} else if (sweepArc != 0 && dth < 0) {
-			dth += 360;
+	/**
+	 * Parses a <code>viewBox</code> attribute value ("min-x min-y width height").
+	 * 
+	 * @return the view box as a rectangle, or null if the value is missing or invalid.
+	 */
+	private static RectF parseViewBox(String viewBox) {
+		if (viewBox == null) {
+			return null;
 		}
+		String[] dims = viewBox.trim().replace(',', ' ').split("\\s+");
+		if (dims.length != 4) {
+			return null;
+		}
+		Float x = parseFloatValue(dims[0], null);
+		Float y = parseFloatValue(dims[1], null);
+		Float width = parseFloatValue(dims[2], null);
+		Float height = parseFloatValue(dims[3], null);
+		if (x == null || y == null || width == null || height == null) {
+			return null;
+		}
+		return new RectF(x, y, x + width, y + height);
+	}
 
-		// draw
-		if ((theta % 360) == 0) {
-			// no rotate and translate need
-			arcRectf.set(cx - rx, cy - ry, cx + rx, cy + ry);
-			p.arcTo(arcRectf, th1, dth);
-		} else {
-			// this is the hard and slow part :-)
-			arcRectf.set(-rx, -ry, rx, ry);
-
-			arcMatrix.reset();
-			arcMatrix.postRotate(theta);
-			arcMatrix.postTranslate(cx, cy);
-			arcMatrix.invert(arcMatrix2);
-
-			p.transform(arcMatrix2);
-			p.arcTo(arcRectf, th1, dth);
-			p.transform(arcMatrix);
+	/**
+	 * @return the id referenced by an <code>xlink:href</code> attribute, without the leading '#'.
+	 */
+	private static String getHref(Attributes atts) {
+		String href = getStringAttr("href", atts);
+		if (href != null && href.startsWith("#")) {
+			href = href.substring(1);
 		}
+		return href;
 	}
 
 	private static NumberParse getNumberParseAttr(String name, Attributes attributes) {
@@ -588,7 +919,7 @@ public class SVGParser {
 		return null;
 	}
 
-	private static String getStringAttr(String name, Attributes attributes) {
+	static String getStringAttr(String name, Attributes attributes) {
 		int n = attributes.getLength();
 		for (int i = 0; i < n; i++) {
 			if (attributes.getLocalName(i).equals(name)) {
@@ -612,20 +943,73 @@ public class SVGParser {
 		return parseFloatValue(v, defaultValue);
 	}
 
+	/**
+	 * @return the first number of a list of coordinates (as in a text's <code>x</code> attribute), or null if there
+	 *         isn't one.
+	 */
+	private static Float firstNumber(String list) {
+		if (list == null) {
+			return null;
+		}
+		final String trimmed = list.trim();
+		int end = 0;
+		while (end < trimmed.length() && trimmed.charAt(end) != ',' && !Character.isWhitespace(trimmed.charAt(end))) {
+			end++;
+		}
+		return parseFloatValue(trimmed.substring(0, end), null);
+	}
+
+	/**
+	 * @return the font size in pixels, or null if it isn't given as a number.
+	 */
+	private static Float parseTextSize(String size) {
+		// Named and relative sizes (medium, larger, 1.2em...) aren't supported
+		return parseFloatValue(size, null);
+	}
+
+	/**
+	 * @return the first family of a <code>font-family</code> list, unquoted.
+	 */
+	private static String parseFontFamily(String families) {
+		final int comma = families.indexOf(',');
+		String family = ((comma < 0) ? families : families.substring(0, comma)).trim();
+		if (family.length() >= 2 && (family.charAt(0) == '\'' || family.charAt(0) == '"')) {
+			family = family.substring(1, family.length() - 1);
+		}
+		return (family.length() == 0) ? null : family;
+	}
+
+	private static boolean isBold(String weight) {
+		if (weight.equals("bold") || weight.equals("bolder")) {
+			return true;
+		}
+		try {
+			return Integer.parseInt(weight) >= 600;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the number (in pixels, or as a fraction for a percentage), or the default value if it is missing or
+	 *         isn't a number.
+	 */
 	private static Float parseFloatValue(String str, Float defaultValue) {
 		if (str == null) {
 			return defaultValue;
-		} else if (str.endsWith("px")) {
-			str = str.substring(0, str.length() - 2);
+		}
+		final float f;
+		if (str.endsWith("px")) {
+			f = ParserHelper.parseFloat(str, 0, str.length() - 2);
 		} else if (str.endsWith("%")) {
-			str = str.substring(0, str.length() - 1);
-			return Float.parseFloat(str) / 100;
+			f = ParserHelper.parseFloat(str, 0, str.length() - 1) / 100;
+		} else {
+			f = ParserHelper.parseFloat(str);
 		}
-		// Log.d(TAG, "Float parsing '" + name + "=" + v + "'");
-		return Float.parseFloat(str);
+		return Float.isNaN(f) ? defaultValue : Float.valueOf(f);
 	}
 
-	private static class NumberParse {
+	static class NumberParse {
 		private ArrayList<Float> numbers;
 		private int nextCmd;
 
@@ -638,6 +1022,10 @@ public class SVGParser {
 			return nextCmd;
 		}
 
+		public int getNumberCount() {
+			return numbers.size();
+		}
+
 		public float getNumber(int index) {
 			return numbers.get(index);
 		}
@@ -650,13 +1038,58 @@ public class SVGParser {
 		boolean isLinear;
 		float x1, y1, x2, y2;
 		float x, y, radius;
-		ArrayList<Float> positions = new ArrayList<Float>();
-		ArrayList<Integer> colors = new ArrayList<Integer>();
+		float[] positions = new float[4];
+		int[] colors = new int[4];
+		int stopCount = 0;
 		Matrix matrix = null;
 		public Shader shader = null;
 		public boolean boundingBox = false;
 		public TileMode tilemode;
 
+		/**
+		 * Whether inheritance has been applied and the stop arrays trimmed, which happens on first use.
+		 */
+		boolean resolved = false;
+
+		/**
+		 * Shaders for <code>objectBoundingBox</code> gradients, one per distinct bounding box.
+		 */
+		HashMap<BoxKey, Shader> boxShaders = null;
+
+		void addStop(int colour, float offset) {
+			if (stopCount == colors.length) {
+				int[] c = new int[stopCount * 2];
+				float[] p = new float[stopCount * 2];
+				System.arraycopy(colors, 0, c, 0, stopCount);
+				System.arraycopy(positions, 0, p, 0, stopCount);
+				colors = c;
+				positions = p;
+			}
+			colors[stopCount] = colour;
+			positions[stopCount] = offset;
+			stopCount++;
+		}
+
+		/**
+		 * Shrinks the stop arrays to their exact size, as required by the shader constructors. A single stop is
+		 * doubled up, as a gradient with one stop paints a solid colour.
+		 */
+		void trimStops() {
+			int size = (stopCount == 1) ? 2 : stopCount;
+			if (colors.length != size) {
+				int[] c = new int[size];
+				float[] p = new float[size];
+				System.arraycopy(colors, 0, c, 0, stopCount);
+				System.arraycopy(positions, 0, p, 0, stopCount);
+				if (stopCount == 1) {
+					c[1] = c[0];
+					p[1] = p[0];
+				}
+				colors = c;
+				positions = p;
+			}
+		}
+
 /*
 		public Gradient createChild(Gradient g) {
 			Gradient child = new Gradient();
@@ -691,8 +1124,11 @@ public class SVGParser {
         public void inherit(Gradient parent) {
             Gradient child = this;
             child.xlink = parent.id;
-            child.positions = parent.positions;
-            child.colors = parent.colors;
+            if (child.stopCount == 0) {
+                child.positions = parent.positions;
+                child.colors = parent.colors;
+                child.stopCount = parent.stopCount;
+            }
             if (child.matrix == null) {
                 child.matrix = parent.matrix;
             } else if (parent.matrix != null) {
@@ -703,6 +1139,37 @@ public class SVGParser {
         }
 	}
 
+	/**
+	 * Key for a bounding box, so that shaders can be cached by it.
+	 */
+	private static final class BoxKey {
+		final float left, top, right, bottom;
+
+		BoxKey(RectF r) {
+			left = r.left;
+			top = r.top;
+			right = r.right;
+			bottom = r.bottom;
+		}
+
+		@Override
+		public int hashCode() {
+			int h = Float.floatToIntBits(left);
+			h = 31 * h + Float.floatToIntBits(top);
+			h = 31 * h + Float.floatToIntBits(right);
+			return 31 * h + Float.floatToIntBits(bottom);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof BoxKey)) {
+				return false;
+			}
+			BoxKey k = (BoxKey) o;
+			return left == k.left && top == k.top && right == k.right && bottom == k.bottom;
+		}
+	}
+
 	private static class StyleSet {
 		HashMap<String, String> styleMap = new HashMap<String, String>();
 
@@ -721,12 +1188,59 @@ public class SVGParser {
 		}
 	}
 
-	private static class Properties {
+	private static Integer rgb(int r, int g, int b) {
+		return ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
+	}
+
+	private static int parseNum(String v) throws NumberFormatException {
+		if (v.endsWith("%")) {
+			final float f = ParserHelper.parseFloat(v, 0, v.length() - 1);
+			if (Float.isNaN(f)) {
+				throw new NumberFormatException(v);
+			}
+			return Math.round(f / 100 * 255);
+		}
+		return Integer.parseInt(v);
+	}
+
+	/**
+	 * @return the colour of a CSS colour value (a name, #RRGGBB or rgb(r, g, b)), or null if the value isn't a colour.
+	 */
+	static Integer parseColor(String name) {
+		String v = name;
+		if (v == null) {
+			return null;
+		} else if (v.startsWith("#")) {
+			try { // #RRGGBB or #AARRGGBB
+				return Color.parseColor(v);
+			} catch (IllegalArgumentException iae) {
+				return null;
+			}
+		} else if (v.startsWith("rgb(") && v.endsWith(")")) {
+			String values[] = v.substring(4, v.length() - 1).split(",");
+			try {
+				return rgb(parseNum(values[0]), parseNum(values[1]), parseNum(values[2]));
+			} catch (NumberFormatException nfe) {
+				return null;
+			} catch (ArrayIndexOutOfBoundsException e) {
+				return null;
+			}
+		} else {
+			return SVGColors.mapColour(v);
+		}
+	}
+
+	static class Properties {
 		StyleSet styles = null;
+		HashMap<String, String> css;
 		Attributes atts;
 
-		private Properties(Attributes atts) {
+		/**
+		 * @param css the declarations from the document's style sheet that apply to this element, or null.
+		 */
+		Properties(Attributes atts, HashMap<String, String> css) {
 			this.atts = atts;
+			this.css = css;
 			String styleAttr = getStringAttr("style", atts);
 			if (styleAttr != null) {
 				styles = new StyleSet(styleAttr);
@@ -738,6 +1252,9 @@ public class SVGParser {
 			if (styles != null) {
 				v = styles.getStyle(name);
 			}
+			if (v == null && css != null) {
+				v = css.get(name);
+			}
 			if (v == null) {
 				v = getStringAttr(name, atts);
 			}
@@ -748,40 +1265,8 @@ public class SVGParser {
 			return getAttr(name);
 		}
 
-		private Integer rgb(int r, int g, int b) {
-			return ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
-		}
-
-		private int parseNum(String v) throws NumberFormatException {
-			if (v.endsWith("%")) {
-				v = v.substring(0, v.length() - 1);
-				return Math.round(Float.parseFloat(v) / 100 * 255);
-			}
-			return Integer.parseInt(v);
-		}
-
 		public Integer getColor(String name) {
-            String v = name;
-			if (v == null) {
-				return null;
-			} else if (v.startsWith("#")) {
-				try { // #RRGGBB or #AARRGGBB
-					return Color.parseColor(v);
-				} catch (IllegalArgumentException iae) {
-					return null;
-				}
-			} else if (v.startsWith("rgb(") && v.endsWith(")")) {
-				String values[] = v.substring(4, v.length() - 1).split(",");
-				try {
-					return rgb(parseNum(values[0]), parseNum(values[1]), parseNum(values[2]));
-				} catch (NumberFormatException nfe) {
-					return null;
-				} catch (ArrayIndexOutOfBoundsException e) {
-					return null;
-				}
-			} else {
-				return SVGColors.mapColour(v);
-			}
+			return parseColor(name);
 		}
 
 		// convert 0xRGB into 0xRRGGBB
@@ -794,26 +1279,18 @@ public class SVGParser {
 			String v = getAttr(name);
 			if (v == null) {
 				return defaultValue;
-			} else {
-				try {
-					return Float.parseFloat(v);
-				} catch (NumberFormatException nfe) {
-					return defaultValue;
-				}
 			}
+			final float f = ParserHelper.parseFloat(v);
+			return Float.isNaN(f) ? defaultValue : f;
 		}
 
 		public Float getFloat(String name, Float defaultValue) {
 			String v = getAttr(name);
 			if (v == null) {
 				return defaultValue;
-			} else {
-				try {
-					return Float.parseFloat(v);
-				} catch (NumberFormatException nfe) {
-					return defaultValue;
-				}
 			}
+			final float f = ParserHelper.parseFloat(v);
+			return Float.isNaN(f) ? defaultValue : Float.valueOf(f);
 		}
 
 		public Float getFloat(String name) {
@@ -821,45 +1298,191 @@ public class SVGParser {
 		}
 	}
 
-	private static class LayerAttributes {
-		public final float opacity;
-
-		public LayerAttributes(float opacity) {
-			this.opacity = opacity;
+	/**
+	 * A reusable element that can be instanced by <code>use</code>: anything inside <code>defs</code> or
+	 * <code>symbol</code>, and any drawn shape with an id. Geometry is parsed once, when first used (unless it is
+	 * needed for the element index), and shared by every instance, which draws it with its own transform.
+	 */
+	private static class Shape {
+		final Attributes atts;
+		final Matrix transform;
+		HashMap<String, String> css;
+		/** The element name of a shape whose geometry hasn't been parsed yet. */
+		String type;
+		Path path;
+		PathGeometry geometry;
+		RectF bounds;
+		ArrayList<Shape> children;
+		String href;
+		RectF viewBox;
+
+		Shape(Attributes atts) {
+			this.atts = new AttributesImpl(atts);
+			final String transform = getStringAttr("transform", atts);
+			this.transform = (transform == null) ? null : parseTransform(transform);
 		}
-	}
 
-	static class SVGHandler extends DefaultHandler {
+		void setPath(Path path, PathGeometry geometry) {
+			this.path = path;
+			this.geometry = geometry;
+			this.bounds = new RectF();
+			path.computeBounds(bounds, false);
+		}
 
-		private Picture picture;
-		private Canvas canvas;
-		private Float limitsAdjustmentX, limitsAdjustmentY;
+		/**
+		 * Parses the geometry of the shape, if that hasn't been done yet.
+		 * 
+		 * @param cache the cache of parsed <code>d</code> attributes, or null.
+		 * @return whether the shape has any geometry.
+		 */
+		boolean ensurePath(SVGPathCache cache) {
+			if (type != null && cache != null && type.equals("path")) {
+				final String d = getStringAttr("d", atts);
+				type = null;
+				if (d != null) {
+					final SVGPathCache.CachedPath cached = cache.get(d);
+					setPath(cached.path, cached.geometry);
+				}
+			} else if (type != null) {
+				final PathGeometry geometry = new PathGeometry();
+				final Path path = shapePath(type, atts, geometry);
+				type = null;
+				if (path != null) {
+					setPath(path, geometry);
+				}
+			}
+			return path != null;
+		}
+	}
 
-		final LinkedList<LayerAttributes> layerAttributeStack = new LinkedList<LayerAttributes>();
+	/**
+	 * Reads the root element of a document, and a "bounds" layer if that is its first child, then stops the parse.
+	 */
+	private static final class HeaderHandler extends DefaultHandler {
 
-		Paint strokePaint;
-		boolean strokeSet = false;
-		final LinkedList<Paint> strokePaintStack = new LinkedList<Paint>();
-		final LinkedList<Boolean> strokeSetStack = new LinkedList<Boolean>();
+		/**
+		 * Thrown to stop the parse once the header has been read. It has no stack trace, which would cost more than
+		 * the rest of the prescan.
+		 */
+		static final class HeaderCompleteException extends SAXException {
+			private static final long serialVersionUID = 1L;
 
-		Paint fillPaint;
-		boolean fillSet = false;
-		final LinkedList<Paint> fillPaintStack = new LinkedList<Paint>();
-		final LinkedList<Boolean> fillSetStack = new LinkedList<Boolean>();
+			@Override
+			public synchronized Throwable fillInStackTrace() {
+				return this;
+			}
+		}
 
-		Paint textPaint;
-		boolean drawCharacters;
-		Float textX;
-		Float textY;
-		int newLineCount;
-		Float textSize;
-		Matrix font_matrix;
+		boolean rootFound = false;
+		int width = 0;
+		int height = 0;
+		RectF viewBox = null;
+		RectF bounds = null;
+		private int depth = 0;
 
-		// Scratch rect (so we aren't constantly making new ones)
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+			depth++;
+			if (depth == 1) {
+				if (!localName.equals("svg")) {
+					throw new SVGParseException("The root element is '" + localName + "' rather than 'svg'.");
+				}
+				rootFound = true;
+				viewBox = parseViewBox(getStringAttr("viewBox", atts));
+				if (viewBox != null) {
+					width = (int) FloatMath.ceil(viewBox.width());
+					height = (int) FloatMath.ceil(viewBox.height());
+				} else {
+					width = (int) FloatMath.ceil(getFloatAttr("width", atts, 0f));
+					height = (int) FloatMath.ceil(getFloatAttr("height", atts, 0f));
+				}
+			} else if (depth == 2
+					&& !(localName.equals("g") && "bounds".equalsIgnoreCase(getStringAttr("id", atts)))) {
+				throw new HeaderCompleteException();
+			} else if (localName.equals("rect")) {
+				final float x = getFloatAttr("x", atts, 0f);
+				final float y = getFloatAttr("y", atts, 0f);
+				bounds = new RectF(x, y, x + getFloatAttr("width", atts, 0f), y + getFloatAttr("height", atts, 0f));
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+			if (--depth <= 1) {
+				// The end of the bounds layer, or of an empty document
+				throw new HeaderCompleteException();
+			}
+		}
+	}
+
+	private static class LayerAttributes {
+		public final float opacity;
+
+		public LayerAttributes(float opacity) {
+			this.opacity = opacity;
+		}
+	}
+
+	static class SVGHandler extends DefaultHandler {
+
+		/**
+		 * Thrown to stop the parse once the target element has been drawn.
+		 */
+		static final class TargetCompleteException extends SAXException {
+			private static final long serialVersionUID = 1L;
+		}
+
+		/**
+		 * @return whether the element may affect the target element without being drawn itself: containers, style
+		 *         sheets and gradients.
+		 */
+		private static boolean isStructural(String localName) {
+			return localName.equals("svg") || localName.equals("g") || localName.equals("defs")
+					|| localName.equals("symbol") || localName.equals("style") || localName.equals("linearGradient")
+					|| localName.equals("radialGradient") || localName.equals("stop");
+		}
+
+		/** Receives the drawing; a {@link PictureRenderer} unless another renderer was given. */
+		SVGRenderer renderer = null;
+		/** Whether the document has begun (and not ended or been suspended). */
+		private boolean recording = false;
+		private int pictureWidth, pictureHeight;
+		private Float limitsAdjustmentX, limitsAdjustmentY;
+
+		final LinkedList<LayerAttributes> layerAttributeStack = new LinkedList<LayerAttributes>();
+
+		Paint strokePaint;
+		boolean strokeSet = false;
+		final LinkedList<Paint> strokePaintStack = new LinkedList<Paint>();
+		final LinkedList<Boolean> strokeSetStack = new LinkedList<Boolean>();
+
+		Paint fillPaint;
+		boolean fillSet = false;
+		final LinkedList<Paint> fillPaintStack = new LinkedList<Paint>();
+		final LinkedList<Boolean> fillSetStack = new LinkedList<Boolean>();
+
+		// Text: the style of the innermost open text or tspan (the enclosing ones' are stacked), the characters
+		// accumulated since the style or position last changed, and the position the next run is drawn at
+		Paint textPaint;
+		String textFamily;
+		int textStyle;
+		Paint drawnTextPaint;
+		final LinkedList<TextState> textStateStack = new LinkedList<TextState>();
+		boolean inText;
+		final StringBuilder textRun = new StringBuilder();
+		float textX;
+		float textY;
+		float textLineX;
+		final Matrix textMatrix = new Matrix();
+		final TextCache textCache = new TextCache();
+
+		// Scratch rect (so we aren't constantly making new ones)
 		final RectF rect = new RectF();
 		RectF bounds = null;
 		final RectF limits = new RectF(
 				Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+		final RectF exactLimits = new RectF(
+				Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
 
 		Integer searchColor = null;
 		Integer replaceColor = null;
@@ -875,6 +1498,51 @@ public class SVGParser {
 		final HashMap<String, Gradient> gradientMap = new HashMap<String, Gradient>();
 		Gradient gradient = null;
 
+		final HashMap<String, Shape> shapeMap = new HashMap<String, Shape>();
+		final LinkedList<Shape> captureStack = new LinkedList<Shape>();
+		int defsDepth = 0;
+		private int useDepth = 0;
+
+		/**
+		 * Records the drawing and animations for an {@link SVGAnimation}, or null if animations aren't run.
+		 */
+		AnimationRecorder animations = null;
+
+		/**
+		 * The pictures recorded so far when each top-level group is recorded in to its own picture, or null if the
+		 * document is recorded in to one picture.
+		 */
+		ArrayList<SVG.Layer> layers = null;
+		/** The top-level group being recorded, or null */
+		private SVG.Layer openLayer = null;
+		/** The number of shapes and text runs drawn in to the current picture */
+		private int drawCount = 0;
+		final MemoryEstimate memory = new MemoryEstimate();
+
+		/**
+		 * Named elements by id, or null if the element index is disabled.
+		 */
+		HashMap<String, SVGElement> elements = null;
+		private final ArrayList<SVGElement> indexGroupStack = new ArrayList<SVGElement>();
+		private final RectF elementBounds = new RectF();
+		private Paint drawnFillPaint, drawnStrokePaint;
+
+		StyleSheet styleSheet = null;
+		private StringBuilder styleText = null;
+		final ArrayList<StyleSheet.Element> elementStack = new ArrayList<StyleSheet.Element>();
+
+		final SVGParseStatistics stats = new SVGParseStatistics();
+		/** Detailed metrics, or null (the default) not to collect them. */
+		SVGParseMetrics metrics = null;
+		SVGParseMetrics.Listener metricsListener = null;
+		/** The limits of the parse, or null (the default) for none. */
+		ParseLimits parseLimits = null;
+		/** The cache of parsed <code>d</code> attributes, or null (the default) to parse each one. */
+		SVGPathCache pathCache = null;
+		/** The budget the caches of the result are kept within, or null (the default) for none. */
+		SVGMemoryBudget memoryBudget = null;
+		final StyleInterner interner = new StyleInterner(stats);
+
 		public SVGHandler() {
 			strokePaint = new Paint();
 			strokePaint.setAntiAlias(true);
@@ -889,7 +1557,57 @@ public class SVGParser {
 		}
 
 		void setPicture(Picture picture) {
-			this.picture = picture;
+			this.renderer = new PictureRenderer(picture);
+		}
+
+		public void setRenderer(SVGRenderer renderer) {
+			this.renderer = renderer;
+		}
+
+		/**
+		 * @return whether the document is being recorded and is between elements (not inside a text run), so that
+		 *         recording can be suspended.
+		 */
+		boolean canSuspendRecording() {
+			return recording && !inText;
+		}
+
+		/**
+		 * Ends the recording of the current picture so that what has been drawn so far can be displayed. Parsing must
+		 * not continue until {@link #resumeRecording(Picture)} is called.
+		 */
+		void suspendRecording() {
+			restoreToCount(1);
+			renderer.endDocument();
+			recording = false;
+		}
+
+		/**
+		 * Continues recording in to a new picture, re-establishing the clip and the transforms that were open when
+		 * recording was suspended.
+		 */
+		void resumeRecording(Picture next) {
+			setPicture(next);
+			beginDocument();
+			final Matrix base = new Matrix();
+			if (canvasRestoreCount != null) {
+				canvasRestoreCount = save();
+				if (targetId == null) {
+					renderer.clipRect(0f, 0f, pictureWidth, pictureHeight);
+				}
+				base.setTranslate(limitsAdjustmentX, limitsAdjustmentY);
+				renderer.translate(limitsAdjustmentX, limitsAdjustmentY);
+			}
+			// One save per pushed transform, as popTransform() restores them one at a time
+			final Matrix m = new Matrix();
+			final Iterator<Matrix> it = matrixStack.iterator();
+			it.next();
+			while (it.hasNext()) {
+				m.set(it.next());
+				m.postConcat(base);
+				save();
+				renderer.setMatrix(m);
+			}
 		}
 
 		public void setColorSwap(Integer searchColor, Integer replaceColor, boolean overideOpacity) {
@@ -906,6 +1624,63 @@ public class SVGParser {
 			this.whiteMode = whiteMode;
 		}
 
+		/**
+		 * Collects detailed metrics, passing them to the given listener when the parse is complete.
+		 */
+		public void setMetricsListener(SVGParseMetrics.Listener listener) {
+			this.metrics = (listener == null) ? null : new SVGParseMetrics();
+			this.metricsListener = listener;
+		}
+
+		public void setTargetId(String targetId) {
+			this.targetId = targetId;
+		}
+
+		public void setIndexElements(boolean indexElements) {
+			this.elements = indexElements ? new HashMap<String, SVGElement>() : null;
+		}
+
+		/**
+		 * Completes the memory estimate once the document has been parsed.
+		 *
+		 * @return the estimated memory retained by the pictures, styles and element index of the document.
+		 */
+		long estimateRecordedSize() {
+			memory.document(stats, (elements == null) ? 0 : elements.size());
+			return memory.getBytes();
+		}
+
+		public void setRecordLayers(boolean recordLayers) {
+			this.layers = recordLayers ? new ArrayList<SVG.Layer>() : null;
+		}
+
+		/**
+		 * Ends the current picture and continues recording in to a new one, keeping the current picture as a part of
+		 * the document if it is a layer or has anything in it.
+		 */
+		private void splitLayer() {
+			suspendRecording();
+			final Picture picture = ((PictureRenderer) renderer).getPicture();
+			if (openLayer != null) {
+				layers.add(openLayer);
+			} else if (drawCount > 0) {
+				layers.add(new SVG.Layer(picture, null, false, true));
+			}
+			drawCount = 0;
+			memory.picture();
+			resumeRecording(new Picture());
+		}
+
+		/**
+		 * @return the pictures of the document recorded in layers, in drawing order, once it has ended.
+		 */
+		SVG.Layer[] finishLayers() {
+			if (drawCount > 0 || layers.isEmpty()) {
+				layers.add(new SVG.Layer(((PictureRenderer) renderer).getPicture(), null, false, true));
+			}
+			return layers.toArray(new SVG.Layer[layers.size()]);
+		}
+
 		@Override
 		public void startDocument() throws SAXException {
 			// Set up prior to parsing a doc
@@ -916,9 +1691,21 @@ public class SVGParser {
 			// Clean up after parsing a doc
 		}
 
-		private final Matrix gradMatrix = new Matrix();
+		private boolean doFill(Properties atts, RectF boundingBox) {
+			final long start = clock();
+			final boolean fill = applyFill(atts, boundingBox);
+			styled(start);
+			return fill;
+		}
+
+		private boolean doStroke(Properties atts) {
+			final long start = clock();
+			final boolean stroke = applyStroke(atts);
+			styled(start);
+			return stroke;
+		}
 
-		private boolean doFill(Properties atts, RectF bounding_box) {
+		private boolean applyFill(Properties atts, RectF bounding_box) {
 			if ("none".equals(atts.getString("display"))) {
 				return false;
 			}
@@ -936,21 +1723,14 @@ public class SVGParser {
 
 					// It's a gradient fill, look it up in our map
 					String id = fillString.substring("url(#".length(), fillString.length() - 1);
-					Gradient g = gradientMap.get(id);
+					Gradient g = resolveGradient(id);
 					Shader shader = null;
 					if (g != null) {
-						shader = g.shader;
+						shader = gradientShader(g, bounding_box);
 					}
 					if (shader != null) {
 						// Util.debug("Found shader!");
 						fillPaint.setShader(shader);
-						gradMatrix.set(g.matrix);
-						if (g.boundingBox && bounding_box != null) {
-							// Log.d("svg", "gradient is bounding box");
-							gradMatrix.preTranslate(bounding_box.left, bounding_box.top);
-							gradMatrix.preScale(bounding_box.width(), bounding_box.height());
-						}
-						shader.setLocalMatrix(gradMatrix);
 						return true;
 					} else {
 						Log.w(TAG, "Didn't find shader, using black: " + id);
@@ -987,7 +1767,7 @@ public class SVGParser {
 			}
 		}
 
-		private boolean doStroke(Properties atts) {
+		private boolean applyStroke(Properties atts) {
 			if (whiteMode) {
 				// Never stroke in white mode
 				return false;
@@ -1083,42 +1863,73 @@ public class SVGParser {
 			}
 			gradient.boundingBox = !unit.equals("userSpaceOnUse");
 
-			String xlink = getStringAttr("href", atts);
-			if (xlink != null) {
-				if (xlink.startsWith("#")) {
-					xlink = xlink.substring(1);
+			gradient.xlink = getHref(atts);
+			return gradient;
+		}
+
+		/**
+		 * Looks up a gradient, applying <code>xlink:href</code> inheritance the first time it is used.
+		 * 
+		 * @return the gradient, or null if there is no (usable) gradient with that id.
+		 */
+		private Gradient resolveGradient(String id) {
+			final Gradient gradient = gradientMap.get(id);
+			if (gradient == null || gradient.resolved) {
+				return gradient;
+			}
+			gradient.resolved = true; // set first, so that circular references terminate
+			if (gradient.xlink != null) {
+				Gradient parent = resolveGradient(gradient.xlink);
+				if (parent != null) {
+					gradient.inherit(parent);
 				}
-				gradient.xlink = xlink;
 			}
+			if (gradient.stopCount == 0) {
+				Log.d("BAD", "BAD gradient, id=" + gradient.id);
+			}
+			gradient.trimStops();
 			return gradient;
 		}
 
-        private void finishGradients() {
-        	for(Gradient gradient : gradientMap.values()) {
-                if (gradient.xlink != null) {
-                    Gradient parent = gradientMap.get(gradient.xlink);
-                    if (parent != null) {
-                        gradient.inherit(parent);
-                    }
-                }
-                int[] colors = new int[gradient.colors.size()];
-                for (int i = 0; i < colors.length; i++) {
-                    colors[i] = gradient.colors.get(i);
-                }
-                float[] positions = new float[gradient.positions.size()];
-                for (int i = 0; i < positions.length; i++) {
-                    positions[i] = gradient.positions.get(i);
-                }
-                if (colors.length == 0) {
-               		Log.d("BAD", "BAD gradient, id="+gradient.id);
-                }
-                if (gradient.isLinear) {
-                	gradient.shader= new LinearGradient(gradient.x1, gradient.y1, gradient.x2, gradient.y2, colors, positions, gradient.tilemode);
-                } else {
-                	gradient.shader= new RadialGradient(gradient.x, gradient.y, gradient.radius, colors, positions, gradient.tilemode);
-                }
-        	}
-        }
+		/**
+		 * Gets the shader for a use of a gradient. <code>objectBoundingBox</code> gradients get one shader per distinct
+		 * bounding box, so that no use ever has to change the local matrix of a shader that has already been recorded.
+		 * 
+		 * @return the shader, or null if the gradient has no stops.
+		 */
+		private Shader gradientShader(Gradient g, RectF box) {
+			if (g.stopCount == 0) {
+				return null;
+			}
+			if (!g.boundingBox || box == null) {
+				if (g.shader == null) {
+					g.shader = createShader(g, g.matrix);
+				}
+				return g.shader;
+			}
+			if (g.boxShaders == null) {
+				g.boxShaders = new HashMap<BoxKey, Shader>();
+			}
+			final BoxKey key = new BoxKey(box);
+			Shader shader = g.boxShaders.get(key);
+			if (shader == null) {
+				final Matrix matrix = (g.matrix == null) ? new Matrix() : new Matrix(g.matrix);
+				// Log.d("svg", "gradient is bounding box");
+				matrix.preTranslate(box.left, box.top);
+				matrix.preScale(box.width(), box.height());
+				shader = createShader(g, matrix);
+				g.boxShaders.put(key, shader);
+			}
+			return shader;
+		}
+
+		private Shader createShader(Gradient g, Matrix localMatrix) {
+			if (g.isLinear) {
+				return interner.linearGradient(renderer, g.x1, g.y1, g.x2, g.y2, g.colors, g.positions, g.tilemode, localMatrix);
+			} else {
+				return interner.radialGradient(renderer, g.x, g.y, g.radius, g.colors, g.positions, g.tilemode, localMatrix);
+			}
+		}
 
         private void doColor(Properties atts, Integer color, boolean fillMode, Paint paint) {
 			int c = (0xFFFFFF & color) | 0xFF000000;
@@ -1127,7 +1938,7 @@ public class SVGParser {
 			}
 			paint.setShader(null);
 			paint.setColor(c);
-			Float opacityAttr = atts.getFloat("opacity");
+			Float opacityAttr = bakesOpacity() ? atts.getFloat("opacity") : null;
 			if (opacityAttr == null) {
 				opacityAttr = atts.getFloat(fillMode ? "fill-opacity" : "stroke-opacity");
 			}
@@ -1140,6 +1951,16 @@ public class SVGParser {
 			paint.setAlpha((int) (255f * opacity));
 		}
 
+		/**
+		 * Whether the <code>opacity</code> of the element being parsed goes in to its paints. When recording
+		 * animations it doesn't: the recorder applies it to everything the element draws, or leaves it to the
+		 * element's animations, as only then is it known whether the element is animated. Elements drawn by a
+		 * <code>use</code> aren't recorded as elements, so their opacity still goes in to their paints.
+		 */
+		private boolean bakesOpacity() {
+			return animations == null || useDepth > 0;
+		}
+
 		/**
 		 * set the path style (if any) stroke-dasharray="n1,n2,..." stroke-dashoffset=n
 		 */
@@ -1171,30 +1992,35 @@ public class SVGParser {
 
 			float off = 0f;
 			if (offset != null) {
-				try {
-					off = Float.parseFloat(offset) % max;
-				} catch (NumberFormatException e) {
-					// ignore
-				}
+				off = toFloat(offset, 0f) % max;
 			}
 
-			strokePaint.setPathEffect(new DashPathEffect(intervals, off));
+			strokePaint.setPathEffect(interner.dash(intervals, off));
 		}
 
 		private static float toFloat(String s, float dflt) {
-			float result = dflt;
-			try {
-				result = Float.parseFloat(s);
-			} catch (NumberFormatException e) {
-				// ignore
-			}
-			return result;
+			final float f = ParserHelper.parseFloat(s);
+			return Float.isNaN(f) ? dflt : f;
 		}
 
 		private boolean hidden = false;
 		private int hiddenLevel = 0;
 		private boolean boundsMode = false;
 
+		/**
+		 * The id of the only element to draw, or null to draw the whole document.
+		 */
+		String targetId = null;
+		private int depth = 0;
+		/** Depth of the target element while it is open, otherwise -1. */
+		private int targetDepth = -1;
+		private boolean targetCaptured = false;
+		boolean targetFound = false;
+		/** The region of the picture the target occupies, once it has been drawn. */
+		RectF targetCrop = null;
+		/** Depth of an element outside the target that is being skipped along with its content, otherwise -1. */
+		private int skipDepth = -1;
+
 		private void doLimits2(float x, float y) {
 			if (x < limits.left) {
 				limits.left = x;
@@ -1220,42 +2046,159 @@ public class SVGParser {
 			doLimits2(tmpLimitRect.right + width2, tmpLimitRect.bottom + width2);
 		}
 
+		private final ExactBounds exact = new ExactBounds();
+		private final RectF tmpExactRect = new RectF();
+
+		/**
+		 * Starts measuring the geometry of the current element, in the current user space.
+		 */
+		private ExactBounds beginExact() {
+			exact.reset(matrixStack.getLast());
+			return exact;
+		}
+
+		/**
+		 * Adds the geometry measured since {@link #beginExact()} to the exact limits, as filled or as stroked.
+		 * 
+		 * @param stroke the stroke paint, or null for a fill.
+		 */
+		private void doExactLimits(Paint stroke) {
+			if (exact.isEmpty()) {
+				return;
+			}
+			exact.getBounds(tmpExactRect, (stroke == null) ? 0 : stroke.getStrokeWidth() / 2);
+			ExactBounds.union(exactLimits, tmpExactRect);
+			if (elements != null) {
+				indexDrawnBounds(tmpExactRect);
+			}
+		}
+
 		private void doLimits(RectF box) {
 			doLimits(box, null);
 		}
 
 		private void pushTransform(Attributes atts) {
 			final String transform = getStringAttr("transform", atts);
-			boolean pushed = transform != null;
+			pushTransform(transform == null ? null : parseTransform(transform));
+		}
+
+		/**
+		 * Pushes the given transform (which may be null for none). The matrix is owned by the stack from here on.
+		 */
+		private void pushTransform(Matrix matrix) {
+			boolean pushed = matrix != null;
 			transformStack.addLast(pushed);
 			if (pushed) {
-				final Matrix matrix = parseTransform(transform);
-				canvas.save();
-				canvas.concat(matrix);
+				save();
+				renderer.concat(matrix);
 				matrix.postConcat(matrixStack.getLast());
 				matrixStack.addLast(matrix);
 			}
-
 		}
 
 		private void popTransform() {
 			if (transformStack.removeLast()) {
-				canvas.restore();
+				restore();
 				matrixStack.removeLast();
 			}
 		}
 
         private String SVG_FILL = null;
 
+		/**
+		 * Starts a group-like element (<code>g</code>, <code>use</code> or a referenced symbol): pushes the layer
+		 * opacity, the transform and the inherited fill and stroke.
+		 */
+		private void pushGroup(Properties props, Attributes atts) {
+			final String transform = getStringAttr("transform", atts);
+			pushGroup(props, transform == null ? null : parseTransform(transform));
+		}
+
+		private void pushGroup(Properties props, Matrix transform) {
+			// Create layer attributes
+			final float opacity = bakesOpacity() ? props.getFloat("opacity", 1f) : 1f;
+			LayerAttributes curLayerAttr = currentLayerAttributes();
+			LayerAttributes newLayerAttr = new LayerAttributes(curLayerAttr.opacity * opacity);
+			layerAttributeStack.addLast(newLayerAttr);
+
+			pushTransform(transform);
+			fillPaintStack.addLast(new Paint(fillPaint));
+			strokePaintStack.addLast(new Paint(strokePaint));
+			fillSetStack.addLast(fillSet);
+			strokeSetStack.addLast(strokeSet);
+
+			doFill(props, null); // Added by mrn but a boundingBox is now required by josef.
+			doStroke(props);
+
+			fillSet |= (props.getString("fill") != null);
+			strokeSet |= (props.getString("stroke") != null);
+		}
+
+		private void popGroup() {
+			popTransform();
+			fillPaint = fillPaintStack.removeLast();
+			fillSet = fillSetStack.removeLast();
+			strokePaint = strokePaintStack.removeLast();
+			strokeSet = strokeSetStack.removeLast();
+			if (!layerAttributeStack.isEmpty()) {
+				layerAttributeStack.removeLast();
+			}
+		}
+
 		@Override
 		public void startElement(String namespaceURI, String localName, String qName, Attributes atts)
 				throws SAXException {
+			if (metrics == null) {
+				handleStartElement(localName, atts);
+				return;
+			}
+			final long start = System.nanoTime();
+			metrics.element(localName);
+			try {
+				handleStartElement(localName, atts);
+			} finally {
+				metrics.handlerNanos += System.nanoTime() - start;
+			}
+		}
+
+		private void handleStartElement(String localName, Attributes atts) throws SAXException {
+			elementStack.add(new StyleSheet.Element(localName, atts));
+			depth++;
+			if (parseLimits != null) {
+				parseLimits.element(depth);
+			}
+			if (animations != null) {
+				if (inText) {
+					// The text so far belongs to the enclosing element
+					flushText();
+				}
+				final Properties props = properties(atts);
+				animations.beginElement(getStringAttr("transform", atts), props.getAttr("opacity"),
+						props.getAttr("fill"));
+			}
+			if (skipDepth >= 0) {
+				return;
+			}
+			if (targetId != null && targetDepth < 0) {
+				if (targetId.equals(getStringAttr("id", atts))) {
+					targetFound = true;
+					targetDepth = depth;
+					targetCaptured = localName.equals("symbol") || defsDepth > 0;
+				} else if (defsDepth == 0 && !isStructural(localName)) {
+					// Outside of the target nothing is drawn
+					skipDepth = depth;
+					return;
+				}
+			}
+			if (elements != null) {
+				elementBounds.set(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY,
+						Float.NEGATIVE_INFINITY);
+				drawnFillPaint = drawnStrokePaint = null;
+			}
+
 			// Reset paint opacity
 			strokePaint.setAlpha(255);
 			fillPaint.setAlpha(255);
-			textPaint.setAlpha(255);
-
-			this.drawCharacters = false;
 
 			// Ignore everything but rectangles in bounds mode
 			if (boundsMode) {
@@ -1275,48 +2218,40 @@ public class SVGParser {
 				return;
 			}
 			if (localName.equals("svg")) {
-				canvas = null;
+				recording = false;
                 SVG_FILL = getStringAttr("fill", atts);
-				String viewboxStr = getStringAttr("viewBox", atts);
-				if (viewboxStr != null) {
-					String[] dims = viewboxStr.replace(',', ' ').split("\\s+");
-					if (dims.length == 4) {
-						Float x1 = parseFloatValue(dims[0], null);
-						Float y1 = parseFloatValue(dims[1], null);
-						Float x2 = parseFloatValue(dims[2], null);
-						Float y2 = parseFloatValue(dims[3], null);
-						if (x1 != null && x2 != null && y1 != null && y2 != null) {
-							x2 += x1;
-							y2 += y1;
-
-							float width = FloatMath.ceil(x2 - x1);
-							float height = FloatMath.ceil(y2 - y1);
-							canvas = picture.beginRecording((int) width, (int) height);
-							canvasRestoreCount = canvas.save();
-							canvas.clipRect(0f, 0f, width, height);
-							limitsAdjustmentX = -x1;
-							limitsAdjustmentY = -y1;
-							canvas.translate(limitsAdjustmentX, limitsAdjustmentY);
-						}
+				final RectF viewBox = parseViewBox(getStringAttr("viewBox", atts));
+				if (viewBox != null) {
+					float width = FloatMath.ceil(viewBox.width());
+					float height = FloatMath.ceil(viewBox.height());
+					pictureWidth = (int) width;
+					pictureHeight = (int) height;
+					beginDocument();
+					canvasRestoreCount = save();
+					if (targetId == null) {
+						renderer.clipRect(0f, 0f, width, height);
 					}
+					limitsAdjustmentX = -viewBox.left;
+					limitsAdjustmentY = -viewBox.top;
+					renderer.translate(limitsAdjustmentX, limitsAdjustmentY);
 				}
 				// No viewbox
-				if (canvas == null) {
-					int width = (int) FloatMath.ceil(getFloatAttr("width", atts));
-					int height = (int) FloatMath.ceil(getFloatAttr("height", atts));
-					canvas = picture.beginRecording(width, height);
+				if (!recording) {
+					pictureWidth = (int) FloatMath.ceil(getFloatAttr("width", atts));
+					pictureHeight = (int) FloatMath.ceil(getFloatAttr("height", atts));
+					beginDocument();
 					canvasRestoreCount = null;
 				}
 
 			} else if (localName.equals("defs")) {
-				// Ignore
+				defsDepth++;
 			} else if (localName.equals("linearGradient")) {
 				gradient = doGradient(true, atts);
 			} else if (localName.equals("radialGradient")) {
 				gradient = doGradient(false, atts);
 			} else if (localName.equals("stop")) {
 				if (gradient != null) {
-					final Properties props = new Properties(atts);
+					final Properties props = properties(atts);
 
 					final int colour;
                     final Integer stopColour = props.getColor(props.getAttr("stop-color"));
@@ -1327,13 +2262,24 @@ public class SVGParser {
 						int alphaInt = Math.round(255 * alpha);
 						colour = stopColour.intValue() | (alphaInt << 24);
 					}
-					gradient.colors.add(colour);
-
 					float offset = props.getFloat("offset", 0);
-					gradient.positions.add(offset);
+					gradient.addStop(colour, offset);
+				}
+			} else if (localName.equals("style")) {
+				final String type = getStringAttr("type", atts);
+				if (type == null || type.equals("text/css")) {
+					styleText = new StringBuilder();
 				}
+			} else if (localName.equals("animate") || localName.equals("animateTransform")) {
+				// Without an animation recorder the document is drawn as it is without its animations
+				if (animations != null && !hidden && defsDepth == 0) {
+					animations.animate(localName, atts);
+				}
+			} else if (localName.equals("symbol") || defsDepth > 0) {
+				// Reusable content is kept for <use> rather than drawn
+				captureElement(localName, atts);
 			} else if (localName.equals("g")) {
-				final Properties props = new Properties(atts);
+				final Properties props = properties(atts);
 
 				// Check to see if this is the "bounds" layer
 				if ("bounds".equalsIgnoreCase(getStringAttr("id", atts))) {
@@ -1343,8 +2289,15 @@ public class SVGParser {
 					hiddenLevel++;
 					// Util.debug("Hidden up: " + hiddenLevel);
 				}
-				// Go in to hidden mode if display is "none"
-				if ("none".equals(getStringAttr("display", atts)) || "none".equals(props.getString("display"))) {
+				final boolean displayNone = "none".equals(getStringAttr("display", atts))
+						|| "none".equals(props.getString("display"));
+				if (layers != null && depth == 2 && !hidden && !boundsMode) {
+					// A layer is recorded even if hidden, so that it can be shown without parsing again
+					splitLayer();
+					final Picture picture = ((PictureRenderer) renderer).getPicture();
+					openLayer = new SVG.Layer(picture, getStringAttr("id", atts), true, !displayNone);
+				} else if (displayNone) {
+					// Go in to hidden mode if display is "none"
 					if (!hidden) {
 						hidden = true;
 						hiddenLevel = 1;
@@ -1352,23 +2305,8 @@ public class SVGParser {
 					}
 				}
 
-				// Create layer attributes
-				final float opacity = props.getFloat("opacity", 1f);
-				LayerAttributes curLayerAttr = currentLayerAttributes();
-				LayerAttributes newLayerAttr = new LayerAttributes(curLayerAttr.opacity * opacity);
-				layerAttributeStack.addLast(newLayerAttr);
-
-				pushTransform(atts);
-				fillPaintStack.addLast(new Paint(fillPaint));
-				strokePaintStack.addLast(new Paint(strokePaint));
-				fillSetStack.addLast(fillSet);
-				strokeSetStack.addLast(strokeSet);
-
-				doFill(props, null); // Added by mrn but a boundingBox is now required by josef.
-				doStroke(props);
-
-				fillSet |= (props.getString("fill") != null);
-				strokeSet |= (props.getString("stroke") != null);
+				pushGroup(props, atts);
+				pushIndexGroup(getStringAttr("id", atts), localName);
 
 			} else if (!hidden && localName.equals("rect")) {
 				Float x = getFloatAttr("x", atts);
@@ -1384,67 +2322,70 @@ public class SVGParser {
 				Float rx = getFloatAttr("rx", atts, 0f);
 				Float ry = getFloatAttr("ry", atts, 0f);
 				pushTransform(atts);
-				Properties props = new Properties(atts);
+				Properties props = properties(atts);
+				beginExact().roundRect(x, y, x + width, y + height, rx, ry);
 				rect.set(x, y, x + width, y + height);
 				if (doFill(props, rect)) {
 					rect.set(x, y, x + width, y + height);
-					if (rx <= 0f && ry <= 0f) {
-						canvas.drawRect(rect, fillPaint);
-					} else {
-						canvas.drawRoundRect(rect, rx, ry, fillPaint);
-					}
+					drawRect(rect, rx, ry, drawFillPaint());
 					doLimits(rect);
+					doExactLimits(null);
 				}
 				if (doStroke(props)) {
 					rect.set(x, y, x + width, y + height);
-					if (rx <= 0f && ry <= 0f) {
-						canvas.drawRect(rect, strokePaint);
-					} else {
-						canvas.drawRoundRect(rect, rx, ry, strokePaint);
-					}
+					drawRect(rect, rx, ry, drawStrokePaint());
 					doLimits(rect, strokePaint);
+					doExactLimits(strokePaint);
 				}
 				popTransform();
+				registerShape(localName, props, null, null);
 			} else if (!hidden && localName.equals("line")) {
 				Float x1 = getFloatAttr("x1", atts);
 				Float x2 = getFloatAttr("x2", atts);
 				Float y1 = getFloatAttr("y1", atts);
 				Float y2 = getFloatAttr("y2", atts);
-				Properties props = new Properties(atts);
+				Properties props = properties(atts);
 				if (doStroke(props)) {
 					pushTransform(atts);
 					rect.set(x1, y1, x2, y2);
-					canvas.drawLine(x1, y1, x2, y2, strokePaint);
+					drawLine(x1, y1, x2, y2, drawStrokePaint());
 					doLimits(rect, strokePaint);
+					final ExactBounds exact = beginExact();
+					exact.point(x1, y1);
+					exact.point(x2, y2);
+					doExactLimits(strokePaint);
 					popTransform();
 				}
+				registerShape(localName, props, null, null);
 			} else if (!hidden && localName.equals("text")) {
-				Float textX = getFloatAttr("x", atts);
-				Float textY = getFloatAttr("y", atts);
-				Float fontSize = getFloatAttr("font-size", atts);
-				Matrix font_matrix = parseTransform(getStringAttr("transform",
-						atts));
-				drawCharacters = true;
-				if (fontSize != null) {
-					textSize = fontSize;
-					pushTransform(atts);
-					if (textX != null && textY != null) {
-						this.textX = textX;
-						this.textY = textY;
-					} else if (font_matrix != null) {
-						this.font_matrix = font_matrix;
-					}
-					Properties props = new Properties(atts);
-					Integer color = props.getColor("fill");
-					if (color != null) {
-						doColor(props, color, true, textPaint);
-					} else {
-						textPaint.setColor(Color.BLACK);
-					}
-					this.newLineCount = 0;
-					textPaint.setTextSize(textSize);
-					canvas.save();
-					popTransform();
+				pushTransform(atts);
+				textMatrix.set(matrixStack.getLast());
+				setTextStyle(properties(atts), false);
+				final Float x = firstNumber(getStringAttr("x", atts));
+				final Float y = firstNumber(getStringAttr("y", atts));
+				textX = textLineX = (x != null) ? x : 0f;
+				textY = (y != null) ? y : 0f;
+				inText = true;
+			} else if (inText && localName.equals("tspan")) {
+				flushText();
+				textStateStack.addLast(new TextState(textPaint, textFamily, textStyle));
+				textPaint = new Paint(textPaint);
+				setTextStyle(properties(atts), true);
+				final Float x = firstNumber(getStringAttr("x", atts));
+				final Float y = firstNumber(getStringAttr("y", atts));
+				final Float dx = firstNumber(getStringAttr("dx", atts));
+				final Float dy = firstNumber(getStringAttr("dy", atts));
+				if (x != null) {
+					textX = textLineX = x;
+				}
+				if (y != null) {
+					textY = y;
+				}
+				if (dx != null) {
+					textX += dx;
+				}
+				if (dy != null) {
+					textY += dy;
 				}
 			} else if (!hidden && (localName.equals("circle") || localName.equals("ellipse"))) {
 				Float centerX, centerY, radiusX, radiusY;
@@ -1460,64 +2401,99 @@ public class SVGParser {
 				}
 				if (centerX != null && centerY != null && radiusX != null && radiusY != null) {
 					pushTransform(atts);
-					Properties props = new Properties(atts);
+					Properties props = properties(atts);
 					rect.set(centerX - radiusX, centerY - radiusY, centerX + radiusX, centerY + radiusY);
+					beginExact().oval(centerX, centerY, radiusX, radiusY);
 					if (doFill(props, rect)) {
-						canvas.drawOval(rect, fillPaint);
+						drawOval(rect, drawFillPaint());
 						doLimits(rect);
+						doExactLimits(null);
 					}
 					if (doStroke(props)) {
-						canvas.drawOval(rect, strokePaint);
+						drawOval(rect, drawStrokePaint());
 						doLimits(rect, strokePaint);
+						doExactLimits(strokePaint);
 					}
 					popTransform();
+					registerShape(localName, props, null, null);
 				}
 			} else if (!hidden && (localName.equals("polygon") || localName.equals("polyline"))) {
+				final long start = clock();
 				NumberParse numbers = getNumberParseAttr("points", atts);
 				if (numbers != null) {
 					Path p = new Path();
+					PathGeometry geometry = new PathGeometry();
 					ArrayList<Float> points = numbers.numbers;
 					if (points.size() > 1) {
-						pushTransform(atts);
-						Properties props = new Properties(atts);
 						p.moveTo(points.get(0), points.get(1));
+						geometry.moveTo(points.get(0), points.get(1));
 						for (int i = 2; i < points.size(); i += 2) {
 							float x = points.get(i);
 							float y = points.get(i + 1);
 							p.lineTo(x, y);
+							geometry.lineTo(x, y);
 						}
 						// Don't close a polyline
 						if (localName.equals("polygon")) {
 							p.close();
+							geometry.close();
 						}
+						pathParsed(start, geometry);
+						pushTransform(atts);
+						Properties props = properties(atts);
 						p.computeBounds(rect, false);
+						geometry.addTo(beginExact());
 						if (doFill(props, rect)) {
-							canvas.drawPath(p, fillPaint);
+							drawPath(p, geometry, drawFillPaint());
 							doLimits(rect);
+							doExactLimits(null);
 						}
 						if (doStroke(props)) {
-							canvas.drawPath(p, strokePaint);
+							drawPath(p, geometry, drawStrokePaint());
 							doLimits(rect, strokePaint);
+							doExactLimits(strokePaint);
 						}
 						popTransform();
+						registerShape(localName, props, p, geometry);
 					}
 				}
 			} else if (!hidden && localName.equals("path")) {
-				Path p = doPath(getStringAttr("d", atts));
+				final long start = clock();
+				final String d = getStringAttr("d", atts);
+				final PathGeometry geometry;
+				final Path p;
+				if (pathCache != null) {
+					final SVGPathCache.CachedPath cached = pathCache.get(d);
+					geometry = cached.geometry;
+					p = cached.path;
+				} else {
+					geometry = new PathGeometry();
+					p = doPath(d, geometry);
+				}
+				pathParsed(start, geometry);
 				pushTransform(atts);
-				Properties props = new Properties(atts);
+				Properties props = properties(atts);
 				p.computeBounds(rect, false);
+				geometry.addTo(beginExact());
 				if (doFill(props, rect)) {
-					canvas.drawPath(p, fillPaint);
+					drawPath(p, geometry, drawFillPaint());
 					doLimits(rect);
+					doExactLimits(null);
 				}
 				if (doStroke(props)) {
-					canvas.drawPath(p, strokePaint);
+					drawPath(p, geometry, drawStrokePaint());
 					doLimits(rect, strokePaint);
+					doExactLimits(strokePaint);
 				}
 				popTransform();
+				registerShape(localName, props, p, geometry);
+			} else if (!hidden && localName.equals("use")) {
+				drawUse(atts);
 			} else if (!hidden) {
 				Log.w(TAG, "UNRECOGNIZED SVG COMMAND: " + localName);
+				if (metrics != null) {
+					metrics.unrecognized(localName);
+				}
 			}
 		}
 
@@ -1525,52 +2501,526 @@ public class SVGParser {
 			return layerAttributeStack.getLast();
 		}
 
-		@Override
-		public void characters(char ch[], int start, int length) {
-			if (this.drawCharacters) {
-				if (length == 1 && ch[0] == '\n') {
-					canvas.restore();
-					canvas.save();
+		/**
+		 * @return the style sheet declarations applying to the element currently being parsed, or null if none.
+		 */
+		private HashMap<String, String> currentStyleSheetDeclarations() {
+			return (styleSheet == null) ? null : styleSheet.resolve(elementStack);
+		}
 
-					newLineCount += 1;
-					canvas.translate(0, newLineCount * textSize);
-				} else {
-					String text = new String(ch, start, length);
-					if (this.textX != null && this.textY != null) {
-						canvas.drawText(text, this.textX, this.textY, textPaint);
-					} else {
-						canvas.setMatrix(font_matrix);
-						canvas.drawText(text, 0, 0, textPaint);
+		private Properties properties(Attributes atts) {
+			final long start = clock();
+			final Properties props = new Properties(atts, currentStyleSheetDeclarations());
+			styled(start);
+			return props;
+		}
+
+		/**
+		 * Keeps an element found inside <code>defs</code> or <code>symbol</code> so that it can be instanced later.
+		 */
+		private void captureElement(String localName, Attributes atts) {
+			final boolean container = localName.equals("g") || localName.equals("symbol");
+			final Shape shape;
+			if (container) {
+				shape = new Shape(atts);
+				shape.children = new ArrayList<Shape>();
+				if (localName.equals("symbol")) {
+					defsDepth++;
+					shape.viewBox = parseViewBox(getStringAttr("viewBox", atts));
+				}
+			} else if (localName.equals("use")) {
+				shape = new Shape(atts);
+				shape.href = getHref(atts);
+			} else {
+				// Geometry is only parsed if the shape is used
+				shape = new Shape(atts);
+				shape.type = localName;
+			}
+			shape.css = currentStyleSheetDeclarations();
+			if (!captureStack.isEmpty()) {
+				captureStack.getLast().children.add(shape);
+			}
+			if (container) {
+				captureStack.addLast(shape);
+			}
+			final String id = getStringAttr("id", atts);
+			if (id != null) {
+				shapeMap.put(id, shape);
+			}
+		}
+
+		/**
+		 * Makes a shape that has just been drawn available to <code>use</code> and to the element index, if it has an
+		 * id. Unless it is indexed, its geometry is only parsed again if a <code>use</code> draws it.
+		 * 
+		 * @param props the shape's properties, with the declarations from the style sheet already resolved.
+		 * @param path the already parsed path, or null to build it from the attributes.
+		 * @param geometry the segments of the already parsed path, or null.
+		 */
+		private void registerShape(String localName, Properties props, Path path, PathGeometry geometry) {
+			final String id = getStringAttr("id", props.atts);
+			if (id == null) {
+				return;
+			}
+			final Shape shape = new Shape(props.atts);
+			shape.css = props.css;
+			if (elements == null) {
+				shape.type = localName;
+				shapeMap.put(id, shape);
+				return;
+			}
+			if (path == null) {
+				geometry = new PathGeometry();
+				path = shapePath(localName, props.atts, geometry);
+			}
+			if (path != null) {
+				shape.setPath(path, geometry);
+				shapeMap.put(id, shape);
+				indexShape(id, localName, shape);
+			}
+		}
+
+		private Paint drawFillPaint() {
+			final long start = clock();
+			drawnFillPaint = interner.paint(fillPaint);
+			styled(start);
+			return drawnFillPaint;
+		}
+
+		private Paint drawStrokePaint() {
+			final long start = clock();
+			drawnStrokePaint = interner.paint(strokePaint);
+			styled(start);
+			return drawnStrokePaint;
+		}
+
+		/**
+		 * @return the current time if metrics are being collected, otherwise 0.
+		 */
+		private long clock() {
+			return (metrics == null) ? 0 : System.nanoTime();
+		}
+
+		private void styled(long start) {
+			if (metrics != null) {
+				metrics.styleNanos += System.nanoTime() - start;
+			}
+		}
+
+		private void pathParsed(long start, PathGeometry geometry) {
+			if (metrics != null) {
+				metrics.pathNanos += System.nanoTime() - start;
+				metrics.pathSegments += geometry.getVerbCount();
+			}
+			if (parseLimits != null) {
+				parseLimits.pathSegments(geometry.getVerbCount());
+			}
+		}
+
+		/**
+		 * Counts a shape or text run recorded, and the time it took if metrics are collected.
+		 */
+		private void recorded(long start) {
+			drawCount++;
+			if (metrics != null) {
+				metrics.recordNanos += System.nanoTime() - start;
+			}
+		}
+
+		private void beginDocument() {
+			renderer.beginDocument(pictureWidth, pictureHeight);
+			recording = true;
+		}
+
+		private int save() {
+			if (metrics != null) {
+				metrics.saves++;
+			}
+			memory.save();
+			return renderer.save();
+		}
+
+		private void restore() {
+			if (metrics != null) {
+				metrics.restores++;
+			}
+			memory.state();
+			renderer.restore();
+		}
+
+		private void restoreToCount(int saveCount) {
+			if (metrics != null) {
+				metrics.restores++;
+			}
+			memory.state();
+			renderer.restoreToCount(saveCount);
+		}
+
+		private void drawPath(Path path, PathGeometry geometry, Paint paint) {
+			final long start = clock();
+			renderer.drawPath(path, geometry, paint);
+			memory.path(geometry);
+			recorded(start);
+		}
+
+		private void drawRect(RectF rect, float rx, float ry, Paint paint) {
+			final long start = clock();
+			renderer.drawRect(rect, rx, ry, paint);
+			memory.shape();
+			recorded(start);
+		}
+
+		private void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+			final long start = clock();
+			renderer.drawLine(x1, y1, x2, y2, paint);
+			memory.shape();
+			recorded(start);
+		}
+
+		private void drawOval(RectF oval, Paint paint) {
+			final long start = clock();
+			renderer.drawOval(oval, paint);
+			memory.shape();
+			recorded(start);
+		}
+
+		private void drawText(String text, float x, float y, Paint paint) {
+			final long start = clock();
+			renderer.drawText(text, x, y, paint);
+			memory.text(text);
+			recorded(start);
+		}
+
+		/**
+		 * Sets up the text paint for a <code>text</code> or <code>tspan</code> element. Properties the element doesn't
+		 * set are inherited from the enclosing text, or take their initial values for a <code>text</code> element.
+		 */
+		private void setTextStyle(Properties props, boolean inherit) {
+			final long start = clock();
+			final String fill = props.getAttr("fill");
+			final Integer color = (fill == null) ? null : props.getColor(fill);
+			if (color != null) {
+				doColor(props, color, true, textPaint);
+			} else if ("none".equals(fill)) {
+				textPaint.setShader(null);
+				textPaint.setColor(Color.TRANSPARENT);
+			} else if (!inherit) {
+				doColor(props, Color.BLACK, true, textPaint);
+			}
+
+			final Float size = parseTextSize(props.getAttr("font-size"));
+			if (size != null) {
+				textPaint.setTextSize(size);
+			} else if (!inherit) {
+				textPaint.setTextSize(DEFAULT_FONT_SIZE);
+			}
+
+			final String family = props.getAttr("font-family");
+			final String weight = props.getAttr("font-weight");
+			final String style = props.getAttr("font-style");
+			if (!inherit) {
+				textFamily = null;
+				textStyle = Typeface.NORMAL;
+			}
+			if (family != null) {
+				textFamily = parseFontFamily(family);
+			}
+			if (weight != null) {
+				textStyle = isBold(weight) ? (textStyle | Typeface.BOLD) : (textStyle & ~Typeface.BOLD);
+			}
+			if (style != null) {
+				final boolean italic = style.equals("italic") || style.equals("oblique");
+				textStyle = italic ? (textStyle | Typeface.ITALIC) : (textStyle & ~Typeface.ITALIC);
+			}
+			textPaint.setTypeface((textFamily == null && textStyle == Typeface.NORMAL) ? null : textCache.typeface(
+					textFamily, textStyle));
+			drawnTextPaint = null;
+			styled(start);
+		}
+
+		/**
+		 * Draws the characters accumulated since the last run, starting a new line at each line feed.
+		 */
+		private void flushText() {
+			final int length = textRun.length();
+			if (length == 0) {
+				return;
+			}
+			int lineStart = 0;
+			for (int i = 0; i <= length; i++) {
+				if (i == length || textRun.charAt(i) == '\n') {
+					if (i > lineStart) {
+						drawTextRun(textRun.substring(lineStart, i));
+					}
+					if (i < length) {
+						textX = textLineX;
+						textY += textPaint.getTextSize();
 					}
-					Float delta = textPaint.measureText(text);
+					lineStart = i + 1;
+				}
+			}
+			textRun.setLength(0);
+		}
+
+		private void drawTextRun(String run) {
+			if (drawnTextPaint == null) {
+				final long start = clock();
+				drawnTextPaint = interner.paint(textPaint);
+				styled(start);
+			}
+			final Paint paint = drawnTextPaint;
+			final float advance = textCache.advance(paint, run);
+			if (paint.getAlpha() != 0 && run.trim().length() > 0) {
+				drawText(run, textX, textY, paint);
+				exact.reset(textMatrix);
+				exact.rect(textX, textY + textCache.ascent(paint), textX + advance, textY + textCache.descent(paint));
+				doExactLimits(null);
+			}
+			textX += advance;
+		}
+
+		/**
+		 * The text style of an enclosing <code>text</code> or <code>tspan</code>, restored at the end of a
+		 * <code>tspan</code>.
+		 */
+		private static final class TextState {
+			final Paint paint;
+			final String family;
+			final int style;
+
+			TextState(Paint paint, String family, int style) {
+				this.paint = paint;
+				this.family = family;
+				this.style = style;
+			}
+		}
+
+		/**
+		 * @return the matrix mapping coordinates in the current user space (plus the given local transform) to picture
+		 *         coordinates.
+		 */
+		private Matrix pictureMatrix(Matrix local) {
+			final Matrix m = (local == null) ? new Matrix() : new Matrix(local);
+			m.postConcat(matrixStack.getLast());
+			if (limitsAdjustmentX != null) {
+				m.postTranslate(limitsAdjustmentX, limitsAdjustmentY);
+			}
+			return m;
+		}
 
-					canvas.translate(delta, 0);
+		private SVGElement indexParent() {
+			for (int i = indexGroupStack.size() - 1; i >= 0; i--) {
+				SVGElement group = indexGroupStack.get(i);
+				if (group != null) {
+					return group;
 				}
 			}
+			return null;
 		}
 
-		@Override
-		public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
-			if (localName.equals("svg")) {
-				if (canvasRestoreCount != null) {
-					canvas.restoreToCount(canvasRestoreCount);
+		/**
+		 * Called with the (user space) bounds of everything drawn while the index is enabled.
+		 */
+		private void indexDrawnBounds(RectF box) {
+			ExactBounds.union(elementBounds, box);
+			if (limitsAdjustmentX != null) {
+				box.offset(limitsAdjustmentX, limitsAdjustmentY);
+			}
+			for (int i = 0, n = indexGroupStack.size(); i < n; i++) {
+				SVGElement group = indexGroupStack.get(i);
+				if (group != null) {
+					group.include(box);
 				}
+			}
+		}
+
+		private void indexShape(String id, String type, Shape shape) {
+			final Matrix matrix = pictureMatrix(shape.transform);
+			final RectF bounds = new RectF();
+			if (elementBounds.left <= elementBounds.right) {
+				bounds.set(elementBounds);
 				if (limitsAdjustmentX != null) {
-					limits.left += limitsAdjustmentX;
-					limits.right += limitsAdjustmentX;
+					bounds.offset(limitsAdjustmentX, limitsAdjustmentY);
 				}
-				if (limitsAdjustmentY != null) {
-					limits.top += limitsAdjustmentY;
-					limits.bottom += limitsAdjustmentY;
+			} else {
+				// Not drawn (eg. fill and stroke are none), so measure the geometry alone
+				exact.reset(matrix);
+				shape.geometry.addTo(exact);
+				exact.getBounds(bounds, 0);
+			}
+			// The path of a path element comes from the cache, if there is one
+			final boolean sharedPath = pathCache != null && type.equals("path");
+			elements.put(id, new SVGElement(id, type, indexParent(), shape.path, sharedPath, matrix, bounds,
+					drawnFillPaint, drawnStrokePaint));
+		}
+
+		/**
+		 * Opens a group in the element index; call after the group's transform has been pushed.
+		 */
+		private void pushIndexGroup(String id, String type) {
+			if (elements == null) {
+				return;
+			}
+			SVGElement group = null;
+			if (id != null) {
+				final RectF empty = new RectF(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+						Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+				group = new SVGElement(id, type, indexParent(), null, false, pictureMatrix(null), empty, null, null);
+				elements.put(id, group);
+			}
+			indexGroupStack.add(group);
+		}
+
+		private void popIndexGroup() {
+			if (elements != null) {
+				indexGroupStack.remove(indexGroupStack.size() - 1);
+			}
+		}
+
+		private void drawUse(Attributes atts) {
+			final String href = getHref(atts);
+			final Shape shape = (href == null) ? null : shapeMap.get(href);
+			if (shape == null) {
+				Log.w(TAG, "Unresolved <use> reference: " + href);
+				return;
+			}
+			if (useDepth >= MAX_USE_DEPTH) {
+				Log.w(TAG, "<use> nested too deeply (circular reference?): " + href);
+				return;
+			}
+			final Properties props = properties(atts);
+			if ("none".equals(props.getString("display"))) {
+				return;
+			}
+
+			final String transform = getStringAttr("transform", atts);
+			final Matrix matrix = (transform == null) ? new Matrix() : parseTransform(transform);
+			matrix.preTranslate(getFloatAttr("x", atts, 0f), getFloatAttr("y", atts, 0f));
+			if (shape.viewBox != null) {
+				final Float width = getFloatAttr("width", atts);
+				final Float height = getFloatAttr("height", atts);
+				if (width != null && height != null) {
+					final Matrix fit = new Matrix();
+					fit.setRectToRect(shape.viewBox, new RectF(0, 0, width, height), Matrix.ScaleToFit.CENTER);
+					matrix.preConcat(fit);
 				}
-				picture.endRecording();
+			}
+
+			pushGroup(props, matrix);
+			useDepth++;
+			pushIndexGroup(getStringAttr("id", atts), "use");
+			drawShape(shape);
+			popIndexGroup();
+			useDepth--;
+			popGroup();
+		}
+
+		private void drawShape(Shape shape) {
+			if (parseLimits != null) {
+				// A shape drawn many times over by use references counts each time
+				parseLimits.element(depth);
+			}
+			final Properties props = new Properties(shape.atts, shape.css);
+			if ("none".equals(props.getString("display"))) {
+				return;
+			}
+			final Matrix transform = (shape.transform == null) ? null : new Matrix(shape.transform);
+			if (shape.children != null) {
+				pushGroup(props, transform);
+				for (Shape child : shape.children) {
+					drawShape(child);
+				}
+				popGroup();
+			} else if (shape.href != null) {
+				drawUse(shape.atts);
+			} else if (shape.ensurePath(pathCache)) {
+				if (parseLimits != null) {
+					parseLimits.pathSegments(shape.geometry.getVerbCount());
+				}
+				pushTransform(transform);
+				shape.geometry.addTo(beginExact());
+				if (doFill(props, shape.bounds)) {
+					drawPath(shape.path, shape.geometry, drawFillPaint());
+					doLimits(shape.bounds);
+					doExactLimits(null);
+				}
+				if (doStroke(props)) {
+					drawPath(shape.path, shape.geometry, drawStrokePaint());
+					doLimits(shape.bounds, strokePaint);
+					doExactLimits(strokePaint);
+				}
+				popTransform();
+			}
+		}
+
+		@Override
+		public void characters(char ch[], int start, int length) {
+			if (metrics == null) {
+				handleCharacters(ch, start, length);
+				return;
+			}
+			final long begin = System.nanoTime();
+			handleCharacters(ch, start, length);
+			metrics.handlerNanos += System.nanoTime() - begin;
+		}
+
+		private void handleCharacters(char ch[], int start, int length) {
+			if (styleText != null) {
+				styleText.append(ch, start, length);
+				return;
+			}
+			if (inText) {
+				// Drawn when the run ends, so that it is measured and drawn once however the parser splits it
+				textRun.append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
+			if (metrics == null) {
+				handleEndElement(localName);
+				return;
+			}
+			final long start = System.nanoTime();
+			try {
+				handleEndElement(localName);
+			} finally {
+				metrics.handlerNanos += System.nanoTime() - start;
+			}
+		}
+
+		private void handleEndElement(String localName) throws SAXException {
+			elementStack.remove(elementStack.size() - 1);
+			final int level = depth--;
+			if (skipDepth >= 0) {
+				if (level == skipDepth) {
+					skipDepth = -1;
+				}
+				return;
+			}
+
+			if (localName.equals("svg")) {
+				endRecording();
 
 			} else if (localName.equals("linearGradient") || localName.equals("radialGradient")) {
 				if (gradient.id != null) {
 					gradientMap.put(gradient.id, gradient);
 				}
+			} else if (localName.equals("style")) {
+				if (styleText != null) {
+					if (styleSheet == null) {
+						styleSheet = new StyleSheet();
+					}
+					styleSheet.parse(styleText.toString());
+					styleText = null;
+				}
 			} else if (localName.equals("defs")) {
-				finishGradients();
+				defsDepth--;
+			} else if (defsDepth > 0 && (localName.equals("g") || localName.equals("symbol"))) {
+				captureStack.removeLast();
+				if (localName.equals("symbol")) {
+					defsDepth--;
+				}
 			} else if (localName.equals("g")) {
 				if (boundsMode) {
 					boundsMode = false;
@@ -1585,20 +3035,82 @@ public class SVGParser {
 				}
 				// // Clear gradient map
 				// gradientRefMap.clear();
-				popTransform();
-				fillPaint = fillPaintStack.removeLast();
-				fillSet = fillSetStack.removeLast();
-				strokePaint = strokePaintStack.removeLast();
-				strokeSet = strokeSetStack.removeLast();
-				if (!layerAttributeStack.isEmpty()) {
-					layerAttributeStack.removeLast();
+				popIndexGroup();
+				popGroup();
+				if (openLayer != null && level == 2) {
+					splitLayer();
+					openLayer = null;
 				}
 			} else if (localName.equals("text")) {
-				if (this.drawCharacters) {
-					this.drawCharacters = false;
-					canvas.restore();
+				if (inText) {
+					flushText();
+					inText = false;
+					textStateStack.clear();
+					popTransform();
+				}
+			} else if (inText && localName.equals("tspan")) {
+				flushText();
+				final TextState state = textStateStack.removeLast();
+				textPaint = state.paint;
+				textFamily = state.family;
+				textStyle = state.style;
+				drawnTextPaint = null;
+			}
+			if (animations != null) {
+				animations.endElement();
+			}
+			if (level == targetDepth) {
+				endTarget();
+			}
+		}
+
+		/**
+		 * Restores the saved state, moves the limits in to picture coordinates and ends the recording.
+		 */
+		private void endRecording() {
+			restoreToCount((canvasRestoreCount != null) ? canvasRestoreCount : 1);
+			if (limitsAdjustmentX != null) {
+				limits.left += limitsAdjustmentX;
+				limits.right += limitsAdjustmentX;
+				exactLimits.left += limitsAdjustmentX;
+				exactLimits.right += limitsAdjustmentX;
+			}
+			if (limitsAdjustmentY != null) {
+				limits.top += limitsAdjustmentY;
+				limits.bottom += limitsAdjustmentY;
+				exactLimits.top += limitsAdjustmentY;
+				exactLimits.bottom += limitsAdjustmentY;
+			}
+			renderer.endDocument();
+			recording = false;
+		}
+
+		/**
+		 * Called when the target element closes: draws it if it was captured (eg. a symbol), ends the recording and
+		 * stops the parse, as nothing after the target can affect it.
+		 */
+		private void endTarget() throws SAXException {
+			targetDepth = -1;
+			RectF viewBox = null;
+			if (targetCaptured) {
+				final Shape shape = shapeMap.get(targetId);
+				if (shape != null) {
+					viewBox = shape.viewBox;
+					drawShape(shape);
+				}
+			}
+			endRecording();
+			if (viewBox != null) {
+				targetCrop = new RectF(viewBox);
+				if (limitsAdjustmentX != null) {
+					targetCrop.offset(limitsAdjustmentX, limitsAdjustmentY);
 				}
+			} else if (!Float.isInfinite(exactLimits.top)) {
+				targetCrop = new RectF(exactLimits);
+			} else {
+				targetCrop = new RectF();
 			}
+			throw new TargetCompleteException();
 		}
 	}
 }
@@ -0,0 +1,184 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Path;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Remembers the paths parsed from <code>d</code> attributes, so that geometry repeated within and across documents
+ * (eg. the shapes shared by a family of icons, or the markers of a generated chart) is parsed once and held once.
+ * Enable it with {@link SVGBuilder#setPathCache(SVGPathCache)}; share one cache between builders (eg. the
+ * {@link #getInstance() shared instance}) to share paths between documents.
+ * <p/>
+ * Paths are looked up by their <code>d</code> string, whose hash and length pick the entry and whose characters are
+ * then compared, so different strings never share a path. Cached paths are shared by every element drawn with them,
+ * so the element index hands out copies of them (see {@link SVGElement#getPath()}). The cache holds at most the given
+ * number of bytes (estimated), dropping the least recently used paths first, and can also be kept within a
+ * {@link #setMemoryBudget(SVGMemoryBudget) memory budget}. It may be used by several parses at once.
+ */
+public class SVGPathCache implements SVGMemoryBudget.Cache {
+
+	private static SVGPathCache instance = null;
+
+	/**
+	 * A parsed path and its geometry, which are shared and must not be modified.
+	 */
+	static final class CachedPath {
+		final Path path;
+		final PathGeometry geometry;
+		final long size;
+
+		CachedPath(String d, Path path, PathGeometry geometry) {
+			this.path = path;
+			this.geometry = geometry;
+			this.size = MemoryEstimate.cachedPath(d, geometry);
+		}
+	}
+
+	/** The cached paths, least recently used first */
+	private final LinkedHashMap<String, CachedPath> paths = new LinkedHashMap<String, CachedPath>(64, 0.75f, true);
+	private long maxBytes;
+	private SVGMemoryBudget memoryBudget = null;
+	private long bytes = 0;
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * @param maxBytes the most memory the cached paths may take, in bytes.
+	 */
+	public SVGPathCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets a cache shared by all builders that use it. It holds at most a sixty-fourth of the maximum heap size.
+	 */
+	public static synchronized SVGPathCache getInstance() {
+		if (instance == null) {
+			instance = new SVGPathCache(Runtime.getRuntime().maxMemory() / 64);
+		}
+		return instance;
+	}
+
+	/**
+	 * Gets the parsed path for a <code>d</code> attribute, parsing it if it isn't cached. A path that would take more
+	 * than a quarter of the cache is parsed but not cached.
+	 */
+	CachedPath get(String d) {
+		synchronized (this) {
+			final CachedPath cached = paths.get(d);
+			if (cached != null) {
+				hits++;
+				return cached;
+			}
+			misses++;
+		}
+		// Parsed outside of the lock, so that parses on other threads aren't held up by it; if another thread parses
+		// the same string meanwhile, the last one parsed is kept
+		final PathGeometry geometry = new PathGeometry();
+		final CachedPath parsed = new CachedPath(d, SVGParser.doPath(d, geometry), geometry);
+		final SVGMemoryBudget budget;
+		synchronized (this) {
+			if (parsed.size > maxBytes / 4) {
+				return parsed;
+			}
+			final CachedPath previous = paths.put(d, parsed);
+			if (previous != null) {
+				bytes -= previous.size;
+			}
+			bytes += parsed.size;
+			trim(maxBytes);
+			budget = memoryBudget;
+		}
+		if (budget != null) {
+			// Outside of the lock, as the budget may release this cache
+			budget.used(this);
+		}
+		return parsed;
+	}
+
+	private void trim(long size) {
+		final Iterator<CachedPath> it = paths.values().iterator();
+		while (bytes > size && it.hasNext()) {
+			bytes -= it.next().size;
+			it.remove();
+		}
+	}
+
+	/**
+	 * @return the most memory the cached paths may take, in bytes.
+	 */
+	public synchronized long getMaxSize() {
+		return maxBytes;
+	}
+
+	/**
+	 * Sets the most memory the cached paths may take, dropping the least recently used paths if they take more.
+	 *
+	 * @param maxBytes the size in bytes.
+	 */
+	public synchronized void setMaxSize(long maxBytes) {
+		this.maxBytes = maxBytes;
+		trim(maxBytes);
+	}
+
+	/**
+	 * Counts the cached paths towards the given budget, which releases them with the caches of SVGs when it is
+	 * exceeded or memory is short.<br>
+	 * <em>(default is null, for no budget: the cache only holds at most its maximum size)</em>
+	 */
+	public synchronized void setMemoryBudget(SVGMemoryBudget memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * @return the number of paths cached.
+	 */
+	public synchronized int getPathCount() {
+		return paths.size();
+	}
+
+	/**
+	 * @return the estimated memory taken by the cached paths, in bytes.
+	 */
+	public synchronized long getCachedSize() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of paths found in the cache.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of paths that had to be parsed.
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the fraction of the paths looked up that were found in the cache, or 0 if none have been.
+	 */
+	public synchronized float getHitRate() {
+		final long lookups = hits + misses;
+		return (lookups == 0) ? 0f : hits / (float) lookups;
+	}
+
+	/**
+	 * Drops all cached paths; paths already parsed in to SVGs are unaffected. The hit and miss counts are kept.
+	 */
+	public synchronized void releaseCaches() {
+		paths.clear();
+		bytes = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SVGPathCache[paths=" + paths.size() + ", bytes=" + bytes + "/" + maxBytes + ", hits=" + hits
+				+ ", misses=" + misses + "]";
+	}
+}
@@ -0,0 +1,110 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+
+/**
+ * Receives the drawing of an SVG as it is parsed. By default the parser records in to an
+ * <code>android.graphics.Picture</code> with a {@link PictureRenderer}; another renderer can be given to
+ * {@link SVGBuilder#setRenderer(SVGRenderer)}, eg. to draw with another graphics library, or to measure the cost of
+ * parsing alone with a renderer that does nothing.
+ * <p/>
+ * Transforms follow the <code>Canvas</code> model: {@link #save()} pushes the current matrix (and clip), {@link #concat}
+ * and {@link #translate} modify it and {@link #restore()} pops it. Calls are always balanced by the parser.
+ * <p/>
+ * Paints are passed fully set up (colour, alpha, stroke, shader...) and may be shared between calls, so they must not be
+ * modified.
+ */
+public interface SVGRenderer {
+
+	/**
+	 * Called when the root <code>svg</code> element starts, before anything else.
+	 * 
+	 * @param width the width of the document (or of its view box), in pixels.
+	 * @param height the height of the document (or of its view box), in pixels.
+	 */
+	void beginDocument(int width, int height);
+
+	/**
+	 * Called when the root <code>svg</code> element ends, after everything else.
+	 */
+	void endDocument();
+
+	/**
+	 * Pushes the current matrix and clip.
+	 * 
+	 * @return the save count before the push, to pass to {@link #restoreToCount(int)}.
+	 */
+	int save();
+
+	/**
+	 * Pops the matrix and clip pushed by the last {@link #save()}.
+	 */
+	void restore();
+
+	/**
+	 * Pops until the save count is the given count.
+	 */
+	void restoreToCount(int saveCount);
+
+	/**
+	 * Pre-concatenates the current matrix with the given one.
+	 */
+	void concat(Matrix matrix);
+
+	/**
+	 * Replaces the current matrix.
+	 */
+	void setMatrix(Matrix matrix);
+
+	/**
+	 * Pre-concatenates the current matrix with a translation.
+	 */
+	void translate(float dx, float dy);
+
+	/**
+	 * Intersects the current clip with a rectangle (in the current user space).
+	 */
+	void clipRect(float left, float top, float right, float bottom);
+
+	/**
+	 * Draws a path, polygon or polyline.
+	 * 
+	 * @param path the native path.
+	 * @param geometry the same path as platform independent segments.
+	 */
+	void drawPath(Path path, PathGeometry geometry, Paint paint);
+
+	/**
+	 * Draws a rectangle, with rounded corners if either radius is positive.
+	 */
+	void drawRect(RectF rect, float rx, float ry, Paint paint);
+
+	void drawOval(RectF oval, Paint paint);
+
+	void drawLine(float x1, float y1, float x2, float y2, Paint paint);
+
+	void drawText(String text, float x, float y, Paint paint);
+
+	/**
+	 * Creates the shader of a linear gradient, to be set on the paints of the shapes it fills. Called once per
+	 * distinct gradient; the shader is shared by every use of it.
+	 * 
+	 * @param localMatrix the gradient's transform, or null for none.
+	 */
+	Shader createLinearGradient(float x1, float y1, float x2, float y2, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix);
+
+	/**
+	 * Creates the shader of a radial gradient, to be set on the paints of the shapes it fills. Called once per
+	 * distinct gradient; the shader is shared by every use of it.
+	 * 
+	 * @param localMatrix the gradient's transform, or null for none.
+	 */
+	Shader createRadialGradient(float x, float y, float radius, int[] colors, float[] positions, TileMode tileMode,
+			Matrix localMatrix);
+}
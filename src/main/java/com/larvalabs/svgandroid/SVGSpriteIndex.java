@@ -0,0 +1,585 @@
+package com.larvalabs.svgandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The byte ranges of the icons in a sprite sheet SVG, so that one icon can be read and parsed without scanning the
+ * rest of the file. Icons are the <code>symbol</code> and <code>g</code> elements with an id that are children of the
+ * root element or of a top-level <code>defs</code>. For each icon the index also records the other top-level
+ * definitions it refers to (through <code>url(#...)</code> or <code>xlink:href</code>, transitively), and the document
+ * keeps the ranges of the XML declaration, of the root start tag and of any <code>style</code> elements, which every
+ * icon needs.
+ * <p/>
+ * The index is built once (see {@link #build(File)}) and can be saved in a small sidecar file. Only uncompressed SVG
+ * files can be indexed, in UTF-16 or in an encoding that is a superset of ASCII (eg. UTF-8 or ISO-8859-1). Use
+ * {@link SVGSpriteSheet} to load icons.
+ */
+public class SVGSpriteIndex {
+
+	private static final int MAGIC = 0x53564749; // "SVGI"
+	private static final int VERSION = 2;
+
+	private static final Pattern REFERENCE = Pattern
+			.compile("(?:url\\(\\s*['\"]?#|href\\s*=\\s*[\"']#)([^)'\"\\s]+)");
+
+	/**
+	 * A top-level definition: its byte range in the sprite file, and those of its dependencies.
+	 */
+	static final class Entry {
+		final String id;
+		final int start;
+		final int end;
+		final boolean icon;
+		/** Indices (in document order) of the definitions this one refers to, directly or indirectly. */
+		int[] dependencies;
+
+		Entry(String id, int start, int end, boolean icon) {
+			this.id = id;
+			this.start = start;
+			this.end = end;
+			this.icon = icon;
+		}
+	}
+
+	private final long fileLength;
+	private final long lastModified;
+	/** The encoding of the file, in which the markup added around an icon is written. */
+	private final String encoding;
+	/** The end of the byte order mark and XML declaration, if any, which start every icon's document. */
+	private final int prologEnd;
+	private final int rootStart;
+	private final int rootEnd;
+	private final int[] styles;
+	private final Entry[] entries;
+	private final HashMap<String, Entry> byId = new HashMap<String, Entry>();
+	private final byte[] defsStart, defsEnd, svgEnd;
+
+	private SVGSpriteIndex(long fileLength, long lastModified, String encoding, int prologEnd, int rootStart,
+			int rootEnd, int[] styles, Entry[] entries) throws UnsupportedEncodingException {
+		this.fileLength = fileLength;
+		this.lastModified = lastModified;
+		this.encoding = encoding;
+		this.prologEnd = prologEnd;
+		this.rootStart = rootStart;
+		this.rootEnd = rootEnd;
+		this.styles = styles;
+		this.entries = entries;
+		for (Entry e : entries) {
+			byId.put(e.id, e);
+		}
+		defsStart = "<defs>".getBytes(encoding);
+		defsEnd = "</defs>".getBytes(encoding);
+		svgEnd = "</svg>".getBytes(encoding);
+	}
+
+	/**
+	 * Scans a sprite sheet and indexes its icons.
+	 *
+	 * @param sprite the (uncompressed) SVG file.
+	 * @throws IOException if the file can't be read, doesn't look like an SVG document or is in an unsupported
+	 * encoding.
+	 */
+	public static SVGSpriteIndex build(File sprite) throws IOException {
+		final long lastModified = sprite.lastModified();
+		final byte[] data = new byte[(int) sprite.length()];
+		final DataInputStream in = new DataInputStream(new FileInputStream(sprite));
+		try {
+			in.readFully(data);
+		} finally {
+			in.close();
+		}
+		return new Scanner(data).scan(lastModified);
+	}
+
+	/**
+	 * Reads an index saved with {@link #write(File)}.
+	 *
+	 * @throws IOException if the file can't be read or isn't an index.
+	 */
+	public static SVGSpriteIndex read(File indexFile) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a sprite index (or an unsupported version): " + indexFile);
+			}
+			final long fileLength = in.readLong();
+			final long lastModified = in.readLong();
+			final String encoding = in.readUTF();
+			final int prologEnd = in.readInt();
+			final int rootStart = in.readInt();
+			final int rootEnd = in.readInt();
+			final int[] styles = new int[in.readInt() * 2];
+			for (int i = 0; i < styles.length; i++) {
+				styles[i] = in.readInt();
+			}
+			final Entry[] entries = new Entry[in.readInt()];
+			for (int i = 0; i < entries.length; i++) {
+				entries[i] = new Entry(in.readUTF(), in.readInt(), in.readInt(), in.readBoolean());
+				final int[] dependencies = new int[in.readInt()];
+				for (int d = 0; d < dependencies.length; d++) {
+					dependencies[d] = in.readInt();
+				}
+				entries[i].dependencies = dependencies;
+			}
+			return new SVGSpriteIndex(fileLength, lastModified, encoding, prologEnd, rootStart, rootEnd, styles,
+					entries);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Saves the index, eg. next to the sprite sheet.
+	 */
+	public void write(File indexFile) throws IOException {
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fileLength);
+			out.writeLong(lastModified);
+			out.writeUTF(encoding);
+			out.writeInt(prologEnd);
+			out.writeInt(rootStart);
+			out.writeInt(rootEnd);
+			out.writeInt(styles.length / 2);
+			for (int s : styles) {
+				out.writeInt(s);
+			}
+			out.writeInt(entries.length);
+			for (Entry e : entries) {
+				out.writeUTF(e.id);
+				out.writeInt(e.start);
+				out.writeInt(e.end);
+				out.writeBoolean(e.icon);
+				out.writeInt(e.dependencies.length);
+				for (int d : e.dependencies) {
+					out.writeInt(d);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return whether the index was built from the given file as it is now (same length and modification time).
+	 */
+	public boolean isCurrent(File sprite) {
+		return sprite.length() == fileLength && sprite.lastModified() == lastModified;
+	}
+
+	/**
+	 * @return the ids of the icons in the sprite sheet.
+	 */
+	public Set<String> getIconIds() {
+		final Set<String> ids = new TreeSet<String>();
+		for (Entry e : entries) {
+			if (e.icon) {
+				ids.add(e.id);
+			}
+		}
+		return Collections.unmodifiableSet(ids);
+	}
+
+	/**
+	 * @return whether the sprite sheet has an icon with the given id.
+	 */
+	public boolean hasIcon(String id) {
+		final Entry e = byId.get(id);
+		return e != null && e.icon;
+	}
+
+	/**
+	 * Reads a standalone SVG document containing one icon: the XML declaration, the root start tag, the style sheets,
+	 * the icon's dependencies (inside <code>defs</code>) and the icon itself. The document is in the sprite sheet's
+	 * encoding.
+	 *
+	 * @param file the sprite sheet, open for reading.
+	 * @param id the icon id.
+	 * @return the document's bytes, or null if there is no such icon.
+	 */
+	byte[] extract(RandomAccessFile file, String id) throws IOException {
+		final Entry icon = byId.get(id);
+		if (icon == null || !icon.icon) {
+			return null;
+		}
+		final int[] dependencies = icon.dependencies;
+		int size = prologEnd + (rootEnd - rootStart) + defsStart.length + defsEnd.length + (icon.end - icon.start)
+				+ svgEnd.length;
+		for (int i = 0; i < styles.length; i += 2) {
+			size += styles[i + 1] - styles[i];
+		}
+		for (int d : dependencies) {
+			size += entries[d].end - entries[d].start;
+		}
+
+		final byte[] document = new byte[size];
+		int pos = read(file, 0, prologEnd, document, 0);
+		pos = read(file, rootStart, rootEnd, document, pos);
+		for (int i = 0; i < styles.length; i += 2) {
+			pos = read(file, styles[i], styles[i + 1], document, pos);
+		}
+		pos = copy(defsStart, document, pos);
+		for (int d : dependencies) {
+			pos = read(file, entries[d].start, entries[d].end, document, pos);
+		}
+		pos = copy(defsEnd, document, pos);
+		pos = read(file, icon.start, icon.end, document, pos);
+		copy(svgEnd, document, pos);
+		return document;
+	}
+
+	private static int read(RandomAccessFile file, int start, int end, byte[] dest, int pos) throws IOException {
+		file.seek(start);
+		file.readFully(dest, pos, end - start);
+		return pos + (end - start);
+	}
+
+	private static int copy(byte[] src, byte[] dest, int pos) {
+		System.arraycopy(src, 0, dest, pos, src.length);
+		return pos + src.length;
+	}
+
+	/**
+	 * A minimal tag scanner that finds element boundaries. Comments, CDATA sections, processing instructions and the
+	 * doctype are skipped; everything else is left to the real parser when an icon is loaded.
+	 * <p/>
+	 * The file is scanned as a sequence of code units, one per byte in an ASCII compatible encoding or one per two
+	 * bytes in UTF-16, so that offsets are easily turned back into byte offsets. Only markup (which is ASCII) is
+	 * matched against the units; ids are decoded when they are recorded.
+	 */
+	private static final class Scanner {
+		private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z0-9._-]+)[\"']");
+
+		private final int length;
+		private final char[] data;
+		/** The number of bytes per unit. */
+		private final int width;
+		private String encoding;
+		private int pos = 0;
+
+		private int rootStart = -1, rootEnd = -1;
+		private final ArrayList<Integer> styles = new ArrayList<Integer>();
+		private final ArrayList<Entry> entries = new ArrayList<Entry>();
+		/** The ids as they appear in the units, to match references against. */
+		private final ArrayList<String> rawIds = new ArrayList<String>();
+
+		// The currently open candidate entry or style element, and the depth it was opened at
+		private String openId, openName;
+		private int openStart, openDepth = -1;
+		private boolean openIcon;
+
+		Scanner(byte[] bytes) {
+			length = bytes.length;
+			final int b0 = length > 1 ? bytes[0] & 0xff : -1;
+			final int b1 = length > 1 ? bytes[1] & 0xff : -1;
+			// A byte order mark or the first character of '<?xml' tells UTF-16 apart (XML 1.0, appendix F)
+			if ((b0 == 0xfe && b1 == 0xff) || (b0 == 0 && b1 == '<')) {
+				encoding = "UTF-16BE";
+			} else if ((b0 == 0xff && b1 == 0xfe) || (b0 == '<' && b1 == 0)) {
+				encoding = "UTF-16LE";
+			}
+			if (encoding != null) {
+				final boolean bigEndian = encoding.equals("UTF-16BE");
+				width = 2;
+				data = new char[length / 2];
+				for (int i = 0; i < data.length; i++) {
+					final int hi = bytes[2 * i + (bigEndian ? 0 : 1)] & 0xff;
+					final int lo = bytes[2 * i + (bigEndian ? 1 : 0)] & 0xff;
+					data[i] = (char) (hi << 8 | lo);
+				}
+			} else {
+				encoding = "UTF-8";
+				width = 1;
+				data = new char[length];
+				for (int i = 0; i < length; i++) {
+					data[i] = (char) (bytes[i] & 0xff);
+				}
+			}
+		}
+
+		SVGSpriteIndex scan(long lastModified) throws IOException {
+			final int prologEnd = prolog();
+			int depth = 0;
+			boolean inDefs = false;
+			while (skipTo('<')) {
+				final int tagStart = pos;
+				if (startsWith("<!--")) {
+					skipPast("-->");
+				} else if (startsWith("<![CDATA[")) {
+					skipPast("]]>");
+				} else if (startsWith("<?")) {
+					skipPast("?>");
+				} else if (startsWith("<!")) {
+					skipDoctype();
+				} else if (startsWith("</")) {
+					pos += 2;
+					final String name = name();
+					skipPast(">");
+					if (depth == openDepth && name.equals(openName)) {
+						close();
+					}
+					if (depth == 2 && name.equals("defs")) {
+						inDefs = false;
+					}
+					depth--;
+				} else {
+					pos++;
+					final String name = name();
+					final HashMap<String, String> atts = new HashMap<String, String>();
+					final boolean empty = attributes(atts);
+					depth++;
+					if (depth == 1) {
+						if (!name.equals("svg")) {
+							throw new IOException("Not an SVG document (root element is " + name + ")");
+						}
+						rootStart = tagStart;
+						rootEnd = pos;
+					} else if (openDepth < 0 && (depth == 2 || (depth == 3 && inDefs))) {
+						final String id = atts.get("id");
+						if (name.equals("style")) {
+							open(name, null, tagStart, depth, false);
+						} else if (id != null) {
+							open(name, id, tagStart, depth, name.equals("symbol") || name.equals("g"));
+						} else if (depth == 2 && name.equals("defs") && !empty) {
+							inDefs = true;
+						}
+						if (empty && openDepth == depth) {
+							close();
+						}
+					}
+					if (empty) {
+						depth--;
+					}
+				}
+			}
+			if (rootStart < 0) {
+				throw new IOException("Not an SVG document (no root element)");
+			}
+			final int[] styleRanges = new int[styles.size()];
+			for (int i = 0; i < styleRanges.length; i++) {
+				styleRanges[i] = styles.get(i) * width;
+			}
+			final Entry[] table = entries.toArray(new Entry[entries.size()]);
+			resolveDependencies(table);
+			// The offsets so far are in units
+			for (int i = 0; i < table.length; i++) {
+				final Entry e = table[i];
+				table[i] = new Entry(e.id, e.start * width, e.end * width, e.icon);
+				table[i].dependencies = e.dependencies;
+			}
+			return new SVGSpriteIndex(length, lastModified, encoding, prologEnd * width, rootStart * width,
+					rootEnd * width, styleRanges, table);
+		}
+
+		/**
+		 * Skips any byte order mark and reads the encoding from the XML declaration, if there is one.
+		 *
+		 * @return the end of the byte order mark and XML declaration.
+		 */
+		private int prolog() throws IOException {
+			if (width == 2 ? startsWith("\ufeff") : startsWith("\u00ef\u00bb\u00bf")) {
+				pos = width == 2 ? 1 : 3;
+			}
+			if (startsWith("<?xml") && pos + 5 < data.length && isSpace(data[pos + 5])) {
+				final int start = pos;
+				skipPast("?>");
+				final Matcher m = ENCODING.matcher(new String(data, start, pos - start));
+				if (width == 1 && m.find()) {
+					encoding = m.group(1);
+					// The markup is found (and written) in ASCII, so eg. UTF-32 or EBCDIC won't do
+					if (!Arrays.equals("<defs>".getBytes(encoding), "<defs>".getBytes("US-ASCII"))) {
+						throw new IOException("Unsupported sprite sheet encoding: " + encoding);
+					}
+				}
+			}
+			final int end = pos;
+			pos = 0;
+			return end;
+		}
+
+		private void open(String name, String id, int start, int depth, boolean icon) {
+			openName = name;
+			openId = id;
+			openStart = start;
+			openDepth = depth;
+			openIcon = icon;
+		}
+
+		/**
+		 * Closes the open candidate; <code>pos</code> is just past its end tag (or its empty tag).
+		 */
+		private void close() throws IOException {
+			if (openId == null) {
+				styles.add(openStart);
+				styles.add(pos);
+			} else {
+				final String id = width == 2 ? openId : new String(openId.getBytes("ISO-8859-1"), encoding);
+				entries.add(new Entry(id, openStart, pos, openIcon));
+				rawIds.add(openId);
+			}
+			openDepth = -1;
+		}
+
+		private void resolveDependencies(Entry[] table) {
+			final HashMap<String, Integer> indices = new HashMap<String, Integer>();
+			for (int i = 0; i < table.length; i++) {
+				indices.put(rawIds.get(i), i);
+			}
+			// Direct references, found in the text of each definition
+			final ArrayList<LinkedHashSet<Integer>> direct = new ArrayList<LinkedHashSet<Integer>>(table.length);
+			final String text = new String(data);
+			for (int i = 0; i < table.length; i++) {
+				final LinkedHashSet<Integer> refs = new LinkedHashSet<Integer>();
+				final Matcher m = REFERENCE.matcher(text);
+				m.region(table[i].start, table[i].end);
+				while (m.find()) {
+					final Integer ref = indices.get(m.group(1));
+					if (ref != null && ref != i) {
+						refs.add(ref);
+					}
+				}
+				direct.add(refs);
+			}
+			// Transitive closure, in document order
+			for (int i = 0; i < table.length; i++) {
+				final TreeSet<Integer> all = new TreeSet<Integer>();
+				final ArrayList<Integer> pending = new ArrayList<Integer>(direct.get(i));
+				while (!pending.isEmpty()) {
+					final Integer d = pending.remove(pending.size() - 1);
+					if (d != i && all.add(d)) {
+						pending.addAll(direct.get(d));
+					}
+				}
+				final int[] dependencies = new int[all.size()];
+				int n = 0;
+				for (Integer d : all) {
+					dependencies[n++] = d;
+				}
+				table[i].dependencies = dependencies;
+			}
+		}
+
+		private boolean skipTo(char c) {
+			while (pos < data.length && data[pos] != c) {
+				pos++;
+			}
+			return pos < data.length;
+		}
+
+		private boolean startsWith(String s) {
+			if (pos + s.length() > data.length) {
+				return false;
+			}
+			for (int i = 0; i < s.length(); i++) {
+				if (data[pos + i] != s.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void skipPast(String s) {
+			while (pos < data.length && !startsWith(s)) {
+				pos++;
+			}
+			pos = Math.min(data.length, pos + s.length());
+		}
+
+		private void skipDoctype() {
+			// May contain an internal subset in brackets, itself containing '>'
+			int brackets = 0;
+			while (pos < data.length) {
+				final char c = data[pos++];
+				if (c == '[') {
+					brackets++;
+				} else if (c == ']') {
+					brackets--;
+				} else if (c == '>' && brackets <= 0) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * @return the local name (without any prefix) of the tag at <code>pos</code>.
+		 */
+		private String name() {
+			final int start = pos;
+			int local = pos;
+			while (pos < data.length) {
+				final char c = data[pos];
+				if (c == '>' || c == '/' || isSpace(c)) {
+					break;
+				}
+				if (c == ':') {
+					local = pos + 1;
+				}
+				pos++;
+			}
+			return new String(data, local, pos - local);
+		}
+
+		/**
+		 * Reads the attributes up to the end of the start tag.
+		 *
+		 * @return whether the tag was an empty element tag.
+		 */
+		private boolean attributes(HashMap<String, String> atts) {
+			while (pos < data.length) {
+				final char c = data[pos];
+				if (c == '>') {
+					pos++;
+					return false;
+				} else if (c == '/' && pos + 1 < data.length && data[pos + 1] == '>') {
+					pos += 2;
+					return true;
+				} else if (isSpace(c)) {
+					pos++;
+				} else {
+					final int nameStart = pos;
+					while (pos < data.length && data[pos] != '=' && data[pos] != '>' && !isSpace(data[pos])) {
+						pos++;
+					}
+					final String name = new String(data, nameStart, pos - nameStart);
+					while (pos < data.length && data[pos] != '"' && data[pos] != '\'' && data[pos] != '>') {
+						pos++;
+					}
+					if (pos < data.length && data[pos] != '>') {
+						final char quote = data[pos++];
+						final int valueStart = pos;
+						while (pos < data.length && data[pos] != quote) {
+							pos++;
+						}
+						atts.put(name, new String(data, valueStart, pos - valueStart));
+						pos++;
+					}
+				}
+			}
+			return false;
+		}
+
+		private static boolean isSpace(char c) {
+			return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.larvalabs.svgandroid;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Set;
+
+/**
+ * Random access to the icons of a large sprite sheet SVG file. Each icon is loaded by reading only its own byte range
+ * (and those of the definitions it uses) from the file, so the cost of loading an icon doesn't depend on the size of
+ * the sheet.
+ *
+ * <pre>
+ * SVGSpriteSheet sheet = SVGSpriteSheet.open(new File(getFilesDir(), &quot;icons.svg&quot;));
+ * SVG star = sheet.icon(&quot;star&quot;).setColorSwap(0xFF000000, 0xFF33AAFF).build();
+ * </pre>
+ *
+ * A sprite sheet is safe to use from several threads. Close it when done.
+ */
+public class SVGSpriteSheet {
+
+	private final RandomAccessFile file;
+	private final SVGSpriteIndex index;
+
+	/**
+	 * @param sprite the (uncompressed) sprite sheet file.
+	 * @param index the sprite sheet's index.
+	 */
+	public SVGSpriteSheet(File sprite, SVGSpriteIndex index) throws IOException {
+		this.file = new RandomAccessFile(sprite, "r");
+		this.index = index;
+	}
+
+	/**
+	 * Opens a sprite sheet, using the index in the sidecar file <code>&lt;sprite&gt;.idx</code>. The index is built
+	 * (and saved, if possible) when the sidecar file is missing or out of date.
+	 *
+	 * @param sprite the (uncompressed) sprite sheet file.
+	 * @throws IOException if the file can't be read or indexed.
+	 */
+	public static SVGSpriteSheet open(File sprite) throws IOException {
+		final File indexFile = new File(sprite.getPath() + ".idx");
+		SVGSpriteIndex index = null;
+		if (indexFile.exists()) {
+			try {
+				index = SVGSpriteIndex.read(indexFile);
+				if (!index.isCurrent(sprite)) {
+					index = null;
+				}
+			} catch (IOException e) {
+				Log.w(SVGParser.TAG, "Ignoring unreadable sprite index " + indexFile, e);
+			}
+		}
+		if (index == null) {
+			index = SVGSpriteIndex.build(sprite);
+			try {
+				index.write(indexFile);
+			} catch (IOException e) {
+				Log.w(SVGParser.TAG, "Couldn't save sprite index " + indexFile, e);
+			}
+		}
+		return new SVGSpriteSheet(sprite, index);
+	}
+
+	/**
+	 * @return the ids of the icons in the sprite sheet.
+	 */
+	public Set<String> getIconIds() {
+		return index.getIconIds();
+	}
+
+	/**
+	 * Reads an icon, returning a builder (targeting the icon, see {@link SVGBuilder#setTargetElement(String)}) on
+	 * which any other parsing options can be set before calling {@link SVGBuilder#build()}.
+	 *
+	 * @param id the id of the icon's <code>symbol</code> or <code>g</code> element.
+	 * @throws IOException if the icon can't be read.
+	 * @throws IllegalArgumentException if the sprite sheet has no such icon.
+	 */
+	public SVGBuilder icon(String id) throws IOException {
+		final byte[] document;
+		synchronized (file) {
+			document = index.extract(file, id);
+		}
+		if (document == null) {
+			throw new IllegalArgumentException("No icon with id '" + id + "' in the sprite sheet.");
+		}
+		return new SVGBuilder().readFromBytes(document).setTargetElement(id);
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+}
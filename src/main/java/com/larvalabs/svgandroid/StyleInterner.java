@@ -0,0 +1,272 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.ColorFilter;
+import android.graphics.DashPathEffect;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PathEffect;
+import android.graphics.Shader;
+import android.graphics.Shader.TileMode;
+import android.graphics.Typeface;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Document-wide registry that canonicalises the paints, dash effects and gradient shaders used while recording an
+ * SVG, so that each distinct style exists only once no matter how many elements use it.
+ * <p/>
+ * Paints handed to {@link #paint(Paint)} are snapshotted; the returned instance must never be modified.
+ */
+final class StyleInterner {
+
+	private final SVGParseStatistics stats;
+
+	private final HashMap<PaintKey, Paint> paints = new HashMap<PaintKey, Paint>();
+	private final PaintKey paintProbe = new PaintKey();
+
+	private final HashMap<FloatArrayKey, DashPathEffect> dashes = new HashMap<FloatArrayKey, DashPathEffect>();
+
+	private final HashMap<GradientKey, Shader> shaders = new HashMap<GradientKey, Shader>();
+
+	StyleInterner(SVGParseStatistics stats) {
+		this.stats = stats;
+	}
+
+	/**
+	 * Returns the canonical paint with the same configuration as the given one.
+	 */
+	Paint paint(Paint paint) {
+		stats.paintRequests++;
+		paintProbe.set(paint);
+		Paint canonical = paints.get(paintProbe);
+		if (canonical == null) {
+			canonical = new Paint(paint);
+			paints.put(new PaintKey(paintProbe), canonical);
+			stats.distinctPaints++;
+		}
+		return canonical;
+	}
+
+	/**
+	 * Returns the canonical dash effect for the given intervals and phase. The intervals array must not be modified
+	 * afterwards.
+	 */
+	DashPathEffect dash(float[] intervals, float phase) {
+		stats.pathEffectRequests++;
+		float[] key = new float[intervals.length + 1];
+		System.arraycopy(intervals, 0, key, 0, intervals.length);
+		key[intervals.length] = phase;
+		FloatArrayKey k = new FloatArrayKey(key);
+		DashPathEffect effect = dashes.get(k);
+		if (effect == null) {
+			effect = new DashPathEffect(intervals, phase);
+			dashes.put(k, effect);
+			stats.distinctPathEffects++;
+		}
+		return effect;
+	}
+
+	/**
+	 * Returns the canonical linear gradient shader for the given definition. The shader's local matrix is set when
+	 * it is created and must never be changed, as the shader may be shared.
+	 * 
+	 * @param renderer creates the shader, if there isn't one for the definition yet.
+	 * @param localMatrix the local matrix, or null for identity.
+	 */
+	Shader linearGradient(SVGRenderer renderer, float x1, float y1, float x2, float y2, int[] colors,
+			float[] positions, TileMode tileMode, Matrix localMatrix) {
+		stats.shaderRequests++;
+		GradientKey k = new GradientKey(true, geometry(localMatrix, x1, y1, x2, y2), colors, positions, tileMode);
+		Shader shader = shaders.get(k);
+		if (shader == null) {
+			shader = renderer.createLinearGradient(x1, y1, x2, y2, colors, positions, tileMode, localMatrix);
+			shaders.put(k, shader);
+			stats.distinctShaders++;
+		}
+		return shader;
+	}
+
+	/**
+	 * Returns the canonical radial gradient shader for the given definition. The shader's local matrix is set when
+	 * it is created and must never be changed, as the shader may be shared.
+	 * 
+	 * @param renderer creates the shader, if there isn't one for the definition yet.
+	 * @param localMatrix the local matrix, or null for identity.
+	 */
+	Shader radialGradient(SVGRenderer renderer, float x, float y, float radius, int[] colors, float[] positions,
+			TileMode tileMode, Matrix localMatrix) {
+		stats.shaderRequests++;
+		GradientKey k = new GradientKey(false, geometry(localMatrix, x, y, radius), colors, positions, tileMode);
+		Shader shader = shaders.get(k);
+		if (shader == null) {
+			shader = renderer.createRadialGradient(x, y, radius, colors, positions, tileMode, localMatrix);
+			shaders.put(k, shader);
+			stats.distinctShaders++;
+		}
+		return shader;
+	}
+
+	/**
+	 * @return the given values followed by the 9 values of the matrix (identity if null).
+	 */
+	private static float[] geometry(Matrix matrix, float... values) {
+		final float[] geometry = new float[values.length + 9];
+		System.arraycopy(values, 0, geometry, 0, values.length);
+		if (matrix != null) {
+			final float[] m = new float[9];
+			matrix.getValues(m);
+			System.arraycopy(m, 0, geometry, values.length, 9);
+		} else {
+			geometry[values.length] = geometry[values.length + 4] = geometry[values.length + 8] = 1f;
+		}
+		return geometry;
+	}
+
+	/**
+	 * Value snapshot of everything about a {@link Paint} that the parser can set. Objects hanging off the paint
+	 * (shaders, effects, filters, typefaces) are compared by identity, which is sufficient as they are interned too.
+	 */
+	private static final class PaintKey {
+		int flags;
+		int color;
+		Paint.Style style;
+		float strokeWidth;
+		float strokeMiter;
+		Paint.Cap cap;
+		Paint.Join join;
+		float textSize;
+		Paint.Align textAlign;
+		Shader shader;
+		PathEffect pathEffect;
+		ColorFilter colorFilter;
+		Typeface typeface;
+		int hash;
+
+		PaintKey() {
+		}
+
+		PaintKey(PaintKey k) {
+			flags = k.flags;
+			color = k.color;
+			style = k.style;
+			strokeWidth = k.strokeWidth;
+			strokeMiter = k.strokeMiter;
+			cap = k.cap;
+			join = k.join;
+			textSize = k.textSize;
+			textAlign = k.textAlign;
+			shader = k.shader;
+			pathEffect = k.pathEffect;
+			colorFilter = k.colorFilter;
+			typeface = k.typeface;
+			hash = k.hash;
+		}
+
+		void set(Paint p) {
+			flags = p.getFlags();
+			color = p.getColor();
+			style = p.getStyle();
+			strokeWidth = p.getStrokeWidth();
+			strokeMiter = p.getStrokeMiter();
+			cap = p.getStrokeCap();
+			join = p.getStrokeJoin();
+			textSize = p.getTextSize();
+			textAlign = p.getTextAlign();
+			shader = p.getShader();
+			pathEffect = p.getPathEffect();
+			colorFilter = p.getColorFilter();
+			typeface = p.getTypeface();
+
+			int h = flags;
+			h = 31 * h + color;
+			h = 31 * h + (style == null ? 0 : style.ordinal());
+			h = 31 * h + Float.floatToIntBits(strokeWidth);
+			h = 31 * h + Float.floatToIntBits(strokeMiter);
+			h = 31 * h + (cap == null ? 0 : cap.ordinal());
+			h = 31 * h + (join == null ? 0 : join.ordinal());
+			h = 31 * h + Float.floatToIntBits(textSize);
+			h = 31 * h + (textAlign == null ? 0 : textAlign.ordinal());
+			h = 31 * h + System.identityHashCode(shader);
+			h = 31 * h + System.identityHashCode(pathEffect);
+			h = 31 * h + System.identityHashCode(colorFilter);
+			h = 31 * h + System.identityHashCode(typeface);
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof PaintKey)) {
+				return false;
+			}
+			PaintKey k = (PaintKey) o;
+			return hash == k.hash && flags == k.flags && color == k.color && style == k.style
+					&& strokeWidth == k.strokeWidth && strokeMiter == k.strokeMiter && cap == k.cap && join == k.join
+					&& textSize == k.textSize && textAlign == k.textAlign && shader == k.shader
+					&& pathEffect == k.pathEffect && colorFilter == k.colorFilter && typeface == k.typeface;
+		}
+	}
+
+	private static final class FloatArrayKey {
+		final float[] values;
+		final int hash;
+
+		FloatArrayKey(float[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof FloatArrayKey && Arrays.equals(values, ((FloatArrayKey) o).values);
+		}
+	}
+
+	private static final class GradientKey {
+		final boolean linear;
+		final float[] geometry;
+		final int[] colors;
+		final float[] positions;
+		final TileMode tileMode;
+		final int hash;
+
+		GradientKey(boolean linear, float[] geometry, int[] colors, float[] positions, TileMode tileMode) {
+			this.linear = linear;
+			this.geometry = geometry;
+			this.colors = colors;
+			this.positions = positions;
+			this.tileMode = tileMode;
+			int h = linear ? 1 : 0;
+			h = 31 * h + Arrays.hashCode(geometry);
+			h = 31 * h + Arrays.hashCode(colors);
+			h = 31 * h + Arrays.hashCode(positions);
+			h = 31 * h + (tileMode == null ? 0 : tileMode.ordinal());
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof GradientKey)) {
+				return false;
+			}
+			GradientKey k = (GradientKey) o;
+			return linear == k.linear && tileMode == k.tileMode && Arrays.equals(geometry, k.geometry)
+					&& Arrays.equals(colors, k.colors) && Arrays.equals(positions, k.positions);
+		}
+	}
+}
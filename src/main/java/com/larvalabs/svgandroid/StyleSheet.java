@@ -0,0 +1,376 @@
+package com.larvalabs.svgandroid;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.xml.sax.Attributes;
+
+/**
+ * The rules of the document's embedded <code>&lt;style&gt;</code> blocks. Supports the common CSS selector subset:
+ * type (<code>rect</code>), class (<code>.road</code>), id (<code>#needle</code>), the universal selector,
+ * compounds of those (<code>path.road.major</code>) and simple descendant combinations (<code>#map .road</code>).
+ * <p/>
+ * Rules are compiled once into hash tables keyed by the id, class or element name of their rightmost compound, so
+ * resolving an element's cascade only has to look at the handful of rules that can possibly match it.
+ */
+final class StyleSheet {
+
+	/**
+	 * The bits of an element that selectors can match on.
+	 */
+	static final class Element {
+		final String type;
+		final String id;
+		final String[] classes;
+		private HashMap<String, String> declarations;
+		private boolean resolved = false;
+
+		Element(String type, Attributes atts) {
+			this.type = type;
+			String id = null;
+			String classAttr = null;
+			for (int i = 0, n = atts.getLength(); i < n; i++) {
+				String name = atts.getLocalName(i);
+				if (name.equals("id")) {
+					id = atts.getValue(i);
+				} else if (name.equals("class")) {
+					classAttr = atts.getValue(i);
+				}
+			}
+			this.id = id;
+			this.classes = (classAttr == null) ? NO_CLASSES : classAttr.trim().split("\\s+");
+		}
+
+		boolean hasClass(String c) {
+			for (String s : classes) {
+				if (s.equals(c)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final String[] NO_CLASSES = new String[0];
+
+	/**
+	 * One compound selector, eg. <code>path.road#a1</code>. Null or empty parts match anything.
+	 */
+	private static final class Compound {
+		String type;
+		String id;
+		String[] classes = NO_CLASSES;
+
+		boolean matches(Element e) {
+			if (type != null && !type.equals(e.type)) {
+				return false;
+			}
+			if (id != null && !id.equals(e.id)) {
+				return false;
+			}
+			for (String c : classes) {
+				if (!e.hasClass(c)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class Rule {
+		/** Compounds from leftmost (outermost ancestor) to rightmost (the subject). */
+		final Compound[] compounds;
+		final HashMap<String, String> declarations;
+		final int specificity;
+		final int order;
+
+		Rule(Compound[] compounds, HashMap<String, String> declarations, int order) {
+			this.compounds = compounds;
+			this.declarations = declarations;
+			this.order = order;
+			int ids = 0, classes = 0, types = 0;
+			for (Compound c : compounds) {
+				if (c.id != null) {
+					ids++;
+				}
+				classes += c.classes.length;
+				if (c.type != null) {
+					types++;
+				}
+			}
+			this.specificity = ids * 10000 + classes * 100 + types;
+		}
+
+		/**
+		 * @param stack the open elements, the last one being the element to match.
+		 */
+		boolean matches(ArrayList<Element> stack) {
+			int last = compounds.length - 1;
+			int i = stack.size() - 1;
+			if (!compounds[last].matches(stack.get(i))) {
+				return false;
+			}
+			// Descendant combinators: match remaining compounds against ancestors, nearest first
+			for (int c = last - 1; c >= 0; c--) {
+				do {
+					i--;
+				} while (i >= 0 && !compounds[c].matches(stack.get(i)));
+				if (i < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final HashMap<String, ArrayList<Rule>> byId = new HashMap<String, ArrayList<Rule>>();
+	private final HashMap<String, ArrayList<Rule>> byClass = new HashMap<String, ArrayList<Rule>>();
+	private final HashMap<String, ArrayList<Rule>> byType = new HashMap<String, ArrayList<Rule>>();
+	private final ArrayList<Rule> universal = new ArrayList<Rule>();
+	private int ruleCount = 0;
+
+	private final ArrayList<Rule> matched = new ArrayList<Rule>();
+
+	/**
+	 * Compiles the rules in the given CSS text and adds them to this style sheet. Unsupported selectors and at-rules
+	 * are skipped.
+	 */
+	void parse(String css) {
+		css = stripComments(css);
+		int pos = 0;
+		final int n = css.length();
+		while (pos < n) {
+			int open = css.indexOf('{', pos);
+			if (open < 0) {
+				break;
+			}
+			String selectors = css.substring(pos, open).trim();
+			int semicolon = selectors.lastIndexOf(';');
+			if (semicolon >= 0) {
+				// Statement at-rules such as @import
+				selectors = selectors.substring(semicolon + 1).trim();
+			}
+			if (selectors.startsWith("@")) {
+				// Skip at-rules (@media, @font-face...) including any nested blocks
+				pos = skipBlock(css, open);
+				continue;
+			}
+			int close = css.indexOf('}', open);
+			if (close < 0) {
+				close = n;
+			}
+			HashMap<String, String> declarations = parseDeclarations(css.substring(open + 1, close));
+			pos = close + 1;
+			if (declarations.isEmpty()) {
+				continue;
+			}
+			for (String selector : selectors.split(",")) {
+				Compound[] compounds = parseSelector(selector.trim());
+				if (compounds == null) {
+					Log.w(SVGParser.TAG, "Unsupported CSS selector: " + selector);
+					continue;
+				}
+				add(new Rule(compounds, declarations, ruleCount++));
+			}
+		}
+	}
+
+	/**
+	 * Resolves the cascaded declarations for the last element of the stack. The result is cached on the element.
+	 *
+	 * @return the declarations, or null if no rule matches.
+	 */
+	HashMap<String, String> resolve(ArrayList<Element> stack) {
+		final Element e = stack.get(stack.size() - 1);
+		if (e.resolved) {
+			return e.declarations;
+		}
+		matched.clear();
+		if (e.id != null) {
+			collect(byId.get(e.id), stack);
+		}
+		for (String c : e.classes) {
+			collect(byClass.get(c), stack);
+		}
+		collect(byType.get(e.type), stack);
+		collect(universal, stack);
+
+		HashMap<String, String> result = null;
+		if (!matched.isEmpty()) {
+			// Insertion sort by (specificity, order); the list is tiny
+			for (int i = 1; i < matched.size(); i++) {
+				Rule r = matched.get(i);
+				int j = i - 1;
+				while (j >= 0 && compare(matched.get(j), r) > 0) {
+					matched.set(j + 1, matched.get(j));
+					j--;
+				}
+				matched.set(j + 1, r);
+			}
+			if (matched.size() == 1) {
+				result = matched.get(0).declarations;
+			} else {
+				result = new HashMap<String, String>();
+				for (Rule r : matched) {
+					result.putAll(r.declarations);
+				}
+			}
+		}
+		e.declarations = result;
+		e.resolved = true;
+		return result;
+	}
+
+	private void collect(ArrayList<Rule> rules, ArrayList<Element> stack) {
+		if (rules == null) {
+			return;
+		}
+		for (Rule r : rules) {
+			// A rule is indexed once, but can be reached through several classes of the same element
+			if (r.matches(stack) && !matched.contains(r)) {
+				matched.add(r);
+			}
+		}
+	}
+
+	private static int compare(Rule a, Rule b) {
+		if (a.specificity != b.specificity) {
+			return a.specificity < b.specificity ? -1 : 1;
+		}
+		return a.order < b.order ? -1 : (a.order == b.order ? 0 : 1);
+	}
+
+	private void add(Rule rule) {
+		final Compound subject = rule.compounds[rule.compounds.length - 1];
+		if (subject.id != null) {
+			index(byId, subject.id, rule);
+		} else if (subject.classes.length > 0) {
+			index(byClass, subject.classes[0], rule);
+		} else if (subject.type != null) {
+			index(byType, subject.type, rule);
+		} else {
+			universal.add(rule);
+		}
+	}
+
+	private static void index(HashMap<String, ArrayList<Rule>> map, String key, Rule rule) {
+		ArrayList<Rule> rules = map.get(key);
+		if (rules == null) {
+			rules = new ArrayList<Rule>(2);
+			map.put(key, rules);
+		}
+		rules.add(rule);
+	}
+
+	/**
+	 * @return the compounds of a descendant selector, or null if it uses unsupported syntax.
+	 */
+	private static Compound[] parseSelector(String selector) {
+		if (selector.length() == 0) {
+			return null;
+		}
+		String[] parts = selector.split("\\s+");
+		Compound[] compounds = new Compound[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			compounds[i] = parseCompound(parts[i]);
+			if (compounds[i] == null) {
+				return null;
+			}
+		}
+		return compounds;
+	}
+
+	private static Compound parseCompound(String s) {
+		final Compound c = new Compound();
+		final ArrayList<String> classes = new ArrayList<String>();
+		final int n = s.length();
+		int i = 0;
+		while (i < n) {
+			char ch = s.charAt(i);
+			int start = (ch == '.' || ch == '#') ? i + 1 : i;
+			int end = start;
+			while (end < n && isNameChar(s.charAt(end))) {
+				end++;
+			}
+			if (ch == '*' && i == 0) {
+				end = 1;
+			} else if (end == start) {
+				// Pseudo-classes, attribute selectors, child/sibling combinators...
+				return null;
+			} else if (ch == '.') {
+				classes.add(s.substring(start, end));
+			} else if (ch == '#') {
+				c.id = s.substring(start, end);
+			} else if (i == 0) {
+				c.type = s.substring(start, end);
+			} else {
+				return null;
+			}
+			i = end;
+		}
+		c.classes = classes.toArray(new String[classes.size()]);
+		return c;
+	}
+
+	private static boolean isNameChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '-' || c == '_';
+	}
+
+	private static HashMap<String, String> parseDeclarations(String block) {
+		final HashMap<String, String> declarations = new HashMap<String, String>();
+		for (String declaration : block.split(";")) {
+			int colon = declaration.indexOf(':');
+			if (colon <= 0) {
+				continue;
+			}
+			String name = declaration.substring(0, colon).trim();
+			String value = declaration.substring(colon + 1).trim();
+			int important = value.indexOf("!important");
+			if (important >= 0) {
+				value = value.substring(0, important).trim();
+			}
+			if (name.length() > 0 && value.length() > 0) {
+				declarations.put(name, value);
+			}
+		}
+		return declarations;
+	}
+
+	private static String stripComments(String css) {
+		int start = css.indexOf("/*");
+		if (start < 0) {
+			return css;
+		}
+		final StringBuilder sb = new StringBuilder(css.length());
+		int pos = 0;
+		while (start >= 0) {
+			sb.append(css, pos, start);
+			int end = css.indexOf("*/", start + 2);
+			if (end < 0) {
+				return sb.toString();
+			}
+			pos = end + 2;
+			start = css.indexOf("/*", pos);
+		}
+		sb.append(css, pos, css.length());
+		return sb.toString();
+	}
+
+	/**
+	 * @return the position just after the block opened at <code>open</code>, taking nesting into account.
+	 */
+	private static int skipBlock(String css, int open) {
+		int depth = 0;
+		for (int i = open; i < css.length(); i++) {
+			char c = css.charAt(i);
+			if (c == '{') {
+				depth++;
+			} else if (c == '}' && --depth == 0) {
+				return i + 1;
+			}
+		}
+		return css.length();
+	}
+}
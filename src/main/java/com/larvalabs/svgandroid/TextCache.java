@@ -0,0 +1,123 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The caches used to lay out the text of one document: typefaces by family and style, font metrics by paint, and the
+ * advances of text runs by paint and content (so that repeated labels are measured once). Paints must be canonical
+ * paints from a {@link StyleInterner}, as they are compared by identity.
+ */
+final class TextCache {
+
+	/**
+	 * The number of run advances kept, which bounds the memory used by documents with many distinct labels.
+	 */
+	private static final int MAX_ADVANCES = 512;
+
+	private final HashMap<String, Typeface> typefaces = new HashMap<String, Typeface>();
+	private final IdentityHashMap<Paint, float[]> metrics = new IdentityHashMap<Paint, float[]>();
+	private final AdvanceCache advances = new AdvanceCache();
+	private final RunKey probe = new RunKey();
+
+	/**
+	 * @param family the font family, or null for the default.
+	 * @param style the <code>Typeface</code> style (bold, italic).
+	 */
+	Typeface typeface(String family, int style) {
+		final String key = (family == null) ? String.valueOf(style) : style + family;
+		Typeface typeface = typefaces.get(key);
+		if (typeface == null) {
+			typeface = Typeface.create(family, style);
+			typefaces.put(key, typeface);
+		}
+		return typeface;
+	}
+
+	/**
+	 * @return the ascent (negative) of the paint's font.
+	 */
+	float ascent(Paint paint) {
+		return metrics(paint)[0];
+	}
+
+	/**
+	 * @return the descent of the paint's font.
+	 */
+	float descent(Paint paint) {
+		return metrics(paint)[1];
+	}
+
+	private float[] metrics(Paint paint) {
+		float[] m = metrics.get(paint);
+		if (m == null) {
+			m = new float[] { paint.ascent(), paint.descent() };
+			metrics.put(paint, m);
+		}
+		return m;
+	}
+
+	/**
+	 * @return the width of a run of text drawn with the paint.
+	 */
+	float advance(Paint paint, String text) {
+		probe.set(paint, text);
+		Float advance = advances.get(probe);
+		if (advance == null) {
+			advance = paint.measureText(text);
+			advances.put(new RunKey(paint, text), advance);
+		}
+		return advance;
+	}
+
+	private static final class AdvanceCache extends LinkedHashMap<RunKey, Float> {
+		private static final long serialVersionUID = 1L;
+
+		AdvanceCache() {
+			super(64, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<RunKey, Float> eldest) {
+			return size() > MAX_ADVANCES;
+		}
+	}
+
+	private static final class RunKey {
+		Paint paint;
+		String text;
+		int hash;
+
+		RunKey() {
+		}
+
+		RunKey(Paint paint, String text) {
+			set(paint, text);
+		}
+
+		void set(Paint paint, String text) {
+			this.paint = paint;
+			this.text = text;
+			hash = System.identityHashCode(paint) * 31 + text.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof RunKey)) {
+				return false;
+			}
+			final RunKey k = (RunKey) o;
+			return paint == k.paint && text.equals(k.text);
+		}
+	}
+}
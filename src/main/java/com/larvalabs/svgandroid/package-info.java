@@ -8,8 +8,8 @@
  * SVG Basic 1.1 features are not supported and will be ignored by the parser:
  * <ul>
  * <li>All text and font features.
- * <li>Styles.
- * <li>Symbols, conditional processing.
+ * <li>Style sheet selectors other than type, class, id and descendant selectors.
+ * <li>Conditional processing.
  * <li>Patterns.
  * <li>Masks, filters and views.
  * <li>Interactivity, linking, scripting and animation.